@@ -0,0 +1,138 @@
+package in.at0m.fsm.benchmark;
+
+import in.at0m.fsm.StateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.dynamic.DynamicStateMachine;
+import in.at0m.fsm.dynamic.DynamicStateMachineDefinition;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the uncontended hot path: every benchmark thread drives its own state machine. Run with
+ * {@code -t 1,4,16,64} style thread counts to see how the path scales when machines are not shared, and with
+ * {@code -prof gc} to see the allocation per operation.
+ *
+ * @author shubhdarlinge
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ConsumeBenchmark {
+
+    @Param({"TURNSTILE", "LARGE"})
+    public String model;
+
+    @Param({"false", "true"})
+    public boolean actions;
+
+    private final Object context = new Object();
+
+    private StateMachine machine;
+
+    private StateMachine stacklessMachine;
+
+    private StateMachine reusingMachine;
+
+    private StateMachine compiledMachine;
+
+    private DynamicStateMachine<Object> dynamicMachine;
+
+    private Enum[] events;
+
+    private int[] dynamicEvents;
+
+    private Enum invalidEvent;
+
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        final Models.Model definition = Models.of(model, actions);
+        machine = definition.definition.newStateMachine(definition.initialState);
+        stacklessMachine = StateMachineDefinition.builder().transitions(definition.definition.getTransitions())
+                .stacklessExceptions(true).build().newStateMachine(definition.initialState);
+        reusingMachine = StateMachineDefinition.builder().transitions(definition.definition.getTransitions())
+                .reuseActionContext(true).build().newStateMachine(definition.initialState);
+        compiledMachine = definition.definition.newCompiledStateMachine(definition.initialState);
+        events = definition.events;
+        final DynamicStateMachineDefinition<Object> dynamicDefinition = Models.dynamic(definition, actions);
+        dynamicMachine = dynamicDefinition.newStateMachine(definition.initialState.name());
+        dynamicEvents = new int[events.length];
+        for (int i = 0; i < events.length; i++) {
+            dynamicEvents[i] = dynamicDefinition.getEvents().id(events[i].name());
+        }
+        invalidEvent = definition.invalidEvent;
+    }
+
+    @Benchmark
+    public Object consume() {
+        return machine.consume(nextEvent(), context);
+    }
+
+    @Benchmark
+    public Object consumeCompiled() {
+        return compiledMachine.consume(nextEvent(), context);
+    }
+
+    @Benchmark
+    public int consumeDynamic() {
+        final int event = dynamicEvents[cursor];
+        cursor = cursor + 1 == dynamicEvents.length ? 0 : cursor + 1;
+        return dynamicMachine.consume(event, context);
+    }
+
+    @Benchmark
+    public Object consumeReusingContext() {
+        return reusingMachine.consume(nextEvent(), context);
+    }
+
+    @Benchmark
+    public boolean canConsume() {
+        return machine.canConsume(nextEvent());
+    }
+
+    @Benchmark
+    public Object consumeInvalid() {
+        try {
+            return machine.consume(invalidEvent, context);
+        } catch (InvalidTransitionException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object consumeInvalidStackless() {
+        try {
+            return stacklessMachine.consume(invalidEvent, context);
+        } catch (InvalidTransitionException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object tryConsumeInvalid() {
+        return machine.tryConsume(invalidEvent, context);
+    }
+
+    private Enum nextEvent() {
+        final Enum event = events[cursor];
+        cursor = cursor + 1 == events.length ? 0 : cursor + 1;
+        return event;
+    }
+}
@@ -0,0 +1,117 @@
+package in.at0m.fsm.benchmark;
+
+import in.at0m.fsm.AtomicStateMachine;
+import in.at0m.fsm.StateMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures a single hot state machine shared by 1, 4, 16 and 64 threads, for both the locking
+ * {@link in.at0m.fsm.SimpleStateMachine} and the lock-free {@link AtomicStateMachine}.
+ *
+ * @author shubhdarlinge
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ContentionBenchmark {
+
+    @Param({"TURNSTILE", "LARGE"})
+    public String model;
+
+    @Param({"SIMPLE", "ATOMIC"})
+    public String machineType;
+
+    private final Object context = new Object();
+
+    private StateMachine machine;
+
+    private Enum[] events;
+
+    @Setup
+    public void setup() {
+        final Models.Model definition = Models.of(model, false);
+        machine = "ATOMIC".equals(machineType)
+                ? definition.definition.newAtomicStateMachine(definition.initialState,
+                AtomicStateMachine.ConflictPolicy.RETRY)
+                : definition.definition.newStateMachine(definition.initialState);
+        events = definition.events;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object consume1() {
+        return consume();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object consume4() {
+        return consume();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object consume16() {
+        return consume();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object consume64() {
+        return consume();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean canConsume1() {
+        return canConsume();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean canConsume4() {
+        return canConsume();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean canConsume16() {
+        return canConsume();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean canConsume64() {
+        return canConsume();
+    }
+
+    private Object consume() {
+        return machine.consume(randomEvent(), context);
+    }
+
+    private boolean canConsume() {
+        return machine.canConsume(randomEvent());
+    }
+
+    private Enum randomEvent() {
+        return events[ThreadLocalRandom.current().nextInt(events.length)];
+    }
+}
@@ -0,0 +1,76 @@
+package in.at0m.fsm.benchmark;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.transition.Transition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Array;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the final state of a history of 4M random consumable events, computed by a loop over
+ * {@code getTransition} on one thread and by {@code fastForward} on the common fork-join pool. The events of the
+ * turnstile collapse its states quickly, which is the common case, whereas every event of the large model permutes
+ * its 200 states, which is the worst case of {@code fastForward}.
+ *
+ * @author shubhdarlinge
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class FastForwardBenchmark {
+
+    @Param({"TURNSTILE", "LARGE"})
+    public String model;
+
+    private StateMachineDefinition definition;
+
+    private Enum initialState;
+
+    private Enum[] history;
+
+    @Setup
+    public void setup() {
+        final Models.Model model = Models.of(this.model, false);
+        definition = model.definition;
+        initialState = model.initialState;
+        final Random random = new Random(42);
+        history = (Enum[]) Array.newInstance(model.events.getClass().getComponentType(), 1 << 22);
+        for (int i = 0; i < history.length; i++) {
+            history[i] = model.events[random.nextInt(model.events.length)];
+        }
+    }
+
+    @Benchmark
+    public Object loop() {
+        Enum state = initialState;
+        for (final Enum event : history) {
+            final Transition transition = definition.getTransition(state, event);
+            if (transition == null) {
+                return null;
+            }
+            state = transition.getToState();
+        }
+        return state;
+    }
+
+    @Benchmark
+    public Object fastForward() {
+        return definition.fastForward(initialState, history);
+    }
+}
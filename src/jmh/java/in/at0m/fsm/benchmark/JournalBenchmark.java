@@ -0,0 +1,100 @@
+package in.at0m.fsm.benchmark;
+
+import in.at0m.fsm.StateMachine;
+import in.at0m.fsm.journal.JournaledStateMachine;
+import in.at0m.fsm.journal.TransitionJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Measures durable transitions: every benchmark thread drives its own machine and all of them append to one
+ * {@link TransitionJournal} in a temporary directory, committed every {@code groupCommitRecords} records. Run with
+ * {@code -t} to see how group commit amortizes the fsync across threads.
+ *
+ * @author shubhdarlinge
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class JournalBenchmark {
+
+    @Benchmark
+    public Object consume(final MachineState machine) {
+        return machine.machine.consume(machine.nextEvent(), machine);
+    }
+
+    @State(Scope.Benchmark)
+    public static class JournalState {
+
+        @Param({"64", "1024"})
+        public int groupCommitRecords;
+
+        private final AtomicLong ids = new AtomicLong();
+
+        private Path directory;
+
+        private TransitionJournal journal;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("fsm-journal");
+            journal = new TransitionJournal(directory, groupCommitRecords, Duration.ofMillis(1),
+                    TransitionJournal.DEFAULT_SEGMENT_SIZE);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MachineState {
+
+        private StateMachine machine;
+
+        private Enum[] events;
+
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(final JournalState journal) {
+            final Models.Model model = Models.of("TURNSTILE", false);
+            machine = new JournaledStateMachine(journal.ids.incrementAndGet(),
+                    model.definition.newStateMachine(model.initialState), journal.journal);
+            events = model.events;
+        }
+
+        private Enum nextEvent() {
+            final Enum event = events[cursor];
+            cursor = cursor + 1 == events.length ? 0 : cursor + 1;
+            return event;
+        }
+    }
+}
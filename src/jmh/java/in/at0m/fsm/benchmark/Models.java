@@ -0,0 +1,198 @@
+package in.at0m.fsm.benchmark;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.dynamic.DynamicAction;
+import in.at0m.fsm.dynamic.DynamicActionContext;
+import in.at0m.fsm.dynamic.DynamicStateMachineDefinition;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The state machine definitions exercised by the benchmarks.
+ *
+ * @author shubhdarlinge
+ */
+public final class Models {
+
+    private Models() {
+    }
+
+    /**
+     * Builds the definition of the given model.
+     *
+     * @param model   The name of the model, either {@code TURNSTILE} or {@code LARGE}.
+     * @param actions Whether every transition carries an action.
+     * @return The model.
+     */
+    public static Model<?, ?> of(final String model, final boolean actions) {
+        switch (model) {
+            case "TURNSTILE":
+                return turnstile(actions);
+            case "LARGE":
+                return large(actions);
+            default:
+                throw new IllegalArgumentException(model);
+        }
+    }
+
+    /**
+     * The classic two state turnstile. {@link TurnstileEvent#ALARM} is never consumable.
+     *
+     * @param actions Whether every transition carries an action.
+     * @return The model.
+     */
+    public static Model<TurnstileEvent, TurnstileState> turnstile(final boolean actions) {
+        final List<Action<TurnstileEvent, TurnstileState, Object>> list = actions(actions);
+        final List<Transition<TurnstileEvent, TurnstileState, Object>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(TurnstileEvent.COIN, TurnstileState.LOCKED, TurnstileState.UNLOCKED, list));
+        transitions.add(new Transition<>(TurnstileEvent.PUSH, TurnstileState.LOCKED, TurnstileState.LOCKED, list));
+        transitions.add(new Transition<>(TurnstileEvent.COIN, TurnstileState.UNLOCKED, TurnstileState.UNLOCKED, list));
+        transitions.add(new Transition<>(TurnstileEvent.PUSH, TurnstileState.UNLOCKED, TurnstileState.LOCKED, list));
+        return new Model<>(new StateMachineDefinition<>(transitions), TurnstileState.LOCKED,
+                new TurnstileEvent[]{TurnstileEvent.COIN, TurnstileEvent.PUSH}, TurnstileEvent.ALARM);
+    }
+
+    /**
+     * A machine of 200 states and 100 events where every event but {@link LargeEvent#E99} is consumable in every
+     * state.
+     *
+     * @param actions Whether every transition carries an action.
+     * @return The model.
+     */
+    public static Model<LargeEvent, LargeState> large(final boolean actions) {
+        final List<Action<LargeEvent, LargeState, Object>> list = actions(actions);
+        final LargeState[] states = LargeState.values();
+        final LargeEvent[] events = LargeEvent.values();
+        final List<Transition<LargeEvent, LargeState, Object>> transitions = new ArrayList<>();
+        for (final LargeState state : states) {
+            for (int event = 0; event < events.length - 1; event++) {
+                transitions.add(new Transition<>(events[event], state,
+                        states[(state.ordinal() + event + 1) % states.length], list));
+            }
+        }
+        final LargeEvent[] valid = new LargeEvent[events.length - 1];
+        System.arraycopy(events, 0, valid, 0, valid.length);
+        return new Model<>(new StateMachineDefinition<>(transitions), LargeState.S0, valid, LargeEvent.E99);
+    }
+
+    /**
+     * Builds the counterpart of the given model with states and events named at runtime after the enum constants.
+     *
+     * @param model   The model.
+     * @param actions Whether every transition carries an action.
+     * @return The definition.
+     */
+    public static DynamicStateMachineDefinition<Object> dynamic(final Model<?, ?> model, final boolean actions) {
+        final List<DynamicAction<Object>> list = actions
+                ? Collections.singletonList(new DynamicBlackholeAction()) : Collections.emptyList();
+        final DynamicStateMachineDefinition.Builder<Object> builder = DynamicStateMachineDefinition.builder();
+        for (final Transition<?, ?, Object> transition : model.definition.getTransitions()) {
+            builder.addTransition(transition.getEvent().name(), transition.getFromState().name(),
+                    transition.getToState().name(), list);
+        }
+        return builder.build();
+    }
+
+    private static <E extends Enum<E>, S extends Enum<S>> List<Action<E, S, Object>> actions(final boolean actions) {
+        return actions ? Collections.singletonList(new BlackholeAction<>()) : Collections.emptyList();
+    }
+
+    /**
+     * A definition along with its initial state, a cycle of consumable events and an event that is never
+     * consumable.
+     *
+     * @param <E> The enum type that denotes the events.
+     * @param <S> The enum type that denotes the states.
+     */
+    public static final class Model<E extends Enum<E>, S extends Enum<S>> {
+
+        public final StateMachineDefinition<E, S, Object> definition;
+
+        public final S initialState;
+
+        public final E[] events;
+
+        public final E invalidEvent;
+
+        private Model(final StateMachineDefinition<E, S, Object> definition, final S initialState, final E[] events,
+                      final E invalidEvent) {
+            this.definition = definition;
+            this.initialState = initialState;
+            this.events = events;
+            this.invalidEvent = invalidEvent;
+        }
+    }
+
+    /**
+     * An action that only touches its context, so that the cost measured is the cost of invoking it.
+     */
+    private static final class BlackholeAction<E extends Enum<E>, S extends Enum<S>> implements Action<E, S, Object> {
+
+        private volatile Object sink;
+
+        @Override
+        public void before(final ActionContext<E, S, Object> actionContext) {
+            sink = actionContext.getData();
+        }
+
+        @Override
+        public void after(final ActionContext<E, S, Object> actionContext) {
+            sink = actionContext.getNextState();
+        }
+    }
+
+    /**
+     * The counterpart of {@link BlackholeAction} for runtime-named machines.
+     */
+    private static final class DynamicBlackholeAction implements DynamicAction<Object> {
+
+        private volatile Object sink;
+
+        @Override
+        public void before(final DynamicActionContext<Object> actionContext) {
+            sink = actionContext.getData();
+        }
+
+        @Override
+        public void after(final DynamicActionContext<Object> actionContext) {
+            sink = actionContext.getNextState();
+        }
+    }
+
+    public enum TurnstileEvent {
+        COIN, PUSH, ALARM
+    }
+
+    public enum TurnstileState {
+        LOCKED, UNLOCKED
+    }
+
+    public enum LargeEvent {
+        E0, E1, E2, E3, E4, E5, E6, E7, E8, E9, E10, E11, E12, E13, E14, E15, E16, E17, E18, E19,
+        E20, E21, E22, E23, E24, E25, E26, E27, E28, E29, E30, E31, E32, E33, E34, E35, E36, E37, E38, E39,
+        E40, E41, E42, E43, E44, E45, E46, E47, E48, E49, E50, E51, E52, E53, E54, E55, E56, E57, E58, E59,
+        E60, E61, E62, E63, E64, E65, E66, E67, E68, E69, E70, E71, E72, E73, E74, E75, E76, E77, E78, E79,
+        E80, E81, E82, E83, E84, E85, E86, E87, E88, E89, E90, E91, E92, E93, E94, E95, E96, E97, E98, E99
+    }
+
+    public enum LargeState {
+        S0, S1, S2, S3, S4, S5, S6, S7, S8, S9, S10, S11, S12, S13, S14, S15,
+        S16, S17, S18, S19, S20, S21, S22, S23, S24, S25, S26, S27, S28, S29, S30, S31,
+        S32, S33, S34, S35, S36, S37, S38, S39, S40, S41, S42, S43, S44, S45, S46, S47,
+        S48, S49, S50, S51, S52, S53, S54, S55, S56, S57, S58, S59, S60, S61, S62, S63,
+        S64, S65, S66, S67, S68, S69, S70, S71, S72, S73, S74, S75, S76, S77, S78, S79,
+        S80, S81, S82, S83, S84, S85, S86, S87, S88, S89, S90, S91, S92, S93, S94, S95,
+        S96, S97, S98, S99, S100, S101, S102, S103, S104, S105, S106, S107, S108, S109, S110, S111,
+        S112, S113, S114, S115, S116, S117, S118, S119, S120, S121, S122, S123, S124, S125, S126, S127,
+        S128, S129, S130, S131, S132, S133, S134, S135, S136, S137, S138, S139, S140, S141, S142, S143,
+        S144, S145, S146, S147, S148, S149, S150, S151, S152, S153, S154, S155, S156, S157, S158, S159,
+        S160, S161, S162, S163, S164, S165, S166, S167, S168, S169, S170, S171, S172, S173, S174, S175,
+        S176, S177, S178, S179, S180, S181, S182, S183, S184, S185, S186, S187, S188, S189, S190, S191,
+        S192, S193, S194, S195, S196, S197, S198, S199
+    }
+}
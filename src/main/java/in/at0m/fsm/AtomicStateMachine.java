@@ -0,0 +1,302 @@
+package in.at0m.fsm;
+
+import in.at0m.fsm.exception.ConcurrentTransitionException;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock-free implementation of a finite state machine. The current state is held in a volatile field and every
+ * transition without actions is committed with a single compare-and-set, so neither reading the state nor consuming
+ * an event ever blocks as long as the transitions have no actions.
+ * <p>
+ * A transition with actions is serialized instead: it first claims the current state with a compare-and-set, which
+ * holds off every other transition, then executes the {@code before} method of each
+ * {@link in.at0m.fsm.transition.Action}, moves to the new state and executes the {@code after} methods, exactly as
+ * in {@link SimpleStateMachine}. The {@code before} methods are hence only executed for a transition that commits,
+ * unless one of them throws, in which case the claim is released and the state is left unchanged.
+ * <p>
+ * If another thread commits or claims a transition first, the {@link ConflictPolicy} decides whether the event is
+ * resolved again against the new state, once the claimed transition is done, or rejected. An action must not
+ * consume an event in its own state machine.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class AtomicStateMachine<E extends Enum<E>, S extends Enum<S>, T> implements StateMachine<E, S, T> {
+
+    /**
+     * Updater used to compare-and-set {@link #currentState} without an extra object per instance.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AtomicStateMachine, Object> CURRENT_STATE
+            = AtomicReferenceFieldUpdater.newUpdater(AtomicStateMachine.class, Object.class, "currentState");
+
+    /**
+     * The definition holding the state transition table of this state machine.
+     */
+    @Getter
+    @NonNull
+    private final StateMachineDefinition<E, S, T> definition;
+
+    /**
+     * The policy applied when a transition loses the race against a concurrent transition.
+     */
+    @Getter
+    @NonNull
+    private final ConflictPolicy conflictPolicy;
+
+    /**
+     * Indicates the current state of this state machine, or holds the {@link Claim} of the transition with actions
+     * being performed.
+     */
+    private volatile Object currentState;
+
+    /**
+     * Constructs an {@link AtomicStateMachine} instance sharing the given {@link StateMachineDefinition}
+     * with the given {@code initialState} that retries on conflicts.
+     *
+     * @param definition   The definition holding the transitions that can be performed by this state machine.
+     * @param initialState The initial state of this state machine.
+     */
+    public AtomicStateMachine(final StateMachineDefinition<E, S, T> definition, final S initialState) {
+        this(definition, initialState, ConflictPolicy.RETRY);
+    }
+
+    /**
+     * Constructs an {@link AtomicStateMachine} instance sharing the given {@link StateMachineDefinition}
+     * with the given {@code initialState} and {@code conflictPolicy}.
+     *
+     * @param definition     The definition holding the transitions that can be performed by this state machine.
+     * @param initialState   The initial state of this state machine.
+     * @param conflictPolicy The policy applied when a transition loses the race against a concurrent transition.
+     */
+    public AtomicStateMachine(@NonNull final StateMachineDefinition<E, S, T> definition,
+                              @NonNull final S initialState,
+                              @NonNull final ConflictPolicy conflictPolicy) {
+        this.definition = definition;
+        this.currentState = initialState;
+        this.conflictPolicy = conflictPolicy;
+    }
+
+    /**
+     * {@inheritDoc}
+     * While a transition with actions is being performed, this is its source state until its {@code before}
+     * actions are done and its target state afterwards.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public S getCurrentState() {
+        final Object state = currentState;
+        return state instanceof Claim ? (S) ((Claim) state).state : (S) state;
+    }
+
+    /**
+     * Returns the events that can be consumed in the current state of this state machine. The returned set is
+     * precomputed by the definition, shared and unmodifiable.
+     *
+     * @return The unmodifiable set of the events that can be consumed.
+     */
+    public Set<E> allowedEvents() {
+        return definition.allowedEvents(getCurrentState());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param event {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean canConsume(@NonNull final E event) {
+        return definition.canConsume(getCurrentState(), event);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The {@code before} and {@code after} methods for each {@link in.at0m.fsm.transition.Action}
+     * registered in the {@link Transition} performed by this method are executed before and after
+     * the transition is committed respectively, while every other transition of this state machine is held off.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws InvalidTransitionException    If the event cannot be consumed.
+     * @throws ConcurrentTransitionException If the state was changed concurrently and the policy is
+     *                                       {@link ConflictPolicy#REJECT}.
+     */
+    @Override
+    public S consume(@NonNull final E event, @NonNull final T context) {
+        return apply(event, context, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The rejection of an event is detected without constructing an exception. An event that loses to a
+     * concurrent transition under {@link ConflictPolicy#REJECT} is rejected as well.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S tryConsume(@NonNull final E event, @NonNull final T context) {
+        return apply(event, context, false);
+    }
+
+    /**
+     * Consumes the given event along with the context information.
+     *
+     * @param event      The event which is being consumed.
+     * @param context    The context information.
+     * @param exceptions Whether a rejected event is reported with an exception rather than {@code null}.
+     * @return The new state to which the state machine moves to, or {@code null} if the event is rejected and
+     * {@code exceptions} is not set.
+     * @throws IllegalStateException If called from an action of this state machine.
+     */
+    @SuppressWarnings("unchecked")
+    private S apply(final E event, final T context, final boolean exceptions) {
+        while (true) {
+            final Object state = currentState;
+            if (state instanceof Claim) {
+                if (Thread.holdsLock(this)) {
+                    throw new IllegalStateException(String.format(
+                            "Event %s consumed by an action of the same state machine", event));
+                }
+                if (conflictPolicy == ConflictPolicy.REJECT) {
+                    return conflict((S) ((Claim) state).state, event, exceptions);
+                }
+                awaitClaim();
+                continue;
+            }
+            final S fromState = (S) state;
+            final Transition<E, S, T> transition = definition.getTransition(fromState, event);
+            if (transition == null) {
+                definition.getMetrics().rejection(fromState, event);
+                if (exceptions) {
+                    throw definition.rejection(fromState, event);
+                }
+                return null;
+            }
+            if (transition.hasActions()) {
+                if (perform(transition, context)) {
+                    return transition.getToState();
+                }
+            } else if (CURRENT_STATE.compareAndSet(this, fromState, transition.getToState())) {
+                definition.getMetrics().transition(fromState, event, transition.getToState());
+                return transition.getToState();
+            }
+            if (conflictPolicy == ConflictPolicy.REJECT) {
+                return conflict(fromState, event, exceptions);
+            }
+        }
+    }
+
+    /**
+     * Rejects the given event that lost to a concurrent transition.
+     *
+     * @param fromState  The state in which the event was consumed.
+     * @param event      The event which is being consumed.
+     * @param exceptions Whether a rejected event is reported with an exception rather than {@code null}.
+     * @return {@code null} if {@code exceptions} is not set.
+     * @throws ConcurrentTransitionException If {@code exceptions} is set.
+     */
+    private S conflict(final S fromState, final E event, final boolean exceptions) {
+        if (exceptions) {
+            throw new ConcurrentTransitionException(String.format(
+                    "Transition from state %s for event %s lost to a concurrent transition", fromState, event));
+        }
+        return null;
+    }
+
+    /**
+     * Waits until the transition with actions being performed, if any, is done. A claim is only held while
+     * holding the lock of this state machine, hence acquiring the lock is enough.
+     */
+    private void awaitClaim() {
+        synchronized (this) {
+            // Released once the claimed transition is done.
+        }
+    }
+
+    /**
+     * Claims the current state if it is still the source state of the given {@link Transition}, executes its
+     * {@code before} actions, moves to its target state and executes its {@code after} actions. The claim is held
+     * while holding the lock of this state machine, so that the threads waiting for it block on the lock instead of
+     * spinning. If a {@code before} action throws, the source state is restored.
+     *
+     * @param transition The transition to perform.
+     * @param context    The context information.
+     * @return {@code true} if the transition was committed. {@code false} if the state was changed concurrently.
+     */
+    private boolean perform(final Transition<E, S, T> transition, final T context) {
+        synchronized (this) {
+            final Claim claim = new Claim(transition.getFromState());
+            if (!CURRENT_STATE.compareAndSet(this, transition.getFromState(), claim)) {
+                return false;
+            }
+            boolean committed = false;
+            final ActionContext<E, S, T> actionContext = definition.newActionContext(transition, context);
+            try {
+                definition.before(transition, actionContext);
+                claim.state = transition.getToState();
+                committed = true;
+                definition.getMetrics().transition(transition.getFromState(), transition.getEvent(),
+                        transition.getToState());
+                definition.after(transition, actionContext);
+            } finally {
+                actionContext.release();
+                currentState = committed ? transition.getToState() : transition.getFromState();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The current state of a state machine while a transition with actions is being performed.
+     */
+    private static final class Claim {
+
+        /**
+         * The state reported by the state machine, i.e. the source state of the transition until its
+         * {@code before} actions are done and its target state afterwards.
+         */
+        private volatile Enum<?> state;
+
+        /**
+         * Constructs a {@link Claim}.
+         *
+         * @param state The source state of the transition.
+         */
+        private Claim(final Enum<?> state) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * The policy applied when a transition cannot be committed because the state was changed concurrently.
+     *
+     * @author shubhdarlinge
+     */
+    public enum ConflictPolicy {
+
+        /**
+         * Resolve the event again against the new state and retry the transition.
+         */
+        RETRY,
+
+        /**
+         * Reject the event by throwing a {@link ConcurrentTransitionException}.
+         */
+        REJECT
+    }
+}
@@ -0,0 +1,245 @@
+package in.at0m.fsm;
+
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.metrics.StateMachineMetrics;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A finite state machine whose transitions are compiled into bytecode. The subclass generated for a
+ * {@link StateMachineDefinition} by {@link StateMachineCompiler} looks transitions up with a {@code tableswitch} over
+ * the state ordinal and then over the event ordinal, and calls every {@link Action} from a call site of its own, so
+ * the JIT sees a single receiver type per call site and can inline the dispatch along with the actions. Instances
+ * are created with {@link StateMachineDefinition#newCompiledStateMachine(Enum)}. If the metrics of the definition are
+ * enabled, the actions are run through the definition instead, so that every action is timed.
+ * <p>
+ * The current state is kept as an ordinal. Like {@link SimpleStateMachine}, events are consumed while holding the
+ * intrinsic lock of the instance, whereas {@link #getCurrentState()} and {@link #canConsume(Enum)} read the current
+ * state without locking.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public abstract class CompiledStateMachine<E extends Enum<E>, S extends Enum<S>, T> implements StateMachine<E, S, T> {
+
+    /**
+     * Flags the value returned by {@link #next(int, int)} for a transition that has actions.
+     */
+    static final int ACTIONS = 1 << 16;
+
+    /**
+     * Masks the ordinal of the next state out of the value returned by {@link #next(int, int)}.
+     */
+    static final int ORDINAL = ACTIONS - 1;
+
+    /**
+     * The definition this state machine was compiled from.
+     */
+    @Getter
+    private final StateMachineDefinition<E, S, T> definition;
+
+    /**
+     * The constants of the state enum indexed by ordinal.
+     */
+    private final S[] states;
+
+    /**
+     * The actions of the transitions of the definition, in the order of {@link #actions(StateMachineDefinition)}.
+     * Computed once per definition and shared by its instances. Read by the generated subclass.
+     */
+    final Action<E, S, T>[] actions;
+
+    /**
+     * The ordinal of the current state of this state machine.
+     */
+    private volatile int state;
+
+    /**
+     * Constructs a {@link CompiledStateMachine}. Only called by the generated subclass.
+     *
+     * @param definition   The definition this state machine was compiled from.
+     * @param initialState The initial state of this state machine.
+     * @param actions      The actions of the definition, as returned by {@link #actions(StateMachineDefinition)}.
+     */
+    CompiledStateMachine(final StateMachineDefinition<E, S, T> definition, final S initialState,
+                         final Action<E, S, T>[] actions) {
+        this.definition = definition;
+        this.states = initialState.getDeclaringClass().getEnumConstants();
+        this.actions = actions;
+        this.state = initialState.ordinal();
+    }
+
+    /**
+     * Returns the actions of every transition of the given definition, laid out transition after transition in the
+     * order of {@link StateMachineDefinition#getTransitions()}. The generated subclass refers to an action by its
+     * index in this array.
+     *
+     * @param definition The definition.
+     * @param <E>        The enum type that denotes the events.
+     * @param <S>        The enum type that denotes the states.
+     * @param <T>        The type on which the state machine is operating.
+     * @return The actions of the definition.
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends Enum<E>, S extends Enum<S>, T> Action<E, S, T>[] actions(
+            final StateMachineDefinition<E, S, T> definition) {
+        final List<Action<E, S, T>> actions = new ArrayList<>();
+        for (final Transition<E, S, T> transition : definition.getTransitions()) {
+            actions.addAll(transition.getActions());
+        }
+        return actions.toArray(new Action[0]);
+    }
+
+    /**
+     * Returns the ordinal of the state reached when the given event is consumed in the given state, flagged with
+     * {@link #ACTIONS} if the transition has actions.
+     *
+     * @param state The ordinal of the state in which the event is consumed.
+     * @param event The ordinal of the event which is being consumed.
+     * @return The flagged ordinal of the next state, or {@code -1} if the event cannot be consumed.
+     */
+    abstract int next(int state, int event);
+
+    /**
+     * Calls {@link Action#before(ActionContext)} of every action of the transition of the given state and event.
+     *
+     * @param state         The ordinal of the state in which the event is consumed.
+     * @param event         The ordinal of the event which is being consumed.
+     * @param actionContext The context information for transition.
+     */
+    abstract void before(int state, int event, ActionContext<E, S, T> actionContext);
+
+    /**
+     * Calls {@link Action#after(ActionContext)} of every action of the transition of the given state and event.
+     *
+     * @param state         The ordinal of the state in which the event was consumed.
+     * @param event         The ordinal of the event which was consumed.
+     * @param actionContext The context information for transition.
+     */
+    abstract void after(int state, int event, ActionContext<E, S, T> actionContext);
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S getCurrentState() {
+        return states[state];
+    }
+
+    /**
+     * Returns the events that can be consumed in the current state of this state machine. The returned set is
+     * precomputed by the definition, shared and unmodifiable.
+     *
+     * @return The unmodifiable set of the events that can be consumed.
+     */
+    public Set<E> allowedEvents() {
+        return definition.allowedEvents(states[state]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param event {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean canConsume(@NonNull final E event) {
+        return next(state, event.ordinal()) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The {@code before} and {@code after} methods for each {@link Action} registered in the {@link Transition}
+     * performed by this method are executed before and after the transition is completed respectively. The
+     * {@code after} methods are handed to the {@link in.at0m.fsm.dispatch.AfterActionDispatcher} of the definition,
+     * if any, instead of running while holding the lock.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws InvalidTransitionException If the event cannot be consumed.
+     */
+    @Override
+    public S consume(@NonNull final E event, @NonNull final T context) {
+        synchronized (this) {
+            final int fromState = state;
+            final int next = next(fromState, event.ordinal());
+            if (next < 0) {
+                definition.getMetrics().rejection(states[fromState], event);
+                throw definition.rejection(states[fromState], event);
+            }
+            return perform(fromState, event, next, context);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The rejection of an event is detected by the compiled lookup without constructing an exception.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S tryConsume(@NonNull final E event, @NonNull final T context) {
+        synchronized (this) {
+            final int fromState = state;
+            final int next = next(fromState, event.ordinal());
+            if (next < 0) {
+                definition.getMetrics().rejection(states[fromState], event);
+                return null;
+            }
+            return perform(fromState, event, next, context);
+        }
+    }
+
+    /**
+     * Performs the transition from the given state upon the given event. Must be called while holding the lock of
+     * this state machine. No {@link ActionContext} is created for a transition without actions.
+     *
+     * @param fromState The ordinal of the state in which the event is consumed.
+     * @param event     The event which is being consumed.
+     * @param next      The flagged ordinal of the next state.
+     * @param context   The context information.
+     * @return The new state to which the state machine moves to.
+     */
+    private S perform(final int fromState, final E event, final int next, final T context) {
+        final S toState = states[next & ORDINAL];
+        final StateMachineMetrics<E, S> metrics = definition.getMetrics();
+        if ((next & ACTIONS) == 0) {
+            state = toState.ordinal();
+            metrics.transition(states[fromState], event, toState);
+            return toState;
+        }
+        final Transition<E, S, T> transition = definition.getTransition(states[fromState], event);
+        final ActionContext<E, S, T> actionContext = definition.newActionContext(transition, context);
+        try {
+            if (metrics.isEnabled()) {
+                definition.before(transition, actionContext);
+            } else {
+                before(fromState, event.ordinal(), actionContext);
+            }
+            state = toState.ordinal();
+            metrics.transition(states[fromState], event, toState);
+            if (definition.getAfterActionDispatcher() == null && !metrics.isEnabled()) {
+                after(fromState, event.ordinal(), actionContext);
+            } else {
+                definition.after(transition, actionContext);
+            }
+        } finally {
+            actionContext.release();
+        }
+        return toState;
+    }
+}
@@ -1,25 +1,29 @@
 package in.at0m.fsm;
 
+import in.at0m.fsm.batch.BatchResult;
+import in.at0m.fsm.batch.ContextualEvent;
+import in.at0m.fsm.batch.InvalidEventPolicy;
 import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.metrics.StateMachineMetrics;
 import in.at0m.fsm.transition.ActionContext;
 import in.at0m.fsm.transition.Transition;
-import lombok.AllArgsConstructor;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * A simple implementation of a finite state machine. This FSM works with {@link Transition}(s) that can
  * happen from one state to another upon consuming a particular event. When a transition is performed,
  * the {@link in.at0m.fsm.transition.Action}(s) registered with the transition is also executed.
+ * <p>
+ * The transitions are held by a shared {@link StateMachineDefinition}, so an instance only carries its current
+ * state and a reference to the definition. Events are consumed while holding the intrinsic lock of the instance,
+ * whereas {@link #getCurrentState()} and {@link #canConsume(Enum)} read the current state without locking. If the
+ * definition has enabled {@link StateMachineMetrics}, the transitions, rejections, lock wait and hold times and
+ * action latencies are reported to them.
  *
  * @param <E> The enum type that denotes the events.
  * @param <S> The enum type that denotes the states.
@@ -28,19 +32,19 @@ import java.util.stream.Collectors;
  */
 public class SimpleStateMachine<E extends Enum<E>, S extends Enum<S>, T> implements StateMachine<E, S, T> {
 
-    private final ReadWriteLock lock;
     /**
-     * The state transition table in form of a map of event and source state to transition object.
+     * The definition holding the state transition table of this state machine.
      */
+    @Getter
     @NonNull
-    private final Map<TransitionSource<E, S>, Transition<E, S, T>> transitions;
+    private final StateMachineDefinition<E, S, T> definition;
 
     /**
      * Indicates the current state of this state machine.
      */
     @Getter
     @NonNull
-    private S currentState;
+    private volatile S currentState;
 
     /**
      * Constructs a {@link SimpleStateMachine} instance with the given {@code initialState}
@@ -52,9 +56,19 @@ public class SimpleStateMachine<E extends Enum<E>, S extends Enum<S>, T> impleme
     @lombok.Builder(builderClassName = "Builder")
     public SimpleStateMachine(@NonNull final S initialState,
                               @NonNull final Collection<Transition<E, S, T>> transitions) {
-        this.lock = new ReentrantReadWriteLock();
-        this.transitions = Collections.unmodifiableMap(transitions.stream()
-                .collect(Collectors.toMap(TransitionSource::fromTransition, transition -> transition)));
+        this(new StateMachineDefinition<>(transitions), initialState);
+    }
+
+    /**
+     * Constructs a {@link SimpleStateMachine} instance sharing the given {@link StateMachineDefinition}
+     * with the given {@code initialState}.
+     *
+     * @param definition   The definition holding the transitions that can be performed by this state machine.
+     * @param initialState The initial state of this state machine.
+     */
+    public SimpleStateMachine(@NonNull final StateMachineDefinition<E, S, T> definition,
+                              @NonNull final S initialState) {
+        this.definition = definition;
         this.currentState = initialState;
     }
 
@@ -64,10 +78,17 @@ public class SimpleStateMachine<E extends Enum<E>, S extends Enum<S>, T> impleme
      * @return A collection of {@link Transition} that can be performed by this state machine.
      */
     public Collection<Transition<E, S, T>> getTransitions() {
-        lock.readLock().lock();
-        Collection<Transition<E, S, T>> transitions = Collections.unmodifiableCollection(this.transitions.values());
-        lock.readLock().unlock();
-        return transitions;
+        return definition.getTransitions();
+    }
+
+    /**
+     * Returns the events that can be consumed in the current state of this state machine. The returned set is
+     * precomputed by the definition, shared and unmodifiable.
+     *
+     * @return The unmodifiable set of the events that can be consumed.
+     */
+    public Set<E> allowedEvents() {
+        return definition.allowedEvents(currentState);
     }
 
     /**
@@ -78,18 +99,16 @@ public class SimpleStateMachine<E extends Enum<E>, S extends Enum<S>, T> impleme
      */
     @Override
     public boolean canConsume(@NonNull final E event) {
-        lock.readLock().lock();
-        boolean canConsume = transitions.containsKey(new TransitionSource<>(event, currentState));
-        lock.readLock().unlock();
-        return canConsume;
+        return definition.canConsume(currentState, event);
     }
 
     /**
      * {@inheritDoc}
      * The {@code before} and {@code after} methods for each {@link in.at0m.fsm.transition.Action}
      * registered in the {@link Transition} performed by this method are executed before and after
-     * the transition is completed respectively. If the event cannot be consumed, an
-     * {@link InvalidTransitionException} is thrown.
+     * the transition is completed respectively. The {@code after} methods are handed to the
+     * {@link in.at0m.fsm.dispatch.AfterActionDispatcher} of the definition, if any, instead of running
+     * while holding the lock. If the event cannot be consumed, an {@link InvalidTransitionException} is thrown.
      *
      * @param event   {@inheritDoc}
      * @param context {@inheritDoc}
@@ -98,59 +117,165 @@ public class SimpleStateMachine<E extends Enum<E>, S extends Enum<S>, T> impleme
      */
     @Override
     public S consume(@NonNull final E event, @NonNull final T context) {
-        if (!canConsume(event)) {
-            throw new InvalidTransitionException(
-                    String.format("Transition from state %s not valid for event %s", currentState, event));
+        final StateMachineMetrics<E, S> metrics = definition.getMetrics();
+        final long waitStart = metrics.isEnabled() ? System.nanoTime() : 0L;
+        synchronized (this) {
+            final long holdStart = metrics.isEnabled() ? System.nanoTime() : 0L;
+            try {
+                final S fromState = currentState;
+                final Transition<E, S, T> transition = definition.getTransition(fromState, event);
+                if (transition == null) {
+                    metrics.rejection(fromState, event);
+                    throw definition.rejection(fromState, event);
+                }
+                return perform(transition, context);
+            } finally {
+                if (metrics.isEnabled()) {
+                    metrics.lock(holdStart - waitStart, System.nanoTime() - holdStart);
+                }
+            }
         }
-        lock.writeLock().lock();
-        final Transition<E, S, T> transition = transitions.get(new TransitionSource<>(event, currentState));
-        final ActionContext<E, S, T> actionContext = new ActionContext<>(
-                event, currentState, transition.getToState(), context);
-        transition.getActions().forEach(action -> action.before(actionContext));
-        currentState = transition.getToState();
-        transition.getActions().forEach(action -> action.after(actionContext));
-        lock.writeLock().unlock();
-        return currentState;
     }
 
     /**
-     * Indicates the source of a {@link Transition}.
+     * {@inheritDoc}
+     * The rejection of an event is detected from the state transition table without constructing an exception.
      *
-     * @param <E> The enum type that denotes the events.
-     * @param <S> The enum type that denotes the states.
-     * @author shubhdarlinge
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
      */
-    @Getter
-    @AllArgsConstructor
-    @EqualsAndHashCode
-    @lombok.Builder(builderClassName = "Builder", toBuilder = true)
-    private static class TransitionSource<E extends Enum<E>, S extends Enum<S>> {
+    @Override
+    public S tryConsume(@NonNull final E event, @NonNull final T context) {
+        final StateMachineMetrics<E, S> metrics = definition.getMetrics();
+        final long waitStart = metrics.isEnabled() ? System.nanoTime() : 0L;
+        synchronized (this) {
+            final long holdStart = metrics.isEnabled() ? System.nanoTime() : 0L;
+            try {
+                final S fromState = currentState;
+                final Transition<E, S, T> transition = definition.getTransition(fromState, event);
+                if (transition == null) {
+                    metrics.rejection(fromState, event);
+                    return null;
+                }
+                return perform(transition, context);
+            } finally {
+                if (metrics.isEnabled()) {
+                    metrics.lock(holdStart - waitStart, System.nanoTime() - holdStart);
+                }
+            }
+        }
+    }
 
-        /**
-         * The event for which a transition can happen for which this is the source.
-         */
-        @NonNull
-        private final E event;
+    /**
+     * {@inheritDoc}
+     * The whole batch is consumed while holding the lock of this state machine, hence no other
+     * transition can interleave with the events of the batch.
+     *
+     * @param events  {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @param policy  {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public BatchResult<S> consumeAll(@NonNull final Iterable<E> events, @NonNull final T context,
+                                     @NonNull final InvalidEventPolicy policy) {
+        int applied = 0;
+        int rejected = 0;
+        final StateMachineMetrics<E, S> metrics = definition.getMetrics();
+        final long waitStart = metrics.isEnabled() ? System.nanoTime() : 0L;
+        synchronized (this) {
+            final long holdStart = metrics.isEnabled() ? System.nanoTime() : 0L;
+            try {
+                for (final E event : events) {
+                    final S fromState = currentState;
+                    final Transition<E, S, T> transition = definition.getTransition(fromState, event);
+                    if (transition != null) {
+                        perform(transition, context);
+                        applied++;
+                    } else {
+                        metrics.rejection(fromState, event);
+                        rejected++;
+                        if (policy == InvalidEventPolicy.STOP_ON_FIRST_INVALID) {
+                            break;
+                        }
+                    }
+                }
+                return new BatchResult<>(applied, rejected, currentState);
+            } finally {
+                if (metrics.isEnabled()) {
+                    metrics.lock(holdStart - waitStart, System.nanoTime() - holdStart);
+                }
+            }
+        }
+    }
 
-        /**
-         * The state from which a transition can happen for which this is the source.
-         */
-        @NonNull
-        private final S fromState;
+    /**
+     * {@inheritDoc}
+     * The whole batch is consumed while holding the lock of this state machine, hence no other
+     * transition can interleave with the events of the batch.
+     *
+     * @param events {@inheritDoc}
+     * @param policy {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public BatchResult<S> consumeAll(@NonNull final ContextualEvent<E, T>[] events,
+                                     @NonNull final InvalidEventPolicy policy) {
+        int applied = 0;
+        int rejected = 0;
+        final StateMachineMetrics<E, S> metrics = definition.getMetrics();
+        final long waitStart = metrics.isEnabled() ? System.nanoTime() : 0L;
+        synchronized (this) {
+            final long holdStart = metrics.isEnabled() ? System.nanoTime() : 0L;
+            try {
+                for (final ContextualEvent<E, T> event : events) {
+                    final S fromState = currentState;
+                    final Transition<E, S, T> transition = definition.getTransition(fromState, event.getEvent());
+                    if (transition != null) {
+                        perform(transition, event.getContext());
+                        applied++;
+                    } else {
+                        metrics.rejection(fromState, event.getEvent());
+                        rejected++;
+                        if (policy == InvalidEventPolicy.STOP_ON_FIRST_INVALID) {
+                            break;
+                        }
+                    }
+                }
+                return new BatchResult<>(applied, rejected, currentState);
+            } finally {
+                if (metrics.isEnabled()) {
+                    metrics.lock(holdStart - waitStart, System.nanoTime() - holdStart);
+                }
+            }
+        }
+    }
 
-        /**
-         * Builds and returns a {@link TransitionSource} instance from a given {@link Transition}.
-         *
-         * @param transition The {@link Transition} from which {@link TransitionSource} needs to be built.
-         * @param <E>        The enum type that denotes the events.
-         * @param <S>        The enum type that denotes the states.
-         * @param <T>        The type on which the state machine is operating.
-         * @return An instance of {@link TransitionSource} built from the given {@link Transition}.
-         */
-        public static <E extends Enum<E>, S extends Enum<S>, T> TransitionSource<E, S> fromTransition(
-                final Transition<E, S, T> transition) {
-            return new TransitionSource<>(transition.getEvent(), transition.getFromState());
+    /**
+     * Performs the given {@link Transition} executing its actions. Must be called while holding the lock of
+     * this state machine. No {@link ActionContext} is created for a transition without actions.
+     *
+     * @param transition The transition to perform.
+     * @param context    The context information.
+     * @return The new state to which the state machine moves to.
+     */
+    private S perform(final Transition<E, S, T> transition, final T context) {
+        if (!transition.hasActions()) {
+            currentState = transition.getToState();
+            definition.getMetrics().transition(transition.getFromState(), transition.getEvent(), currentState);
+            return currentState;
+        }
+        final ActionContext<E, S, T> actionContext = definition.newActionContext(transition, context);
+        try {
+            definition.before(transition, actionContext);
+            currentState = transition.getToState();
+            definition.getMetrics().transition(transition.getFromState(), transition.getEvent(), currentState);
+            definition.after(transition, actionContext);
+        } finally {
+            actionContext.release();
         }
+        return currentState;
     }
 
     /**
@@ -1,5 +1,10 @@
 package in.at0m.fsm;
 
+import in.at0m.fsm.batch.BatchResult;
+import in.at0m.fsm.batch.ContextualEvent;
+import in.at0m.fsm.batch.InvalidEventPolicy;
+import in.at0m.fsm.exception.InvalidTransitionException;
+
 /**
  * The finite state machine interface.
  *
@@ -34,4 +39,92 @@ public interface StateMachine<E extends Enum<E>, S extends Enum<S>, T> {
      * @return The new state to which the state machine moves to.
      */
     S consume(E event, T context);
+
+    /**
+     * Consumes the given event along with the context information like {@link #consume(Enum, Object)}, but
+     * reports an event that cannot be consumed by returning {@code null} instead of throwing an
+     * {@link InvalidTransitionException}. Rejections are hence as cheap as successful transitions, which matters
+     * for workloads where invalid events are frequent.
+     * <p>
+     * The default implementation delegates to {@link #consume(Enum, Object)}. Implementations are encouraged to
+     * detect the rejection without constructing an exception.
+     *
+     * @param event   The event which is being consumed.
+     * @param context The context information.
+     * @return The new state to which the state machine moves to, or {@code null} if the event cannot be consumed.
+     */
+    default S tryConsume(final E event, final T context) {
+        try {
+            return consume(event, context);
+        } catch (InvalidTransitionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Consumes the given events in order with the same context information, stopping at the first event that
+     * cannot be consumed.
+     *
+     * @param events  The events which are being consumed.
+     * @param context The context information.
+     * @return The number of events consumed and rejected along with the resulting state.
+     */
+    default BatchResult<S> consumeAll(final Iterable<E> events, final T context) {
+        return consumeAll(events, context, InvalidEventPolicy.STOP_ON_FIRST_INVALID);
+    }
+
+    /**
+     * Consumes the given events in order with the same context information. Events that cannot be consumed are
+     * handled as per the given {@code policy} instead of being reported with an exception.
+     * <p>
+     * The default implementation consumes the events one at a time. Implementations are encouraged to consume the
+     * whole batch within a single critical section.
+     *
+     * @param events  The events which are being consumed.
+     * @param context The context information.
+     * @param policy  The policy applied to events that cannot be consumed.
+     * @return The number of events consumed and rejected along with the resulting state.
+     */
+    default BatchResult<S> consumeAll(final Iterable<E> events, final T context, final InvalidEventPolicy policy) {
+        int applied = 0;
+        int rejected = 0;
+        for (final E event : events) {
+            if (tryConsume(event, context) != null) {
+                applied++;
+            } else {
+                rejected++;
+                if (policy == InvalidEventPolicy.STOP_ON_FIRST_INVALID) {
+                    break;
+                }
+            }
+        }
+        return new BatchResult<>(applied, rejected, getCurrentState());
+    }
+
+    /**
+     * Consumes the given events in order, each with its own context information. Events that cannot be consumed
+     * are handled as per the given {@code policy} instead of being reported with an exception.
+     * <p>
+     * The default implementation consumes the events one at a time. Implementations are encouraged to consume the
+     * whole batch within a single critical section.
+     *
+     * @param events The events which are being consumed along with their context information.
+     * @param policy The policy applied to events that cannot be consumed.
+     * @return The number of events consumed and rejected along with the resulting state.
+     */
+    default BatchResult<S> consumeAll(final ContextualEvent<E, T>[] events, final InvalidEventPolicy policy) {
+        int applied = 0;
+        int rejected = 0;
+        for (final ContextualEvent<E, T> event : events) {
+            if (tryConsume(event.getEvent(), event.getContext()) != null) {
+                applied++;
+            } else {
+                rejected++;
+                if (policy == InvalidEventPolicy.STOP_ON_FIRST_INVALID) {
+                    break;
+                }
+            }
+        }
+        return new BatchResult<>(applied, rejected, getCurrentState());
+    }
 }
@@ -0,0 +1,603 @@
+package in.at0m.fsm;
+
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.Transition;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles a {@link StateMachineDefinition} into a subclass of {@link CompiledStateMachine}. The class file is
+ * written directly and defined in this package through {@link MethodHandles.Lookup#defineClass(byte[])}.
+ * <p>
+ * The generated class looks transitions up with nested {@code tableswitch} instructions: {@code next},
+ * {@code before} and {@code after} switch over the state ordinal and call a static method per state, which switches
+ * over the event ordinal. Splitting per state keeps every method far below the size beyond which the JIT does not
+ * compile methods, even for definitions with hundreds of states and events. The actions are called through
+ * {@code invokeinterface} instructions of their own, one per action of every transition.
+ * <p>
+ * The class file targets version 49 so that it needs no stack map frames. Generated classes are never unloaded,
+ * which is fine for the few long-lived definitions this is meant for.
+ *
+ * @author shubhdarlinge
+ */
+final class StateMachineCompiler {
+
+    /**
+     * Numbers the generated classes.
+     */
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    /**
+     * The internal name of the super class of the generated classes.
+     */
+    private static final String BASE = "in/at0m/fsm/CompiledStateMachine";
+
+    /**
+     * The descriptor of the array of actions read by the generated classes.
+     */
+    private static final String ACTIONS = "[Lin/at0m/fsm/transition/Action;";
+
+    /**
+     * The descriptor of the action context.
+     */
+    private static final String CONTEXT = "Lin/at0m/fsm/transition/ActionContext;";
+
+    /**
+     * The descriptor of the constructor of the generated classes.
+     */
+    private static final String CONSTRUCTOR = "(Lin/at0m/fsm/StateMachineDefinition;Ljava/lang/Enum;"
+            + "[Lin/at0m/fsm/transition/Action;)V";
+
+    /**
+     * The opcodes used by the generated classes.
+     */
+    private static final int ICONST_M1 = 0x02;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD_0 = 0x1a;
+    private static final int ILOAD_1 = 0x1b;
+    private static final int ILOAD_2 = 0x1c;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int AALOAD = 0x32;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+
+    /**
+     * The constant pool of the class being generated.
+     */
+    private final ConstantPool pool = new ConstantPool();
+
+    /**
+     * The methods of the class being generated, each already serialized.
+     */
+    private final List<byte[]> methods = new ArrayList<>();
+
+    /**
+     * The transitions of the definition indexed by state ordinal and event ordinal. A {@code null} row means that
+     * there is no transition from that state.
+     */
+    private final Transition<?, ?, ?>[][] rows;
+
+    /**
+     * The index of the first action of every transition in {@link CompiledStateMachine#actions}.
+     */
+    private final Map<Transition<?, ?, ?>, Integer> firstActions = new HashMap<>();
+
+    /**
+     * Prepares the compilation of the given definition.
+     *
+     * @param definition The definition to compile.
+     */
+    private StateMachineCompiler(final StateMachineDefinition<?, ?, ?> definition) {
+        final List<? extends Transition<?, ?, ?>> transitions = definition.getTransitions();
+        if (transitions.isEmpty()) {
+            this.rows = new Transition[0][];
+            return;
+        }
+        final Transition<?, ?, ?> first = transitions.get(0);
+        this.rows = new Transition[first.getFromState().getDeclaringClass().getEnumConstants().length][];
+        final int eventCount = first.getEvent().getDeclaringClass().getEnumConstants().length;
+        int action = 0;
+        for (final Transition<?, ?, ?> transition : transitions) {
+            final int state = transition.getFromState().ordinal();
+            if (rows[state] == null) {
+                rows[state] = new Transition[eventCount];
+            }
+            rows[state][transition.getEvent().ordinal()] = transition;
+            firstActions.put(transition, action);
+            action += transition.getActions().size();
+        }
+    }
+
+    /**
+     * Compiles the given definition and returns the generated subclass of {@link CompiledStateMachine}, which has a
+     * public constructor taking the definition and the initial state.
+     *
+     * @param definition The definition to compile.
+     * @param <E>        The enum type that denotes the events.
+     * @param <S>        The enum type that denotes the states.
+     * @param <T>        The type on which the state machine is operating.
+     * @return The generated class.
+     * @throws IllegalStateException If the generated class cannot be defined.
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends Enum<E>, S extends Enum<S>, T> Class<? extends CompiledStateMachine<E, S, T>> compile(
+            final StateMachineDefinition<E, S, T> definition) {
+        final String name = "in/at0m/fsm/CompiledStateMachine$" + COUNTER.incrementAndGet();
+        final byte[] bytes = new StateMachineCompiler(definition).generate(name);
+        try {
+            return (Class<? extends CompiledStateMachine<E, S, T>>) MethodHandles.lookup().defineClass(bytes);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(String.format("Cannot define %s", name), e);
+        }
+    }
+
+    /**
+     * Generates the class file of the compiled definition.
+     *
+     * @param name The internal name of the generated class.
+     * @return The class file.
+     */
+    private byte[] generate(final String name) {
+        pool.owner = name;
+        constructor();
+        dispatch("next", "(II)I", 1, 3, ILOAD_2, IRETURN, this::nextRow, false);
+        dispatch("before", "(II" + CONTEXT + ")V", 3, 4, ALOAD_3, RETURN, (row, method) ->
+                actionRow(row, method, "before"), true);
+        dispatch("after", "(II" + CONTEXT + ")V", 3, 4, ALOAD_3, RETURN, (row, method) ->
+                actionRow(row, method, "after"), true);
+        final Code out = new Code();
+        final int thisClass = pool.type(name);
+        final int superClass = pool.type(BASE);
+        out.u4(0xcafebabe);
+        out.u2(0);
+        out.u2(49);
+        pool.write(out);
+        // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+        out.u2(0x31);
+        out.u2(thisClass);
+        out.u2(superClass);
+        out.u2(0);
+        out.u2(0);
+        out.u2(methods.size());
+        for (final byte[] method : methods) {
+            out.bytes(method);
+        }
+        out.u2(0);
+        return out.toByteArray();
+    }
+
+    /**
+     * Generates the constructor, which passes its arguments to the constructor of {@link CompiledStateMachine}.
+     */
+    private void constructor() {
+        final Code code = new Code();
+        code.u1(ALOAD_0);
+        code.u1(ALOAD_1);
+        code.u1(ALOAD_2);
+        code.u1(ALOAD_3);
+        code.u1(INVOKESPECIAL);
+        code.u2(pool.method(BASE, "<init>", CONSTRUCTOR));
+        code.u1(RETURN);
+        // ACC_PUBLIC
+        method(0x01, "<init>", CONSTRUCTOR, 4, 4, code);
+    }
+
+    /**
+     * Generates a method switching over the state ordinal in its first argument and calling the static method
+     * generated for the row of that state. For {@code before} and {@code after}, the array of actions is passed
+     * to the static method in place of the state ordinal.
+     *
+     * @param name        The name of the method.
+     * @param descriptor  The descriptor of the method.
+     * @param maxStack    The largest operand stack of the method.
+     * @param maxLocals   The number of local variables of the method, including {@code this}.
+     * @param lastArg     The opcode loading the last argument, passed to the row method after the event ordinal.
+     * @param returnCode  The opcode returning from the method.
+     * @param row         Generates the code of the row method of a state.
+     * @param withActions Whether this is {@code before} or {@code after}, where only the rows of transitions with
+     *                    actions matter and the array of actions is passed to the row methods.
+     */
+    private void dispatch(final String name, final String descriptor, final int maxStack, final int maxLocals,
+                          final int lastArg, final int returnCode, final RowGenerator row,
+                          final boolean withActions) {
+        final String rowDescriptor = withActions ? "(" + ACTIONS + "I" + CONTEXT + ")V" : "(I)I";
+        final Code code = new Code();
+        final Label missing = new Label();
+        final Label[] labels = new Label[rows.length];
+        for (int state = 0; state < rows.length; state++) {
+            labels[state] = rows[state] != null && (!withActions || hasActions(rows[state])) ? new Label() : missing;
+        }
+        if (rows.length > 0) {
+            code.u1(ILOAD_1);
+            code.tableswitch(missing, labels);
+        }
+        for (int state = 0; state < rows.length; state++) {
+            if (labels[state] == missing) {
+                continue;
+            }
+            final String rowName = name + state;
+            final Code rowCode = new Code();
+            row.generate(rows[state], rowCode);
+            method(0x0a, rowName, rowDescriptor, withActions ? 3 : 1, withActions ? 3 : 1, rowCode);
+            code.mark(labels[state]);
+            if (withActions) {
+                code.u1(ALOAD_0);
+                code.u1(GETFIELD);
+                code.u2(pool.field(BASE, "actions", ACTIONS));
+            }
+            code.u1(ILOAD_2);
+            if (withActions) {
+                code.u1(lastArg);
+            }
+            code.u1(INVOKESTATIC);
+            code.u2(pool.method(null, rowName, rowDescriptor));
+            code.u1(returnCode);
+        }
+        code.mark(missing);
+        if (!withActions) {
+            code.u1(ICONST_M1);
+        }
+        code.u1(returnCode);
+        // ACC_FINAL, package-private like the abstract method it implements.
+        method(0x10, name, descriptor, maxStack, maxLocals, code);
+    }
+
+    /**
+     * Generates the row method of {@code next} for a state, switching over the event ordinal in its only argument
+     * and returning the flagged ordinal of the next state. Cells leading to the same value share their code.
+     *
+     * @param row  The transitions of the state indexed by event ordinal.
+     * @param code The code of the row method.
+     */
+    private void nextRow(final Transition<?, ?, ?>[] row, final Code code) {
+        final Label missing = new Label();
+        final Map<Integer, Label> values = new HashMap<>();
+        final Label[] labels = new Label[row.length];
+        for (int event = 0; event < row.length; event++) {
+            final Transition<?, ?, ?> transition = row[event];
+            labels[event] = transition == null ? missing : values.computeIfAbsent(transition.getToState().ordinal()
+                    | (transition.getActions().isEmpty() ? 0 : CompiledStateMachine.ACTIONS), value -> new Label());
+        }
+        code.u1(ILOAD_0);
+        code.tableswitch(missing, labels);
+        for (final Map.Entry<Integer, Label> value : values.entrySet()) {
+            code.mark(value.getValue());
+            code.u1(LDC_W);
+            code.u2(pool.integer(value.getKey()));
+            code.u1(IRETURN);
+        }
+        code.mark(missing);
+        code.u1(ICONST_M1);
+        code.u1(IRETURN);
+    }
+
+    /**
+     * Generates the row method of {@code before} or {@code after} for a state, switching over the event ordinal in
+     * its second argument and calling every action of the transition through a call site of its own.
+     *
+     * @param row    The transitions of the state indexed by event ordinal.
+     * @param code   The code of the row method.
+     * @param action The name of the method of {@link Action} to call.
+     */
+    private void actionRow(final Transition<?, ?, ?>[] row, final Code code, final String action) {
+        final Label missing = new Label();
+        final Label[] labels = new Label[row.length];
+        for (int event = 0; event < row.length; event++) {
+            labels[event] = row[event] == null || row[event].getActions().isEmpty() ? missing : new Label();
+        }
+        code.u1(ILOAD_1);
+        code.tableswitch(missing, labels);
+        for (int event = 0; event < row.length; event++) {
+            if (labels[event] == missing) {
+                continue;
+            }
+            code.mark(labels[event]);
+            final int first = firstActions.get(row[event]);
+            for (int index = first; index < first + row[event].getActions().size(); index++) {
+                code.u1(ALOAD_0);
+                code.u1(LDC_W);
+                code.u2(pool.integer(index));
+                code.u1(AALOAD);
+                code.u1(ALOAD_2);
+                code.u1(INVOKEINTERFACE);
+                code.u2(pool.interfaceMethod("in/at0m/fsm/transition/Action", action, "(" + CONTEXT + ")V"));
+                code.u1(2);
+                code.u1(0);
+            }
+            code.u1(RETURN);
+        }
+        code.mark(missing);
+        code.u1(RETURN);
+    }
+
+    /**
+     * Returns {@code true} if any transition of the given row has actions. {@code false} otherwise.
+     *
+     * @param row The transitions of a state indexed by event ordinal.
+     * @return {@code true} if any transition of the row has actions. {@code false} otherwise.
+     */
+    private static boolean hasActions(final Transition<?, ?, ?>[] row) {
+        return Arrays.stream(row).anyMatch(transition -> transition != null && !transition.getActions().isEmpty());
+    }
+
+    /**
+     * Serializes a method with the given code and adds it to the generated class.
+     *
+     * @param access     The access flags of the method.
+     * @param name       The name of the method.
+     * @param descriptor The descriptor of the method.
+     * @param maxStack   The largest operand stack of the method.
+     * @param maxLocals  The number of local variables of the method, including the arguments.
+     * @param code       The code of the method.
+     */
+    private void method(final int access, final String name, final String descriptor, final int maxStack,
+                        final int maxLocals, final Code code) {
+        final byte[] bytecode = code.toByteArray();
+        final Code method = new Code();
+        method.u2(access);
+        method.u2(pool.utf8(name));
+        method.u2(pool.utf8(descriptor));
+        method.u2(1);
+        method.u2(pool.utf8("Code"));
+        method.u4(12 + bytecode.length);
+        method.u2(maxStack);
+        method.u2(maxLocals);
+        method.u4(bytecode.length);
+        method.bytes(bytecode);
+        method.u2(0);
+        method.u2(0);
+        methods.add(method.toByteArray());
+    }
+
+    /**
+     * Generates the code of a row method.
+     */
+    @FunctionalInterface
+    private interface RowGenerator {
+
+        /**
+         * Generates the code of the row method of a state.
+         *
+         * @param row  The transitions of the state indexed by event ordinal.
+         * @param code The code of the row method.
+         */
+        void generate(Transition<?, ?, ?>[] row, Code code);
+    }
+
+    /**
+     * A position in the code of a method, resolved once the code at that position is generated.
+     */
+    private static final class Label {
+
+        /**
+         * The position of the label, or {@code -1} until it is marked.
+         */
+        private int position = -1;
+    }
+
+    /**
+     * A growable buffer of bytes holding the code of a method or a whole class file.
+     */
+    private static final class Code {
+
+        /**
+         * The branch offsets to patch once their labels are marked, each as the position of the offset, the
+         * position of the instruction it is relative to and the label.
+         */
+        private final List<Object[]> fixups = new ArrayList<>();
+
+        /**
+         * The bytes written so far.
+         */
+        private byte[] data = new byte[256];
+
+        /**
+         * The number of bytes written so far.
+         */
+        private int length;
+
+        private void u1(final int value) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[length++] = (byte) value;
+        }
+
+        private void u2(final int value) {
+            u1(value >>> 8);
+            u1(value);
+        }
+
+        private void u4(final int value) {
+            u2(value >>> 16);
+            u2(value);
+        }
+
+        private void bytes(final byte[] bytes) {
+            for (final byte value : bytes) {
+                u1(value);
+            }
+        }
+
+        /**
+         * Writes a {@code tableswitch} over the keys {@code 0} to {@code targets.length - 1}.
+         *
+         * @param missing The target of the other keys.
+         * @param targets The target of every key.
+         */
+        private void tableswitch(final Label missing, final Label[] targets) {
+            final int instruction = length;
+            u1(TABLESWITCH);
+            while (length % 4 != 0) {
+                u1(0);
+            }
+            branch(instruction, missing);
+            u4(0);
+            u4(targets.length - 1);
+            for (final Label target : targets) {
+                branch(instruction, target);
+            }
+        }
+
+        /**
+         * Writes a placeholder for the offset of the given label relative to the given instruction.
+         *
+         * @param instruction The position of the instruction.
+         * @param label       The target of the branch.
+         */
+        private void branch(final int instruction, final Label label) {
+            fixups.add(new Object[]{length, instruction, label});
+            u4(0);
+        }
+
+        /**
+         * Marks the given label at the current position.
+         *
+         * @param label The label.
+         */
+        private void mark(final Label label) {
+            label.position = length;
+        }
+
+        private byte[] toByteArray() {
+            final byte[] bytes = Arrays.copyOf(data, length);
+            for (final Object[] fixup : fixups) {
+                final int position = (Integer) fixup[0];
+                final int offset = ((Label) fixup[2]).position - (Integer) fixup[1];
+                bytes[position] = (byte) (offset >>> 24);
+                bytes[position + 1] = (byte) (offset >>> 16);
+                bytes[position + 2] = (byte) (offset >>> 8);
+                bytes[position + 3] = (byte) offset;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * The constant pool of the class being generated. Equal constants share an entry.
+     */
+    private static final class ConstantPool {
+
+        /**
+         * The index of every entry keyed by its serialized form.
+         */
+        private final Map<String, Integer> indices = new HashMap<>();
+
+        /**
+         * The serialized entries in index order.
+         */
+        private final Code entries = new Code();
+
+        /**
+         * The number of entries plus one, as index {@code 0} is unused.
+         */
+        private int count = 1;
+
+        /**
+         * The internal name of the class being generated, used for the methods referred to without an owner.
+         */
+        private String owner;
+
+        private int utf8(final String value) {
+            return entry("U" + value, () -> {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                entries.u1(1);
+                entries.u2(bytes.length);
+                entries.bytes(bytes);
+            });
+        }
+
+        private int integer(final int value) {
+            return entry("I" + value, () -> {
+                entries.u1(3);
+                entries.u4(value);
+            });
+        }
+
+        private int type(final String name) {
+            final int utf8 = utf8(name);
+            return entry("C" + name, () -> {
+                entries.u1(7);
+                entries.u2(utf8);
+            });
+        }
+
+        private int nameAndType(final String name, final String descriptor) {
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            return entry("N" + name + ":" + descriptor, () -> {
+                entries.u1(12);
+                entries.u2(nameIndex);
+                entries.u2(descriptorIndex);
+            });
+        }
+
+        private int field(final String type, final String name, final String descriptor) {
+            return member(9, type, name, descriptor);
+        }
+
+        private int method(final String type, final String name, final String descriptor) {
+            return member(10, type, name, descriptor);
+        }
+
+        private int interfaceMethod(final String type, final String name, final String descriptor) {
+            return member(11, type, name, descriptor);
+        }
+
+        /**
+         * Returns the index of a reference to a field or method, adding it if required.
+         *
+         * @param tag        The tag of the entry.
+         * @param type       The internal name of the owner, or {@code null} for the class being generated.
+         * @param name       The name of the member.
+         * @param descriptor The descriptor of the member.
+         * @return The index of the entry.
+         */
+        private int member(final int tag, final String type, final String name, final String descriptor) {
+            final int typeIndex = type(type == null ? owner : type);
+            final int nameAndType = nameAndType(name, descriptor);
+            return entry("M" + tag + typeIndex + "." + nameAndType, () -> {
+                entries.u1(tag);
+                entries.u2(typeIndex);
+                entries.u2(nameAndType);
+            });
+        }
+
+        /**
+         * Returns the index of the entry with the given key, writing the entry if it is not in the pool yet.
+         *
+         * @param key    The serialized form of the entry.
+         * @param writer Writes the entry.
+         * @return The index of the entry.
+         */
+        private int entry(final String key, final Runnable writer) {
+            final Integer index = indices.get(key);
+            if (index != null) {
+                return index;
+            }
+            writer.run();
+            indices.put(key, count);
+            return count++;
+        }
+
+        private void write(final Code out) {
+            out.u2(count);
+            out.bytes(entries.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,579 @@
+package in.at0m.fsm;
+
+import in.at0m.fsm.dispatch.AfterActionDispatcher;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.metrics.StateMachineMetrics;
+import in.at0m.fsm.replay.FastForwarder;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import in.at0m.fsm.transition.TransitionTable;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, thread-safe definition of a finite state machine. A definition holds the compiled
+ * {@link TransitionTable} and is meant to be built once and shared by any number of state machine
+ * instances, each of which only needs to track its own current state.
+ * <p>
+ * Compiled tables are interned: definitions built from the same set of {@link Transition}(s), i.e. the same
+ * events, source states, target states and actions, share a single {@link TransitionTable}. The interner only holds
+ * its tables weakly, so a table and its actions are released once no definition uses it anymore.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public final class StateMachineDefinition<E extends Enum<E>, S extends Enum<S>, T> {
+
+    /**
+     * The interned transition tables keyed by the set of transitions they were compiled from.
+     */
+    private static final ConcurrentHashMap<Set<List<Object>>, TableReference> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * The references to the interned tables that were garbage collected, whose entries are to be removed.
+     */
+    private static final ReferenceQueue<TransitionTable<?, ?, ?>> RELEASED_TABLES = new ReferenceQueue<>();
+
+    /**
+     * The state transition table shared by all the state machines of this definition.
+     */
+    private final TransitionTable<E, S, T> table;
+
+    /**
+     * Indicates whether rejected events are reported with cached {@link InvalidTransitionException}(s) that carry
+     * no stack trace, instead of a new exception per rejection.
+     */
+    @Getter
+    private final boolean stacklessExceptions;
+
+    /**
+     * The cached exceptions indexed by state ordinal and event ordinal, if {@link #stacklessExceptions} is set and
+     * the state and event types are known. {@code null} otherwise.
+     */
+    private final InvalidTransitionException[][] rejections;
+
+    /**
+     * Indicates whether the actions of the transitions are passed the reusable {@link ActionContext} of the
+     * calling thread instead of a new context per transition.
+     */
+    @Getter
+    private final boolean reuseActionContext;
+
+    /**
+     * Runs the {@code after} actions of the transitions once they are committed, or {@code null} if the
+     * {@code after} actions run synchronously on the thread consuming the event.
+     */
+    @Getter
+    private final AfterActionDispatcher afterActionDispatcher;
+
+    /**
+     * Receives the measurements of the state machines of this definition.
+     */
+    @Getter
+    private final StateMachineMetrics<E, S> metrics;
+
+    /**
+     * Computes the state reached after a sequence of events, created on first use.
+     */
+    private volatile FastForwarder<E, S> fastForwarder;
+
+    /**
+     * The {@link CompiledStateMachine} class generated for this definition, created on first use.
+     */
+    private volatile CompiledClass<E, S, T> compiledClass;
+
+    /**
+     * Constructs a {@link StateMachineDefinition} from the given collection of {@link Transition}.
+     *
+     * @param transitions The collection of all transitions that can be performed by the state machines
+     *                    of this definition.
+     * @throws IllegalStateException If more than one transition is registered for the same event and state.
+     */
+    public StateMachineDefinition(final Collection<Transition<E, S, T>> transitions) {
+        this(transitions, false);
+    }
+
+    /**
+     * Constructs a {@link StateMachineDefinition} from the given collection of {@link Transition}.
+     *
+     * @param transitions         The collection of all transitions that can be performed by the state machines
+     *                            of this definition.
+     * @param stacklessExceptions Whether rejected events are reported with cached exceptions that carry no stack
+     *                            trace. Such exceptions are cheap to throw but shared, hence must not be modified.
+     * @throws IllegalStateException If more than one transition is registered for the same event and state.
+     */
+    public StateMachineDefinition(final Collection<Transition<E, S, T>> transitions,
+                                  final boolean stacklessExceptions) {
+        this(transitions, stacklessExceptions, false, null, null);
+    }
+
+    /**
+     * Constructs a {@link StateMachineDefinition} from the given collection of {@link Transition}. The options of a
+     * definition are set through its {@link Builder}.
+     *
+     * @param transitions           The collection of all transitions that can be performed by the state machines
+     *                              of this definition.
+     * @param stacklessExceptions   Whether rejected events are reported with cached exceptions that carry no stack
+     *                              trace. Such exceptions are cheap to throw but shared, hence must not be modified.
+     * @param reuseActionContext    Whether the actions are passed the reusable {@link ActionContext} of the calling
+     *                              thread, which saves an allocation per transition. Such a context is only valid
+     *                              for the duration of the callback, hence the actions must not retain it.
+     * @param afterActionDispatcher Runs the {@code after} actions once the transitions are committed, outside the
+     *                              critical section of the state machines. If {@code null}, the {@code after}
+     *                              actions run synchronously.
+     * @param metrics               Receives the measurements of the state machines of this definition. If
+     *                              {@code null}, no measurement is taken.
+     * @throws IllegalStateException If more than one transition is registered for the same event and state.
+     */
+    @lombok.Builder(builderClassName = "Builder")
+    private StateMachineDefinition(@NonNull final Collection<Transition<E, S, T>> transitions,
+                                  final boolean stacklessExceptions, final boolean reuseActionContext,
+                                  final AfterActionDispatcher afterActionDispatcher,
+                                  final StateMachineMetrics<E, S> metrics) {
+        this.table = intern(transitions);
+        this.stacklessExceptions = stacklessExceptions;
+        this.rejections = stacklessExceptions && !transitions.isEmpty() ? buildRejections(table) : null;
+        this.reuseActionContext = reuseActionContext;
+        this.afterActionDispatcher = afterActionDispatcher;
+        this.metrics = metrics != null ? metrics : StateMachineMetrics.noop();
+    }
+
+    /**
+     * Builds the cached stackless exception of every state and event pair that cannot be consumed.
+     *
+     * @param table The state transition table.
+     * @param <E>   The enum type that denotes the events.
+     * @param <S>   The enum type that denotes the states.
+     * @param <T>   The type on which the state machine is operating.
+     * @return The cached exceptions indexed by state ordinal and event ordinal.
+     */
+    private static <E extends Enum<E>, S extends Enum<S>, T> InvalidTransitionException[][] buildRejections(
+            final TransitionTable<E, S, T> table) {
+        final Transition<E, S, T> first = table.getTransitions().get(0);
+        final S[] states = first.getFromState().getDeclaringClass().getEnumConstants();
+        final E[] events = first.getEvent().getDeclaringClass().getEnumConstants();
+        final InvalidTransitionException[][] rejections = new InvalidTransitionException[states.length][];
+        for (final S state : states) {
+            rejections[state.ordinal()] = new InvalidTransitionException[events.length];
+            for (final E event : events) {
+                if (table.get(state, event) == null) {
+                    rejections[state.ordinal()][event.ordinal()]
+                            = new InvalidTransitionException(message(state, event), false);
+                }
+            }
+        }
+        return rejections;
+    }
+
+    /**
+     * Returns the message reporting that the given event cannot be consumed in the given state.
+     *
+     * @param state The state in which the event is consumed.
+     * @param event The event which is being consumed.
+     * @return The message.
+     */
+    private static String message(final Enum<?> state, final Enum<?> event) {
+        return String.format("Transition from state %s not valid for event %s", state, event);
+    }
+
+    /**
+     * Returns the interned {@link TransitionTable} for the given transitions, compiling it if required. The key
+     * holds the actions of every transition, which every {@link Transition} copies when it is constructed, so that
+     * the key is not affected if the caller later modifies the list of actions it built a transition from.
+     *
+     * @param transitions The transitions to compile.
+     * @param <E>         The enum type that denotes the events.
+     * @param <S>         The enum type that denotes the states.
+     * @param <T>         The type on which the state machine is operating.
+     * @return The interned {@link TransitionTable}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Enum<E>, S extends Enum<S>, T> TransitionTable<E, S, T> intern(
+            final Collection<Transition<E, S, T>> transitions) {
+        for (Reference<?> released; (released = RELEASED_TABLES.poll()) != null; ) {
+            TABLES.remove(((TableReference) released).key, released);
+        }
+        final TransitionTable<E, S, T> table = TransitionTable.compile(transitions);
+        final Set<List<Object>> key = new HashSet<>();
+        for (final Transition<E, S, T> transition : table.getTransitions()) {
+            key.add(Arrays.asList(transition.getEvent(), transition.getFromState(),
+                    transition.getToState(), transition.getActions()));
+        }
+        final TransitionTable<?, ?, ?>[] interned = {table};
+        TABLES.compute(key, (k, reference) -> {
+            final TransitionTable<?, ?, ?> existing = reference == null ? null : reference.get();
+            if (existing != null) {
+                interned[0] = existing;
+                return reference;
+            }
+            return new TableReference(k, table);
+        });
+        return (TransitionTable<E, S, T>) interned[0];
+    }
+
+    /**
+     * Returns the collection of {@link Transition} that can be performed by the state machines of this definition.
+     *
+     * @return An unmodifiable list of the transitions of this definition.
+     */
+    public List<Transition<E, S, T>> getTransitions() {
+        return table.getTransitions();
+    }
+
+    /**
+     * Returns the {@link Transition} that is performed when the given {@code event} is consumed in the
+     * given {@code state}.
+     *
+     * @param state The state in which the event is consumed.
+     * @param event The event which is being consumed.
+     * @return The {@link Transition} to perform or {@code null} if the event cannot be consumed in the state.
+     */
+    public Transition<E, S, T> getTransition(@NonNull final S state, @NonNull final E event) {
+        return table.get(state, event);
+    }
+
+    /**
+     * Returns {@code true} if the given {@code event} can be consumed in the given {@code state}, by testing a
+     * single bit of the precomputed event bitmask of the state. {@code false} otherwise.
+     *
+     * @param state The state in which the event is consumed.
+     * @param event The event which is being consumed.
+     * @return {@code true} if the given event can be consumed in the given state. {@code false} otherwise.
+     */
+    public boolean canConsume(@NonNull final S state, @NonNull final E event) {
+        return table.canConsume(state, event);
+    }
+
+    /**
+     * Returns the events that can be consumed in the given {@code state}. The returned set is precomputed, shared
+     * and unmodifiable.
+     *
+     * @param state The state in which the events are consumed.
+     * @return The unmodifiable set of the events that can be consumed in the given state.
+     */
+    public Set<E> allowedEvents(@NonNull final S state) {
+        return table.allowedEvents(state);
+    }
+
+    /**
+     * Returns the states that no transition from another state leads to, as analysed when the transitions were
+     * compiled. Such a state can only be the initial state of a state machine.
+     *
+     * @return The unmodifiable set of the unreachable states.
+     */
+    public Set<S> getUnreachableStates() {
+        return table.getUnreachableStates();
+    }
+
+    /**
+     * Returns the states that no transition leaves, as analysed when the transitions were compiled.
+     *
+     * @return The unmodifiable set of the dead-end states.
+     */
+    public Set<S> getDeadEndStates() {
+        return table.getDeadEndStates();
+    }
+
+    /**
+     * Returns the states that can be entered by a state machine starting in the given {@code initialState},
+     * including the initial state itself.
+     *
+     * @param initialState The initial state of the state machine.
+     * @return The set of the reachable states.
+     */
+    public Set<S> reachableStates(@NonNull final S initialState) {
+        return table.reachableStates(initialState);
+    }
+
+    /**
+     * Returns the exception reporting that the given {@code event} cannot be consumed in the given {@code state}.
+     * If this definition uses {@link #isStacklessExceptions() stackless exceptions}, the returned instance is
+     * cached and carries no stack trace. Must only be called for a state and event pair that cannot be consumed.
+     *
+     * @param state The state in which the event could not be consumed.
+     * @param event The event which could not be consumed.
+     * @return The exception to throw.
+     */
+    public InvalidTransitionException rejection(@NonNull final S state, @NonNull final E event) {
+        if (rejections != null) {
+            return rejections[state.ordinal()][event.ordinal()];
+        }
+        return new InvalidTransitionException(message(state, event), !stacklessExceptions);
+    }
+
+    /**
+     * Returns the {@link ActionContext} passed to the actions of the given {@link Transition}. If this definition
+     * {@link #isReuseActionContext() reuses action contexts}, the reusable context of the calling thread is
+     * returned. Either way, {@link ActionContext#release()} must be called once the actions are done.
+     *
+     * @param transition The transition being performed.
+     * @param data       The context information.
+     * @return The context for the actions of the transition.
+     */
+    public ActionContext<E, S, T> newActionContext(final Transition<E, S, T> transition, final T data) {
+        if (reuseActionContext) {
+            return ActionContext.flyweight(transition.getEvent(), transition.getFromState(), transition.getToState(),
+                    data);
+        }
+        return new ActionContext<>(transition.getEvent(), transition.getFromState(), transition.getToState(), data);
+    }
+
+    /**
+     * Runs the {@code before} actions of the given {@link Transition}, timing every action if the
+     * {@link #metrics} of this definition are enabled.
+     *
+     * @param transition    The transition being performed.
+     * @param actionContext The context passed to the actions.
+     */
+    public void before(final Transition<E, S, T> transition, final ActionContext<E, S, T> actionContext) {
+        if (!metrics.isEnabled()) {
+            transition.before(actionContext);
+            return;
+        }
+        for (final Action<E, S, T> action : transition.getActions()) {
+            final long start = System.nanoTime();
+            try {
+                action.before(actionContext);
+            } finally {
+                metrics.before(action, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Runs the {@code after} actions of the given committed {@link Transition}, either synchronously or by handing
+     * them to the {@link #afterActionDispatcher} of this definition. A reusable context is copied before it is
+     * handed over, as it is released as soon as this method returns. Every action is timed if the {@link #metrics}
+     * of this definition are enabled.
+     *
+     * @param transition    The committed transition.
+     * @param actionContext The context passed to the {@code before} actions of the transition.
+     */
+    public void after(final Transition<E, S, T> transition, final ActionContext<E, S, T> actionContext) {
+        if (afterActionDispatcher == null) {
+            runAfter(transition, actionContext);
+            return;
+        }
+        final ActionContext<E, S, T> retained = reuseActionContext ? actionContext.toBuilder().build() : actionContext;
+        afterActionDispatcher.dispatch(() -> runAfter(transition, retained));
+    }
+
+    /**
+     * Runs the {@code after} actions of the given committed {@link Transition} on the calling thread.
+     *
+     * @param transition    The committed transition.
+     * @param actionContext The context passed to the actions.
+     */
+    private void runAfter(final Transition<E, S, T> transition, final ActionContext<E, S, T> actionContext) {
+        if (!metrics.isEnabled()) {
+            transition.after(actionContext);
+            return;
+        }
+        for (final Action<E, S, T> action : transition.getActions()) {
+            final long start = System.nanoTime();
+            try {
+                action.after(actionContext);
+            } finally {
+                metrics.after(action, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Returns the state reached by consuming the given events in order from the given initial state, without
+     * running any action. Long sequences are reduced in parallel on the common
+     * {@link java.util.concurrent.ForkJoinPool}, see {@link FastForwarder}.
+     *
+     * @param initialState The state before the first event.
+     * @param events       The events to consume.
+     * @return The final state, or {@code null} if one of the events cannot be consumed.
+     */
+    public S fastForward(@NonNull final S initialState, @NonNull final E[] events) {
+        return events.length == 0 ? initialState : fastForwarder(initialState, events[0])
+                .fastForward(initialState, events);
+    }
+
+    /**
+     * Returns the index of the first of the given events that cannot be consumed when they are consumed in order
+     * from the given initial state, without running any action.
+     *
+     * @param initialState The state before the first event.
+     * @param events       The events to consume.
+     * @return The index of the first event that cannot be consumed, or {@code -1} if every event can be consumed.
+     */
+    public int dryRun(@NonNull final S initialState, @NonNull final E[] events) {
+        return events.length == 0 ? -1 : fastForwarder(initialState, events[0]).dryRun(initialState, events);
+    }
+
+    /**
+     * Returns the {@link FastForwarder} of this definition, creating it if required.
+     *
+     * @param state A state, giving the enum type that denotes the states.
+     * @param event An event, giving the enum type that denotes the events.
+     * @return The {@link FastForwarder} of this definition.
+     */
+    private FastForwarder<E, S> fastForwarder(final S state, final E event) {
+        FastForwarder<E, S> forwarder = fastForwarder;
+        if (forwarder == null) {
+            forwarder = new FastForwarder<>(this, state.getDeclaringClass(), event.getDeclaringClass());
+            fastForwarder = forwarder;
+        }
+        return forwarder;
+    }
+
+    /**
+     * Creates a new {@link SimpleStateMachine} of this definition starting in the given {@code initialState}.
+     *
+     * @param initialState The initial state of the new state machine.
+     * @return A new {@link SimpleStateMachine} sharing this definition.
+     */
+    public SimpleStateMachine<E, S, T> newStateMachine(@NonNull final S initialState) {
+        return new SimpleStateMachine<>(this, initialState);
+    }
+
+    /**
+     * Creates a new lock-free {@link AtomicStateMachine} of this definition starting in the given
+     * {@code initialState} and using the given {@code conflictPolicy}.
+     *
+     * @param initialState   The initial state of the new state machine.
+     * @param conflictPolicy The policy applied when a transition loses the race against a concurrent transition.
+     * @return A new {@link AtomicStateMachine} sharing this definition.
+     */
+    public AtomicStateMachine<E, S, T> newAtomicStateMachine(
+            @NonNull final S initialState, @NonNull final AtomicStateMachine.ConflictPolicy conflictPolicy) {
+        return new AtomicStateMachine<>(this, initialState, conflictPolicy);
+    }
+
+    /**
+     * Creates a new {@link CompiledStateMachine} of this definition starting in the given {@code initialState}. The
+     * definition is compiled into bytecode the first time this method is called, see {@link CompiledStateMachine}.
+     *
+     * @param initialState The initial state of the new state machine.
+     * @return A new {@link CompiledStateMachine} sharing this definition.
+     * @throws IllegalStateException If the compiled state machine cannot be created.
+     */
+    public CompiledStateMachine<E, S, T> newCompiledStateMachine(@NonNull final S initialState) {
+        CompiledClass<E, S, T> compiled = compiledClass;
+        try {
+            if (compiled == null) {
+                compiled = new CompiledClass<>(StateMachineCompiler.compile(this).getConstructor(
+                        StateMachineDefinition.class, Enum.class, Action[].class), CompiledStateMachine.actions(this));
+                compiledClass = compiled;
+            }
+            return compiled.constructor.newInstance(this, initialState, compiled.actions);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the compiled state machine", e);
+        }
+    }
+
+    /**
+     * The constructor of a generated {@link CompiledStateMachine} class together with the actions its instances share.
+     * Both are final, so publishing the holder publishes them together.
+     *
+     * @param <E> The enum type that denotes the events.
+     * @param <S> The enum type that denotes the states.
+     * @param <T> The type on which the state machine is operating.
+     */
+    private static final class CompiledClass<E extends Enum<E>, S extends Enum<S>, T> {
+
+        /**
+         * The constructor of the generated class.
+         */
+        private final Constructor<? extends CompiledStateMachine<E, S, T>> constructor;
+
+        /**
+         * The actions shared by every instance of the generated class.
+         */
+        private final Action<E, S, T>[] actions;
+
+        /**
+         * Constructs a {@link CompiledClass}.
+         *
+         * @param constructor The constructor of the generated class.
+         * @param actions     The actions shared by every instance of the generated class.
+         */
+        private CompiledClass(final Constructor<? extends CompiledStateMachine<E, S, T>> constructor,
+                              final Action<E, S, T>[] actions) {
+            this.constructor = constructor;
+            this.actions = actions;
+        }
+    }
+
+    /**
+     * A weak reference to an interned {@link TransitionTable}, which knows its key so that its entry can be removed
+     * once the table is garbage collected.
+     */
+    private static final class TableReference extends WeakReference<TransitionTable<?, ?, ?>> {
+
+        /**
+         * The key of the table in {@link #TABLES}.
+         */
+        private final Set<List<Object>> key;
+
+        /**
+         * Constructs a {@link TableReference}.
+         *
+         * @param key   The key of the table.
+         * @param table The table.
+         */
+        private TableReference(final Set<List<Object>> key, final TransitionTable<?, ?, ?> table) {
+            super(table, RELEASED_TABLES);
+            this.key = key;
+        }
+    }
+
+    /**
+     * A builder pattern for {@link StateMachineDefinition} to make it easier to construct the object.
+     *
+     * @param <E> The enum type that denotes the events.
+     * @param <S> The enum type that denotes the states.
+     * @param <T> The type on which the state machine is operating.
+     * @author shubhdarlinge
+     */
+    public static class Builder<E extends Enum<E>, S extends Enum<S>, T> {
+
+        /**
+         * Constructs a {@link Builder}.
+         */
+        private Builder() {
+            this.transitions = new ArrayList<>();
+        }
+
+        /**
+         * Adds all the transitions given in the collection to the transition list.
+         *
+         * @param transitions The transitions that need to be registered with this definition.
+         * @return {@code this} instance.
+         */
+        public Builder<E, S, T> transitions(@NonNull final Collection<Transition<E, S, T>> transitions) {
+            this.transitions.addAll(transitions);
+            return this;
+        }
+
+        /**
+         * Adds the given transition to the transition list.
+         *
+         * @param transition The transition that needs to be registered with this definition.
+         * @return {@code this} instance.
+         */
+        public Builder<E, S, T> addTransition(@NonNull final Transition<E, S, T> transition) {
+            this.transitions.add(transition);
+            return this;
+        }
+    }
+}
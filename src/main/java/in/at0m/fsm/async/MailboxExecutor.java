@@ -0,0 +1,278 @@
+package in.at0m.fsm.async;
+
+import in.at0m.fsm.StateMachine;
+import lombok.NonNull;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * An asynchronous front end over {@link StateMachine}(s). Every machine gets a mailbox and the events submitted
+ * for a machine are consumed strictly in submission order, one at a time, whereas the mailboxes of different
+ * machines are drained concurrently on a shared {@link Executor}. Since a machine is only ever driven by its
+ * mailbox, submitting threads never block on it.
+ * <p>
+ * Mailboxes are bounded: once a mailbox holds {@code mailboxCapacity} pending events, further submissions for that
+ * machine fail fast with a {@link RejectedExecutionException}, which gives callers a backpressure signal.
+ * <p>
+ * A mailbox, and with it its machine, is kept until it is {@link #evict(Object) evicted}, which callers driving many
+ * short-lived machines do once they are done with a key.
+ *
+ * @param <K> The type of the key identifying the state machine.
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machines are operating.
+ * @author shubhdarlinge
+ */
+public class MailboxExecutor<K, E extends Enum<E>, S extends Enum<S>, T> {
+
+    /**
+     * The largest number of events a mailbox consumes before yielding its thread to other mailboxes.
+     */
+    private static final int THROUGHPUT = 64;
+
+    /**
+     * The size of an evicted mailbox, which stays negative however many events are submitted to it afterwards.
+     */
+    private static final int EVICTED = Integer.MIN_VALUE;
+
+    /**
+     * The mailboxes of the machines keyed by machine key.
+     */
+    private final Map<K, Mailbox> mailboxes;
+
+    /**
+     * Provides the state machine for a key the first time an event is submitted for it.
+     */
+    private final Function<K, ? extends StateMachine<E, S, T>> machines;
+
+    /**
+     * The executor on which the mailboxes are drained.
+     */
+    private final Executor executor;
+
+    /**
+     * The largest number of pending events per mailbox.
+     */
+    private final int mailboxCapacity;
+
+    /**
+     * Constructs a {@link MailboxExecutor} draining the mailboxes on the {@link #defaultExecutor()}.
+     *
+     * @param machines        Provides the state machine for a key the first time an event is submitted for it.
+     * @param mailboxCapacity The largest number of pending events per mailbox.
+     */
+    public MailboxExecutor(final Function<K, ? extends StateMachine<E, S, T>> machines, final int mailboxCapacity) {
+        this(machines, defaultExecutor(), mailboxCapacity);
+    }
+
+    /**
+     * Constructs a {@link MailboxExecutor}.
+     *
+     * @param machines        Provides the state machine for a key the first time an event is submitted for it.
+     * @param executor        The executor on which the mailboxes are drained.
+     * @param mailboxCapacity The largest number of pending events per mailbox.
+     * @throws IllegalArgumentException If the mailbox capacity is not positive.
+     */
+    public MailboxExecutor(@NonNull final Function<K, ? extends StateMachine<E, S, T>> machines,
+                           @NonNull final Executor executor, final int mailboxCapacity) {
+        if (mailboxCapacity <= 0) {
+            throw new IllegalArgumentException(String.format("Mailbox capacity %d is not positive", mailboxCapacity));
+        }
+        this.mailboxes = new ConcurrentHashMap<>();
+        this.machines = machines;
+        this.executor = executor;
+        this.mailboxCapacity = mailboxCapacity;
+    }
+
+    /**
+     * Returns the executor used when none is given: a virtual thread per task executor when running on a Java
+     * runtime that supports virtual threads, the common {@link ForkJoinPool} otherwise.
+     *
+     * @return The default executor.
+     */
+    public static Executor defaultExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return ForkJoinPool.commonPool();
+        }
+    }
+
+    /**
+     * Submits the given event along with the context information to the state machine identified by the given
+     * key. The returned future completes with the new state of the machine once the event is consumed, or
+     * exceptionally with the exception thrown by {@link StateMachine#consume(Enum, Object)}.
+     *
+     * @param key     The key of the state machine.
+     * @param event   The event which is being consumed.
+     * @param context The context information.
+     * @return A future of the new state of the machine. The future fails with a
+     * {@link RejectedExecutionException} if the mailbox of the machine is full or the executor rejects it.
+     */
+    public CompletableFuture<S> submit(@NonNull final K key, @NonNull final E event, @NonNull final T context) {
+        Mailbox mailbox;
+        int size;
+        do {
+            // A mailbox evicted since it was looked up is not mapped anymore, so the next lookup creates a new one.
+            mailbox = mailboxes.computeIfAbsent(key, k -> new Mailbox(machines.apply(k)));
+            size = mailbox.size.incrementAndGet();
+        } while (size < 0);
+        if (size > mailboxCapacity) {
+            mailbox.size.decrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    String.format("Mailbox of %s is full", key)));
+        }
+        final Letter letter = new Letter(event, context);
+        mailbox.queue.offer(letter);
+        mailbox.schedule();
+        return letter.future;
+    }
+
+    /**
+     * Returns the number of events submitted to the state machine identified by the given key that are not
+     * consumed yet.
+     *
+     * @param key The key of the state machine.
+     * @return The number of pending events.
+     */
+    public int pending(@NonNull final K key) {
+        final Mailbox mailbox = mailboxes.get(key);
+        return mailbox == null ? 0 : Math.max(mailbox.size.get(), 0);
+    }
+
+    /**
+     * Drops the mailbox of the state machine identified by the given key, along with the reference to the machine,
+     * if every event submitted to it is consumed. The machine is provided again if an event is submitted for the key
+     * afterwards.
+     *
+     * @param key The key of the state machine.
+     * @return {@code true} if the key has no mailbox anymore. {@code false} if its mailbox has pending events.
+     */
+    public boolean evict(@NonNull final K key) {
+        return mailboxes.computeIfPresent(key, (k, mailbox) -> mailbox.size.compareAndSet(0, EVICTED) ? null
+                : mailbox) == null;
+    }
+
+    /**
+     * An event waiting in a mailbox along with the future to complete once it is consumed.
+     */
+    private final class Letter {
+
+        /**
+         * The event which is to be consumed.
+         */
+        private final E event;
+
+        /**
+         * The context information with which the event is to be consumed.
+         */
+        private final T context;
+
+        /**
+         * The future completed with the new state once the event is consumed.
+         */
+        private final CompletableFuture<S> future = new CompletableFuture<>();
+
+        private Letter(final E event, final T context) {
+            this.event = event;
+            this.context = context;
+        }
+    }
+
+    /**
+     * The mailbox of a single state machine. At most one thread drains a mailbox at any time.
+     */
+    private final class Mailbox implements Runnable {
+
+        /**
+         * The state machine driven by this mailbox.
+         */
+        private final StateMachine<E, S, T> machine;
+
+        /**
+         * The pending events in submission order.
+         */
+        private final Queue<Letter> queue = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The number of events submitted and not consumed yet, including the one being consumed, maintained
+         * separately as the size of the queue is not constant time. {@link #EVICTED} once this mailbox is evicted.
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * Indicates whether this mailbox is handed to the executor or being drained.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Mailbox(final StateMachine<E, S, T> machine) {
+            this.machine = machine;
+        }
+
+        /**
+         * Hands this mailbox to the executor unless it is already scheduled or running.
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    Letter letter;
+                    while ((letter = queue.poll()) != null) {
+                        size.decrementAndGet();
+                        letter.future.completeExceptionally(e);
+                    }
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Letter letter;
+                for (int i = 0; i < THROUGHPUT && (letter = queue.poll()) != null; i++) {
+                    consume(letter);
+                }
+            } finally {
+                scheduled.set(false);
+                if (!queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        /**
+         * Consumes the event of the given letter and completes its future. The future is completed exceptionally
+         * whatever the machine throws, and an {@link Error} is rethrown once it is.
+         *
+         * @param letter The letter to consume.
+         */
+        private void consume(final Letter letter) {
+            final S state;
+            try {
+                state = machine.consume(letter.event, letter.context);
+            } catch (Throwable e) {
+                size.decrementAndGet();
+                letter.future.completeExceptionally(e);
+                if (e instanceof Error) {
+                    throw (Error) e;
+                }
+                return;
+            }
+            size.decrementAndGet();
+            letter.future.complete(state);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package in.at0m.fsm.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The outcome of consuming a batch of events.
+ *
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BatchResult<S extends Enum<S>> {
+
+    /**
+     * The number of events of the batch that were consumed.
+     */
+    private final int applied;
+
+    /**
+     * The number of events of the batch that could not be consumed. With
+     * {@link InvalidEventPolicy#STOP_ON_FIRST_INVALID} this is at most one.
+     */
+    private final int rejected;
+
+    /**
+     * The state of the state machine after the batch was consumed.
+     */
+    private final S finalState;
+}
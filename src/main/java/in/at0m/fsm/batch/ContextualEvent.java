@@ -0,0 +1,29 @@
+package in.at0m.fsm.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An event paired with the context information it should be consumed with.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+@Getter
+@AllArgsConstructor
+public class ContextualEvent<E extends Enum<E>, T> {
+
+    /**
+     * The event which is to be consumed.
+     */
+    @NonNull
+    private final E event;
+
+    /**
+     * The context information with which the event is to be consumed.
+     */
+    @NonNull
+    private final T context;
+}
@@ -0,0 +1,19 @@
+package in.at0m.fsm.batch;
+
+/**
+ * The policy applied when an event of a batch cannot be consumed in the current state.
+ *
+ * @author shubhdarlinge
+ */
+public enum InvalidEventPolicy {
+
+    /**
+     * Stop consuming the batch at the first event that cannot be consumed.
+     */
+    STOP_ON_FIRST_INVALID,
+
+    /**
+     * Skip the events that cannot be consumed and continue with the rest of the batch.
+     */
+    SKIP_INVALID
+}
@@ -0,0 +1,286 @@
+package in.at0m.fsm.dispatch;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs the {@code after} callbacks of {@link in.at0m.fsm.transition.Action}(s) on a dedicated thread once the
+ * transition is committed, so that slow callbacks do not extend the time a state machine holds its lock. The
+ * {@code before} callbacks are unaffected and still run synchronously, hence they remain the point at which a
+ * transition can be vetoed.
+ * <p>
+ * Callbacks are queued in a bounded queue and run in the order they were dispatched. The worker drains up to
+ * {@code batchSize} callbacks at a time, which amortizes the cost of waking it up under load. What happens when the
+ * queue is full is decided by the {@link OverflowPolicy}.
+ * <p>
+ * Whatever a callback throws, {@link Error}(s) included, is passed to the error handler and the worker carries on
+ * with the next callback. A callback is dispatched once its transition is committed, hence a callback that cannot be
+ * queued is reported to the error handler as a {@link RejectedExecutionException} rather than thrown at the state
+ * machine.
+ * <p>
+ * A dispatcher is attached to a {@link in.at0m.fsm.StateMachineDefinition} and may be shared by many definitions.
+ *
+ * @author shubhdarlinge
+ */
+public class AfterActionDispatcher implements AutoCloseable {
+
+    /**
+     * Marks the end of the queue once the dispatcher is closed.
+     */
+    private static final Runnable STOP = Thread::onSpinWait;
+
+    /**
+     * The interval, in milliseconds, at which a thread waiting for space in the queue checks that the worker is
+     * still running.
+     */
+    private static final long WORKER_CHECK_INTERVAL = 10;
+
+    /**
+     * The callbacks waiting to be run, in dispatch order.
+     */
+    private final BlockingQueue<Runnable> queue;
+
+    /**
+     * The largest number of callbacks run per wake up of the worker.
+     */
+    private final int batchSize;
+
+    /**
+     * The policy applied when a callback is dispatched while the queue is full.
+     */
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Handles the exceptions thrown by the callbacks, which have no caller to propagate to, and the rejected
+     * callbacks.
+     */
+    private final Consumer<Throwable> errorHandler;
+
+    /**
+     * The number of callbacks discarded as per {@link OverflowPolicy#DROP}.
+     */
+    private final LongAdder dropped;
+
+    /**
+     * The thread running the callbacks.
+     */
+    private final Thread worker;
+
+    /**
+     * Indicates whether this dispatcher has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructs an {@link AfterActionDispatcher} that passes the exceptions thrown by the callbacks to the
+     * uncaught exception handler of the thread running them.
+     *
+     * @param capacity       The largest number of callbacks waiting to be run.
+     * @param batchSize      The largest number of callbacks run per wake up of the worker.
+     * @param overflowPolicy The policy applied when a callback is dispatched while the queue is full.
+     */
+    public AfterActionDispatcher(final int capacity, final int batchSize, final OverflowPolicy overflowPolicy) {
+        this(capacity, batchSize, overflowPolicy, AfterActionDispatcher::newWorker, null);
+    }
+
+    /**
+     * Constructs an {@link AfterActionDispatcher} and starts its worker thread.
+     *
+     * @param capacity       The largest number of callbacks waiting to be run.
+     * @param batchSize      The largest number of callbacks run per wake up of the worker.
+     * @param overflowPolicy The policy applied when a callback is dispatched while the queue is full.
+     * @param threadFactory  Creates the worker thread. If the worker thread is interrupted, it stops and the
+     *                       dispatcher is closed.
+     * @param errorHandler   Handles the exceptions thrown by the callbacks and the
+     *                       {@link RejectedExecutionException}(s) of the callbacks that cannot be queued. If
+     *                       {@code null}, they are passed to the uncaught exception handler of the thread running
+     *                       or dispatching the callback.
+     * @throws IllegalArgumentException If the capacity or the batch size is not positive.
+     */
+    public AfterActionDispatcher(final int capacity, final int batchSize,
+                                 @NonNull final OverflowPolicy overflowPolicy,
+                                 @NonNull final ThreadFactory threadFactory,
+                                 final Consumer<Throwable> errorHandler) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Capacity %d and batch size %d must be positive", capacity, batchSize));
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.dropped = new LongAdder();
+        this.worker = threadFactory.newThread(this::drain);
+        this.errorHandler = errorHandler != null ? errorHandler : e -> Thread.currentThread()
+                .getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+        this.worker.start();
+    }
+
+    /**
+     * Creates the default worker thread, a daemon thread named {@code fsm-after-actions}.
+     *
+     * @param runnable The loop of the worker.
+     * @return The worker thread.
+     */
+    private static Thread newWorker(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "fsm-after-actions");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Hands the given callback to the worker as per the {@link OverflowPolicy} of this dispatcher. If this
+     * dispatcher is closed, its worker is stopped or the calling thread is interrupted while waiting for space in
+     * the queue as per {@link OverflowPolicy#BLOCK}, the callback is not run and a
+     * {@link RejectedExecutionException} is passed to the error handler instead.
+     *
+     * @param callback The callback to run.
+     */
+    public void dispatch(@NonNull final Runnable callback) {
+        if (closed) {
+            errorHandler.accept(new RejectedExecutionException("Dispatcher is closed"));
+            return;
+        }
+        if (queue.offer(callback)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    if (!enqueue(callback)) {
+                        errorHandler.accept(new RejectedExecutionException("Dispatcher worker is stopped"));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    errorHandler.accept(new RejectedExecutionException(
+                            "Interrupted while waiting for space in the queue", e));
+                }
+                break;
+            case DROP:
+                dropped.increment();
+                break;
+            default:
+                run(callback);
+        }
+    }
+
+    /**
+     * Waits for space in the queue to add the given callback to it, as long as the worker is running.
+     *
+     * @param callback The callback to add.
+     * @return {@code true} if the callback was added. {@code false} if the worker stopped.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    private boolean enqueue(final Runnable callback) throws InterruptedException {
+        while (!queue.offer(callback, WORKER_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+            if (!worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of callbacks discarded as per {@link OverflowPolicy#DROP}.
+     *
+     * @return The number of dropped callbacks.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of callbacks waiting to be run.
+     *
+     * @return The number of pending callbacks.
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting callbacks and waits until every callback dispatched before has run. Callbacks dispatched
+     * concurrently with closing may not run.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            enqueue(STOP);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the queued callbacks in batches until the stop marker is reached or the worker is interrupted.
+     */
+    private void drain() {
+        final List<Runnable> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                for (final Runnable callback : batch) {
+                    if (callback == STOP) {
+                        return;
+                    }
+                    run(callback);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            closed = true;
+        }
+    }
+
+    /**
+     * Runs the given callback, passing anything it throws to the error handler.
+     *
+     * @param callback The callback to run.
+     */
+    private void run(final Runnable callback) {
+        try {
+            callback.run();
+        } catch (Throwable e) {
+            errorHandler.accept(e);
+        }
+    }
+
+    /**
+     * The policy applied when a callback is dispatched while the queue is full.
+     *
+     * @author shubhdarlinge
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Wait for space in the queue. The dispatching thread, and hence the lock of the state machine it holds,
+         * is held up until the worker catches up.
+         */
+        BLOCK,
+
+        /**
+         * Discard the callback and count it in {@link AfterActionDispatcher#getDropped()}.
+         */
+        DROP,
+
+        /**
+         * Run the callback on the dispatching thread. The callback may then run before callbacks that are still
+         * queued, hence the dispatch order is not preserved under overflow.
+         */
+        CALLER_RUNS
+    }
+}
@@ -0,0 +1,244 @@
+package in.at0m.fsm.dynamic;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link DynamicStateMachineDefinition} precompiled into a compact binary file, so that services starting many
+ * definitions do not rebuild them on every start. The file holds the compiled transition table, the names of the
+ * states and events and the binding ids of the actions. Loading maps the file and copies every table with a single
+ * bulk read, without constructing any object per transition, and actions are only bound through the binder when
+ * they are first used.
+ * <p>
+ * The file records the version of the source the definition was built from, e.g. a checksum of its configuration,
+ * and a checksum of its content. A file built from another source version, written in another format or corrupt is
+ * stale: {@link #load()} ignores it and {@link #loadOrBuild(Supplier)} rebuilds it.
+ *
+ * @param <T> The type on which the state machines are operating.
+ * @author shubhdarlinge
+ */
+public final class DefinitionFile<T> {
+
+    /**
+     * The first bytes of every definition file, {@code FSMD} in ASCII.
+     */
+    private static final int MAGIC = 0x46534d44;
+
+    /**
+     * The version of the format written by this class.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The size of the header: the magic number, the format version, the source version, the payload size and the
+     * payload checksum.
+     */
+    private static final int HEADER_SIZE = 3 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    /**
+     * The path of the file.
+     */
+    @Getter
+    private final Path path;
+
+    /**
+     * The version of the source the definition is built from.
+     */
+    @Getter
+    private final long sourceVersion;
+
+    /**
+     * Binds a binding id to its action when the action is first used.
+     */
+    private final Function<String, ? extends DynamicAction<T>> binder;
+
+    /**
+     * Returns the binding id of an action given as an instance.
+     */
+    private final Function<? super DynamicAction<T>, String> bindingIds;
+
+    /**
+     * Constructs a {@link DefinitionFile}.
+     *
+     * @param path          The path of the file.
+     * @param sourceVersion The version of the source the definition is built from.
+     * @param binder        Binds a binding id to its action when the action is first used.
+     * @param bindingIds    Returns the binding id of an action given as an instance, so that it can be written.
+     */
+    public DefinitionFile(@NonNull final Path path, final long sourceVersion,
+                          @NonNull final Function<String, ? extends DynamicAction<T>> binder,
+                          @NonNull final Function<? super DynamicAction<T>, String> bindingIds) {
+        this.path = path;
+        this.sourceVersion = sourceVersion;
+        this.binder = binder;
+        this.bindingIds = bindingIds;
+    }
+
+    /**
+     * Loads the definition from the file.
+     *
+     * @return The definition, or {@code null} if the file does not exist or is stale.
+     * @throws IOException If the file cannot be read.
+     */
+    public DynamicStateMachineDefinition<T> load() throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            final MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.getInt() != MAGIC || data.getInt() != FORMAT_VERSION || data.getLong() != sourceVersion
+                    || data.getInt() != data.remaining() - Integer.BYTES
+                    || data.getInt() != checksum(data, HEADER_SIZE, data.limit())) {
+                return null;
+            }
+            return read(data);
+        }
+    }
+
+    /**
+     * Writes the given definition to the file, replacing it atomically.
+     *
+     * @param definition The definition.
+     * @throws IOException              If the file cannot be written.
+     * @throws IllegalArgumentException If an action of the definition has no binding id.
+     */
+    public void write(@NonNull final DynamicStateMachineDefinition<T> definition) throws IOException {
+        final List<byte[]> names = new ArrayList<>();
+        definition.getStates().getNames().forEach(name -> names.add(name.getBytes(StandardCharsets.UTF_8)));
+        definition.getEvents().getNames().forEach(name -> names.add(name.getBytes(StandardCharsets.UTF_8)));
+        for (int id = 0; id < definition.getActionCount(); id++) {
+            final String binding = definition.binding(id) != null ? definition.binding(id)
+                    : bindingIds.apply(definition.action(id));
+            if (binding == null) {
+                throw new IllegalArgumentException(String.format("No binding id for action %s",
+                        definition.action(id)));
+            }
+            names.add(binding.getBytes(StandardCharsets.UTF_8));
+        }
+        final int[] targets = definition.targets();
+        final int[] actionOffsets = definition.actionOffsets();
+        final int[] actionIds = definition.actionIds();
+        int size = HEADER_SIZE + (5 + targets.length + actionOffsets.length + actionIds.length) * Integer.BYTES;
+        for (final byte[] name : names) {
+            size += Integer.BYTES + name.length;
+        }
+        final ByteBuffer data = ByteBuffer.allocate(size);
+        data.position(HEADER_SIZE);
+        data.putInt(definition.getStates().size()).putInt(definition.getEvents().size())
+                .putInt(definition.getActionCount()).putInt(actionIds.length).putInt(names.size());
+        data.asIntBuffer().put(targets).put(actionOffsets).put(actionIds);
+        data.position(data.position() + (targets.length + actionOffsets.length + actionIds.length) * Integer.BYTES);
+        for (final byte[] name : names) {
+            data.putInt(name.length).put(name);
+        }
+        data.putInt(0, MAGIC).putInt(Integer.BYTES, FORMAT_VERSION).putLong(2 * Integer.BYTES, sourceVersion)
+                .putInt(2 * Integer.BYTES + Long.BYTES, size - HEADER_SIZE)
+                .putInt(3 * Integer.BYTES + Long.BYTES, checksum(data, HEADER_SIZE, size));
+        data.flip();
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads the definition from the file, or builds it and writes it to the file if the file does not exist or is
+     * stale.
+     *
+     * @param builder Builds the definition from its source.
+     * @return The definition.
+     * @throws IOException If the file cannot be read or written.
+     */
+    public DynamicStateMachineDefinition<T> loadOrBuild(
+            @NonNull final Supplier<DynamicStateMachineDefinition<T>> builder) throws IOException {
+        final DynamicStateMachineDefinition<T> loaded = load();
+        if (loaded != null) {
+            return loaded;
+        }
+        final DynamicStateMachineDefinition<T> built = builder.get();
+        write(built);
+        return built;
+    }
+
+    /**
+     * Reads the definition from the payload of a file.
+     *
+     * @param data The content of the file, positioned at the payload.
+     * @return The definition.
+     */
+    private DynamicStateMachineDefinition<T> read(final ByteBuffer data) {
+        final int stateCount = data.getInt();
+        final int eventCount = data.getInt();
+        final int actionCount = data.getInt();
+        final int actionIdCount = data.getInt();
+        final int nameCount = data.getInt();
+        final int[] targets = ints(data, stateCount * eventCount);
+        final int[] actionOffsets = ints(data, targets.length + 1);
+        final int[] actionIds = ints(data, actionIdCount);
+        final String[] names = new String[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            final byte[] name = new byte[data.getInt()];
+            data.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+        final String[] bindings = new String[actionCount];
+        System.arraycopy(names, stateCount + eventCount, bindings, 0, actionCount);
+        return new DynamicStateMachineDefinition<>(new NameTable(List.of(names).subList(0, stateCount)),
+                new NameTable(List.of(names).subList(stateCount, stateCount + eventCount)), targets, actionOffsets,
+                actionIds, new AtomicReferenceArray<>(actionCount), bindings, binder);
+    }
+
+    /**
+     * Reads the given number of {@code int}s with a single bulk read.
+     *
+     * @param data  The buffer, positioned at the first {@code int}, which is advanced past the last one.
+     * @param count The number of {@code int}s.
+     * @return The {@code int}s.
+     */
+    private static int[] ints(final ByteBuffer data, final int count) {
+        final int[] values = new int[count];
+        data.asIntBuffer().get(values);
+        data.position(data.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Computes the checksum of the bytes of the given buffer in the given range.
+     *
+     * @param data The buffer.
+     * @param from The offset of the first byte, inclusive.
+     * @param to   The offset of the last byte, exclusive.
+     * @return The checksum.
+     */
+    private static int checksum(final ByteBuffer data, final int from, final int to) {
+        final ByteBuffer view = data.duplicate();
+        view.limit(to).position(from);
+        final CRC32 checksum = new CRC32();
+        checksum.update(view);
+        return (int) checksum.getValue();
+    }
+}
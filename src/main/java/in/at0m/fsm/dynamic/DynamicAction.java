@@ -0,0 +1,25 @@
+package in.at0m.fsm.dynamic;
+
+/**
+ * An action that should be performed while a {@link DynamicStateMachine} transitions from one state to another. This
+ * is the counterpart of {@link in.at0m.fsm.transition.Action} for states and events numbered at runtime.
+ *
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public interface DynamicAction<T> {
+
+    /**
+     * Called <em>before</em> the transition is completed.
+     *
+     * @param actionContext The context information for transition.
+     */
+    void before(DynamicActionContext<T> actionContext);
+
+    /**
+     * Called <em>after</em> the transition is completed.
+     *
+     * @param actionContext The context information for transition.
+     */
+    void after(DynamicActionContext<T> actionContext);
+}
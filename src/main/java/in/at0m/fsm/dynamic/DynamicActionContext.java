@@ -0,0 +1,68 @@
+package in.at0m.fsm.dynamic;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Context data provided to the {@link DynamicAction} executed during transition. States and events are given by id,
+ * their names being resolved through the {@link DynamicStateMachineDefinition}.
+ *
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+@Getter
+@AllArgsConstructor
+public class DynamicActionContext<T> {
+
+    /**
+     * The definition of the state machine performing the transition.
+     */
+    private final DynamicStateMachineDefinition<T> definition;
+
+    /**
+     * The id of the event that triggered the transition.
+     */
+    private final int event;
+
+    /**
+     * The id of the state from which the transition started.
+     */
+    private final int currentState;
+
+    /**
+     * The id of the state to which the transition will lead.
+     */
+    private final int nextState;
+
+    /**
+     * The data in context of the transition.
+     */
+    private final T data;
+
+    /**
+     * Returns the name of the event that triggered the transition.
+     *
+     * @return The name of the event.
+     */
+    public String getEventName() {
+        return definition.getEvents().name(event);
+    }
+
+    /**
+     * Returns the name of the state from which the transition started.
+     *
+     * @return The name of the state.
+     */
+    public String getCurrentStateName() {
+        return definition.getStates().name(currentState);
+    }
+
+    /**
+     * Returns the name of the state to which the transition will lead.
+     *
+     * @return The name of the state.
+     */
+    public String getNextStateName() {
+        return definition.getStates().name(nextState);
+    }
+}
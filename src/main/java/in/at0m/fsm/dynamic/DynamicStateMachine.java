@@ -0,0 +1,134 @@
+package in.at0m.fsm.dynamic;
+
+import in.at0m.fsm.exception.InvalidTransitionException;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A finite state machine whose states and events are given by the ids of a {@link DynamicStateMachineDefinition}.
+ * It mirrors {@link in.at0m.fsm.SimpleStateMachine} with {@code int} states and events, so consuming an event never
+ * boxes and a transition without actions allocates nothing. Events are consumed while holding the intrinsic lock of
+ * the instance, whereas {@link #getCurrentState()} and {@link #canConsume(int)} read the current state without
+ * locking.
+ *
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class DynamicStateMachine<T> {
+
+    /**
+     * The definition holding the state transition table of this state machine.
+     */
+    @Getter
+    private final DynamicStateMachineDefinition<T> definition;
+
+    /**
+     * The id of the current state of this state machine.
+     */
+    private volatile int state;
+
+    /**
+     * Constructs a {@link DynamicStateMachine}. Instances are created with
+     * {@link DynamicStateMachineDefinition#newStateMachine(int)}.
+     *
+     * @param definition   The definition holding the state transition table.
+     * @param initialState The id of the initial state.
+     */
+    DynamicStateMachine(final DynamicStateMachineDefinition<T> definition, final int initialState) {
+        this.definition = definition;
+        this.state = initialState;
+    }
+
+    /**
+     * Returns the id of the current state of the state machine.
+     *
+     * @return The id of the current state.
+     */
+    public int getCurrentState() {
+        return state;
+    }
+
+    /**
+     * Returns the name of the current state of the state machine.
+     *
+     * @return The name of the current state.
+     */
+    public String getCurrentStateName() {
+        return definition.getStates().name(state);
+    }
+
+    /**
+     * Returns {@code true} if the given event can be consumed. {@code false} otherwise.
+     *
+     * @param event The id of the event which is being consumed.
+     * @return {@code true} if the given event can be consumed. {@code false} otherwise.
+     * @throws IllegalArgumentException If there is no event with the given id.
+     */
+    public boolean canConsume(final int event) {
+        return definition.canConsume(state, event);
+    }
+
+    /**
+     * Consumes the given event along with the context information and returns the id of the new state to which the
+     * state machine moves to. The {@code before} and {@code after} methods for each {@link DynamicAction} of the
+     * transition are executed before and after the transition is completed respectively.
+     *
+     * @param event   The id of the event which is being consumed.
+     * @param context The context information.
+     * @return The id of the new state to which the state machine moves to.
+     * @throws InvalidTransitionException If the event cannot be consumed.
+     * @throws IllegalArgumentException   If there is no event with the given id.
+     */
+    public int consume(final int event, @NonNull final T context) {
+        synchronized (this) {
+            final int fromState = state;
+            final int next = definition.next(fromState, event);
+            if (next < 0) {
+                throw definition.rejection(fromState, event);
+            }
+            return perform(fromState, event, next, context);
+        }
+    }
+
+    /**
+     * Consumes the given event along with the context information like {@link #consume(int, Object)}, but reports
+     * an event that cannot be consumed by returning {@code -1} instead of throwing an
+     * {@link InvalidTransitionException}.
+     *
+     * @param event   The id of the event which is being consumed.
+     * @param context The context information.
+     * @return The id of the new state to which the state machine moves to, or {@code -1} if the event cannot be
+     *         consumed.
+     * @throws IllegalArgumentException If there is no event with the given id.
+     */
+    public int tryConsume(final int event, @NonNull final T context) {
+        synchronized (this) {
+            final int fromState = state;
+            final int next = definition.next(fromState, event);
+            return next >= 0 ? perform(fromState, event, next, context) : -1;
+        }
+    }
+
+    /**
+     * Performs the transition from the given state upon the given event. Must be called while holding the lock of
+     * this state machine. No {@link DynamicActionContext} is created for a transition without actions.
+     *
+     * @param fromState The id of the state in which the event is consumed.
+     * @param event     The id of the event which is being consumed.
+     * @param next      The id of the next state.
+     * @param context   The context information.
+     * @return The id of the new state to which the state machine moves to.
+     */
+    private int perform(final int fromState, final int event, final int next, final T context) {
+        if (!definition.hasActions(fromState, event)) {
+            state = next;
+            return next;
+        }
+        final DynamicActionContext<T> actionContext = new DynamicActionContext<>(definition, event, fromState, next,
+                context);
+        definition.before(actionContext);
+        state = next;
+        definition.after(actionContext);
+        return next;
+    }
+}
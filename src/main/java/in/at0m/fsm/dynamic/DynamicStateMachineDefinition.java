@@ -0,0 +1,461 @@
+package in.at0m.fsm.dynamic;
+
+import in.at0m.fsm.exception.InvalidTransitionException;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * An immutable, thread-safe definition of a finite state machine whose states and events are named at runtime, e.g.
+ * when loaded from configuration, instead of being the constants of enums. Names are numbered with dense ids by
+ * {@link NameTable}(s) and the transitions are compiled into a flat {@code [state * eventCount + event]} table of
+ * target state ids, so looking up a transition is a single array read, as in
+ * {@link in.at0m.fsm.transition.TransitionTable}, and never boxes.
+ * <p>
+ * Like {@link in.at0m.fsm.StateMachineDefinition}, a definition is meant to be built once and shared by any number
+ * of {@link DynamicStateMachine}(s), each of which only tracks the id of its current state.
+ *
+ * @param <T> The type on which the state machines are operating.
+ * @author shubhdarlinge
+ */
+public final class DynamicStateMachineDefinition<T> {
+
+    /**
+     * The states of this definition.
+     */
+    @Getter
+    private final NameTable states;
+
+    /**
+     * The events of this definition.
+     */
+    @Getter
+    private final NameTable events;
+
+    /**
+     * The id of the target state of every transition indexed by {@code state * events.size() + event}, or
+     * {@code -1} where there is no transition.
+     */
+    private final int[] targets;
+
+    /**
+     * The offset in {@link #actionIds} of the actions of every transition indexed like {@link #targets}, followed by
+     * the number of action ids. The actions of a transition are the ids between its offset and the next one.
+     */
+    private final int[] actionOffsets;
+
+    /**
+     * The ids of the actions of the transitions, in {@link #actions}.
+     */
+    private final int[] actionIds;
+
+    /**
+     * The distinct actions of the transitions indexed by id, each bound on first use if not known up front.
+     */
+    private final AtomicReferenceArray<DynamicAction<T>> actions;
+
+    /**
+     * The binding ids of the actions indexed by id, or {@code null} for actions that were given as instances.
+     */
+    private final String[] bindings;
+
+    /**
+     * Binds a binding id to its action, or {@code null} if every action was given as an instance.
+     */
+    private final Function<String, ? extends DynamicAction<T>> binder;
+
+    /**
+     * Constructs a {@link DynamicStateMachineDefinition} from the compiled table.
+     *
+     * @param states        The states.
+     * @param events        The events.
+     * @param targets       The target state ids indexed by {@code state * events.size() + event}.
+     * @param actionOffsets The offsets of the action ids of every transition, followed by the number of action ids.
+     * @param actionIds     The action ids of the transitions.
+     * @param actions       The actions indexed by id, where {@code null} actions are bound on first use.
+     * @param bindings      The binding ids of the actions indexed by id.
+     * @param binder        Binds a binding id to its action.
+     */
+    DynamicStateMachineDefinition(final NameTable states, final NameTable events, final int[] targets,
+                                  final int[] actionOffsets, final int[] actionIds,
+                                  final AtomicReferenceArray<DynamicAction<T>> actions, final String[] bindings,
+                                  final Function<String, ? extends DynamicAction<T>> binder) {
+        this.states = states;
+        this.events = events;
+        this.targets = targets;
+        this.actionOffsets = actionOffsets;
+        this.actionIds = actionIds;
+        this.actions = actions;
+        this.bindings = bindings;
+        this.binder = binder;
+    }
+
+    /**
+     * Returns the id of the state reached when the given event is consumed in the given state.
+     *
+     * @param state The id of the state in which the event is consumed.
+     * @param event The id of the event which is being consumed.
+     * @return The id of the next state, or {@code -1} if the event cannot be consumed.
+     * @throws IllegalArgumentException If there is no state or event with the given id.
+     */
+    public int next(final int state, final int event) {
+        return targets[cell(state, event)];
+    }
+
+    /**
+     * Returns {@code true} if the given {@code event} can be consumed in the given {@code state}. {@code false}
+     * otherwise.
+     *
+     * @param state The id of the state in which the event is consumed.
+     * @param event The id of the event which is being consumed.
+     * @return {@code true} if the given event can be consumed in the given state. {@code false} otherwise.
+     * @throws IllegalArgumentException If there is no state or event with the given id.
+     */
+    public boolean canConsume(final int state, final int event) {
+        return next(state, event) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if the transition from the given state upon the given event has actions. {@code false}
+     * otherwise.
+     *
+     * @param state The id of the state in which the event is consumed.
+     * @param event The id of the event which is being consumed.
+     * @return {@code true} if the transition has actions. {@code false} otherwise.
+     */
+    boolean hasActions(final int state, final int event) {
+        final int cell = state * events.size() + event;
+        return actionOffsets[cell] != actionOffsets[cell + 1];
+    }
+
+    /**
+     * Calls {@link DynamicAction#before(DynamicActionContext)} of every action of the transition of the given
+     * context in order.
+     *
+     * @param actionContext The context information for transition.
+     */
+    void before(final DynamicActionContext<T> actionContext) {
+        final int cell = actionContext.getCurrentState() * events.size() + actionContext.getEvent();
+        for (int i = actionOffsets[cell]; i < actionOffsets[cell + 1]; i++) {
+            action(actionIds[i]).before(actionContext);
+        }
+    }
+
+    /**
+     * Calls {@link DynamicAction#after(DynamicActionContext)} of every action of the transition of the given
+     * context in order.
+     *
+     * @param actionContext The context information for transition.
+     */
+    void after(final DynamicActionContext<T> actionContext) {
+        final int cell = actionContext.getCurrentState() * events.size() + actionContext.getEvent();
+        for (int i = actionOffsets[cell]; i < actionOffsets[cell + 1]; i++) {
+            action(actionIds[i]).after(actionContext);
+        }
+    }
+
+    /**
+     * Returns the action with the given id, binding it if this is its first use. Concurrent first uses may bind an
+     * action more than once, in which case the first action bound is kept.
+     *
+     * @param id The id of the action.
+     * @return The action.
+     * @throws IllegalStateException If no action is bound to the binding id of the action.
+     */
+    DynamicAction<T> action(final int id) {
+        final DynamicAction<T> action = actions.get(id);
+        if (action != null) {
+            return action;
+        }
+        final DynamicAction<T> bound = binder.apply(bindings[id]);
+        if (bound == null) {
+            throw new IllegalStateException(String.format("No action bound to %s", bindings[id]));
+        }
+        actions.compareAndSet(id, null, bound);
+        return actions.get(id);
+    }
+
+    /**
+     * Returns the number of distinct actions of the transitions.
+     *
+     * @return The number of actions.
+     */
+    int getActionCount() {
+        return actions.length();
+    }
+
+    /**
+     * Returns the binding id of the action with the given id.
+     *
+     * @param id The id of the action.
+     * @return The binding id, or {@code null} if the action was given as an instance.
+     */
+    String binding(final int id) {
+        return bindings[id];
+    }
+
+    /**
+     * Returns the compiled table of target state ids. The array is shared and must not be modified.
+     *
+     * @return The target state ids indexed by {@code state * events.size() + event}.
+     */
+    int[] targets() {
+        return targets;
+    }
+
+    /**
+     * Returns the offsets of the action ids of every transition. The array is shared and must not be modified.
+     *
+     * @return The offsets followed by the number of action ids.
+     */
+    int[] actionOffsets() {
+        return actionOffsets;
+    }
+
+    /**
+     * Returns the action ids of the transitions. The array is shared and must not be modified.
+     *
+     * @return The action ids.
+     */
+    int[] actionIds() {
+        return actionIds;
+    }
+
+    /**
+     * Returns the exception reporting that the given {@code event} cannot be consumed in the given {@code state}.
+     *
+     * @param state The id of the state in which the event could not be consumed.
+     * @param event The id of the event which could not be consumed.
+     * @return The exception to throw.
+     */
+    public InvalidTransitionException rejection(final int state, final int event) {
+        return new InvalidTransitionException(String.format("Transition from state %s not valid for event %s",
+                states.name(state), events.name(event)));
+    }
+
+    /**
+     * Returns the index of the given state and event in the table.
+     *
+     * @param state The id of the state.
+     * @param event The id of the event.
+     * @return The index in the table.
+     * @throws IllegalArgumentException If there is no state or event with the given id.
+     */
+    private int cell(final int state, final int event) {
+        if (state < 0 || state >= states.size() || event < 0 || event >= events.size()) {
+            throw new IllegalArgumentException(String.format("Unknown state %d or event %d", state, event));
+        }
+        return state * events.size() + event;
+    }
+
+    /**
+     * Creates a new {@link DynamicStateMachine} of this definition in the given {@code initialState}.
+     *
+     * @param initialState The id of the initial state of the state machine.
+     * @return A new state machine sharing this definition.
+     * @throws IllegalArgumentException If there is no state with the given id.
+     */
+    public DynamicStateMachine<T> newStateMachine(final int initialState) {
+        if (initialState < 0 || initialState >= states.size()) {
+            throw new IllegalArgumentException(String.format("Unknown state %d", initialState));
+        }
+        return new DynamicStateMachine<>(this, initialState);
+    }
+
+    /**
+     * Creates a new {@link DynamicStateMachine} of this definition in the state with the given name.
+     *
+     * @param initialState The name of the initial state of the state machine.
+     * @return A new state machine sharing this definition.
+     * @throws IllegalArgumentException If there is no state with the given name.
+     */
+    public DynamicStateMachine<T> newStateMachine(@NonNull final String initialState) {
+        return newStateMachine(states.id(initialState));
+    }
+
+    /**
+     * Creates a new {@link Builder}.
+     *
+     * @param <T> The type on which the state machines are operating.
+     * @return A new builder.
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * A builder for {@link DynamicStateMachineDefinition}. States and events are numbered in the order they are
+     * first added, either explicitly or through a transition.
+     *
+     * @param <T> The type on which the state machines are operating.
+     * @author shubhdarlinge
+     */
+    public static final class Builder<T> {
+
+        /**
+         * The names of the states in the order they were added.
+         */
+        private final Set<String> states;
+
+        /**
+         * The names of the events in the order they were added.
+         */
+        private final Set<String> events;
+
+        /**
+         * The added transitions.
+         */
+        private final List<TransitionEntry<T>> transitions;
+
+        /**
+         * Constructs a {@link Builder}.
+         */
+        private Builder() {
+            this.states = new LinkedHashSet<>();
+            this.events = new LinkedHashSet<>();
+            this.transitions = new ArrayList<>();
+        }
+
+        /**
+         * Adds the given state, which is a no-op if it was already added.
+         *
+         * @param state The name of the state.
+         * @return {@code this} instance.
+         */
+        public Builder<T> addState(@NonNull final String state) {
+            states.add(state);
+            return this;
+        }
+
+        /**
+         * Adds the given event, which is a no-op if it was already added.
+         *
+         * @param event The name of the event.
+         * @return {@code this} instance.
+         */
+        public Builder<T> addEvent(@NonNull final String event) {
+            events.add(event);
+            return this;
+        }
+
+        /**
+         * Adds a transition without any actions.
+         *
+         * @param event     The name of the event for which the transition can happen.
+         * @param fromState The name of the state from which the transition can happen.
+         * @param toState   The name of the state to which the transition will lead.
+         * @return {@code this} instance.
+         */
+        public Builder<T> addTransition(final String event, final String fromState, final String toState) {
+            return addTransition(event, fromState, toState, List.of());
+        }
+
+        /**
+         * Adds a transition with the given actions.
+         *
+         * @param event     The name of the event for which the transition can happen.
+         * @param fromState The name of the state from which the transition can happen.
+         * @param toState   The name of the state to which the transition will lead.
+         * @param actions   The actions that need to be performed before completing the transition.
+         * @return {@code this} instance.
+         */
+        public Builder<T> addTransition(@NonNull final String event, @NonNull final String fromState,
+                                        @NonNull final String toState,
+                                        @NonNull final Collection<DynamicAction<T>> actions) {
+            addEvent(event);
+            addState(fromState);
+            addState(toState);
+            transitions.add(new TransitionEntry<>(event, fromState, toState, new ArrayList<>(actions)));
+            return this;
+        }
+
+        /**
+         * Compiles the added transitions into a {@link DynamicStateMachineDefinition}.
+         *
+         * @return The definition.
+         * @throws IllegalStateException If more than one transition is added for the same event and state.
+         */
+        @SuppressWarnings("unchecked")
+        public DynamicStateMachineDefinition<T> build() {
+            final NameTable stateTable = new NameTable(states);
+            final NameTable eventTable = new NameTable(events);
+            final int[] targets = new int[stateTable.size() * eventTable.size()];
+            Arrays.fill(targets, -1);
+            final List<DynamicAction<T>>[] cells = new List[targets.length];
+            final Map<DynamicAction<T>, Integer> ids = new IdentityHashMap<>();
+            int actionCount = 0;
+            for (final TransitionEntry<T> transition : transitions) {
+                final int cell = stateTable.id(transition.fromState) * eventTable.size()
+                        + eventTable.id(transition.event);
+                if (targets[cell] >= 0) {
+                    throw new IllegalStateException(String.format("Duplicate transition from state %s for event %s",
+                            transition.fromState, transition.event));
+                }
+                targets[cell] = stateTable.id(transition.toState);
+                cells[cell] = transition.actions;
+                actionCount += cells[cell].size();
+            }
+            final int[] actionOffsets = new int[targets.length + 1];
+            final int[] actionIds = new int[actionCount];
+            int offset = 0;
+            for (int cell = 0; cell < cells.length; cell++) {
+                if (cells[cell] != null) {
+                    for (final DynamicAction<T> action : cells[cell]) {
+                        actionIds[offset++] = ids.computeIfAbsent(action, a -> ids.size());
+                    }
+                }
+                actionOffsets[cell + 1] = offset;
+            }
+            final AtomicReferenceArray<DynamicAction<T>> actions = new AtomicReferenceArray<>(ids.size());
+            ids.forEach((action, id) -> actions.set(id, action));
+            return new DynamicStateMachineDefinition<>(stateTable, eventTable, targets, actionOffsets, actionIds,
+                    actions, new String[ids.size()], null);
+        }
+    }
+
+    /**
+     * A transition added to a {@link Builder}, by the names of its event and states.
+     *
+     * @param <T> The type on which the state machines are operating.
+     */
+    private static final class TransitionEntry<T> {
+
+        /**
+         * The name of the event for which the transition can happen.
+         */
+        private final String event;
+
+        /**
+         * The name of the state from which the transition can happen.
+         */
+        private final String fromState;
+
+        /**
+         * The name of the state to which the transition will lead.
+         */
+        private final String toState;
+
+        /**
+         * The actions that need to be performed before completing the transition.
+         */
+        private final List<DynamicAction<T>> actions;
+
+        private TransitionEntry(final String event, final String fromState, final String toState,
+                                final List<DynamicAction<T>> actions) {
+            this.event = event;
+            this.fromState = fromState;
+            this.toState = toState;
+            this.actions = actions;
+        }
+    }
+}
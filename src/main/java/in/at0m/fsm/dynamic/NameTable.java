@@ -0,0 +1,86 @@
+package in.at0m.fsm.dynamic;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable registry of names numbered with dense ids, standing in for the constants of an enum when the states
+ * or events of a machine are only known at runtime. The id of a name is its position in the table, so ids run from
+ * {@code 0} to {@code size() - 1} like enum ordinals and can index arrays directly.
+ *
+ * @author shubhdarlinge
+ */
+public final class NameTable {
+
+    /**
+     * The names indexed by id. This list is always unmodifiable.
+     */
+    private final List<String> names;
+
+    /**
+     * The ids keyed by name.
+     */
+    private final Map<String, Integer> ids;
+
+    /**
+     * Constructs a {@link NameTable} numbering the given names in iteration order.
+     *
+     * @param names The names.
+     * @throws IllegalArgumentException If a name is {@code null} or appears more than once.
+     */
+    public NameTable(@NonNull final Collection<String> names) {
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        this.ids = new HashMap<>();
+        for (final String name : this.names) {
+            if (name == null || ids.putIfAbsent(name, ids.size()) != null) {
+                throw new IllegalArgumentException(String.format("Invalid or duplicate name %s", name));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of names.
+     *
+     * @return The number of names.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Returns the name with the given id.
+     *
+     * @param id The id.
+     * @return The name.
+     * @throws IndexOutOfBoundsException If there is no name with the given id.
+     */
+    public String name(final int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Returns the id of the given name.
+     *
+     * @param name The name.
+     * @return The id, or {@code -1} if the name is not in this table.
+     */
+    public int id(@NonNull final String name) {
+        final Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the names in id order.
+     *
+     * @return An unmodifiable list of the names.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+}
@@ -0,0 +1,19 @@
+package in.at0m.fsm.exception;
+
+/**
+ * Indicates that a transition could not be committed because the state of the state machine was changed
+ * concurrently by another transition.
+ *
+ * @author shubhdarlinge
+ */
+public class ConcurrentTransitionException extends InvalidTransitionException {
+
+    /**
+     * Creates an instance of ConcurrentTransitionException with given message.
+     *
+     * @param s The exception message.
+     */
+    public ConcurrentTransitionException(String s) {
+        super(s);
+    }
+}
@@ -15,4 +15,15 @@ public class InvalidTransitionException extends RuntimeException {
     public InvalidTransitionException(String s) {
         super(s);
     }
+
+    /**
+     * Creates an instance of InvalidTransitionException with given message, optionally without a stack trace.
+     * An instance without a stack trace also has suppression disabled, so that it can be cached and shared.
+     *
+     * @param s                  The exception message.
+     * @param writableStackTrace Whether the stack trace should be captured.
+     */
+    public InvalidTransitionException(String s, boolean writableStackTrace) {
+        super(s, null, writableStackTrace, writableStackTrace);
+    }
 }
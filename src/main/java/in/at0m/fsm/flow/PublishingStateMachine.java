@@ -0,0 +1,106 @@
+package in.at0m.fsm.flow;
+
+import in.at0m.fsm.StateMachine;
+import in.at0m.fsm.transition.ActionContext;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A {@link StateMachine} that publishes every transition it commits to a {@link TransitionPublisher}. Transitions are
+ * performed by the wrapped machine and published within the same critical section, so subscribers receive the
+ * transitions of a machine in the order they were committed. The wrapped machine must only be driven through this
+ * wrapper.
+ * <p>
+ * Publishing only appends the transition to the buffers of the subscribers, which are notified on the executor of
+ * the publisher, so a slow subscriber never holds up the machine. Unlike an {@code after} action, a subscriber may
+ * however miss transitions if it does not keep up with them.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class PublishingStateMachine<E extends Enum<E>, S extends Enum<S>, T> implements StateMachine<E, S, T> {
+
+    /**
+     * The machine performing the transitions.
+     */
+    private final StateMachine<E, S, T> delegate;
+
+    /**
+     * The publisher the transitions are published to.
+     */
+    @Getter
+    private final TransitionPublisher<E, S, T> publisher;
+
+    /**
+     * Constructs a {@link PublishingStateMachine}.
+     *
+     * @param delegate  The machine performing the transitions.
+     * @param publisher The publisher the transitions are published to, which may be shared with other machines.
+     */
+    public PublishingStateMachine(@NonNull final StateMachine<E, S, T> delegate,
+                                  @NonNull final TransitionPublisher<E, S, T> publisher) {
+        this.delegate = delegate;
+        this.publisher = publisher;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S getCurrentState() {
+        return delegate.getCurrentState();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param event {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean canConsume(final E event) {
+        return delegate.canConsume(event);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The transition is published once it is committed.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S consume(@NonNull final E event, final T context) {
+        synchronized (this) {
+            final S fromState = delegate.getCurrentState();
+            final S toState = delegate.consume(event, context);
+            publisher.publish(new ActionContext<>(event, fromState, toState, context));
+            return toState;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The transition is published once it is committed.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S tryConsume(@NonNull final E event, final T context) {
+        synchronized (this) {
+            final S fromState = delegate.getCurrentState();
+            final S toState = delegate.tryConsume(event, context);
+            if (toState != null) {
+                publisher.publish(new ActionContext<>(event, fromState, toState, context));
+            }
+            return toState;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package in.at0m.fsm.flow;
+
+import in.at0m.fsm.StateMachine;
+import in.at0m.fsm.batch.BatchResult;
+import in.at0m.fsm.batch.ContextualEvent;
+import in.at0m.fsm.batch.InvalidEventPolicy;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * A {@link Flow.Subscriber} that consumes the events it receives in a {@link StateMachine}. Events are requested
+ * {@code batchSize} at a time and the next batch is only requested once the previous one was consumed, so a
+ * publisher never gets ahead of the machine by more than a batch. Events that cannot be consumed are handled as per
+ * an {@link InvalidEventPolicy}: with {@link InvalidEventPolicy#STOP_ON_FIRST_INVALID} the subscription is cancelled
+ * at the first of them.
+ * <p>
+ * The outcome is reported by {@link #getResult()} once the stream ends, the subscription is cancelled or an action
+ * fails. A subscriber subscribes to at most one publisher.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class StateMachineSubscriber<E extends Enum<E>, S extends Enum<S>, T>
+        implements Flow.Subscriber<ContextualEvent<E, T>> {
+
+    /**
+     * The machine consuming the events.
+     */
+    private final StateMachine<E, S, T> machine;
+
+    /**
+     * The number of events requested at a time.
+     */
+    private final int batchSize;
+
+    /**
+     * The policy applied to events that cannot be consumed.
+     */
+    private final InvalidEventPolicy policy;
+
+    /**
+     * The number of events consumed and rejected along with the resulting state, completed once the stream ends.
+     */
+    @Getter
+    private final CompletableFuture<BatchResult<S>> result;
+
+    /**
+     * The subscription, or {@code null} before subscribing.
+     */
+    private volatile Flow.Subscription subscription;
+
+    /**
+     * The number of events consumed.
+     */
+    private int applied;
+
+    /**
+     * The number of events that could not be consumed.
+     */
+    private int rejected;
+
+    /**
+     * The number of events of the current batch not yet received.
+     */
+    private int outstanding;
+
+    /**
+     * Constructs a {@link StateMachineSubscriber}.
+     *
+     * @param machine   The machine consuming the events.
+     * @param batchSize The number of events requested at a time.
+     * @param policy    The policy applied to events that cannot be consumed.
+     * @throws IllegalArgumentException If the batch size is not positive.
+     */
+    public StateMachineSubscriber(@NonNull final StateMachine<E, S, T> machine, final int batchSize,
+                                  @NonNull final InvalidEventPolicy policy) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(String.format("Batch size %d is not positive", batchSize));
+        }
+        this.machine = machine;
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.result = new CompletableFuture<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Any subscription but the first one is cancelled.
+     *
+     * @param subscription {@inheritDoc}
+     */
+    @Override
+    public void onSubscribe(@NonNull final Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        outstanding = batchSize;
+        subscription.request(batchSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Events received after the result is complete are ignored.
+     *
+     * @param event {@inheritDoc}
+     */
+    @Override
+    public void onNext(@NonNull final ContextualEvent<E, T> event) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            if (machine.tryConsume(event.getEvent(), event.getContext()) != null) {
+                applied++;
+            } else {
+                rejected++;
+                if (policy == InvalidEventPolicy.STOP_ON_FIRST_INVALID) {
+                    subscription.cancel();
+                    complete();
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            result.completeExceptionally(e);
+            return;
+        }
+        if (--outstanding == 0) {
+            outstanding = batchSize;
+            subscription.request(batchSize);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param throwable {@inheritDoc}
+     */
+    @Override
+    public void onError(@NonNull final Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onComplete() {
+        complete();
+    }
+
+    /**
+     * Completes the result with the events consumed so far.
+     */
+    private void complete() {
+        result.complete(new BatchResult<>(applied, rejected, machine.getCurrentState()));
+    }
+}
@@ -0,0 +1,336 @@
+package in.at0m.fsm.flow;
+
+import in.at0m.fsm.async.MailboxExecutor;
+import in.at0m.fsm.transition.ActionContext;
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link Flow.Publisher} of committed transitions, each described by an {@link ActionContext}, to any number of
+ * subscribers. Every subscriber gets a bounded buffer drained on a shared {@link Executor} as per its demand, so
+ * publishing never blocks nor waits for a subscriber: a transition is appended to the buffer of every subscriber
+ * without taking any lock, and a subscriber whose buffer is full misses it, which is counted by
+ * {@link #getDropped()}. Transitions published by one thread reach every subscriber in the order they were
+ * published. {@code onSubscribe} is sent by the subscribing thread before the buffer of the subscriber can be drained,
+ * and every other signal, {@code onError} included, is sent by the single thread draining the buffer at the time, so
+ * the signals to a subscriber never overlap. See {@link PublishingStateMachine}.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machines are operating.
+ * @author shubhdarlinge
+ */
+public class TransitionPublisher<E extends Enum<E>, S extends Enum<S>, T>
+        implements Flow.Publisher<ActionContext<E, S, T>>, AutoCloseable {
+
+    /**
+     * The largest number of transitions delivered to a subscriber before yielding its thread to other subscribers.
+     */
+    private static final int THROUGHPUT = 64;
+
+    /**
+     * The active subscriptions.
+     */
+    private final List<Subscription> subscriptions;
+
+    /**
+     * The executor on which the buffers of the subscribers are drained.
+     */
+    private final Executor executor;
+
+    /**
+     * The largest number of transitions buffered per subscriber.
+     */
+    private final int bufferCapacity;
+
+    /**
+     * The number of transitions missed by subscribers whose buffer was full.
+     */
+    private final LongAdder dropped;
+
+    /**
+     * Indicates whether this publisher has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a {@link TransitionPublisher} draining the buffers on the {@link MailboxExecutor#defaultExecutor()}.
+     *
+     * @param bufferCapacity The largest number of transitions buffered per subscriber.
+     */
+    public TransitionPublisher(final int bufferCapacity) {
+        this(MailboxExecutor.defaultExecutor(), bufferCapacity);
+    }
+
+    /**
+     * Constructs a {@link TransitionPublisher}.
+     *
+     * @param executor       The executor on which the buffers of the subscribers are drained.
+     * @param bufferCapacity The largest number of transitions buffered per subscriber.
+     * @throws IllegalArgumentException If the buffer capacity is not positive.
+     */
+    public TransitionPublisher(@NonNull final Executor executor, final int bufferCapacity) {
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException(String.format("Buffer capacity %d is not positive", bufferCapacity));
+        }
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.executor = executor;
+        this.bufferCapacity = bufferCapacity;
+        this.dropped = new LongAdder();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The subscription is only drained, and the subscriber only receives transitions, once {@code onSubscribe}
+     * returns, so the transitions published meanwhile are missed. A subscriber subscribing once this publisher is
+     * closed is completed right away.
+     *
+     * @param subscriber {@inheritDoc}
+     */
+    @Override
+    public void subscribe(@NonNull final Flow.Subscriber<? super ActionContext<E, S, T>> subscriber) {
+        final Subscription subscription = new Subscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        if (subscription.cancelled) {
+            subscriptions.remove(subscription);
+        }
+        if (closed) {
+            subscription.complete();
+        }
+        subscription.release();
+    }
+
+    /**
+     * Publishes the given transition to every subscriber. Does nothing once this publisher is closed.
+     *
+     * @param transition The committed transition.
+     */
+    public void publish(@NonNull final ActionContext<E, S, T> transition) {
+        if (closed) {
+            return;
+        }
+        for (final Subscription subscription : subscriptions) {
+            subscription.offer(transition);
+        }
+    }
+
+    /**
+     * Returns the number of active subscribers.
+     *
+     * @return The number of subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Returns the number of transitions missed by subscribers whose buffer was full. A transition missed by several
+     * subscribers is counted once per subscriber.
+     *
+     * @return The number of dropped transitions.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops publishing transitions. Every subscriber is completed once it received the transitions in its buffer.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (final Subscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * The subscription of a single subscriber. At most one thread drains a subscription, and hence signals its
+     * subscriber, at any time.
+     */
+    private final class Subscription implements Flow.Subscription, Runnable {
+
+        /**
+         * The subscriber.
+         */
+        private final Flow.Subscriber<? super ActionContext<E, S, T>> subscriber;
+
+        /**
+         * The transitions not yet delivered, in publication order.
+         */
+        private final Queue<ActionContext<E, S, T>> queue = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The number of buffered transitions, maintained separately as the size of the queue is not constant time.
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * The number of transitions requested and not yet delivered.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Indicates whether this subscription is handed to the executor or being drained, or its subscriber is being
+         * subscribed.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean(true);
+
+        /**
+         * Indicates whether the subscriber is completed once the buffered transitions are delivered.
+         */
+        private volatile boolean completing;
+
+        /**
+         * Indicates whether this subscription was cancelled or terminated.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * The failure reported to the subscriber by the next drain, if any.
+         */
+        private volatile Throwable failure;
+
+        private Subscription(final Flow.Subscriber<? super ActionContext<E, S, T>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException(String.format("Requested %d transitions", n)));
+                schedule();
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            queue.clear();
+        }
+
+        /**
+         * Appends the given transition to the buffer unless it is full.
+         *
+         * @param transition The committed transition.
+         */
+        private void offer(final ActionContext<E, S, T> transition) {
+            if (size.incrementAndGet() > bufferCapacity) {
+                size.decrementAndGet();
+                dropped.increment();
+                return;
+            }
+            queue.offer(transition);
+            schedule();
+        }
+
+        /**
+         * Completes the subscriber once the buffered transitions are delivered.
+         */
+        private void complete() {
+            completing = true;
+            schedule();
+        }
+
+        /**
+         * Records the given failure, unless one is recorded already, for the next drain to deliver it.
+         *
+         * @param error The failure.
+         */
+        private void fail(final Throwable error) {
+            if (failure == null) {
+                failure = error;
+            }
+        }
+
+        /**
+         * Hands this subscription to the executor unless it is already scheduled or running. If the executor rejects
+         * it, the rejection is delivered by draining this subscription on the calling thread, which is the only one
+         * to signal the subscriber as long as this subscription is scheduled.
+         */
+        private void schedule() {
+            if (!cancelled && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    fail(e);
+                    run();
+                }
+            }
+        }
+
+        /**
+         * Returns whether there is something to deliver to the subscriber.
+         *
+         * @return {@code true} if a transition can be delivered or the subscriber can be completed.
+         */
+        private boolean ready() {
+            return !cancelled && (failure != null || (queue.isEmpty() ? completing : demand.get() > 0));
+        }
+
+        @Override
+        public void run() {
+            try {
+                drain();
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Lets another thread drain this subscription, and schedules it if there is something to deliver that was
+         * added while it could not be scheduled.
+         */
+        private void release() {
+            scheduled.set(false);
+            if (ready()) {
+                schedule();
+            }
+        }
+
+        /**
+         * Delivers up to {@link #THROUGHPUT} transitions as per the demand of the subscriber, then the failure, if
+         * any, or the completion once the buffer is empty.
+         */
+        private void drain() {
+            ActionContext<E, S, T> transition;
+            for (int i = 0; i < THROUGHPUT && !cancelled && failure == null && demand.get() > 0
+                    && (transition = queue.poll()) != null; i++) {
+                size.decrementAndGet();
+                demand.decrementAndGet();
+                try {
+                    subscriber.onNext(transition);
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            }
+            if (cancelled) {
+                return;
+            }
+            final Throwable error = failure;
+            if (error != null) {
+                cancel();
+                subscriber.onError(error);
+            } else if (completing && queue.isEmpty()) {
+                cancel();
+                subscriber.onComplete();
+            }
+        }
+    }
+}
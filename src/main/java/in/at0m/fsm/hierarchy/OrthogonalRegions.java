@@ -0,0 +1,260 @@
+package in.at0m.fsm.hierarchy;
+
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import in.at0m.fsm.transition.TransitionTable;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Composes orthogonal regions, each a state machine of its own that progresses independently, into the transitions
+ * of a single product state machine. Every constant of the product enum {@code P} stands for one combination of the
+ * states of the regions, as given by a projection per region, so the product is compiled by a
+ * {@link in.at0m.fsm.StateMachineDefinition} into an ordinary flat table and driven with one lock or CAS.
+ * <p>
+ * An event is offered to every region: the regions that can consume it move and the others stay, and the event is
+ * rejected only if no region can consume it. The actions of the region transitions are run in region order and see
+ * the states of their own region as the current and next states. The transitions of a region may themselves be
+ * {@link StateHierarchy#flatten() flattened} from a {@link StateHierarchy}.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <P> The enum type that denotes the product states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class OrthogonalRegions<E extends Enum<E>, P extends Enum<P>, T> {
+
+    /**
+     * The constants of the product enum.
+     */
+    private final P[] products;
+
+    /**
+     * The regions in registration order.
+     */
+    private final List<Region<?>> regions;
+
+    /**
+     * Constructs an {@link OrthogonalRegions} without regions.
+     *
+     * @param productType The enum type that denotes the product states.
+     */
+    public OrthogonalRegions(@NonNull final Class<P> productType) {
+        this.products = productType.getEnumConstants();
+        this.regions = new ArrayList<>();
+    }
+
+    /**
+     * Adds a region.
+     *
+     * @param projection  Returns the state of the region in every product state.
+     * @param transitions The transitions of the region.
+     * @param <R>         The enum type that denotes the states of the region.
+     * @return {@code this} instance.
+     * @throws IllegalStateException If more than one transition is registered for the same event and state.
+     */
+    public <R extends Enum<R>> OrthogonalRegions<E, P, T> addRegion(@NonNull final Function<P, R> projection,
+                                                                  @NonNull final Collection<Transition<E, R, T>>
+                                                                          transitions) {
+        regions.add(new Region<>(projection, TransitionTable.compile(transitions)));
+        return this;
+    }
+
+    /**
+     * Builds the transitions of the product state machine: one for every product state and event consumed by at
+     * least one region. Without regions, there are no transitions.
+     *
+     * @return An unmodifiable list of the product transitions, grouped by product state.
+     * @throws IllegalStateException If two product states stand for the same combination of region states, or if an
+     *                               event leads to a combination that no product state stands for.
+     */
+    public List<Transition<E, P, T>> build() {
+        if (regions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Map<List<Object>, P> combinations = new HashMap<>();
+        for (final P product : products) {
+            final P existing = combinations.put(combination(product), product);
+            if (existing != null) {
+                throw new IllegalStateException(String.format("Product states %s and %s stand for %s", existing,
+                        product, combination(product)));
+            }
+        }
+        final Set<E> events = new LinkedHashSet<>();
+        for (final Region<?> region : regions) {
+            region.collectEvents(events);
+        }
+        final List<Transition<E, P, T>> transitions = new ArrayList<>();
+        for (final P product : products) {
+            for (final E event : events) {
+                final Object[] next = new Object[regions.size()];
+                final List<Action<E, P, T>> actions = new ArrayList<>();
+                boolean consumed = false;
+                for (int i = 0; i < next.length; i++) {
+                    final Region<?> region = regions.get(i);
+                    next[i] = region.next(product, event, actions);
+                    consumed |= next[i] != null;
+                    if (next[i] == null) {
+                        next[i] = region.projection.apply(product);
+                    }
+                }
+                if (!consumed) {
+                    continue;
+                }
+                final P target = combinations.get(Arrays.asList(next));
+                if (target == null) {
+                    throw new IllegalStateException(String.format("No product state stands for %s, reached from %s "
+                            + "upon %s", Arrays.asList(next), product, event));
+                }
+                transitions.add(new Transition<>(event, product, target, actions));
+            }
+        }
+        return Collections.unmodifiableList(transitions);
+    }
+
+    /**
+     * Returns the combination of region states the given product state stands for.
+     *
+     * @param product The product state.
+     * @return The state of every region, in region order.
+     */
+    private List<Object> combination(final P product) {
+        final List<Object> combination = new ArrayList<>(regions.size());
+        for (final Region<?> region : regions) {
+            combination.add(region.projection.apply(product));
+        }
+        return combination;
+    }
+
+    /**
+     * A region along with the projection of the product states onto its states.
+     *
+     * @param <R> The enum type that denotes the states of the region.
+     */
+    private final class Region<R extends Enum<R>> {
+
+        /**
+         * Returns the state of this region in every product state.
+         */
+        private final Function<P, R> projection;
+
+        /**
+         * The transitions of this region.
+         */
+        private final TransitionTable<E, R, T> table;
+
+        private Region(final Function<P, R> projection, final TransitionTable<E, R, T> table) {
+            this.projection = projection;
+            this.table = table;
+        }
+
+        /**
+         * Adds the events consumed by this region to the given set.
+         *
+         * @param events The set of events.
+         */
+        private void collectEvents(final Set<E> events) {
+            for (final Transition<E, R, T> transition : table.getTransitions()) {
+                events.add(transition.getEvent());
+            }
+        }
+
+        /**
+         * Returns the state of this region after the given event is consumed in the given product state, adding the
+         * adapted actions of the region transition, if any, to the given list.
+         *
+         * @param product The product state.
+         * @param event   The event which is being consumed.
+         * @param actions The actions of the product transition.
+         * @return The next state of this region, or {@code null} if this region cannot consume the event.
+         */
+        private R next(final P product, final E event, final List<Action<E, P, T>> actions) {
+            final R state = projection.apply(product);
+            final Transition<E, R, T> transition = table.get(state, event);
+            if (transition == null) {
+                return null;
+            }
+            for (final Action<E, R, T> action : transition.getActions()) {
+                actions.add(new RegionAction<>(action, state, transition.getToState()));
+            }
+            return transition.getToState();
+        }
+    }
+
+    /**
+     * Runs an action of a region transition as an action of the product transition, passing it a context holding
+     * the states of the region, derived by {@link ActionContext#withStates(Enum, Enum)}. The context is a flyweight,
+     * released once the action returns, only if the product definition reuses its contexts; otherwise it is a new
+     * immutable context that the action may retain.
+     *
+     * @param <E> The enum type that denotes the events.
+     * @param <P> The enum type that denotes the product states.
+     * @param <R> The enum type that denotes the states of the region.
+     * @param <T> The type on which the state machine is operating.
+     */
+    private static final class RegionAction<E extends Enum<E>, P extends Enum<P>, R extends Enum<R>, T>
+            implements Action<E, P, T> {
+
+        /**
+         * The action of the region transition.
+         */
+        private final Action<E, R, T> action;
+
+        /**
+         * The state of the region before the transition.
+         */
+        private final R currentState;
+
+        /**
+         * The state of the region after the transition.
+         */
+        private final R nextState;
+
+        private RegionAction(final Action<E, R, T> action, final R currentState, final R nextState) {
+            this.action = action;
+            this.currentState = currentState;
+            this.nextState = nextState;
+        }
+
+        @Override
+        public void before(final ActionContext<E, P, T> actionContext) {
+            final ActionContext<E, R, T> regionContext = project(actionContext);
+            try {
+                action.before(regionContext);
+            } finally {
+                regionContext.release();
+            }
+        }
+
+        @Override
+        public void after(final ActionContext<E, P, T> actionContext) {
+            final ActionContext<E, R, T> regionContext = project(actionContext);
+            try {
+                action.after(regionContext);
+            } finally {
+                regionContext.release();
+            }
+        }
+
+        /**
+         * Returns the context of the region transition for the given context of the product transition.
+         *
+         * @param actionContext The context of the product transition.
+         * @return The context of the region transition, to be released once the action returns.
+         */
+        private ActionContext<E, R, T> project(final ActionContext<E, P, T> actionContext) {
+            return actionContext.withStates(currentState, nextState);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package in.at0m.fsm.hierarchy;
+
+import in.at0m.fsm.transition.Transition;
+import in.at0m.fsm.transition.TransitionTable;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nests states into composite states and flattens the transitions declared on them into transitions between leaf
+ * states, which a {@link in.at0m.fsm.StateMachineDefinition} compiles into an ordinary flat table. A state machine
+ * built this way only ever rests in a leaf state, and consuming an event costs the same as in a flat machine
+ * whatever the nesting depth.
+ * <p>
+ * A transition declared on a composite state applies to every state nested in it, unless a state closer to the
+ * leaf declares a transition for the same event. A transition to a composite state enters its initial child,
+ * recursively down to a leaf. The actions of a flattened transition are the actions of the declared transition,
+ * and they see the leaf states as the current and next states.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class StateHierarchy<E extends Enum<E>, S extends Enum<S>, T> {
+
+    /**
+     * The parent of every nested state.
+     */
+    private final Map<S, S> parents;
+
+    /**
+     * The initial child of every composite state that has one.
+     */
+    private final Map<S, S> initialChildren;
+
+    /**
+     * The transitions declared on leaf and composite states, in registration order.
+     */
+    private final List<Transition<E, S, T>> transitions;
+
+    /**
+     * Constructs an empty {@link StateHierarchy} over the given state enum.
+     *
+     * @param stateType The enum type that denotes the states.
+     */
+    public StateHierarchy(@NonNull final Class<S> stateType) {
+        this.parents = new EnumMap<>(stateType);
+        this.initialChildren = new EnumMap<>(stateType);
+        this.transitions = new ArrayList<>();
+    }
+
+    /**
+     * Nests the given {@code child} state in the given {@code parent} state.
+     *
+     * @param parent The composite state.
+     * @param child  The nested state.
+     * @return {@code this} instance.
+     * @throws IllegalArgumentException If the child is already nested in another state or if nesting it would
+     *                                  make a state its own ancestor.
+     */
+    public StateHierarchy<E, S, T> addChild(@NonNull final S parent, @NonNull final S child) {
+        final S existing = parents.get(child);
+        if (existing != null && existing != parent) {
+            throw new IllegalArgumentException(String.format("State %s is already nested in %s", child, existing));
+        }
+        for (S ancestor = parent; ancestor != null; ancestor = parents.get(ancestor)) {
+            if (ancestor == child) {
+                throw new IllegalArgumentException(String.format("State %s cannot be nested in %s", child, parent));
+            }
+        }
+        parents.put(child, parent);
+        return this;
+    }
+
+    /**
+     * Nests the given {@code child} state in the given {@code parent} state and makes it the state entered by the
+     * transitions to the parent.
+     *
+     * @param parent The composite state.
+     * @param child  The nested state entered along with the parent.
+     * @return {@code this} instance.
+     * @throws IllegalArgumentException If the child cannot be nested in the parent or the parent already has
+     *                                  another initial child.
+     */
+    public StateHierarchy<E, S, T> addInitialChild(@NonNull final S parent, @NonNull final S child) {
+        final S existing = initialChildren.get(parent);
+        if (existing != null && existing != child) {
+            throw new IllegalArgumentException(String.format("State %s already has initial child %s", parent,
+                    existing));
+        }
+        addChild(parent, child);
+        initialChildren.put(parent, child);
+        return this;
+    }
+
+    /**
+     * Declares the given transition, from a leaf or a composite state to a leaf or a composite state.
+     *
+     * @param transition The transition to declare.
+     * @return {@code this} instance.
+     */
+    public StateHierarchy<E, S, T> addTransition(@NonNull final Transition<E, S, T> transition) {
+        transitions.add(transition);
+        return this;
+    }
+
+    /**
+     * Returns the state entered when the given state is entered: the state itself if it is a leaf state, its
+     * initial child, recursively, otherwise.
+     *
+     * @param state The state being entered.
+     * @return The leaf state entered.
+     * @throws IllegalStateException If a composite state on the way has no initial child.
+     */
+    public S enter(@NonNull final S state) {
+        S leaf = state;
+        while (parents.containsValue(leaf)) {
+            final S child = initialChildren.get(leaf);
+            if (child == null) {
+                throw new IllegalStateException(String.format("Composite state %s has no initial child", leaf));
+            }
+            leaf = child;
+        }
+        return leaf;
+    }
+
+    /**
+     * Flattens the declared transitions into transitions between leaf states. For every leaf state and event, the
+     * transition declared on the innermost state enclosing the leaf, the leaf included, is kept and its target is
+     * {@link #enter(Enum) entered}.
+     *
+     * @return An unmodifiable list of the flattened transitions, grouped by leaf state.
+     * @throws IllegalStateException If more than one transition is declared for the same event and state, or if a
+     *                               transition leads to a composite state without an initial child.
+     */
+    public List<Transition<E, S, T>> flatten() {
+        if (transitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final TransitionTable<E, S, T> declared = TransitionTable.compile(transitions);
+        final Set<E> events = new LinkedHashSet<>();
+        for (final Transition<E, S, T> transition : transitions) {
+            events.add(transition.getEvent());
+        }
+        final List<Transition<E, S, T>> flattened = new ArrayList<>();
+        for (final S leaf : transitions.get(0).getFromState().getDeclaringClass().getEnumConstants()) {
+            if (parents.containsValue(leaf)) {
+                continue;
+            }
+            for (final E event : events) {
+                Transition<E, S, T> transition = null;
+                for (S state = leaf; transition == null && state != null; state = parents.get(state)) {
+                    transition = declared.get(state, event);
+                }
+                if (transition == null) {
+                    continue;
+                }
+                final S target = enter(transition.getToState());
+                flattened.add(leaf == transition.getFromState() && target == transition.getToState() ? transition
+                        : new Transition<>(event, leaf, target, new ArrayList<>(transition.getActions())));
+            }
+        }
+        return Collections.unmodifiableList(flattened);
+    }
+}
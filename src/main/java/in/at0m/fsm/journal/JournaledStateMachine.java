@@ -0,0 +1,173 @@
+package in.at0m.fsm.journal;
+
+import in.at0m.fsm.StateMachine;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * A {@link StateMachine} that appends every transition it commits to a {@link TransitionJournal}. Transitions are
+ * performed by the wrapped machine and journaled within the same critical section, so the journal holds the
+ * transitions of a machine in the order they were committed. The wrapped machine must only be driven through this
+ * wrapper.
+ * <p>
+ * Appending does not wait for the record to be on disk; the journal commits it with the next group commit. The
+ * states journaled this way are rebuilt with {@link TransitionJournal#recover(Class)}.
+ * <p>
+ * A transition is appended once it is committed, since its target state is only known then. If it cannot be
+ * appended, e.g. because a group commit failed, the transition stays committed and the failure is passed to the
+ * error handler instead of failing the event; {@link TransitionJournal#getDurableSequence()} tells which transitions
+ * are on disk. Once a group commit has failed, every following event is rejected before any transition, so that no
+ * transition is committed without being journaled.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class JournaledStateMachine<E extends Enum<E>, S extends Enum<S>, T> implements StateMachine<E, S, T> {
+
+    /**
+     * The id of this machine in the journal.
+     */
+    @Getter
+    private final long id;
+
+    /**
+     * The machine performing the transitions.
+     */
+    private final StateMachine<E, S, T> delegate;
+
+    /**
+     * The journal the transitions are appended to.
+     */
+    @Getter
+    private final TransitionJournal journal;
+
+    /**
+     * Handles the failures to append a committed transition, which have no caller to propagate to.
+     */
+    private final Consumer<Exception> errorHandler;
+
+    /**
+     * Constructs a {@link JournaledStateMachine} that passes the failures to append a committed transition to the
+     * uncaught exception handler of the consuming thread.
+     *
+     * @param id       The id of this machine in the journal.
+     * @param delegate The machine performing the transitions.
+     * @param journal  The journal the transitions are appended to.
+     */
+    public JournaledStateMachine(final long id, final StateMachine<E, S, T> delegate,
+                                 final TransitionJournal journal) {
+        this(id, delegate, journal, null);
+    }
+
+    /**
+     * Constructs a {@link JournaledStateMachine}.
+     *
+     * @param id           The id of this machine in the journal.
+     * @param delegate     The machine performing the transitions.
+     * @param journal      The journal the transitions are appended to.
+     * @param errorHandler Handles the failures to append a committed transition. If {@code null}, they are passed
+     *                     to the uncaught exception handler of the consuming thread.
+     */
+    public JournaledStateMachine(final long id, @NonNull final StateMachine<E, S, T> delegate,
+                                 @NonNull final TransitionJournal journal, final Consumer<Exception> errorHandler) {
+        this.id = id;
+        this.delegate = delegate;
+        this.journal = journal;
+        this.errorHandler = errorHandler != null ? errorHandler : e -> Thread.currentThread()
+                .getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S getCurrentState() {
+        return delegate.getCurrentState();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param event {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean canConsume(final E event) {
+        return delegate.canConsume(event);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The transition is appended to the journal once it is committed. A failure to append it is passed to the error
+     * handler, as the transition is committed regardless.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalStateException If a group commit of the journal has failed.
+     */
+    @Override
+    public S consume(@NonNull final E event, @NonNull final T context) {
+        synchronized (this) {
+            checkJournal();
+            final S fromState = delegate.getCurrentState();
+            return append(event, fromState, delegate.consume(event, context));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The transition is appended to the journal once it is committed. A failure to append it is passed to the error
+     * handler, as the transition is committed regardless.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws IllegalStateException If a group commit of the journal has failed.
+     */
+    @Override
+    public S tryConsume(@NonNull final E event, @NonNull final T context) {
+        synchronized (this) {
+            checkJournal();
+            final S fromState = delegate.getCurrentState();
+            final S toState = delegate.tryConsume(event, context);
+            return toState != null ? append(event, fromState, toState) : null;
+        }
+    }
+
+    /**
+     * Rejects the event if a group commit of the journal has failed, as its transition could not be journaled.
+     *
+     * @throws IllegalStateException If a group commit of the journal has failed.
+     */
+    private void checkJournal() {
+        final IOException failure = journal.getFailure();
+        if (failure != null) {
+            throw new IllegalStateException("Journal failed to commit", failure);
+        }
+    }
+
+    /**
+     * Appends the given committed transition to the journal, passing a failure to the error handler.
+     *
+     * @param event     The consumed event.
+     * @param fromState The state the transition started from.
+     * @param toState   The state the transition led to.
+     * @return The state the transition led to.
+     */
+    private S append(final E event, final S fromState, final S toState) {
+        try {
+            journal.append(id, event.ordinal(), fromState.ordinal(), toState.ordinal());
+        } catch (IOException | RuntimeException e) {
+            errorHandler.accept(e);
+        }
+        return toState;
+    }
+}
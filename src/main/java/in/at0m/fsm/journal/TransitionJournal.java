@@ -0,0 +1,542 @@
+package in.at0m.fsm.journal;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, write-ahead journal of committed transitions. Every transition is stored as a fixed size binary
+ * record holding its sequence number, the id of the machine, the event ordinal, the from and to state ordinals and
+ * a checksum. Records are buffered and written with a single {@link FileChannel#force(boolean) fsync} per group,
+ * which is committed once {@code groupCommitRecords} records are pending or {@code groupCommitInterval} has elapsed,
+ * whichever comes first. A transition is hence durable at the latest one interval after it is appended, see
+ * {@link #getDurableSequence()}. Records are appended to one of two buffers while the other one is written, so a
+ * group commit does not hold up appending for the duration of its fsync.
+ * <p>
+ * The journal is kept in a directory as segments named after the sequence number of their first record. A segment
+ * is rolled once it reaches {@code segmentSize} bytes, and {@link #compact()} folds all the segments into a snapshot
+ * of the latest state of every machine. {@link #recover(Class)} rebuilds the current states from the latest snapshot
+ * and the segments that follow it without executing any {@link in.at0m.fsm.transition.Action}. A torn record at the
+ * end of the last segment, e.g. after a crash, is discarded when the journal is opened.
+ *
+ * @author shubhdarlinge
+ */
+public class TransitionJournal implements AutoCloseable {
+
+    /**
+     * The default number of pending records that triggers a group commit.
+     */
+    public static final int DEFAULT_GROUP_COMMIT_RECORDS = 1024;
+
+    /**
+     * The default interval after which pending records are committed.
+     */
+    public static final Duration DEFAULT_GROUP_COMMIT_INTERVAL = Duration.ofMillis(1);
+
+    /**
+     * The default size in bytes at which a segment is rolled.
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    /**
+     * The size in bytes of a record: sequence, machine id, event, from state, to state and checksum.
+     */
+    static final int RECORD_SIZE = Long.BYTES + Long.BYTES + 3 * Short.BYTES + Integer.BYTES;
+
+    /**
+     * The file name suffix of the segments.
+     */
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * The file name suffix of the snapshots.
+     */
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    /**
+     * The size in bytes of a snapshot entry: machine id and state ordinal.
+     */
+    private static final int SNAPSHOT_ENTRY_SIZE = Long.BYTES + Short.BYTES;
+
+    /**
+     * The directory holding the segments and snapshots.
+     */
+    private final Path directory;
+
+    /**
+     * The size in bytes at which a segment is rolled.
+     */
+    private final long segmentSize;
+
+    /**
+     * Serializes the group commits and guards {@link #segment} and {@link #spare}. Acquired before the lock of this
+     * journal whenever both are held.
+     */
+    private final Object writeLock;
+
+    /**
+     * The records appended since the last group commit.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The buffer written by the group commit in progress, or the one {@link #buffer} is swapped with by the next
+     * group commit.
+     */
+    private ByteBuffer spare;
+
+    /**
+     * Computes the checksum of the records.
+     */
+    private final CRC32 checksum;
+
+    /**
+     * Commits the pending records once the group commit interval has elapsed.
+     */
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * The segment records are currently appended to.
+     */
+    private FileChannel segment;
+
+    /**
+     * The sequence number of the last appended record.
+     */
+    private long lastSequence;
+
+    /**
+     * The sequence number of the last record known to be on disk.
+     */
+    private volatile long durableSequence;
+
+    /**
+     * The failure of the last group commit, reported by every following append.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Indicates whether this journal has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Opens the journal in the given directory with the default group commit and segment settings.
+     *
+     * @param directory The directory holding the segments and snapshots. It is created if it does not exist.
+     * @throws IOException If the journal cannot be opened.
+     */
+    public TransitionJournal(final Path directory) throws IOException {
+        this(directory, DEFAULT_GROUP_COMMIT_RECORDS, DEFAULT_GROUP_COMMIT_INTERVAL, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the journal in the given directory. Appending resumes after the last intact record.
+     *
+     * @param directory           The directory holding the segments and snapshots. It is created if it does not
+     *                            exist.
+     * @param groupCommitRecords  The number of pending records that triggers a group commit.
+     * @param groupCommitInterval The interval after which pending records are committed. If {@code null}, records
+     *                            are only committed by count, by {@link #sync()} and on close.
+     * @param segmentSize         The size in bytes at which a segment is rolled.
+     * @throws IOException              If the journal cannot be opened.
+     * @throws IllegalArgumentException If the group commit records or the segment size is not positive.
+     */
+    @lombok.Builder(builderClassName = "Builder")
+    public TransitionJournal(@NonNull final Path directory, final int groupCommitRecords,
+                             final Duration groupCommitInterval, final long segmentSize) throws IOException {
+        if (groupCommitRecords <= 0 || segmentSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Group commit records %d and segment size %d must be positive", groupCommitRecords, segmentSize));
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.writeLock = new Object();
+        this.buffer = ByteBuffer.allocateDirect(groupCommitRecords * RECORD_SIZE);
+        this.spare = ByteBuffer.allocateDirect(groupCommitRecords * RECORD_SIZE);
+        this.checksum = new CRC32();
+        final List<Path> snapshots = files(SNAPSHOT_SUFFIX);
+        final List<Path> segments = files(SEGMENT_SUFFIX);
+        lastSequence = snapshots.isEmpty() ? 0 : sequence(snapshots.get(snapshots.size() - 1));
+        if (!segments.isEmpty()) {
+            lastSequence = Math.max(lastSequence, replay(segments.get(segments.size() - 1), 0, null, true));
+        }
+        durableSequence = lastSequence;
+        segment = openSegment(lastSequence + 1);
+        if (groupCommitInterval != null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "fsm-journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long interval = Math.max(1, TimeUnit.NANOSECONDS.toMicros(groupCommitInterval.toNanos()));
+            flusher.scheduleWithFixedDelay(this::flushPending, interval, interval, TimeUnit.MICROSECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Appends a committed transition. The record is durable once a group commit covers it. If the record fills the
+     * buffer, the group commit is performed by the calling thread once the record is appended.
+     *
+     * @param machineId The id of the machine that performed the transition.
+     * @param event     The ordinal of the consumed event.
+     * @param fromState The ordinal of the state the transition started from.
+     * @param toState   The ordinal of the state the transition led to.
+     * @return The sequence number of the record.
+     * @throws IOException              If a previous group commit failed or the group commit of the record failed.
+     * @throws IllegalArgumentException If an ordinal does not fit in an unsigned short.
+     * @throws IllegalStateException    If this journal is closed.
+     */
+    public long append(final long machineId, final int event, final int fromState, final int toState)
+            throws IOException {
+        if (((event | fromState | toState) & ~0xFFFF) != 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Ordinals %d, %d and %d must be between 0 and %d", event, fromState, toState, 0xFFFF));
+        }
+        long sequence = 0;
+        while (sequence == 0) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("Journal is closed");
+                }
+                if (failure != null) {
+                    throw new IOException("Journal failed to commit", failure);
+                }
+                if (buffer.hasRemaining()) {
+                    sequence = ++lastSequence;
+                    final int position = buffer.position();
+                    buffer.putLong(sequence).putLong(machineId)
+                            .putShort((short) event).putShort((short) fromState).putShort((short) toState);
+                    buffer.putInt(checksum(buffer, position, buffer.position()));
+                    if (buffer.hasRemaining()) {
+                        return sequence;
+                    }
+                }
+            }
+            flush();
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last record known to be on disk.
+     *
+     * @return The durable sequence number.
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Returns the failure of the group commit that stopped this journal. Once a group commit fails, no record is
+     * journaled anymore.
+     *
+     * @return The failure, or {@code null} if every group commit succeeded so far.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Commits the pending records right away.
+     *
+     * @throws IOException If the records could not be written.
+     */
+    public void sync() throws IOException {
+        flush();
+    }
+
+    /**
+     * Rebuilds the latest state of every machine from the latest snapshot and the segments that follow it, without
+     * executing any action. The pending records are committed first.
+     *
+     * @param stateType The enum type that denotes the states.
+     * @param <S>       The enum type that denotes the states.
+     * @return The latest state of every machine keyed by machine id.
+     * @throws IOException If the journal cannot be read.
+     */
+    public <S extends Enum<S>> Map<Long, S> recover(@NonNull final Class<S> stateType) throws IOException {
+        final S[] states = stateType.getEnumConstants();
+        final Map<Long, S> recovered = new HashMap<>();
+        synchronized (writeLock) {
+            synchronized (this) {
+                flush();
+                load().forEach((machineId, ordinal) -> recovered.put(machineId, states[ordinal]));
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * Folds the latest snapshot and all the segments into a new snapshot, then deletes them. Appending is blocked
+     * while the journal is compacted.
+     *
+     * @throws IOException If the journal cannot be compacted.
+     */
+    public void compact() throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                flush();
+                final Map<Long, Integer> states = load();
+                final ByteBuffer snapshot = ByteBuffer.allocate(Long.BYTES + Integer.BYTES
+                        + states.size() * SNAPSHOT_ENTRY_SIZE + Integer.BYTES);
+                snapshot.putLong(lastSequence).putInt(states.size());
+                states.forEach((machineId, ordinal) -> snapshot.putLong(machineId).putShort(ordinal.shortValue()));
+                snapshot.putInt(checksum(snapshot, 0, snapshot.position()));
+                snapshot.flip();
+                final Path temporary = directory.resolve(name(lastSequence, SNAPSHOT_SUFFIX + ".tmp"));
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    while (snapshot.hasRemaining()) {
+                        channel.write(snapshot);
+                    }
+                    channel.force(true);
+                }
+                final Path target = directory.resolve(name(lastSequence, SNAPSHOT_SUFFIX));
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                segment.close();
+                for (final Path file : files(SEGMENT_SUFFIX)) {
+                    Files.delete(file);
+                }
+                for (final Path file : files(SNAPSHOT_SUFFIX)) {
+                    if (!file.equals(target)) {
+                        Files.delete(file);
+                    }
+                }
+                segment = openSegment(lastSequence + 1);
+            }
+        }
+    }
+
+    /**
+     * Commits the pending records and closes this journal.
+     *
+     * @throws IOException If the pending records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (flusher != null) {
+                    flusher.shutdownNow();
+                }
+                try {
+                    flush();
+                } finally {
+                    segment.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Swaps the buffers, then writes the pending records, forces them to disk and rolls the segment if it is full.
+     * Only the write lock is held while writing, so records keep being appended to the other buffer. A failure is
+     * kept and reported by every following append.
+     *
+     * @throws IOException If the records could not be written or a previous group commit failed.
+     */
+    private void flush() throws IOException {
+        synchronized (writeLock) {
+            final ByteBuffer pending;
+            final long sequence;
+            synchronized (this) {
+                if (failure != null) {
+                    throw new IOException("Journal failed to commit", failure);
+                }
+                if (buffer.position() == 0) {
+                    return;
+                }
+                pending = buffer;
+                buffer = spare;
+                spare = pending;
+                sequence = lastSequence;
+            }
+            try {
+                pending.flip();
+                while (pending.hasRemaining()) {
+                    segment.write(pending);
+                }
+                pending.clear();
+                segment.force(false);
+                durableSequence = sequence;
+                if (segment.size() >= segmentSize) {
+                    segment.close();
+                    segment = openSegment(sequence + 1);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Commits the pending records on behalf of the interval. A failure is kept for the next append.
+     */
+    private void flushPending() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // Kept in failure and reported by the next append.
+        }
+    }
+
+    /**
+     * Opens a new segment starting at the given sequence number.
+     *
+     * @param firstSequence The sequence number of the first record of the segment.
+     * @return The channel of the segment.
+     * @throws IOException If the segment cannot be opened.
+     */
+    private FileChannel openSegment(final long firstSequence) throws IOException {
+        return FileChannel.open(directory.resolve(name(firstSequence, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Loads the latest snapshot and replays all the segments on top of it.
+     *
+     * @return The latest state ordinal of every machine keyed by machine id.
+     * @throws IOException If the journal cannot be read.
+     */
+    private Map<Long, Integer> load() throws IOException {
+        final Map<Long, Integer> states = new HashMap<>();
+        final List<Path> snapshots = files(SNAPSHOT_SUFFIX);
+        long after = 0;
+        if (!snapshots.isEmpty()) {
+            final Path snapshot = snapshots.get(snapshots.size() - 1);
+            final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            after = data.getLong();
+            final int count = data.getInt();
+            if (data.remaining() != count * SNAPSHOT_ENTRY_SIZE + Integer.BYTES
+                    || data.getInt(data.limit() - Integer.BYTES) != checksum(data, 0, data.limit() - Integer.BYTES)) {
+                throw new IOException(String.format("Snapshot %s is corrupt", snapshot));
+            }
+            for (int i = 0; i < count; i++) {
+                states.put(data.getLong(), data.getShort() & 0xFFFF);
+            }
+        }
+        for (final Path file : files(SEGMENT_SUFFIX)) {
+            replay(file, after, states, false);
+        }
+        return states;
+    }
+
+    /**
+     * Replays the intact records of the given segment, stopping at the first torn or corrupt record.
+     *
+     * @param file     The segment to replay.
+     * @param after    The sequence number after which records are applied.
+     * @param states   The state ordinals updated with the to state of every applied record, if not {@code null}.
+     * @param truncate Whether the segment is truncated after its last intact record.
+     * @return The sequence number of the last intact record, or the one before the first record of the segment if
+     * it holds none.
+     * @throws IOException If the segment cannot be read.
+     */
+    private long replay(final Path file, final long after, final Map<Long, Integer> states, final boolean truncate)
+            throws IOException {
+        long last = sequence(file) - 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (data.remaining() >= RECORD_SIZE) {
+                final int position = data.position();
+                final int expected = checksum(data, position, position + RECORD_SIZE - Integer.BYTES);
+                final long sequence = data.getLong(position);
+                if (data.getInt(position + RECORD_SIZE - Integer.BYTES) != expected || sequence != last + 1) {
+                    break;
+                }
+                if (states != null && sequence > after) {
+                    states.put(data.getLong(position + Long.BYTES),
+                            data.getShort(position + 2 * Long.BYTES + 2 * Short.BYTES) & 0xFFFF);
+                }
+                last = sequence;
+                data.position(position + RECORD_SIZE);
+            }
+            if (truncate) {
+                channel.truncate(data.position());
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Computes the checksum of the bytes of the given buffer in the given range.
+     *
+     * @param data The buffer.
+     * @param from The offset of the first byte, inclusive.
+     * @param to   The offset of the last byte, exclusive.
+     * @return The checksum.
+     */
+    private int checksum(final ByteBuffer data, final int from, final int to) {
+        final ByteBuffer view = data.duplicate();
+        view.limit(to).position(from);
+        checksum.reset();
+        checksum.update(view);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Returns the files of the directory having the given suffix, in sequence order.
+     *
+     * @param suffix The file name suffix.
+     * @return The files.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private List<Path> files(final String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Returns the file name for the given sequence number and suffix. Sequence numbers are zero padded so that
+     * file names sort in sequence order.
+     *
+     * @param sequence The sequence number.
+     * @param suffix   The file name suffix.
+     * @return The file name.
+     */
+    private static String name(final long sequence, final String suffix) {
+        return String.format("%020d%s", sequence, suffix);
+    }
+
+    /**
+     * Returns the sequence number encoded in the name of the given file.
+     *
+     * @param file The segment or snapshot.
+     * @return The sequence number.
+     */
+    private static long sequence(final Path file) {
+        final String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('.')));
+    }
+}
@@ -0,0 +1,184 @@
+package in.at0m.fsm.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of durations in nanoseconds with a fixed number of buckets. As in an HDR histogram, every
+ * power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so a value is recorded with a relative error
+ * below {@code 1 / }{@value #SUB_BUCKETS} whatever its magnitude, and recording a value costs a few bit operations
+ * and an atomic increment without any allocation.
+ *
+ * @author shubhdarlinge
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits of a value kept below its highest bit.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The number of sub-buckets of every power of two.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of buckets, covering every non-negative {@code long}.
+     */
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * The number of values recorded in every bucket.
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * The sum of the recorded values.
+     */
+    private final LongAdder total;
+
+    /**
+     * The largest recorded value.
+     */
+    private final AtomicLong max;
+
+    /**
+     * Constructs an empty {@link LatencyHistogram}.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.total = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records the given duration. Negative durations, e.g. caused by a clock adjustment, are recorded as zero.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the recorded values. Values recorded concurrently may or may not be included.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        final long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        return new Snapshot(snapshot, count, total.sum(), max.get());
+    }
+
+    /**
+     * Returns the bucket of the given value.
+     *
+     * @param value The non-negative value.
+     * @return The index of the bucket.
+     */
+    static int bucket(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the lowest value of the given bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return The lowest value recorded in the bucket.
+     */
+    static long lowestValue(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * An immutable snapshot of a {@link LatencyHistogram}.
+     */
+    public static final class Snapshot {
+
+        /**
+         * The number of values recorded in every bucket.
+         */
+        private final long[] counts;
+
+        /**
+         * The number of recorded values.
+         */
+        @Getter
+        private final long count;
+
+        /**
+         * The sum of the recorded values.
+         */
+        @Getter
+        private final long total;
+
+        /**
+         * The largest recorded value.
+         */
+        @Getter
+        private final long max;
+
+        private Snapshot(final long[] counts, final long count, final long total, final long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * Returns the mean of the recorded values.
+         *
+         * @return The mean, or {@code 0} if no value was recorded.
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        /**
+         * Returns the value below which the given percentage of the recorded values fall, as the lowest value of
+         * the bucket holding it.
+         *
+         * @param percentile The percentage, between {@code 0} and {@code 100}.
+         * @return The value at the percentile, or {@code 0} if no value was recorded.
+         * @throws IllegalArgumentException If the percentage is not between {@code 0} and {@code 100}.
+         */
+        public long getValueAtPercentile(final double percentile) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException(String.format("Percentile %s is not between 0 and 100",
+                        percentile));
+            }
+            final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return lowestValue(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
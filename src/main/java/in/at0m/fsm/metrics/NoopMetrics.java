@@ -0,0 +1,47 @@
+package in.at0m.fsm.metrics;
+
+import in.at0m.fsm.transition.Action;
+
+/**
+ * The {@link StateMachineMetrics} that ignores every measurement.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+final class NoopMetrics<E extends Enum<E>, S extends Enum<S>> implements StateMachineMetrics<E, S> {
+
+    /**
+     * The shared instance.
+     */
+    @SuppressWarnings("rawtypes")
+    static final NoopMetrics INSTANCE = new NoopMetrics();
+
+    private NoopMetrics() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void transition(final S fromState, final E event, final S toState) {
+    }
+
+    @Override
+    public void rejection(final S state, final E event) {
+    }
+
+    @Override
+    public void lock(final long waitNanos, final long holdNanos) {
+    }
+
+    @Override
+    public void before(final Action<E, S, ?> action, final long nanos) {
+    }
+
+    @Override
+    public void after(final Action<E, S, ?> action, final long nanos) {
+    }
+}
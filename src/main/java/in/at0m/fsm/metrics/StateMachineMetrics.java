@@ -0,0 +1,80 @@
+package in.at0m.fsm.metrics;
+
+import in.at0m.fsm.transition.Action;
+
+/**
+ * Receives the measurements of the state machines of a {@link in.at0m.fsm.StateMachineDefinition}. The state machines
+ * only take measurements if {@link #isEnabled()} returns {@code true}, so the {@link #noop() no-op} implementation
+ * costs a single predictable branch per operation and no call to {@link System#nanoTime()}.
+ * <p>
+ * Implementations are called concurrently by every state machine of the definition, some calls being made while
+ * holding the lock of a state machine, hence must be thread-safe and cheap. See {@link TransitionMetrics}.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+public interface StateMachineMetrics<E extends Enum<E>, S extends Enum<S>> {
+
+    /**
+     * Returns the implementation that ignores every measurement.
+     *
+     * @param <E> The enum type that denotes the events.
+     * @param <S> The enum type that denotes the states.
+     * @return The no-op implementation.
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends Enum<E>, S extends Enum<S>> StateMachineMetrics<E, S> noop() {
+        return (StateMachineMetrics<E, S>) NoopMetrics.INSTANCE;
+    }
+
+    /**
+     * Returns whether the state machines take measurements.
+     *
+     * @return {@code true} if measurements are taken. {@code false} otherwise.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Called once a transition is committed.
+     *
+     * @param fromState The state the transition started from.
+     * @param event     The consumed event.
+     * @param toState   The state the transition led to.
+     */
+    void transition(S fromState, E event, S toState);
+
+    /**
+     * Called when an event cannot be consumed.
+     *
+     * @param state The state in which the event could not be consumed.
+     * @param event The event which could not be consumed.
+     */
+    void rejection(S state, E event);
+
+    /**
+     * Called once the lock of a state machine is released.
+     *
+     * @param waitNanos The time spent waiting for the lock in nanoseconds.
+     * @param holdNanos The time the lock was held in nanoseconds.
+     */
+    void lock(long waitNanos, long holdNanos);
+
+    /**
+     * Called once {@link Action#before(in.at0m.fsm.transition.ActionContext)} of an action returns.
+     *
+     * @param action The action.
+     * @param nanos  The time spent in the action in nanoseconds.
+     */
+    void before(Action<E, S, ?> action, long nanos);
+
+    /**
+     * Called once {@link Action#after(in.at0m.fsm.transition.ActionContext)} of an action returns.
+     *
+     * @param action The action.
+     * @param nanos  The time spent in the action in nanoseconds.
+     */
+    void after(Action<E, S, ?> action, long nanos);
+}
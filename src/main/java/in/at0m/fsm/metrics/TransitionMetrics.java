@@ -0,0 +1,273 @@
+package in.at0m.fsm.metrics;
+
+import in.at0m.fsm.transition.Action;
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link StateMachineMetrics} keeping every measurement in memory. Transitions and rejections are counted by
+ * {@link LongAdder}s indexed by state ordinal and event ordinal, so counting scales with the number of threads. A
+ * transition is identified by its source state and event, which determine its target state. Lock wait and hold times
+ * and the latencies of the {@code before} and {@code after} methods of every {@link Action} are recorded in
+ * {@link LatencyHistogram}s. Every value can be read at any time while the state machines keep running.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+public class TransitionMetrics<E extends Enum<E>, S extends Enum<S>> implements StateMachineMetrics<E, S> {
+
+    /**
+     * The enum type that denotes the events.
+     */
+    private final Class<E> eventType;
+
+    /**
+     * The enum type that denotes the states.
+     */
+    private final Class<S> stateType;
+
+    /**
+     * The events indexed by ordinal.
+     */
+    private final E[] events;
+
+    /**
+     * The states indexed by ordinal.
+     */
+    private final S[] states;
+
+    /**
+     * The number of transitions indexed by {@code fromState * events.length + event}.
+     */
+    private final LongAdder[] transitions;
+
+    /**
+     * The number of rejections indexed by {@code state * events.length + event}.
+     */
+    private final LongAdder[] rejections;
+
+    /**
+     * The time spent waiting for the locks of the state machines.
+     */
+    private final LatencyHistogram lockWait;
+
+    /**
+     * The time the locks of the state machines were held.
+     */
+    private final LatencyHistogram lockHold;
+
+    /**
+     * The latencies of the {@code before} methods keyed by action.
+     */
+    private final Map<Action<E, S, ?>, LatencyHistogram> beforeLatencies;
+
+    /**
+     * The latencies of the {@code after} methods keyed by action.
+     */
+    private final Map<Action<E, S, ?>, LatencyHistogram> afterLatencies;
+
+    /**
+     * Constructs a {@link TransitionMetrics} without any measurement.
+     *
+     * @param eventType The enum type that denotes the events.
+     * @param stateType The enum type that denotes the states.
+     */
+    public TransitionMetrics(@NonNull final Class<E> eventType, @NonNull final Class<S> stateType) {
+        this.eventType = eventType;
+        this.stateType = stateType;
+        this.events = eventType.getEnumConstants();
+        this.states = stateType.getEnumConstants();
+        this.transitions = newCounters(states.length * events.length);
+        this.rejections = newCounters(states.length * events.length);
+        this.lockWait = new LatencyHistogram();
+        this.lockHold = new LatencyHistogram();
+        this.beforeLatencies = new ConcurrentHashMap<>();
+        this.afterLatencies = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates the given number of counters.
+     *
+     * @param size The number of counters.
+     * @return The counters.
+     */
+    private static LongAdder[] newCounters(final int size) {
+        final LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param fromState {@inheritDoc}
+     * @param event     {@inheritDoc}
+     * @param toState   {@inheritDoc}
+     */
+    @Override
+    public void transition(final S fromState, final E event, final S toState) {
+        transitions[fromState.ordinal() * events.length + event.ordinal()].increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param state {@inheritDoc}
+     * @param event {@inheritDoc}
+     */
+    @Override
+    public void rejection(final S state, final E event) {
+        rejections[state.ordinal() * events.length + event.ordinal()].increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param waitNanos {@inheritDoc}
+     * @param holdNanos {@inheritDoc}
+     */
+    @Override
+    public void lock(final long waitNanos, final long holdNanos) {
+        lockWait.record(waitNanos);
+        lockHold.record(holdNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param action {@inheritDoc}
+     * @param nanos  {@inheritDoc}
+     */
+    @Override
+    public void before(final Action<E, S, ?> action, final long nanos) {
+        beforeLatencies.computeIfAbsent(action, a -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param action {@inheritDoc}
+     * @param nanos  {@inheritDoc}
+     */
+    @Override
+    public void after(final Action<E, S, ?> action, final long nanos) {
+        afterLatencies.computeIfAbsent(action, a -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Returns the number of transitions performed upon consuming the given event in the given state.
+     *
+     * @param fromState The state the transitions started from.
+     * @param event     The consumed event.
+     * @return The number of transitions.
+     */
+    public long getTransitionCount(@NonNull final S fromState, @NonNull final E event) {
+        return transitions[fromState.ordinal() * events.length + event.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of times the given event could not be consumed in the given state.
+     *
+     * @param state The state in which the event could not be consumed.
+     * @param event The event which could not be consumed.
+     * @return The number of rejections.
+     */
+    public long getRejectionCount(@NonNull final S state, @NonNull final E event) {
+        return rejections[state.ordinal() * events.length + event.ordinal()].sum();
+    }
+
+    /**
+     * Returns a snapshot of the non-zero transition counts, indexed by the state the transitions started from and
+     * then by the consumed event.
+     *
+     * @return The transition counts.
+     */
+    public Map<S, Map<E, Long>> getTransitionCounts() {
+        return snapshot(transitions);
+    }
+
+    /**
+     * Returns a snapshot of the non-zero rejection counts, indexed by the state and then by the event.
+     *
+     * @return The rejection counts.
+     */
+    public Map<S, Map<E, Long>> getRejectionCounts() {
+        return snapshot(rejections);
+    }
+
+    /**
+     * Returns a snapshot of the time spent waiting for the locks of the state machines.
+     *
+     * @return The snapshot.
+     */
+    public LatencyHistogram.Snapshot getLockWait() {
+        return lockWait.snapshot();
+    }
+
+    /**
+     * Returns a snapshot of the time the locks of the state machines were held.
+     *
+     * @return The snapshot.
+     */
+    public LatencyHistogram.Snapshot getLockHold() {
+        return lockHold.snapshot();
+    }
+
+    /**
+     * Returns a snapshot of the latencies of the {@code before} methods of the actions that were run.
+     *
+     * @return The snapshots keyed by action.
+     */
+    public Map<Action<E, S, ?>, LatencyHistogram.Snapshot> getBeforeLatencies() {
+        return snapshot(beforeLatencies);
+    }
+
+    /**
+     * Returns a snapshot of the latencies of the {@code after} methods of the actions that were run.
+     *
+     * @return The snapshots keyed by action.
+     */
+    public Map<Action<E, S, ?>, LatencyHistogram.Snapshot> getAfterLatencies() {
+        return snapshot(afterLatencies);
+    }
+
+    /**
+     * Returns the non-zero values of the given counters.
+     *
+     * @param counters The counters indexed by {@code state * events.length + event}.
+     * @return The values indexed by state and then by event.
+     */
+    private Map<S, Map<E, Long>> snapshot(final LongAdder[] counters) {
+        final Map<S, Map<E, Long>> snapshot = new EnumMap<>(stateType);
+        for (int i = 0; i < counters.length; i++) {
+            final long count = counters[i].sum();
+            if (count != 0) {
+                snapshot.computeIfAbsent(states[i / events.length], state -> new EnumMap<>(eventType))
+                        .put(events[i % events.length], count);
+            }
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Returns the snapshots of the given histograms.
+     *
+     * @param histograms The histograms keyed by action.
+     * @return The snapshots keyed by action.
+     */
+    private Map<Action<E, S, ?>, LatencyHistogram.Snapshot> snapshot(
+            final Map<Action<E, S, ?>, LatencyHistogram> histograms) {
+        final Map<Action<E, S, ?>, LatencyHistogram.Snapshot> snapshot = new HashMap<>();
+        histograms.forEach((action, histogram) -> snapshot.put(action, histogram.snapshot()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+}
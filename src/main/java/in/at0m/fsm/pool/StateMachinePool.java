@@ -0,0 +1,464 @@
+package in.at0m.fsm.pool;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+/**
+ * A pool of state machines sharing a {@link StateMachineDefinition}, where the state of every machine is stored as
+ * an ordinal in a buffer indexed by the slot of the machine. The pool holds no object per machine: a {@code byte}
+ * is used per slot when the state enum has at most 256 constants and a {@code short} otherwise.
+ * <p>
+ * The buffer is either held in memory or, for a pool created by {@link #mapped(StateMachineDefinition, Path, int,
+ * Enum)}, mapped from a file. The transitions of a mapped pool are written straight into the mapped file, hence
+ * mapping the file again after a restart restores the state of every slot without reading any record.
+ * <p>
+ * A pool may keep a {@link StatePopulation} index of its slots by state, which counts and lists the slots in a state
+ * without reading every slot, at the cost of four atomic instructions per transition.
+ * <p>
+ * The pool does not synchronize access to its slots. Different slots may be driven by different threads
+ * concurrently, but a slot must only be accessed by one thread at a time and visibility across threads has to be
+ * ensured by the caller, e.g. by partitioning the slots among the threads.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machines are operating.
+ * @author shubhdarlinge
+ */
+public class StateMachinePool<E extends Enum<E>, S extends Enum<S>, T> {
+
+    /**
+     * The largest number of states for which a {@code byte} is used per slot.
+     */
+    private static final int MAX_BYTE_STATES = 256;
+
+    /**
+     * Identifies a file holding the slots of a mapped pool.
+     */
+    private static final int MAGIC = 0x46534d50;
+
+    /**
+     * The version of the layout of a mapped file.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the header of a mapped file: the magic, the version, the number of states and the capacity.
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * The definition holding the state transition table of the state machines of this pool.
+     */
+    @Getter
+    private final StateMachineDefinition<E, S, T> definition;
+
+    /**
+     * The constants of the state enum indexed by ordinal.
+     */
+    private final S[] states;
+
+    /**
+     * The state ordinal of every slot, as a {@code byte} or a {@code short} per slot.
+     */
+    private final ByteBuffer slots;
+
+    /**
+     * Indicates whether a {@code short} is used per slot, as the state enum does not fit in a {@code byte}.
+     */
+    private final boolean wide;
+
+    /**
+     * The mapped file holding the header and the slots of this pool. {@code null} if the pool is held in memory.
+     */
+    private final MappedByteBuffer file;
+
+    /**
+     * The number of slots in this pool.
+     */
+    @Getter
+    private final int capacity;
+
+    /**
+     * The index of the slots by state, or {@code null} if this pool keeps no index.
+     */
+    @Getter
+    private final StatePopulation<S> population;
+
+    /**
+     * Constructs a {@link StateMachinePool} with {@code capacity} slots sharing the given
+     * {@link StateMachineDefinition}, all of which start in the given {@code initialState}.
+     *
+     * @param definition   The definition holding the transitions that can be performed by the state machines.
+     * @param capacity     The number of slots in this pool.
+     * @param initialState The initial state of every slot.
+     * @throws IllegalArgumentException If the capacity is negative or too large for the state enum.
+     */
+    public StateMachinePool(final StateMachineDefinition<E, S, T> definition, final int capacity,
+                            final S initialState) {
+        this(definition, capacity, initialState, false);
+    }
+
+    /**
+     * Constructs a {@link StateMachinePool} with {@code capacity} slots sharing the given
+     * {@link StateMachineDefinition}, all of which start in the given {@code initialState}, optionally keeping a
+     * {@link StatePopulation} index of the slots by state.
+     *
+     * @param definition      The definition holding the transitions that can be performed by the state machines.
+     * @param capacity        The number of slots in this pool.
+     * @param initialState    The initial state of every slot.
+     * @param indexPopulation Whether this pool keeps an index of its slots by state.
+     * @throws IllegalArgumentException If the capacity is negative or too large for the state enum.
+     */
+    public StateMachinePool(@NonNull final StateMachineDefinition<E, S, T> definition, final int capacity,
+                            @NonNull final S initialState, final boolean indexPopulation) {
+        this(definition, initialState.getDeclaringClass().getEnumConstants(), capacity, null, indexPopulation);
+        fill(initialState.ordinal());
+        index();
+    }
+
+    /**
+     * Constructs a {@link StateMachinePool} over the given mapped file, or over a buffer held in memory if the file
+     * is {@code null}. The slots are left as they are in the buffer.
+     *
+     * @param definition The definition holding the transitions that can be performed by the state machines.
+     * @param states     The constants of the state enum indexed by ordinal.
+     * @param capacity   The number of slots in this pool.
+     * @param file       The mapped file holding the header and the slots, or {@code null}.
+     * @param indexed    Whether this pool keeps an index of its slots by state, which is empty until
+     *                   {@link #index()} is called.
+     * @throws IllegalArgumentException If the capacity is negative or too large for the state enum.
+     */
+    private StateMachinePool(final StateMachineDefinition<E, S, T> definition, final S[] states, final int capacity,
+                             final MappedByteBuffer file, final boolean indexed) {
+        this.definition = definition;
+        this.states = states;
+        this.capacity = capacity;
+        this.wide = states.length > MAX_BYTE_STATES;
+        this.file = file;
+        final int size = size(capacity, wide);
+        // The cast binds to ByteBuffer#position(int) as MappedByteBuffer only overrides it as of Java 17.
+        this.slots = file == null ? ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+                : ((ByteBuffer) file).position(HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.population = indexed ? new StatePopulation<>(states, capacity, this::ordinal) : null;
+    }
+
+    /**
+     * Creates a {@link StateMachinePool} whose slots are mapped from the given file. If the file is new or empty,
+     * it is created with {@code capacity} slots all of which start in the given {@code initialState}. Otherwise the
+     * slots of the file are mapped back as they were left, in which case the file must have been created for the
+     * same number of states and the same capacity.
+     * <p>
+     * Transitions are written straight into the mapped file and reach the disk when the operating system writes the
+     * page back, which survives a crash of the process but not of the machine. Use {@link #force()} to write them
+     * to the disk. Changes to the state enum other than appending constants invalidate the stored ordinals.
+     *
+     * @param definition   The definition holding the transitions that can be performed by the state machines.
+     * @param path         The file holding the slots.
+     * @param capacity     The number of slots in this pool.
+     * @param initialState The initial state of every slot of a new file.
+     * @param <E>          The enum type that denotes the events.
+     * @param <S>          The enum type that denotes the states.
+     * @param <T>          The type on which the state machines are operating.
+     * @return The mapped pool.
+     * @throws IOException              If the file cannot be mapped.
+     * @throws IllegalArgumentException If the capacity is negative or too large for the state enum.
+     * @throws IllegalStateException    If the file was not created for the same number of states and capacity.
+     */
+    public static <E extends Enum<E>, S extends Enum<S>, T> StateMachinePool<E, S, T> mapped(
+            final StateMachineDefinition<E, S, T> definition, final Path path, final int capacity,
+            final S initialState) throws IOException {
+        return mapped(definition, path, capacity, initialState, false);
+    }
+
+    /**
+     * Creates a {@link StateMachinePool} whose slots are mapped from the given file like
+     * {@link #mapped(StateMachineDefinition, Path, int, Enum)}, optionally keeping a {@link StatePopulation} index of
+     * the slots by state. The index is held in memory and built from the slots of the file when it is mapped.
+     *
+     * @param definition      The definition holding the transitions that can be performed by the state machines.
+     * @param path            The file holding the slots.
+     * @param capacity        The number of slots in this pool.
+     * @param initialState    The initial state of every slot of a new file.
+     * @param indexPopulation Whether the pool keeps an index of its slots by state.
+     * @param <E>             The enum type that denotes the events.
+     * @param <S>             The enum type that denotes the states.
+     * @param <T>             The type on which the state machines are operating.
+     * @return The mapped pool.
+     * @throws IOException              If the file cannot be mapped.
+     * @throws IllegalArgumentException If the capacity is negative or too large for the state enum.
+     * @throws IllegalStateException    If the file was not created for the same number of states and capacity.
+     */
+    public static <E extends Enum<E>, S extends Enum<S>, T> StateMachinePool<E, S, T> mapped(
+            @NonNull final StateMachineDefinition<E, S, T> definition, @NonNull final Path path, final int capacity,
+            @NonNull final S initialState, final boolean indexPopulation) throws IOException {
+        final S[] states = initialState.getDeclaringClass().getEnumConstants();
+        final long size = HEADER_SIZE + (long) size(capacity, states.length > MAX_BYTE_STATES);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            final long existing = channel.size();
+            if (existing != 0 && existing != size) {
+                throw new IllegalStateException(String.format("File %s of %d bytes does not hold %d slots of %d states",
+                        path, existing, capacity, states.length));
+            }
+            final MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            file.order(ByteOrder.LITTLE_ENDIAN);
+            final int magic = file.getInt(0);
+            if (magic != 0 && (magic != MAGIC || file.getInt(4) != VERSION || file.getInt(8) != states.length
+                    || file.getInt(12) != capacity)) {
+                throw new IllegalStateException(String.format("File %s does not hold %d slots of %d states",
+                        path, capacity, states.length));
+            }
+            final StateMachinePool<E, S, T> pool = new StateMachinePool<>(definition, states, capacity, file,
+                    indexPopulation);
+            if (magic == 0) {
+                // The magic is written last so that a file whose initialization was cut short is initialized again.
+                pool.fill(initialState.ordinal());
+                file.putInt(4, VERSION).putInt(8, states.length).putInt(12, capacity).putInt(0, MAGIC);
+            }
+            pool.index();
+            return pool;
+        }
+    }
+
+    /**
+     * Returns the size in bytes of the given number of slots.
+     *
+     * @param capacity The number of slots.
+     * @param wide     Whether a {@code short} is used per slot.
+     * @return The size of the slots.
+     * @throws IllegalArgumentException If the capacity is negative or the slots do not fit in a buffer.
+     */
+    private static int size(final int capacity, final boolean wide) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(String.format("Capacity %d is negative", capacity));
+        }
+        final long size = wide ? (long) capacity << 1 : capacity;
+        if (size > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IllegalArgumentException(String.format("Capacity %d is too large", capacity));
+        }
+        return (int) size;
+    }
+
+    /**
+     * Writes the slots of a mapped pool to the disk. Does nothing for a pool held in memory.
+     */
+    public void force() {
+        if (file != null) {
+            file.force();
+        }
+    }
+
+    /**
+     * Returns the current state of the given slot.
+     *
+     * @param slot The slot of the state machine.
+     * @return The current state of the slot.
+     */
+    public S getState(final int slot) {
+        return states[ordinal(slot)];
+    }
+
+    /**
+     * Sets the current state of the given slot without performing any transition, e.g. to restore a previously
+     * persisted state.
+     *
+     * @param slot  The slot of the state machine.
+     * @param state The new state of the slot.
+     */
+    public void setState(final int slot, @NonNull final S state) {
+        store(slot, state.ordinal());
+    }
+
+    /**
+     * Returns {@code true} if the given event can be consumed by the state machine in the given slot.
+     * {@code false} otherwise.
+     *
+     * @param slot  The slot of the state machine.
+     * @param event The event which is being consumed.
+     * @return {@code true} if the given event can be consumed. {@code false} otherwise.
+     */
+    public boolean canConsume(final int slot, @NonNull final E event) {
+        return definition.canConsume(states[ordinal(slot)], event);
+    }
+
+    /**
+     * Returns the events that can be consumed by the state machine in the given slot. The returned set is
+     * precomputed by the definition, shared and unmodifiable.
+     *
+     * @param slot The slot of the state machine.
+     * @return The unmodifiable set of the events that can be consumed.
+     */
+    public Set<E> allowedEvents(final int slot) {
+        return definition.allowedEvents(states[ordinal(slot)]);
+    }
+
+    /**
+     * Consumes the given event along with the context information by the state machine in the given slot and
+     * returns the new state of the slot. The {@code before} and {@code after} methods for each
+     * {@link in.at0m.fsm.transition.Action} registered in the {@link Transition} are executed before and after
+     * the transition is completed respectively.
+     *
+     * @param slot    The slot of the state machine.
+     * @param event   The event which is being consumed.
+     * @param context The context information.
+     * @return The new state of the slot.
+     * @throws InvalidTransitionException If the event cannot be consumed. The cached exception of the definition
+     *                                    is thrown if it uses stackless exceptions.
+     */
+    public S consume(final int slot, @NonNull final E event, @NonNull final T context) {
+        final S fromState = states[ordinal(slot)];
+        final Transition<E, S, T> transition = definition.getTransition(fromState, event);
+        if (transition == null) {
+            definition.getMetrics().rejection(fromState, event);
+            throw definition.isStacklessExceptions() ? definition.rejection(fromState, event)
+                    : new InvalidTransitionException(String.format(
+                    "Transition from state %s not valid for event %s in slot %d", fromState, event, slot));
+        }
+        perform(slot, transition, context);
+        return transition.getToState();
+    }
+
+    /**
+     * Consumes the given event by every state machine in this pool that can consume it.
+     *
+     * @param event   The event which is being consumed.
+     * @param context The context information.
+     * @return The number of slots that performed a transition.
+     */
+    public int broadcast(final E event, final T context) {
+        return broadcast(event, 0, capacity, context);
+    }
+
+    /**
+     * Consumes the given event by every state machine in the slots from {@code fromSlot} (inclusive) to
+     * {@code toSlot} (exclusive) that can consume it. Slots that cannot consume the event are left unchanged.
+     *
+     * @param event    The event which is being consumed.
+     * @param fromSlot The first slot, inclusive.
+     * @param toSlot   The last slot, exclusive.
+     * @param context  The context information.
+     * @return The number of slots that performed a transition.
+     * @throws IndexOutOfBoundsException If the range is not within this pool.
+     */
+    public int broadcast(@NonNull final E event, final int fromSlot, final int toSlot, @NonNull final T context) {
+        if (fromSlot < 0 || toSlot > capacity || fromSlot > toSlot) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Range [%d, %d) out of bounds for capacity %d", fromSlot, toSlot, capacity));
+        }
+        @SuppressWarnings("unchecked")
+        final Transition<E, S, T>[] transitions = new Transition[states.length];
+        for (int i = 0; i < states.length; i++) {
+            transitions[i] = definition.getTransition(states[i], event);
+        }
+        int transitioned = 0;
+        for (int slot = fromSlot; slot < toSlot; slot++) {
+            final int ordinal = ordinal(slot);
+            final Transition<E, S, T> transition = transitions[ordinal];
+            if (transition == null) {
+                continue;
+            }
+            perform(slot, transition, context);
+            transitioned++;
+        }
+        return transitioned;
+    }
+
+    /**
+     * Performs the given {@link Transition} for the given slot executing its actions. No {@link ActionContext} is
+     * created for a transition without actions.
+     *
+     * @param slot       The slot of the state machine.
+     * @param transition The transition to perform.
+     * @param context    The context information.
+     */
+    private void perform(final int slot, final Transition<E, S, T> transition, final T context) {
+        if (!transition.hasActions()) {
+            store(slot, transition.getToState().ordinal());
+            definition.getMetrics().transition(transition.getFromState(), transition.getEvent(),
+                    transition.getToState());
+            return;
+        }
+        final ActionContext<E, S, T> actionContext = definition.newActionContext(transition, context);
+        try {
+            definition.before(transition, actionContext);
+            store(slot, transition.getToState().ordinal());
+            definition.getMetrics().transition(transition.getFromState(), transition.getEvent(),
+                    transition.getToState());
+            definition.after(transition, actionContext);
+        } finally {
+            actionContext.release();
+        }
+    }
+
+    /**
+     * Returns the state ordinal stored in the given slot.
+     *
+     * @param slot The slot of the state machine.
+     * @return The state ordinal of the slot.
+     */
+    private int ordinal(final int slot) {
+        return wide ? slots.getShort(slot << 1) & 0xFFFF : slots.get(slot) & 0xFF;
+    }
+
+    /**
+     * Stores the given state ordinal in the given slot, moving the slot to its new state in the index if any.
+     *
+     * @param slot    The slot of the state machine.
+     * @param ordinal The state ordinal to store.
+     */
+    private void store(final int slot, final int ordinal) {
+        if (population != null) {
+            population.move(slot, ordinal(slot), ordinal);
+        }
+        write(slot, ordinal);
+    }
+
+    /**
+     * Writes the given state ordinal in the given slot.
+     *
+     * @param slot    The slot of the state machine.
+     * @param ordinal The state ordinal to write.
+     */
+    private void write(final int slot, final int ordinal) {
+        if (wide) {
+            slots.putShort(slot << 1, (short) ordinal);
+        } else {
+            slots.put(slot, (byte) ordinal);
+        }
+    }
+
+    /**
+     * Stores the given state ordinal in every slot.
+     *
+     * @param ordinal The state ordinal to store.
+     */
+    private void fill(final int ordinal) {
+        for (int slot = 0; slot < capacity; slot++) {
+            write(slot, ordinal);
+        }
+    }
+
+    /**
+     * Adds every slot to the index, if any, in its current state.
+     */
+    private void index() {
+        if (population != null) {
+            for (int slot = 0; slot < capacity; slot++) {
+                population.add(slot, ordinal(slot));
+            }
+        }
+    }
+}
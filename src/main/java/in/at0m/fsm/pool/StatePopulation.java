@@ -0,0 +1,277 @@
+package in.at0m.fsm.pool;
+
+import lombok.NonNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A live index of the slots of a {@link StateMachinePool} by state, maintained as transitions commit. Every state
+ * has a counter and a bitset of its members, one bit per slot, so the number of slots in a state is read in
+ * constant time and the members of a state are listed by skipping the empty words of its bitset. Moving a slot from
+ * one state to another sets its bit in the bitset of the new state, then clears it in the bitset of the old state,
+ * and then increments the counter of the new state and decrements the one of the old state, each with a single
+ * atomic instruction.
+ * <p>
+ * The counters and the members are updated by separate instructions, hence a reader racing with transitions may
+ * briefly see a count that does not match the members, or a slot in two states. {@link #snapshot()} returns a
+ * consistent view instead. The bitsets take {@code capacity / 8} bytes per state.
+ *
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+public class StatePopulation<S extends Enum<S>> {
+
+    /**
+     * Updates the words of the bitsets atomically.
+     */
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * The largest number of times {@link #snapshot()} reads a word of the bitsets before falling back to
+     * {@link #ordinals}.
+     */
+    private static final int MAX_ATTEMPTS = 8;
+
+    /**
+     * The constants of the state enum indexed by ordinal.
+     */
+    private final S[] states;
+
+    /**
+     * The number of slots indexed.
+     */
+    private final int capacity;
+
+    /**
+     * The number of slots in every state indexed by ordinal.
+     */
+    private final AtomicIntegerArray counts;
+
+    /**
+     * The bitset of the slots in every state indexed by ordinal, bit {@code slot % 64} of word {@code slot / 64}
+     * being set if the slot is in the state.
+     */
+    private final long[][] members;
+
+    /**
+     * Returns the state ordinal stored by the pool in a slot.
+     */
+    private final IntUnaryOperator ordinals;
+
+    /**
+     * Constructs an empty {@link StatePopulation}.
+     *
+     * @param states   The constants of the state enum indexed by ordinal.
+     * @param capacity The number of slots indexed.
+     * @param ordinals Returns the state ordinal stored by the pool in a slot.
+     */
+    StatePopulation(final S[] states, final int capacity, final IntUnaryOperator ordinals) {
+        this.states = states;
+        this.capacity = capacity;
+        this.counts = new AtomicIntegerArray(states.length);
+        this.members = new long[states.length][(capacity + Long.SIZE - 1) / Long.SIZE];
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * Adds the given slot to the given state. Only called while the pool is being created.
+     *
+     * @param slot    The slot.
+     * @param ordinal The ordinal of the state of the slot.
+     */
+    void add(final int slot, final int ordinal) {
+        WORDS.getAndBitwiseOr(members[ordinal], slot >>> 6, 1L << slot);
+        counts.incrementAndGet(ordinal);
+    }
+
+    /**
+     * Moves the given slot from a state to another. The slot is added to the new state before being removed from the
+     * old one, so it is never missing from both.
+     *
+     * @param slot The slot.
+     * @param from The ordinal of the state the slot leaves.
+     * @param to   The ordinal of the state the slot enters.
+     */
+    void move(final int slot, final int from, final int to) {
+        if (from == to) {
+            return;
+        }
+        WORDS.getAndBitwiseOr(members[to], slot >>> 6, 1L << slot);
+        WORDS.getAndBitwiseAnd(members[from], slot >>> 6, ~(1L << slot));
+        counts.incrementAndGet(to);
+        counts.decrementAndGet(from);
+    }
+
+    /**
+     * Returns the number of slots in the given state.
+     *
+     * @param state The state.
+     * @return The number of slots in the state.
+     */
+    public int getCount(@NonNull final S state) {
+        return counts.get(state.ordinal());
+    }
+
+    /**
+     * Returns {@code true} if the given slot is in the given state. {@code false} otherwise.
+     *
+     * @param state The state.
+     * @param slot  The slot.
+     * @return {@code true} if the slot is in the state. {@code false} otherwise.
+     */
+    public boolean contains(@NonNull final S state, final int slot) {
+        return ((long) WORDS.getVolatile(members[state.ordinal()], slot >>> 6) & 1L << slot) != 0;
+    }
+
+    /**
+     * Calls the given consumer with every slot in the given state, in ascending order.
+     *
+     * @param state    The state.
+     * @param consumer The consumer of the slots.
+     */
+    public void forEachMember(@NonNull final S state, @NonNull final IntConsumer consumer) {
+        final long[] bits = members[state.ordinal()];
+        for (int word = 0; word < bits.length; word++) {
+            for (long value = (long) WORDS.getVolatile(bits, word); value != 0; value &= value - 1) {
+                consumer.accept(word << 6 | Long.numberOfTrailingZeros(value));
+            }
+        }
+    }
+
+    /**
+     * Returns a consistent snapshot of the population, where every slot is in exactly one state and the counts match
+     * the members. Every slot is reported in a state it was in while the snapshot was taken; if no transition
+     * commits meanwhile, the snapshot is exact. The bitsets are copied a word at a time across all the states, and a
+     * word is read again if it holds a slot caught between entering its new state and leaving its old one. A word
+     * still inconsistent after {@link #MAX_ATTEMPTS} reads, because its slots keep moving, is rebuilt from the state
+     * ordinals stored by the pool, one slot at a time, which bounds the time taken by a snapshot. The state read from
+     * the pool for a slot is the last one stored in it as seen by the calling thread.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot<S> snapshot() {
+        final int words = (capacity + Long.SIZE - 1) / Long.SIZE;
+        final long[][] copy = new long[states.length][words];
+        for (int word = 0; word < words; word++) {
+            final int bits = Math.min(Long.SIZE, capacity - (word << 6));
+            if (!copy(copy, word, -1L >>> (Long.SIZE - bits), bits)) {
+                for (int state = 0; state < states.length; state++) {
+                    copy[state][word] = 0;
+                }
+                for (int slot = word << 6; slot < (word << 6) + bits; slot++) {
+                    copy[ordinals.applyAsInt(slot)][word] |= 1L << slot;
+                }
+            }
+        }
+        return new Snapshot<>(states, copy);
+    }
+
+    /**
+     * Copies the given word of the bitsets of all the states until every slot of the word is in exactly one state,
+     * at most {@link #MAX_ATTEMPTS} times.
+     *
+     * @param copy  The copy of the bitsets.
+     * @param word  The index of the word.
+     * @param valid The bits of the word that stand for slots.
+     * @param bits  The number of slots of the word.
+     * @return {@code true} if the copy is consistent. {@code false} otherwise.
+     */
+    private boolean copy(final long[][] copy, final int word, final long valid, final int bits) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long union = 0;
+            int total = 0;
+            for (int state = 0; state < states.length; state++) {
+                final long value = (long) WORDS.getVolatile(members[state], word);
+                copy[state][word] = value;
+                union |= value;
+                total += Long.bitCount(value);
+            }
+            if (union == valid && total == bits) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An immutable snapshot of a {@link StatePopulation}.
+     *
+     * @param <S> The enum type that denotes the states.
+     * @author shubhdarlinge
+     */
+    public static final class Snapshot<S extends Enum<S>> {
+
+        /**
+         * The constants of the state enum indexed by ordinal.
+         */
+        private final S[] states;
+
+        /**
+         * The bitset of the slots in every state indexed by ordinal.
+         */
+        private final long[][] members;
+
+        /**
+         * The number of slots in every state indexed by ordinal.
+         */
+        private final int[] counts;
+
+        private Snapshot(final S[] states, final long[][] members) {
+            this.states = states;
+            this.members = members;
+            this.counts = new int[states.length];
+            for (int state = 0; state < states.length; state++) {
+                for (final long value : members[state]) {
+                    counts[state] += Long.bitCount(value);
+                }
+            }
+        }
+
+        /**
+         * Returns the number of slots in the given state.
+         *
+         * @param state The state.
+         * @return The number of slots in the state.
+         */
+        public int getCount(@NonNull final S state) {
+            return counts[state.ordinal()];
+        }
+
+        /**
+         * Returns the state of the given slot.
+         *
+         * @param slot The slot.
+         * @return The state of the slot.
+         */
+        public S getState(final int slot) {
+            for (int state = 0; state < states.length; state++) {
+                if ((members[state][slot >>> 6] & 1L << slot) != 0) {
+                    return states[state];
+                }
+            }
+            throw new IndexOutOfBoundsException(String.format("Slot %d out of bounds", slot));
+        }
+
+        /**
+         * Returns the slots in the given state, in ascending order.
+         *
+         * @param state The state.
+         * @return The slots in the state.
+         */
+        public int[] members(@NonNull final S state) {
+            final long[] bits = members[state.ordinal()];
+            final int[] slots = new int[counts[state.ordinal()]];
+            int size = 0;
+            for (int word = 0; word < bits.length; word++) {
+                for (long value = bits[word]; value != 0; value &= value - 1) {
+                    slots[size++] = word << 6 | Long.numberOfTrailingZeros(value);
+                }
+            }
+            return slots;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package in.at0m.fsm.registry;
+
+import in.at0m.fsm.SimpleStateMachine;
+import in.at0m.fsm.StateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the state machines of a population of entities keyed by entity id, creating them lazily from a shared
+ * {@link StateMachineDefinition} and the states loaded by a {@link StateStore}. The keys are spread over
+ * {@code stripes} independent stripes, each guarded by its own lock and kept in least recently used order, so
+ * operations on keys of different stripes run in parallel whereas operations on the same key are serialized.
+ * Actions run while holding the lock of the stripe, hence block the other keys of the same stripe.
+ * <p>
+ * Memory is bounded in two ways. Every stripe holds at most its share of {@code maximumSize} machines and drops its
+ * least recently used machine once it is full, and machines that were not used for {@code idleTimeout} are dropped
+ * whenever their stripe is used, or by {@link #evictIdle()}. A machine whose state changed since it was loaded is
+ * saved to the store before being dropped.
+ *
+ * @param <K> The type of the key identifying the state machine.
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machines are operating.
+ * @author shubhdarlinge
+ */
+public class StateMachineRegistry<K, E extends Enum<E>, S extends Enum<S>, T> {
+
+    /**
+     * The default number of stripes.
+     */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /**
+     * The definition shared by the state machines.
+     */
+    private final StateMachineDefinition<E, S, T> definition;
+
+    /**
+     * Loads the states of absent machines and saves the states of dropped machines.
+     */
+    private final StateStore<K, S> store;
+
+    /**
+     * The state of the machines unknown to the store.
+     */
+    private final S initialState;
+
+    /**
+     * The largest number of machines held by a stripe.
+     */
+    private final long stripeCapacity;
+
+    /**
+     * The time in milliseconds after which an unused machine is dropped.
+     */
+    private final long idleMillis;
+
+    /**
+     * Returns the current time in milliseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The stripes the keys are spread over.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * The number of lookups that found the machine in this registry.
+     */
+    private final LongAdder hits;
+
+    /**
+     * The number of lookups that loaded the machine from the store.
+     */
+    private final LongAdder misses;
+
+    /**
+     * The number of machines dropped from this registry.
+     */
+    private final LongAdder evictions;
+
+    /**
+     * Constructs a {@link StateMachineRegistry} with {@value #DEFAULT_STRIPES} stripes reading the time from
+     * {@link System#nanoTime()}.
+     *
+     * @param definition   The definition shared by the state machines.
+     * @param store        Loads the states of absent machines and saves the states of dropped machines.
+     * @param initialState The state of the machines unknown to the store.
+     * @param maximumSize  The largest number of machines held, approximately since every stripe holds its share.
+     * @param idleTimeout  The duration after which an unused machine is dropped. If {@code null}, machines are only
+     *                     dropped once a stripe is full.
+     */
+    public StateMachineRegistry(final StateMachineDefinition<E, S, T> definition, final StateStore<K, S> store,
+                                final S initialState, final long maximumSize, final Duration idleTimeout) {
+        this(definition, store, initialState, maximumSize, idleTimeout, DEFAULT_STRIPES, null);
+    }
+
+    /**
+     * Constructs a {@link StateMachineRegistry}.
+     *
+     * @param definition   The definition shared by the state machines.
+     * @param store        Loads the states of absent machines and saves the states of dropped machines.
+     * @param initialState The state of the machines unknown to the store.
+     * @param maximumSize  The largest number of machines held, approximately since every stripe holds its share.
+     * @param idleTimeout  The duration after which an unused machine is dropped. If {@code null}, machines are only
+     *                     dropped once a stripe is full.
+     * @param stripes      The number of stripes the keys are spread over. If {@code 0}, e.g. when left unset in
+     *                     the builder, {@value #DEFAULT_STRIPES} stripes are used.
+     * @param clock        Returns the current time in milliseconds. If {@code null}, the time is read from
+     *                     {@link System#nanoTime()}.
+     * @throws IllegalArgumentException If the maximum size or the idle timeout is not positive, or if the number of
+     *                                  stripes is negative.
+     */
+    @SuppressWarnings("unchecked")
+    @lombok.Builder(builderClassName = "Builder")
+    public StateMachineRegistry(@NonNull final StateMachineDefinition<E, S, T> definition,
+                                @NonNull final StateStore<K, S> store, @NonNull final S initialState,
+                                final long maximumSize, final Duration idleTimeout, final int stripes,
+                                final LongSupplier clock) {
+        if (maximumSize <= 0 || stripes < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Maximum size %d must be positive and stripes %d must not be negative", maximumSize, stripes));
+        }
+        if (idleTimeout != null && (idleTimeout.isNegative() || idleTimeout.isZero())) {
+            throw new IllegalArgumentException(String.format("Idle timeout %s is not positive", idleTimeout));
+        }
+        this.definition = definition;
+        this.store = store;
+        this.initialState = initialState;
+        final int stripeCount = stripes == 0 ? DEFAULT_STRIPES : stripes;
+        this.stripeCapacity = maximumSize / stripeCount + (maximumSize % stripeCount == 0 ? 0 : 1);
+        this.idleMillis = idleTimeout == null ? Long.MAX_VALUE : idleTimeout.toMillis();
+        this.clock = clock != null ? clock : () -> System.nanoTime() / 1_000_000L;
+        this.stripes = new StateMachineRegistry.Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * Returns the current state of the machine identified by the given key, loading it if it is absent.
+     *
+     * @param key The key of the state machine.
+     * @return The current state of the machine.
+     */
+    public S getCurrentState(@NonNull final K key) {
+        final Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            return acquire(stripe, key).machine.getCurrentState();
+        }
+    }
+
+    /**
+     * Checks whether the machine identified by the given key can consume the given event, loading it if it is
+     * absent.
+     *
+     * @param key   The key of the state machine.
+     * @param event The event which is to be checked.
+     * @return {@code true} if the event can be consumed in the current state of the machine. {@code false}
+     * otherwise.
+     */
+    public boolean canConsume(@NonNull final K key, @NonNull final E event) {
+        final Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            return acquire(stripe, key).machine.canConsume(event);
+        }
+    }
+
+    /**
+     * Consumes the given event along with the context information with the machine identified by the given key,
+     * loading it if it is absent.
+     *
+     * @param key     The key of the state machine.
+     * @param event   The event which is being consumed.
+     * @param context The context information.
+     * @return The new state of the machine.
+     * @throws in.at0m.fsm.exception.InvalidTransitionException If the event cannot be consumed in the current state.
+     * @see StateMachine#consume(Enum, Object)
+     */
+    public S consume(@NonNull final K key, @NonNull final E event, final T context) {
+        final Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            final Entry entry = acquire(stripe, key);
+            final S fromState = entry.machine.getCurrentState();
+            try {
+                return entry.machine.consume(event, context);
+            } finally {
+                markDirty(entry, fromState);
+            }
+        }
+    }
+
+    /**
+     * Consumes the given event along with the context information with the machine identified by the given key,
+     * loading it if it is absent. Unlike {@link #consume(Object, Enum, Object)}, an event that cannot be consumed is
+     * reported with a {@code null} result instead of an exception.
+     *
+     * @param key     The key of the state machine.
+     * @param event   The event which is being consumed.
+     * @param context The context information.
+     * @return The new state of the machine, or {@code null} if the event cannot be consumed in the current state.
+     * @see StateMachine#tryConsume(Enum, Object)
+     */
+    public S tryConsume(@NonNull final K key, @NonNull final E event, final T context) {
+        final Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            final Entry entry = acquire(stripe, key);
+            final S fromState = entry.machine.getCurrentState();
+            try {
+                return entry.machine.tryConsume(event, context);
+            } finally {
+                markDirty(entry, fromState);
+            }
+        }
+    }
+
+    /**
+     * Marks the given entry as needing to be saved if its machine left the given state. Called even if consuming
+     * threw, since an {@code after} action may throw once the transition is committed.
+     *
+     * @param entry     The entry of the machine.
+     * @param fromState The state of the machine before consuming.
+     */
+    private void markDirty(final Entry entry, final S fromState) {
+        if (entry.machine.getCurrentState() != fromState) {
+            entry.dirty = true;
+        }
+    }
+
+    /**
+     * Drops the machine identified by the given key, saving its state first if it changed since the machine was
+     * loaded.
+     *
+     * @param key The key of the state machine.
+     * @return {@code true} if the machine was held by this registry. {@code false} otherwise.
+     */
+    public boolean evict(@NonNull final K key) {
+        final Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            final Entry entry = stripe.get(key);
+            if (entry == null) {
+                return false;
+            }
+            save(key, entry);
+            stripe.remove(key);
+            evictions.increment();
+            return true;
+        }
+    }
+
+    /**
+     * Drops every machine that was not used for the idle timeout, saving the states of the machines that consumed
+     * an event since they were loaded.
+     *
+     * @return The number of machines dropped.
+     */
+    public int evictIdle() {
+        final long now = clock.getAsLong();
+        int evicted = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                evicted += trim(stripe, now);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Saves the states of the machines whose state changed since they were loaded or last saved, without dropping
+     * any machine.
+     *
+     * @return The number of states saved.
+     */
+    public int flush() {
+        int saved = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (final Map.Entry<K, Entry> entry : stripe.entrySet()) {
+                    if (save(entry.getKey(), entry.getValue())) {
+                        saved++;
+                    }
+                }
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Returns the number of machines held by this registry.
+     *
+     * @return The number of machines held.
+     */
+    public int size() {
+        int size = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups that found the machine in this registry.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that loaded the machine from the store.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of machines dropped from this registry, whether they were idle, least recently used or
+     * evicted explicitly.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the stripe holding the given key.
+     *
+     * @param key The key of the state machine.
+     * @return The stripe of the key.
+     */
+    private Stripe stripe(final K key) {
+        final int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    /**
+     * Returns the machine identified by the given key, loading it if it is absent and dropping the idle and least
+     * recently used machines of the stripe to make room for it. Must be called while holding the lock of the stripe.
+     *
+     * @param stripe The stripe of the key.
+     * @param key    The key of the state machine.
+     * @return The entry of the machine, marked as the most recently used one.
+     */
+    private Entry acquire(final Stripe stripe, final K key) {
+        final long now = clock.getAsLong();
+        Entry entry = stripe.get(key);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            final S state = store.load(key);
+            entry = new Entry(definition.newStateMachine(state != null ? state : initialState));
+            stripe.put(key, entry);
+        }
+        entry.lastAccess = now;
+        trim(stripe, now);
+        return entry;
+    }
+
+    /**
+     * Drops the least recently used machines of the given stripe while it holds more than its share of the
+     * maximum size or they were not used for the idle timeout. Must be called while holding the lock of the stripe.
+     *
+     * @param stripe The stripe.
+     * @param now    The current time in milliseconds.
+     * @return The number of machines dropped.
+     */
+    private int trim(final Stripe stripe, final long now) {
+        int evicted = 0;
+        final Iterator<Map.Entry<K, Entry>> iterator = stripe.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<K, Entry> eldest = iterator.next();
+            if (stripe.size() <= stripeCapacity && now - eldest.getValue().lastAccess < idleMillis) {
+                break;
+            }
+            save(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+            evictions.increment();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Saves the state of the given machine if it changed since the machine was loaded or last saved.
+     *
+     * @param key   The key of the state machine.
+     * @param entry The entry of the machine.
+     * @return {@code true} if the state was saved. {@code false} otherwise.
+     */
+    private boolean save(final K key, final Entry entry) {
+        if (!entry.dirty) {
+            return false;
+        }
+        store.save(key, entry.machine.getCurrentState());
+        entry.dirty = false;
+        return true;
+    }
+
+    /**
+     * The machines of a stripe in least recently used order.
+     */
+    private final class Stripe extends LinkedHashMap<K, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private Stripe() {
+            super(16, 0.75f, true);
+        }
+    }
+
+    /**
+     * A machine held by the registry.
+     */
+    private final class Entry {
+
+        /**
+         * The state machine.
+         */
+        private final SimpleStateMachine<E, S, T> machine;
+
+        /**
+         * The time in milliseconds the machine was last used.
+         */
+        private long lastAccess;
+
+        /**
+         * Indicates whether the state of the machine changed since it was loaded or last saved.
+         */
+        private boolean dirty;
+
+        private Entry(final SimpleStateMachine<E, S, T> machine) {
+            this.machine = machine;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package in.at0m.fsm.registry;
+
+/**
+ * Loads and saves the states of the machines held by a {@link StateMachineRegistry}, e.g. from and to a database.
+ * The registry loads the state of a machine the first time it is looked up after being absent, and saves it back
+ * before dropping the machine if its state changed since it was loaded.
+ *
+ * @param <K> The type of the key identifying the state machine.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+public interface StateStore<K, S extends Enum<S>> {
+
+    /**
+     * Loads the state of the machine identified by the given key.
+     *
+     * @param key The key of the state machine.
+     * @return The state of the machine, or {@code null} if the machine is unknown, in which case it starts in the
+     * initial state of the registry.
+     */
+    S load(K key);
+
+    /**
+     * Saves the state of the machine identified by the given key.
+     *
+     * @param key   The key of the state machine.
+     * @param state The state of the machine.
+     */
+    void save(K key, S state);
+}
@@ -0,0 +1,314 @@
+package in.at0m.fsm.replay;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.transition.Transition;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the state reached after a long sequence of events without running any action, in parallel. Every event
+ * maps each state to its next state, with events that cannot be consumed leading to an absorbing sink. These maps
+ * compose associatively, hence the sequence is split into chunks that are reduced concurrently on a
+ * {@link ForkJoinPool} into the map of every chunk, and the maps are then composed in order.
+ * <p>
+ * Reducing a chunk tracks where every state goes, but states that reach the same state or the sink are merged, so
+ * the work per event quickly drops to the number of distinct states still in flight, which is usually one or two.
+ * Events that permute the states never merge them though, in which case a chunk costs as many walks as there are
+ * states and the parallel reduction only pays off with more threads than states.
+ * <p>
+ * Sequences of at most {@code chunkSize} events, and every sequence if the pool has a parallelism of one, are walked
+ * on the calling thread from the initial state only.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+public class FastForwarder<E extends Enum<E>, S extends Enum<S>> {
+
+    /**
+     * The number of events reduced by a single task by default.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    /**
+     * The constants of the state enum indexed by ordinal.
+     */
+    private final S[] states;
+
+    /**
+     * The ordinal of the next state indexed by event ordinal and then by state ordinal, or {@link #sink} if the
+     * event cannot be consumed in the state.
+     */
+    private final int[][] successors;
+
+    /**
+     * The ordinal standing for the sink, reached once an event cannot be consumed.
+     */
+    private final int sink;
+
+    /**
+     * The pool on which the chunks are reduced.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The number of events reduced by a single task.
+     */
+    private final int chunkSize;
+
+    /**
+     * Constructs a {@link FastForwarder} reducing chunks of {@link #DEFAULT_CHUNK_SIZE} events on the common
+     * {@link ForkJoinPool}.
+     *
+     * @param definition The definition holding the transitions.
+     * @param stateType  The enum type that denotes the states.
+     * @param eventType  The enum type that denotes the events.
+     */
+    public FastForwarder(final StateMachineDefinition<E, S, ?> definition, final Class<S> stateType,
+                         final Class<E> eventType) {
+        this(definition, stateType, eventType, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a {@link FastForwarder}.
+     *
+     * @param definition The definition holding the transitions.
+     * @param stateType  The enum type that denotes the states.
+     * @param eventType  The enum type that denotes the events.
+     * @param pool       The pool on which the chunks are reduced.
+     * @param chunkSize  The number of events reduced by a single task.
+     * @throws IllegalArgumentException If the chunk size is not positive.
+     */
+    public FastForwarder(@NonNull final StateMachineDefinition<E, S, ?> definition,
+                         @NonNull final Class<S> stateType, @NonNull final Class<E> eventType,
+                         @NonNull final ForkJoinPool pool, final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException(String.format("Chunk size %d is not positive", chunkSize));
+        }
+        this.states = stateType.getEnumConstants();
+        this.sink = states.length;
+        this.successors = new int[eventType.getEnumConstants().length][states.length];
+        for (final int[] row : successors) {
+            Arrays.fill(row, sink);
+        }
+        for (final Transition<E, S, ?> transition : definition.getTransitions()) {
+            successors[transition.getEvent().ordinal()][transition.getFromState().ordinal()]
+                    = transition.getToState().ordinal();
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the state reached by consuming the given events in order from the given initial state, without
+     * running any action.
+     *
+     * @param initialState The state before the first event.
+     * @param events       The events to consume.
+     * @return The final state, or {@code null} if one of the events cannot be consumed. {@link #dryRun(Enum, Enum[])}
+     * locates that event.
+     */
+    public S fastForward(@NonNull final S initialState, @NonNull final E[] events) {
+        final int state = reduce(initialState, events)[0];
+        return state == sink ? null : states[state];
+    }
+
+    /**
+     * Returns the index of the first of the given events that cannot be consumed when they are consumed in order
+     * from the given initial state, without running any action.
+     *
+     * @param initialState The state before the first event.
+     * @param events       The events to consume.
+     * @return The index of the first event that cannot be consumed, or {@code -1} if every event can be consumed.
+     */
+    public int dryRun(@NonNull final S initialState, @NonNull final E[] events) {
+        return reduce(initialState, events)[1];
+    }
+
+    /**
+     * Consumes the given events from the given initial state.
+     *
+     * @param initialState The state before the first event.
+     * @param events       The events to consume.
+     * @return The ordinal of the final state or {@link #sink}, followed by the index of the first event that cannot
+     * be consumed or {@code -1}.
+     */
+    private int[] reduce(final S initialState, final E[] events) {
+        int state = initialState.ordinal();
+        if (events.length <= chunkSize || pool.getParallelism() == 1) {
+            for (int i = 0; i < events.length; i++) {
+                state = successors[events[i].ordinal()][state];
+                if (state == sink) {
+                    return new int[]{sink, i};
+                }
+            }
+            return new int[]{state, -1};
+        }
+        final Segment segment = pool.invoke(new Reduction(events, 0, events.length));
+        return new int[]{segment.map[state], segment.firstInvalid[state]};
+    }
+
+    /**
+     * The effect of a range of events on every state.
+     */
+    private final class Segment {
+
+        /**
+         * The ordinal of the state reached from every state, or {@link #sink}.
+         */
+        private final int[] map;
+
+        /**
+         * The index of the first event that cannot be consumed from every state, or {@code -1}.
+         */
+        private final int[] firstInvalid;
+
+        private Segment(final int[] map, final int[] firstInvalid) {
+            this.map = map;
+            this.firstInvalid = firstInvalid;
+        }
+
+        /**
+         * Composes this segment with the segment of the events that follow it. This segment is overwritten.
+         *
+         * @param next The segment of the events that follow this segment.
+         * @return This segment, now covering the events of both segments.
+         */
+        private Segment then(final Segment next) {
+            for (int state = 0; state < map.length; state++) {
+                final int reached = map[state];
+                if (reached != sink) {
+                    map[state] = next.map[reached];
+                    firstInvalid[state] = next.firstInvalid[reached];
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Reduces a range of events into its {@link Segment}, splitting it until it is at most a chunk.
+     */
+    private final class Reduction extends RecursiveTask<Segment> {
+
+        /**
+         * The events being reduced.
+         */
+        private final E[] events;
+
+        /**
+         * The first event of the range, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The last event of the range, exclusive.
+         */
+        private final int to;
+
+        private Reduction(final E[] events, final int from, final int to) {
+            this.events = events;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Segment compute() {
+            if (to - from <= chunkSize) {
+                return chunk();
+            }
+            final int middle = (from + to) >>> 1;
+            final Reduction left = new Reduction(events, from, middle);
+            left.fork();
+            final Segment right = new Reduction(events, middle, to).compute();
+            return left.join().then(right);
+        }
+
+        /**
+         * Reduces the range of events by tracking the groups of states that have reached the same state. Groups
+         * are merged when they reach the same state and dropped when they reach the sink.
+         *
+         * @return The segment of the range.
+         */
+        private Segment chunk() {
+            final int count = states.length;
+            // The group of every state, or -1 once it reached the sink. Turned into the map of the segment.
+            final int[] group = new int[count];
+            // The state reached by every group.
+            final int[] value = new int[count];
+            final int[] firstInvalid = new int[count];
+            // The index of the event at which a state was last reached, negated once it is claimed by a group.
+            final int[] mark = new int[count];
+            final int[] owner = new int[count];
+            final int[] remap = new int[count];
+            for (int state = 0; state < count; state++) {
+                group[state] = state;
+                value[state] = state;
+            }
+            Arrays.fill(firstInvalid, -1);
+            int groups = count;
+            for (int i = from; i < to && groups > 0; i++) {
+                final int[] row = successors[events[i].ordinal()];
+                final int stamp = i + 1;
+                boolean collapsed = false;
+                for (int g = 0; g < groups; g++) {
+                    final int reached = row[value[g]];
+                    value[g] = reached;
+                    if (reached == sink || mark[reached] == stamp) {
+                        collapsed = true;
+                    } else {
+                        mark[reached] = stamp;
+                    }
+                }
+                if (collapsed) {
+                    groups = collapse(value, groups, mark, owner, remap, stamp);
+                    for (int state = 0; state < count; state++) {
+                        if (group[state] >= 0) {
+                            group[state] = remap[group[state]];
+                            if (group[state] < 0) {
+                                firstInvalid[state] = i;
+                            }
+                        }
+                    }
+                }
+            }
+            for (int state = 0; state < count; state++) {
+                group[state] = group[state] < 0 ? sink : value[group[state]];
+            }
+            return new Segment(group, firstInvalid);
+        }
+
+        /**
+         * Merges the groups that reached the same state and drops the groups that reached the sink.
+         *
+         * @param value  The state reached by every group, compacted in place.
+         * @param groups The number of groups.
+         * @param mark   The index of the event at which a state was last reached.
+         * @param owner  The new group of every claimed state.
+         * @param remap  Receives the new group of every group, or {@code -1} if it reached the sink.
+         * @param stamp  The mark of the current event.
+         * @return The number of remaining groups.
+         */
+        private int collapse(final int[] value, final int groups, final int[] mark, final int[] owner,
+                             final int[] remap, final int stamp) {
+            int kept = 0;
+            for (int g = 0; g < groups; g++) {
+                final int reached = value[g];
+                if (reached == sink) {
+                    remap[g] = -1;
+                } else if (mark[reached] == stamp) {
+                    mark[reached] = -stamp;
+                    owner[reached] = kept;
+                    remap[g] = kept;
+                    value[kept++] = reached;
+                } else {
+                    remap[g] = owner[reached];
+                }
+            }
+            return kept;
+        }
+    }
+}
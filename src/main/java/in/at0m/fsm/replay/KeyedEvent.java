@@ -0,0 +1,36 @@
+package in.at0m.fsm.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An event addressed to the state machine of a particular entity, along with its context information.
+ *
+ * @param <K> The type of the key identifying the entity.
+ * @param <E> The enum type that denotes the events.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+@Getter
+@AllArgsConstructor
+public class KeyedEvent<K, E extends Enum<E>, T> {
+
+    /**
+     * The key of the entity whose state machine consumes the event.
+     */
+    @NonNull
+    private final K key;
+
+    /**
+     * The event which is to be consumed.
+     */
+    @NonNull
+    private final E event;
+
+    /**
+     * The context information with which the event is to be consumed.
+     */
+    @NonNull
+    private final T context;
+}
@@ -0,0 +1,204 @@
+package in.at0m.fsm.replay;
+
+import in.at0m.fsm.SimpleStateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Replays a keyed event stream against the state machines of many entities in parallel. The stream is read in
+ * chunks and every chunk is partitioned by key; the partitions are then driven concurrently on a
+ * {@link ForkJoinPool}. An entity always falls in the same partition, so its events are consumed in stream order.
+ * <p>
+ * Events that cannot be consumed are collected as {@link RejectedEvent}(s) instead of throwing an
+ * {@link in.at0m.fsm.exception.InvalidTransitionException}. The actions of the transitions are executed as usual,
+ * concurrently for entities of different partitions.
+ *
+ * @param <K> The type of the key identifying the entity.
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machines are operating.
+ * @author shubhdarlinge
+ */
+public class ParallelReplayer<K, E extends Enum<E>, S extends Enum<S>, T> {
+
+    /**
+     * The number of events read from the stream before they are dispatched to the partitions by default.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The definition shared by the state machines of all the entities.
+     */
+    private final StateMachineDefinition<E, S, T> definition;
+
+    /**
+     * Provides the state of an entity before its first event in the stream.
+     */
+    private final Function<K, S> initialStates;
+
+    /**
+     * The pool on which the partitions are driven.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The number of partitions the stream is split into.
+     */
+    private final int partitions;
+
+    /**
+     * The number of events read from the stream before they are dispatched to the partitions.
+     */
+    private final int chunkSize;
+
+    /**
+     * Constructs a {@link ParallelReplayer} running on the common {@link ForkJoinPool} with one partition per
+     * worker thread.
+     *
+     * @param definition    The definition shared by the state machines of all the entities.
+     * @param initialStates Provides the state of an entity before its first event in the stream.
+     */
+    public ParallelReplayer(final StateMachineDefinition<E, S, T> definition, final Function<K, S> initialStates) {
+        this(definition, initialStates, ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism(),
+                DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a {@link ParallelReplayer}.
+     *
+     * @param definition    The definition shared by the state machines of all the entities.
+     * @param initialStates Provides the state of an entity before its first event in the stream.
+     * @param pool          The pool on which the partitions are driven.
+     * @param partitions    The number of partitions the stream is split into.
+     * @param chunkSize     The number of events read from the stream before they are dispatched to the partitions.
+     * @throws IllegalArgumentException If the number of partitions or the chunk size is not positive.
+     */
+    public ParallelReplayer(@NonNull final StateMachineDefinition<E, S, T> definition,
+                            @NonNull final Function<K, S> initialStates,
+                            @NonNull final ForkJoinPool pool, final int partitions, final int chunkSize) {
+        if (partitions <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Partitions %d and chunk size %d must be positive", partitions, chunkSize));
+        }
+        this.definition = definition;
+        this.initialStates = initialStates;
+        this.pool = pool;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Replays the given stream of events and returns the final state of every entity along with the events that
+     * could not be consumed.
+     *
+     * @param events The stream of events to replay.
+     * @return The outcome of the replay.
+     */
+    public ReplayResult<K, E, S> replay(@NonNull final Iterable<KeyedEvent<K, E, T>> events) {
+        final List<Partition> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            tasks.add(new Partition());
+        }
+        final Iterator<KeyedEvent<K, E, T>> iterator = events.iterator();
+        long index = 0;
+        while (iterator.hasNext()) {
+            for (int read = 0; read < chunkSize && iterator.hasNext(); read++, index++) {
+                final KeyedEvent<K, E, T> event = iterator.next();
+                tasks.get(partition(event.getKey())).add(index, event);
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+            });
+            tasks.forEach(Partition::reinitialize);
+        }
+        final Map<K, S> finalStates = new HashMap<>();
+        final List<RejectedEvent<K, E, S>> rejectedEvents = new ArrayList<>();
+        for (final Partition task : tasks) {
+            task.machines.forEach((key, machine) -> finalStates.put(key, machine.getCurrentState()));
+            rejectedEvents.addAll(task.rejectedEvents);
+        }
+        rejectedEvents.sort(Comparator.comparingLong(RejectedEvent::getIndex));
+        return new ReplayResult<>(finalStates, rejectedEvents);
+    }
+
+    /**
+     * Returns the partition of the given key.
+     *
+     * @param key The key of the entity.
+     * @return The index of the partition.
+     */
+    private int partition(final K key) {
+        final int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+    /**
+     * A partition of the stream. It owns the state machines of its entities and buffers the events of the
+     * current chunk addressed to them.
+     */
+    private final class Partition extends RecursiveAction {
+
+        /**
+         * The state machines of the entities of this partition.
+         */
+        private final Map<K, SimpleStateMachine<E, S, T>> machines = new HashMap<>();
+
+        /**
+         * The events of this partition that could not be consumed.
+         */
+        private final List<RejectedEvent<K, E, S>> rejectedEvents = new ArrayList<>();
+
+        /**
+         * The events of the current chunk addressed to this partition.
+         */
+        private final List<KeyedEvent<K, E, T>> buffer = new ArrayList<>();
+
+        /**
+         * The stream positions of the buffered events.
+         */
+        private long[] indexes = new long[16];
+
+        /**
+         * Buffers the given event of the current chunk.
+         *
+         * @param index The position of the event in the stream.
+         * @param event The event to buffer.
+         */
+        private void add(final long index, final KeyedEvent<K, E, T> event) {
+            if (buffer.size() == indexes.length) {
+                indexes = Arrays.copyOf(indexes, indexes.length * 2);
+            }
+            indexes[buffer.size()] = index;
+            buffer.add(event);
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = 0; i < buffer.size(); i++) {
+                final KeyedEvent<K, E, T> event = buffer.get(i);
+                final SimpleStateMachine<E, S, T> machine = machines.computeIfAbsent(
+                        event.getKey(), key -> definition.newStateMachine(initialStates.apply(key)));
+                if (machine.tryConsume(event.getEvent(), event.getContext()) == null) {
+                    rejectedEvents.add(new RejectedEvent<>(
+                            indexes[i], event.getKey(), event.getEvent(), machine.getCurrentState()));
+                }
+            }
+            buffer.clear();
+        }
+    }
+}
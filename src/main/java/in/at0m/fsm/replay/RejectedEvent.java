@@ -0,0 +1,39 @@
+package in.at0m.fsm.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * An event of a replay that could not be consumed by the state machine it was addressed to.
+ *
+ * @param <K> The type of the key identifying the entity.
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RejectedEvent<K, E extends Enum<E>, S extends Enum<S>> {
+
+    /**
+     * The position of the event in the replayed stream, starting at zero.
+     */
+    private final long index;
+
+    /**
+     * The key of the entity whose state machine rejected the event.
+     */
+    private final K key;
+
+    /**
+     * The event which could not be consumed.
+     */
+    private final E event;
+
+    /**
+     * The state in which the event could not be consumed.
+     */
+    private final S state;
+}
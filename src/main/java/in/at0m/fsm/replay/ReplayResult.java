@@ -0,0 +1,30 @@
+package in.at0m.fsm.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of replaying a keyed event stream.
+ *
+ * @param <K> The type of the key identifying the entity.
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+@Getter
+@AllArgsConstructor
+public class ReplayResult<K, E extends Enum<E>, S extends Enum<S>> {
+
+    /**
+     * The final state of every entity that appeared in the stream.
+     */
+    private final Map<K, S> finalStates;
+
+    /**
+     * The events that could not be consumed, in the order in which they appeared in the stream.
+     */
+    private final List<RejectedEvent<K, E, S>> rejectedEvents;
+}
@@ -0,0 +1,124 @@
+package in.at0m.fsm.timeout;
+
+import in.at0m.fsm.transition.Transition;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Declares the timeouts of the states of a state machine: the event consumed by a {@link TimedStateMachine} once it
+ * stays in a state for a given duration. A timeout is declared either on a state, in which case it applies whichever
+ * transition enters the state, or on a {@link Transition}, in which case it applies when the state is entered through
+ * that transition and takes precedence over the timeout of the state.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+public class StateTimeouts<E extends Enum<E>, S extends Enum<S>> {
+
+    /**
+     * The timeouts declared on states.
+     */
+    private final Map<S, Timeout<E>> stateTimeouts;
+
+    /**
+     * The timeouts declared on transitions, indexed by the state and then by the event of the transition.
+     */
+    private final Map<S, Map<E, Timeout<E>>> transitionTimeouts;
+
+    /**
+     * Constructs a {@link StateTimeouts} without timeouts.
+     *
+     * @param stateType The enum type that denotes the states.
+     */
+    public StateTimeouts(@NonNull final Class<S> stateType) {
+        this.stateTimeouts = new EnumMap<>(stateType);
+        this.transitionTimeouts = new EnumMap<>(stateType);
+    }
+
+    /**
+     * Declares that the given event is consumed once a machine stays in the given state for the given duration.
+     *
+     * @param state The state.
+     * @param delay The duration after which the event is consumed, rounded up to a tick of the wheel.
+     * @param event The event consumed upon the timeout.
+     * @return {@code this} instance.
+     * @throws IllegalArgumentException If the delay is negative.
+     */
+    public StateTimeouts<E, S> onState(@NonNull final S state, @NonNull final Duration delay,
+                                       @NonNull final E event) {
+        stateTimeouts.put(state, new Timeout<>(delay, event));
+        return this;
+    }
+
+    /**
+     * Declares that the given event is consumed once a machine stays for the given duration in the state entered
+     * through the given transition.
+     *
+     * @param transition The transition.
+     * @param delay      The duration after which the event is consumed, rounded up to a tick of the wheel.
+     * @param event      The event consumed upon the timeout.
+     * @return {@code this} instance.
+     * @throws IllegalArgumentException If the delay is negative.
+     */
+    public StateTimeouts<E, S> onTransition(@NonNull final Transition<E, S, ?> transition,
+                                            @NonNull final Duration delay, @NonNull final E event) {
+        transitionTimeouts.computeIfAbsent(transition.getFromState(), state -> new HashMap<>())
+                .put(transition.getEvent(), new Timeout<>(delay, event));
+        return this;
+    }
+
+    /**
+     * Returns the timeout that applies once the given state is entered without a transition.
+     *
+     * @param state The state.
+     * @return The timeout, or {@code null} if there is none.
+     */
+    Timeout<E> get(final S state) {
+        return stateTimeouts.get(state);
+    }
+
+    /**
+     * Returns the timeout that applies once the given transition is performed.
+     *
+     * @param fromState The state the transition started from.
+     * @param event     The consumed event.
+     * @param toState   The state the transition led to.
+     * @return The timeout, or {@code null} if there is none.
+     */
+    Timeout<E> get(final S fromState, final E event, final S toState) {
+        final Map<E, Timeout<E>> timeouts = transitionTimeouts.get(fromState);
+        final Timeout<E> timeout = timeouts == null ? null : timeouts.get(event);
+        return timeout != null ? timeout : stateTimeouts.get(toState);
+    }
+
+    /**
+     * A declared timeout.
+     *
+     * @param <E> The enum type that denotes the events.
+     */
+    static final class Timeout<E> {
+
+        /**
+         * The delay in milliseconds.
+         */
+        final long delayMillis;
+
+        /**
+         * The event consumed upon the timeout.
+         */
+        final E event;
+
+        private Timeout(final Duration delay, final E event) {
+            if (delay.isNegative()) {
+                throw new IllegalArgumentException(String.format("Delay %s is negative", delay));
+            }
+            this.delayMillis = delay.toMillis();
+            this.event = event;
+        }
+    }
+}
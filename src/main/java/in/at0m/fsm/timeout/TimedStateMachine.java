@@ -0,0 +1,168 @@
+package in.at0m.fsm.timeout;
+
+import in.at0m.fsm.StateMachine;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A {@link StateMachine} that consumes the timeout event declared by its {@link StateTimeouts} once it stays in a
+ * state for long enough. Every transition committed through this wrapper, a transition from a state to itself
+ * included, enters its target state: a timer is scheduled on the {@link TimingWheel} if a timeout applies, and the
+ * timers scheduled for the previous states are cancelled lazily, by being ignored when they expire. The initial
+ * state is entered upon construction. The wrapped machine must only be driven through this wrapper.
+ * <p>
+ * Timeout events are consumed with {@link #tryConsume(Enum, Object)} on the thread advancing the wheel, so a timeout
+ * event that cannot be consumed in the current state is ignored.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class TimedStateMachine<E extends Enum<E>, S extends Enum<S>, T> implements StateMachine<E, S, T> {
+
+    /**
+     * The machine performing the transitions.
+     */
+    private final StateMachine<E, S, T> delegate;
+
+    /**
+     * The timeouts of the states.
+     */
+    private final StateTimeouts<E, S> timeouts;
+
+    /**
+     * The wheel the timers are scheduled on.
+     */
+    @Getter
+    private final TimingWheel wheel;
+
+    /**
+     * The context passed along with the timeout events.
+     */
+    private final T context;
+
+    /**
+     * The number of states entered so far. A timer only fires if no state was entered since it was scheduled.
+     */
+    private long entries;
+
+    /**
+     * Constructs a {@link TimedStateMachine} and enters the current state of the given machine.
+     *
+     * @param delegate The machine performing the transitions.
+     * @param timeouts The timeouts of the states.
+     * @param wheel    The wheel the timers are scheduled on.
+     * @param context  The context passed along with the timeout events.
+     */
+    public TimedStateMachine(@NonNull final StateMachine<E, S, T> delegate, @NonNull final StateTimeouts<E, S> timeouts,
+                             @NonNull final TimingWheel wheel, final T context) {
+        this.delegate = delegate;
+        this.timeouts = timeouts;
+        this.wheel = wheel;
+        this.context = context;
+        synchronized (this) {
+            enter(timeouts.get(delegate.getCurrentState()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S getCurrentState() {
+        return delegate.getCurrentState();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param event {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean canConsume(final E event) {
+        return delegate.canConsume(event);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The timeout of the state entered, if any, is scheduled once the transition is committed.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S consume(@NonNull final E event, final T context) {
+        synchronized (this) {
+            final S fromState = delegate.getCurrentState();
+            final S toState = delegate.consume(event, context);
+            enter(timeouts.get(fromState, event, toState));
+            return toState;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The timeout of the state entered, if any, is scheduled once the transition is committed.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S tryConsume(@NonNull final E event, final T context) {
+        synchronized (this) {
+            final S fromState = delegate.getCurrentState();
+            final S toState = delegate.tryConsume(event, context);
+            if (toState != null) {
+                enter(timeouts.get(fromState, event, toState));
+            }
+            return toState;
+        }
+    }
+
+    /**
+     * Enters a state, cancelling the pending timer and scheduling a timer for the given timeout. Must be called while
+     * holding the lock of this machine.
+     *
+     * @param timeout The timeout of the state entered, or {@code null} if there is none.
+     */
+    private void enter(final StateTimeouts.Timeout<E> timeout) {
+        entries++;
+        if (timeout != null) {
+            wheel.schedule(new Expiry(entries, timeout.event), timeout.delayMillis);
+        }
+    }
+
+    /**
+     * A timer consuming a timeout event unless the machine entered another state since it was scheduled.
+     */
+    private final class Expiry extends TimingWheel.Timer {
+
+        /**
+         * The number of states entered when this timer was scheduled.
+         */
+        private final long entry;
+
+        /**
+         * The event consumed upon the timeout.
+         */
+        private final E event;
+
+        private Expiry(final long entry, final E event) {
+            this.entry = entry;
+            this.event = event;
+        }
+
+        @Override
+        boolean fire() {
+            synchronized (TimedStateMachine.this) {
+                return entries == entry && tryConsume(event, context) != null;
+            }
+        }
+    }
+}
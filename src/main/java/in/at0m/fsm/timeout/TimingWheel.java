@@ -0,0 +1,274 @@
+package in.at0m.fsm.timeout;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A hierarchical timing wheel holding the timeouts of any number of {@link TimedStateMachine}s. Time is divided into
+ * ticks, and the wheel has {@value #LEVELS} levels of {@value #SLOTS} slots, each slot of a level spanning a whole
+ * turn of the level below. A timer is put into the slot of the lowest level whose turn covers its deadline and moves
+ * down a level whenever the wheel reaches that slot, so scheduling a timer costs {@code O(1)} whatever the number of
+ * timers, and so does expiring it. Timers beyond the turn of the highest level wait in an overflow list that is
+ * revisited once per turn of that level.
+ * <p>
+ * Scheduling only appends the timer to a lock-free queue. The wheel is driven by calling {@link #advance()}, for
+ * instance from a single task of a {@link java.util.concurrent.ScheduledExecutorService} running every tick: it moves
+ * the queued timers into the wheel, turns the wheel up to the current time and fires the timers that expired, in the
+ * order of their deadlines, as one batch of {@code consume} calls on the calling thread. Timers are never removed
+ * when a machine leaves the state they were scheduled for; they are cancelled lazily by being ignored once they
+ * expire.
+ *
+ * @author shubhdarlinge
+ */
+public class TimingWheel {
+
+    /**
+     * The number of bits of a tick that index the slots of a level.
+     */
+    private static final int SLOT_BITS = 6;
+
+    /**
+     * The number of slots of every level.
+     */
+    public static final int SLOTS = 1 << SLOT_BITS;
+
+    /**
+     * The number of levels.
+     */
+    public static final int LEVELS = 4;
+
+    /**
+     * Masks the slot index out of a tick.
+     */
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /**
+     * The duration of a tick in milliseconds.
+     */
+    @Getter
+    private final long tickMillis;
+
+    /**
+     * Returns the current time in milliseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Handles the exceptions thrown while firing the timers, or {@code null} to rethrow them from {@link #advance()}.
+     */
+    private final Consumer<RuntimeException> errorHandler;
+
+    /**
+     * The timers scheduled since the last {@link #advance()}.
+     */
+    private final ConcurrentLinkedQueue<Timer> scheduled;
+
+    /**
+     * The head of the list of timers of every slot, indexed by level and then by slot.
+     */
+    private final Timer[][] slots;
+
+    /**
+     * The head of the list of timers beyond the turn of the highest level.
+     */
+    private Timer overflow;
+
+    /**
+     * The tick the wheel has been turned to.
+     */
+    private long currentTick;
+
+    /**
+     * Constructs a {@link TimingWheel} reading the time from {@link System#nanoTime()} and rethrowing the exceptions
+     * thrown while firing the timers.
+     *
+     * @param tick The duration of a tick, which is the resolution of the timeouts.
+     */
+    public TimingWheel(final Duration tick) {
+        this(tick, () -> System.nanoTime() / 1_000_000L, null);
+    }
+
+    /**
+     * Constructs a {@link TimingWheel}.
+     *
+     * @param tick         The duration of a tick, which is the resolution of the timeouts.
+     * @param clock        Returns the current time in milliseconds. Must never go backwards.
+     * @param errorHandler Handles the exceptions thrown while firing the timers. If {@code null}, the first exception
+     *                     is rethrown from {@link #advance()} once the whole batch is fired, along with the others as
+     *                     suppressed exceptions.
+     * @throws IllegalArgumentException If the tick is shorter than a millisecond.
+     */
+    public TimingWheel(@NonNull final Duration tick, @NonNull final LongSupplier clock,
+                       final Consumer<RuntimeException> errorHandler) {
+        if (tick.toMillis() <= 0) {
+            throw new IllegalArgumentException(String.format("Tick %s is shorter than a millisecond", tick));
+        }
+        this.tickMillis = tick.toMillis();
+        this.clock = clock;
+        this.errorHandler = errorHandler;
+        this.scheduled = new ConcurrentLinkedQueue<>();
+        this.slots = new Timer[LEVELS][SLOTS];
+        this.currentTick = clock.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Schedules the given timer to expire after the given delay, rounded up to a whole tick. Safe to call from any
+     * thread.
+     *
+     * @param timer       The timer.
+     * @param delayMillis The delay in milliseconds.
+     */
+    void schedule(final Timer timer, final long delayMillis) {
+        timer.deadline = (clock.getAsLong() + delayMillis + tickMillis - 1) / tickMillis;
+        scheduled.offer(timer);
+    }
+
+    /**
+     * Turns the wheel up to the current time and fires the timers that expired, including the ones scheduled for a
+     * state that was left since, which do nothing.
+     *
+     * @return The number of timers that fired a transition.
+     * @throws RuntimeException If firing a timer threw and this wheel has no error handler.
+     */
+    public int advance() {
+        final List<Timer> expired = new ArrayList<>();
+        synchronized (this) {
+            final long targetTick = clock.getAsLong() / tickMillis;
+            Timer timer;
+            while ((timer = scheduled.poll()) != null) {
+                place(timer, expired);
+            }
+            while (currentTick < targetTick) {
+                currentTick++;
+                if ((currentTick & ((1L << LEVELS * SLOT_BITS) - 1)) == 0) {
+                    final Timer head = overflow;
+                    overflow = null;
+                    replace(head, expired);
+                }
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << level * SLOT_BITS) - 1)) == 0) {
+                        replace(take(level, currentTick >>> level * SLOT_BITS), expired);
+                    }
+                }
+                for (timer = take(0, currentTick); timer != null; timer = timer.next) {
+                    expired.add(timer);
+                }
+            }
+        }
+        return fire(expired);
+    }
+
+    /**
+     * Fires the given timers in order.
+     *
+     * @param expired The timers that expired.
+     * @return The number of timers that fired a transition.
+     */
+    private int fire(final List<Timer> expired) {
+        int fired = 0;
+        RuntimeException failure = null;
+        for (final Timer timer : expired) {
+            try {
+                if (timer.fire()) {
+                    fired++;
+                }
+            } catch (RuntimeException e) {
+                if (errorHandler != null) {
+                    errorHandler.accept(e);
+                } else if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return fired;
+    }
+
+    /**
+     * Empties the given slot.
+     *
+     * @param level The level of the slot.
+     * @param index The index of the slot, of which only the low bits are used.
+     * @return The head of the list of timers of the slot.
+     */
+    private Timer take(final int level, final long index) {
+        final int slot = (int) (index & SLOT_MASK);
+        final Timer head = slots[level][slot];
+        slots[level][slot] = null;
+        return head;
+    }
+
+    /**
+     * Places every timer of the given list again, relative to the current tick.
+     *
+     * @param head    The head of the list of timers.
+     * @param expired Receives the timers whose deadline has been reached.
+     */
+    private void replace(final Timer head, final List<Timer> expired) {
+        Timer timer = head;
+        while (timer != null) {
+            final Timer next = timer.next;
+            place(timer, expired);
+            timer = next;
+        }
+    }
+
+    /**
+     * Puts the given timer into the slot of the lowest level whose turn covers its deadline.
+     *
+     * @param timer   The timer.
+     * @param expired Receives the timer if its deadline has been reached.
+     */
+    private void place(final Timer timer, final List<Timer> expired) {
+        final long delta = timer.deadline - currentTick;
+        if (delta <= 0) {
+            timer.next = null;
+            expired.add(timer);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (level + 1) * SLOT_BITS) {
+                final int slot = (int) ((timer.deadline >>> level * SLOT_BITS) & SLOT_MASK);
+                timer.next = slots[level][slot];
+                slots[level][slot] = timer;
+                return;
+            }
+        }
+        timer.next = overflow;
+        overflow = timer;
+    }
+
+    /**
+     * A timer held by a {@link TimingWheel}.
+     */
+    abstract static class Timer {
+
+        /**
+         * The tick at which this timer expires.
+         */
+        private long deadline;
+
+        /**
+         * The next timer of the same slot.
+         */
+        private Timer next;
+
+        /**
+         * Called once this timer expired.
+         *
+         * @return {@code true} if this timer fired a transition. {@code false} otherwise.
+         */
+        abstract boolean fire();
+    }
+}
@@ -0,0 +1,58 @@
+package in.at0m.fsm.trace;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A transition recorded by a {@link TransitionTrace}.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class TraceRecord<E extends Enum<E>, S extends Enum<S>> {
+
+    /**
+     * The sequence number of the record in the trace.
+     */
+    private final long sequence;
+
+    /**
+     * The time of the transition in milliseconds since the epoch.
+     */
+    private final long timestamp;
+
+    /**
+     * The id of the machine that performed the transition.
+     */
+    private final long machineId;
+
+    /**
+     * The consumed event.
+     */
+    private final E event;
+
+    /**
+     * The state the transition started from.
+     */
+    private final S fromState;
+
+    /**
+     * The state the transition led to.
+     */
+    private final S toState;
+
+    /**
+     * The id of the thread that performed the transition.
+     */
+    private final long threadId;
+
+    /**
+     * The time spent consuming the event in nanoseconds, actions included.
+     */
+    private final long durationNanos;
+}
@@ -0,0 +1,144 @@
+package in.at0m.fsm.trace;
+
+import in.at0m.fsm.StateMachine;
+import jdk.jfr.EventType;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * A {@link StateMachine} that records every transition it commits, along with the time spent consuming the event,
+ * into a {@link TransitionTrace} and as a {@link TransitionEvent} of the flight recorder. Transitions are performed
+ * by the wrapped machine and recorded within the same critical section, so the trace holds the transitions of a
+ * machine in the order they were committed. The wrapped machine must only be driven through this wrapper.
+ * <p>
+ * Recording into the trace allocates nothing, and flight recorder events are only created while a recording enables
+ * them, so tracing can stay on permanently.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public class TracedStateMachine<E extends Enum<E>, S extends Enum<S>, T> implements StateMachine<E, S, T> {
+
+    /**
+     * The type of the flight recorder events, which tells whether a recording enables them.
+     */
+    private static final EventType EVENT_TYPE = EventType.getEventType(TransitionEvent.class);
+
+    /**
+     * The id of this machine in the trace and in the flight recorder events.
+     */
+    @Getter
+    private final long id;
+
+    /**
+     * The machine performing the transitions.
+     */
+    private final StateMachine<E, S, T> delegate;
+
+    /**
+     * The trace the transitions are recorded into, or {@code null} to only commit flight recorder events.
+     */
+    @Getter
+    private final TransitionTrace<E, S> trace;
+
+    /**
+     * Constructs a {@link TracedStateMachine}.
+     *
+     * @param id       The id of this machine in the trace and in the flight recorder events.
+     * @param delegate The machine performing the transitions.
+     * @param trace    The trace the transitions are recorded into, which may be shared with other machines. If
+     *                 {@code null}, transitions are only recorded as flight recorder events.
+     */
+    public TracedStateMachine(final long id, @NonNull final StateMachine<E, S, T> delegate,
+                              final TransitionTrace<E, S> trace) {
+        this.id = id;
+        this.delegate = delegate;
+        this.trace = trace;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S getCurrentState() {
+        return delegate.getCurrentState();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param event {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean canConsume(final E event) {
+        return delegate.canConsume(event);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The transition is recorded once it is committed.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S consume(@NonNull final E event, final T context) {
+        synchronized (this) {
+            final S fromState = delegate.getCurrentState();
+            final long start = System.nanoTime();
+            final S toState = delegate.consume(event, context);
+            record(event, fromState, toState, System.nanoTime() - start);
+            return toState;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The transition is recorded once it is committed.
+     *
+     * @param event   {@inheritDoc}
+     * @param context {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S tryConsume(@NonNull final E event, final T context) {
+        synchronized (this) {
+            final S fromState = delegate.getCurrentState();
+            final long start = System.nanoTime();
+            final S toState = delegate.tryConsume(event, context);
+            if (toState != null) {
+                record(event, fromState, toState, System.nanoTime() - start);
+            }
+            return toState;
+        }
+    }
+
+    /**
+     * Records the given transition into the trace and, if a recording enables it, as a flight recorder event.
+     *
+     * @param event         The consumed event.
+     * @param fromState     The state the transition started from.
+     * @param toState       The state the transition led to.
+     * @param durationNanos The time spent consuming the event in nanoseconds.
+     */
+    private void record(final E event, final S fromState, final S toState, final long durationNanos) {
+        if (trace != null) {
+            trace.record(id, event, fromState, toState, durationNanos);
+        }
+        if (EVENT_TYPE.isEnabled()) {
+            final TransitionEvent transitionEvent = new TransitionEvent();
+            transitionEvent.machineId = id;
+            transitionEvent.event = event.name();
+            transitionEvent.fromState = fromState.name();
+            transitionEvent.toState = toState.name();
+            transitionEvent.consumeDuration = durationNanos;
+            transitionEvent.commit();
+        }
+    }
+}
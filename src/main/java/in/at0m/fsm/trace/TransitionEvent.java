@@ -0,0 +1,55 @@
+package in.at0m.fsm.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The flight recorder event committed by a {@link TracedStateMachine} for every transition. The recorder adds the
+ * start time and the thread of the event. The event is disabled unless a recording enables it, e.g. with
+ * {@code -XX:StartFlightRecording:settings=profile} and {@code in.at0m.fsm.Transition#enabled=true}.
+ *
+ * @author shubhdarlinge
+ */
+@Name("in.at0m.fsm.Transition")
+@Label("State Machine Transition")
+@Description("A transition committed by a state machine")
+@Category("State Machines")
+@StackTrace(false)
+public class TransitionEvent extends Event {
+
+    /**
+     * The id of the machine.
+     */
+    @Label("Machine Id")
+    long machineId;
+
+    /**
+     * The name of the consumed event.
+     */
+    @Label("Event")
+    String event;
+
+    /**
+     * The name of the state the transition started from.
+     */
+    @Label("From State")
+    String fromState;
+
+    /**
+     * The name of the state the transition led to.
+     */
+    @Label("To State")
+    String toState;
+
+    /**
+     * The time spent consuming the event, actions included.
+     */
+    @Label("Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long consumeDuration;
+}
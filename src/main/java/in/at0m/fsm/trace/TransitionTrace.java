@@ -0,0 +1,218 @@
+package in.at0m.fsm.trace;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, lock-free ring buffer of the latest transitions of one or more state machines. Records are kept in
+ * preallocated primitive arrays, so recording a transition takes a sequence number with an atomic increment, claims
+ * its slot with a compare-and-set and allocates nothing, and once the buffer is full every record overwrites the
+ * oldest one. A trace can be kept per machine or shared by the machines of a definition, the records carrying the id
+ * of their machine.
+ * <p>
+ * Every slot carries the sequence number of its record. A slot is only claimed from an older, completely written
+ * record, so a writer that is lapped while writing, e.g. because it was preempted, keeps its slot until it is done,
+ * and a record whose slot is still being written or already holds a newer record is dropped, see
+ * {@link #getDropped()}. {@link #dump()} can be called at any time while transitions are being recorded: it checks the
+ * sequence number of a slot before and after reading it, so a record being overwritten is skipped rather than
+ * returned torn.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @author shubhdarlinge
+ */
+public class TransitionTrace<E extends Enum<E>, S extends Enum<S>> {
+
+    /**
+     * The number of bits of a packed transition holding an ordinal.
+     */
+    private static final int ORDINAL_BITS = 21;
+
+    /**
+     * Masks an ordinal out of a packed transition.
+     */
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+
+    /**
+     * The events indexed by ordinal.
+     */
+    private final E[] events;
+
+    /**
+     * The states indexed by ordinal.
+     */
+    private final S[] states;
+
+    /**
+     * The number of records kept.
+     */
+    @Getter
+    private final int capacity;
+
+    /**
+     * The sequence number of the next record.
+     */
+    private final AtomicLong sequence;
+
+    /**
+     * The sequence number plus one of the record held by every slot, negated while the slot is being written, or
+     * {@code 0} if the slot is empty.
+     */
+    private final AtomicLongArray stamps;
+
+    /**
+     * The number of records dropped because their slot was being written or held a newer record.
+     */
+    private final LongAdder dropped;
+
+    /**
+     * The time of the transitions in milliseconds since the epoch.
+     */
+    private final long[] timestamps;
+
+    /**
+     * The ids of the machines.
+     */
+    private final long[] machineIds;
+
+    /**
+     * The event, from state and to state ordinals of the transitions packed in a {@code long}.
+     */
+    private final long[] transitions;
+
+    /**
+     * The ids of the threads.
+     */
+    private final long[] threadIds;
+
+    /**
+     * The time spent consuming the events in nanoseconds.
+     */
+    private final long[] durations;
+
+    /**
+     * Constructs an empty {@link TransitionTrace}.
+     *
+     * @param eventType The enum type that denotes the events.
+     * @param stateType The enum type that denotes the states.
+     * @param capacity  The number of records kept, rounded up to a power of two.
+     * @throws IllegalArgumentException If the capacity is not positive or larger than {@code 2^30}.
+     */
+    public TransitionTrace(@NonNull final Class<E> eventType, @NonNull final Class<S> stateType, final int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Capacity %d is not between 1 and 2^30", capacity));
+        }
+        this.events = eventType.getEnumConstants();
+        this.states = stateType.getEnumConstants();
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.sequence = new AtomicLong();
+        this.stamps = new AtomicLongArray(this.capacity);
+        this.dropped = new LongAdder();
+        this.timestamps = new long[this.capacity];
+        this.machineIds = new long[this.capacity];
+        this.transitions = new long[this.capacity];
+        this.threadIds = new long[this.capacity];
+        this.durations = new long[this.capacity];
+    }
+
+    /**
+     * Records the given transition, overwriting the oldest record if the trace is full. The record is dropped if its
+     * slot is still being written by a lapped writer or already holds a newer record.
+     *
+     * @param machineId     The id of the machine that performed the transition.
+     * @param event         The consumed event.
+     * @param fromState     The state the transition started from.
+     * @param toState       The state the transition led to.
+     * @param durationNanos The time spent consuming the event in nanoseconds.
+     */
+    public void record(final long machineId, final E event, final S fromState, final S toState,
+                       final long durationNanos) {
+        final long next = sequence.getAndIncrement();
+        final int slot = (int) next & (capacity - 1);
+        if (!claim(slot, next)) {
+            dropped.increment();
+            return;
+        }
+        timestamps[slot] = System.currentTimeMillis();
+        machineIds[slot] = machineId;
+        transitions[slot] = (long) event.ordinal() << 2 * ORDINAL_BITS | (long) fromState.ordinal() << ORDINAL_BITS
+                | toState.ordinal();
+        threadIds[slot] = Thread.currentThread().getId();
+        durations[slot] = durationNanos;
+        stamps.set(slot, next + 1);
+    }
+
+    /**
+     * Claims the given slot for the record with the given sequence number by negating its stamp, unless the slot is
+     * being written or holds a newer record. Being a volatile read and write, the compare-and-set also orders the
+     * claim before the writes to the slot.
+     *
+     * @param slot The slot of the record.
+     * @param next The sequence number of the record.
+     * @return {@code true} if the slot was claimed. {@code false} otherwise.
+     */
+    boolean claim(final int slot, final long next) {
+        long stamp = stamps.get(slot);
+        while (stamp >= 0 && stamp <= next) {
+            if (stamps.compareAndSet(slot, stamp, -(next + 1))) {
+                return true;
+            }
+            stamp = stamps.get(slot);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of records dropped because their slot was still being written by a lapped writer or
+     * already held a newer record.
+     *
+     * @return The number of dropped records.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of transitions recorded so far, including the ones that were overwritten.
+     *
+     * @return The number of recorded transitions.
+     */
+    public long getRecorded() {
+        return sequence.get();
+    }
+
+    /**
+     * Returns the records held by this trace, oldest first.
+     *
+     * @return The records.
+     */
+    public List<TraceRecord<E, S>> dump() {
+        final long end = sequence.get();
+        final List<TraceRecord<E, S>> records = new ArrayList<>((int) Math.min(end, capacity));
+        for (long next = Math.max(0, end - capacity); next < end; next++) {
+            final int slot = (int) next & (capacity - 1);
+            final long stamp = stamps.get(slot);
+            final long timestamp = timestamps[slot];
+            final long machineId = machineIds[slot];
+            final long transition = transitions[slot];
+            final long threadId = threadIds[slot];
+            final long duration = durations[slot];
+            VarHandle.loadLoadFence();
+            // The slot is read consistently if it held the record both before and after being read.
+            if (((stamp ^ (next + 1)) | (stamps.get(slot) ^ (next + 1))) == 0) {
+                records.add(new TraceRecord<>(next, timestamp, machineId,
+                        events[(int) (transition >>> 2 * ORDINAL_BITS)],
+                        states[(int) (transition >>> ORDINAL_BITS & ORDINAL_MASK)],
+                        states[(int) (transition & ORDINAL_MASK)], threadId, duration));
+            }
+        }
+        return records;
+    }
+}
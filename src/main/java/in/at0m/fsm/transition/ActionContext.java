@@ -1,11 +1,15 @@
 package in.at0m.fsm.transition;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
 import lombok.Getter;
 
 /**
- * Context data provided to the Action executed during transition.
+ * Context data provided to the Action executed during transition. An {@link ActionContext} is immutable and may be
+ * handed to other threads.
+ * <p>
+ * A context obtained through {@link #flyweight(Enum, Enum, Enum, Object)} is instead a reusable instance owned by
+ * the calling thread, which is overwritten by the next transition of that thread. Such a context is only valid for
+ * the duration of the {@link Action} callback it is passed to and must not be retained; an immutable copy that can
+ * be retained is obtained with {@code toBuilder().build()}.
  *
  * @param <E> The enum type that denotes the events.
  * @param <S> The enum type that denotes the states.
@@ -13,8 +17,6 @@ import lombok.Getter;
  * @author shubhdarlinge
  */
 @Getter
-@AllArgsConstructor
-@Builder(builderClassName = "Builder", toBuilder = true)
 public class ActionContext<E extends Enum<E>, S extends Enum<S>, T> {
 
     /**
@@ -36,4 +38,65 @@ public class ActionContext<E extends Enum<E>, S extends Enum<S>, T> {
      * The data in context of the {@link Transition} leading to creation of this {@link ActionContext}.
      */
     private final T data;
+
+    /**
+     * Constructs an {@link ActionContext}.
+     *
+     * @param event        The event that triggered the {@link Transition}.
+     * @param currentState The state from which the {@link Transition} started.
+     * @param nextState    The state to which the {@link Transition} will lead.
+     * @param data         The data in context of the {@link Transition}.
+     */
+    @lombok.Builder(builderClassName = "Builder", toBuilder = true)
+    public ActionContext(final E event, final S currentState, final S nextState, final T data) {
+        this.event = event;
+        this.currentState = currentState;
+        this.nextState = nextState;
+        this.data = data;
+    }
+
+    /**
+     * Returns a reusable context of the calling thread populated with the given values. A context nested in one
+     * that is in use, e.g. because an action consumes an event of another state machine, gets a reusable context of
+     * its own, unless too many are nested already, in which case a new context is returned instead. Either way the
+     * context must be passed to {@link #release()} once the callbacks are done.
+     *
+     * @param event        The event that triggered the {@link Transition}.
+     * @param currentState The state from which the {@link Transition} started.
+     * @param nextState    The state to which the {@link Transition} will lead.
+     * @param data         The data in context of the {@link Transition}.
+     * @param <E>          The enum type that denotes the events.
+     * @param <S>          The enum type that denotes the states.
+     * @param <T>          The type on which the state machine is operating.
+     * @return The populated context.
+     */
+    public static <E extends Enum<E>, S extends Enum<S>, T> ActionContext<E, S, T> flyweight(
+            final E event, final S currentState, final S nextState, final T data) {
+        final ActionContext<E, S, T> context = ReusableActionContext.acquire(event, currentState, nextState, data);
+        return context != null ? context : new ActionContext<>(event, currentState, nextState, data);
+    }
+
+    /**
+     * Returns a context holding the event and the data of this context and the given states, e.g. the context of a
+     * region transition run by a product transition. The context is a {@link #flyweight(Enum, Enum, Enum, Object)
+     * flyweight} if this context is one, and a new immutable context otherwise, so a context that can be retained
+     * is only derived into one that can be retained too. Either way the context must be passed to
+     * {@link #release()} once the callbacks are done.
+     *
+     * @param currentState The state from which the derived transition started.
+     * @param nextState    The state to which the derived transition will lead.
+     * @param <R>          The enum type that denotes the given states.
+     * @return The derived context.
+     */
+    public <R extends Enum<R>> ActionContext<E, R, T> withStates(final R currentState, final R nextState) {
+        return new ActionContext<>(event, currentState, nextState, data);
+    }
+
+    /**
+     * Releases this context if it is the reusable context of a thread, so that the next transition of the thread
+     * can reuse it. The references held by the context are cleared. Does nothing for any other context.
+     */
+    public void release() {
+        // An immutable context holds nothing to release.
+    }
 }
@@ -0,0 +1,175 @@
+package in.at0m.fsm.transition;
+
+/**
+ * A reusable {@link ActionContext} of a thread, handed out by
+ * {@link ActionContext#flyweight(Enum, Enum, Enum, Object)}. Unlike any other context it is mutable, hence it is
+ * confined to its thread and only valid until it is released. A thread has one per nesting level, e.g. for the
+ * region actions run by an action of a product state machine, up to {@link #MAX_DEPTH} levels.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+final class ReusableActionContext<E extends Enum<E>, S extends Enum<S>, T> extends ActionContext<E, S, T> {
+
+    /**
+     * The reusable context of every thread.
+     */
+    private static final ThreadLocal<ReusableActionContext<?, ?, ?>> CONTEXTS
+            = ThreadLocal.withInitial(ReusableActionContext::new);
+
+    /**
+     * The largest number of nested reusable contexts of a thread.
+     */
+    static final int MAX_DEPTH = 4;
+
+    /**
+     * The event that triggered the current {@link Transition} of the thread.
+     */
+    private E event;
+
+    /**
+     * The state from which the current {@link Transition} of the thread started.
+     */
+    private S currentState;
+
+    /**
+     * The state to which the current {@link Transition} of the thread will lead.
+     */
+    private S nextState;
+
+    /**
+     * The data in context of the current {@link Transition} of the thread.
+     */
+    private T data;
+
+    /**
+     * Indicates whether this context is handed out and not yet released.
+     */
+    private boolean inUse;
+
+    /**
+     * The reusable context of the next nesting level, created on first use.
+     */
+    private ReusableActionContext<?, ?, ?> nested;
+
+    /**
+     * Constructs the reusable context of a thread.
+     */
+    private ReusableActionContext() {
+        super(null, null, null, null);
+    }
+
+    /**
+     * Returns the first reusable context of the calling thread that is not in use, populated with the given values.
+     *
+     * @param event        The event that triggered the {@link Transition}.
+     * @param currentState The state from which the {@link Transition} started.
+     * @param nextState    The state to which the {@link Transition} will lead.
+     * @param data         The data in context of the {@link Transition}.
+     * @param <E>          The enum type that denotes the events.
+     * @param <S>          The enum type that denotes the states.
+     * @param <T>          The type on which the state machine is operating.
+     * @return The populated context, or {@code null} if all the {@link #MAX_DEPTH} reusable contexts of the thread
+     * are in use.
+     */
+    @SuppressWarnings("unchecked")
+    static <E extends Enum<E>, S extends Enum<S>, T> ReusableActionContext<E, S, T> acquire(
+            final E event, final S currentState, final S nextState, final T data) {
+        ReusableActionContext<?, ?, ?> free = CONTEXTS.get();
+        for (int depth = 1; free.inUse; depth++) {
+            if (depth == MAX_DEPTH) {
+                return null;
+            }
+            if (free.nested == null) {
+                free.nested = new ReusableActionContext<>();
+            }
+            free = free.nested;
+        }
+        final ReusableActionContext<E, S, T> context = (ReusableActionContext<E, S, T>) free;
+        context.inUse = true;
+        context.event = event;
+        context.currentState = currentState;
+        context.nextState = nextState;
+        context.data = data;
+        return context;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public E getEvent() {
+        return event;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S getCurrentState() {
+        return currentState;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public S getNextState() {
+        return nextState;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public T getData() {
+        return data;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The copy is an immutable {@link ActionContext}.
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public ActionContext.Builder<E, S, T> toBuilder() {
+        return ActionContext.<E, S, T>builder().event(event).currentState(currentState).nextState(nextState)
+                .data(data);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param currentState {@inheritDoc}
+     * @param nextState    {@inheritDoc}
+     * @param <R>          {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <R extends Enum<R>> ActionContext<E, R, T> withStates(final R currentState, final R nextState) {
+        return flyweight(event, currentState, nextState, data);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release() {
+        event = null;
+        currentState = null;
+        nextState = null;
+        data = null;
+        inUse = false;
+    }
+}
@@ -1,6 +1,6 @@
 package in.at0m.fsm.transition;
 
-import lombok.Builder;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -24,7 +24,6 @@ import java.util.List;
 @Getter
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @ToString(onlyExplicitlyIncluded = true)
-@Builder(builderClassName = "Builder", toBuilder = true)
 public class Transition<E extends Enum<E>, S extends Enum<S>, T> {
 
     /**
@@ -52,11 +51,18 @@ public class Transition<E extends Enum<E>, S extends Enum<S>, T> {
 
     /**
      * The list of actions that need to be performed before completing this transition.
-     * This list is always unmodifiable.
+     * This list is a copy of the given one and is always unmodifiable.
      */
     @NonNull
     private final List<Action<E, S, T>> actions;
 
+    /**
+     * The actions of this transition flattened into an array, so that executing them neither goes through an
+     * iterator nor allocates.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Action<E, S, T>[] actionArray;
+
     /**
      * Constructs a {@link Transition} instance for the given {@code event} from the
      * given {@code fromState} to the {@code toState} without any actions.
@@ -78,12 +84,47 @@ public class Transition<E extends Enum<E>, S extends Enum<S>, T> {
      * @param toState   The state to which this transition will lead.
      * @param actions   The actions that need to be performed before completing this transition.
      */
+    @lombok.Builder(builderClassName = "Builder", toBuilder = true)
+    @SuppressWarnings("unchecked")
     public Transition(@NonNull final E event, @NonNull final S fromState,
                       @NonNull final S toState, final List<Action<E, S, T>> actions) {
         this.event = event;
         this.fromState = fromState;
         this.toState = toState;
-        this.actions = actions == null ? Collections.emptyList() : Collections.unmodifiableList(actions);
+        this.actions = actions == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(actions));
+        this.actionArray = this.actions.toArray(new Action[0]);
+    }
+
+    /**
+     * Returns {@code true} if this transition has at least one action. {@code false} otherwise.
+     *
+     * @return {@code true} if this transition has at least one action. {@code false} otherwise.
+     */
+    public boolean hasActions() {
+        return actionArray.length > 0;
+    }
+
+    /**
+     * Calls {@link Action#before(ActionContext)} of every action of this transition in order.
+     *
+     * @param actionContext The context information for transition.
+     */
+    public void before(final ActionContext<E, S, T> actionContext) {
+        for (final Action<E, S, T> action : actionArray) {
+            action.before(actionContext);
+        }
+    }
+
+    /**
+     * Calls {@link Action#after(ActionContext)} of every action of this transition in order.
+     *
+     * @param actionContext The context information for transition.
+     */
+    public void after(final ActionContext<E, S, T> actionContext) {
+        for (final Action<E, S, T> action : actionArray) {
+            action.after(actionContext);
+        }
     }
 
     /**
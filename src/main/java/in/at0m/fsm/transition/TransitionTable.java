@@ -0,0 +1,240 @@
+package in.at0m.fsm.transition;
+
+import lombok.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compiled, read-only state transition table. The {@link Transition}(s) are laid out in a
+ * {@code [state.ordinal()][event.ordinal()]} array so that looking up a transition is a pair of array reads
+ * and never allocates. Rows are only allocated for the states that have at least one outgoing transition,
+ * which keeps the table small for sparse machines.
+ * <p>
+ * Compiling the table also computes the bitmask of the events that can be consumed in every state, a {@code long}
+ * per 64 events, along with the immutable set of those events, and analyses the graph of the states for the states
+ * no transition leads to and the states no transition leaves.
+ *
+ * @param <E> The enum type that denotes the events.
+ * @param <S> The enum type that denotes the states.
+ * @param <T> The type on which the state machine is operating.
+ * @author shubhdarlinge
+ */
+public final class TransitionTable<E extends Enum<E>, S extends Enum<S>, T> {
+
+    /**
+     * The transitions indexed by the ordinal of the source state and then by the ordinal of the event.
+     * A {@code null} row means that there is no transition from that state.
+     */
+    private final Transition<E, S, T>[][] rows;
+
+    /**
+     * The transitions this table was compiled from, in their registration order. This list is always unmodifiable.
+     */
+    private final List<Transition<E, S, T>> transitions;
+
+    /**
+     * The bitmasks of the events that can be consumed in every state, {@link #maskWords} words per state in state
+     * ordinal order. Bit {@code event.ordinal() % 64} of word {@code event.ordinal() / 64} of a state is set if the
+     * event can be consumed in the state.
+     */
+    private final long[] eventMasks;
+
+    /**
+     * The number of {@code long} words per state in {@link #eventMasks}.
+     */
+    private final int maskWords;
+
+    /**
+     * The unmodifiable set of the events that can be consumed in every state, indexed by state ordinal.
+     */
+    private final List<Set<E>> allowedEvents;
+
+    /**
+     * The unmodifiable set of the states that no transition from another state leads to.
+     */
+    private final Set<S> unreachableStates;
+
+    /**
+     * The unmodifiable set of the states that no transition leaves.
+     */
+    private final Set<S> deadEndStates;
+
+    /**
+     * Constructs a {@link TransitionTable} from the pre-computed rows and transitions.
+     *
+     * @param rows        The transitions indexed by state ordinal and event ordinal.
+     * @param transitions The transitions the table was compiled from.
+     */
+    private TransitionTable(final Transition<E, S, T>[][] rows, final List<Transition<E, S, T>> transitions) {
+        this.rows = rows;
+        this.transitions = transitions;
+        if (transitions.isEmpty()) {
+            this.maskWords = 0;
+            this.eventMasks = new long[0];
+            this.allowedEvents = Collections.emptyList();
+            this.unreachableStates = Collections.emptySet();
+            this.deadEndStates = Collections.emptySet();
+            return;
+        }
+        final Transition<E, S, T> first = transitions.get(0);
+        final Class<S> stateType = first.getFromState().getDeclaringClass();
+        final Class<E> eventType = first.getEvent().getDeclaringClass();
+        this.maskWords = (eventType.getEnumConstants().length + Long.SIZE - 1) / Long.SIZE;
+        this.eventMasks = new long[rows.length * maskWords];
+        final List<Set<E>> allowed = new ArrayList<>(rows.length);
+        final Set<S> unreachable = EnumSet.allOf(stateType);
+        final Set<S> deadEnds = EnumSet.allOf(stateType);
+        for (int state = 0; state < rows.length; state++) {
+            allowed.add(EnumSet.noneOf(eventType));
+        }
+        for (final Transition<E, S, T> transition : transitions) {
+            final int state = transition.getFromState().ordinal();
+            final int event = transition.getEvent().ordinal();
+            eventMasks[state * maskWords + (event >>> 6)] |= 1L << event;
+            allowed.get(state).add(transition.getEvent());
+            deadEnds.remove(transition.getFromState());
+            if (transition.getToState() != transition.getFromState()) {
+                unreachable.remove(transition.getToState());
+            }
+        }
+        allowed.replaceAll(Collections::unmodifiableSet);
+        this.allowedEvents = Collections.unmodifiableList(allowed);
+        this.unreachableStates = Collections.unmodifiableSet(unreachable);
+        this.deadEndStates = Collections.unmodifiableSet(deadEnds);
+    }
+
+    /**
+     * Compiles the given collection of {@link Transition} into a {@link TransitionTable}.
+     *
+     * @param transitions The transitions to compile.
+     * @param <E>         The enum type that denotes the events.
+     * @param <S>         The enum type that denotes the states.
+     * @param <T>         The type on which the state machine is operating.
+     * @return The compiled {@link TransitionTable}.
+     * @throws IllegalStateException If more than one transition is registered for the same event and state.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E>, S extends Enum<S>, T> TransitionTable<E, S, T> compile(
+            @NonNull final Collection<Transition<E, S, T>> transitions) {
+        final List<Transition<E, S, T>> list = Collections.unmodifiableList(new ArrayList<>(transitions));
+        if (list.isEmpty()) {
+            return new TransitionTable<>(new Transition[0][], list);
+        }
+        final Transition<E, S, T> first = list.get(0);
+        final int stateCount = first.getFromState().getDeclaringClass().getEnumConstants().length;
+        final int eventCount = first.getEvent().getDeclaringClass().getEnumConstants().length;
+        final Transition<E, S, T>[][] rows = new Transition[stateCount][];
+        for (final Transition<E, S, T> transition : list) {
+            final int state = transition.getFromState().ordinal();
+            if (rows[state] == null) {
+                rows[state] = new Transition[eventCount];
+            }
+            final int event = transition.getEvent().ordinal();
+            if (rows[state][event] != null) {
+                throw new IllegalStateException(String.format("Duplicate transition %s", transition));
+            }
+            rows[state][event] = transition;
+        }
+        return new TransitionTable<>(rows, list);
+    }
+
+    /**
+     * Returns the {@link Transition} registered for the given {@code state} and {@code event}.
+     *
+     * @param state The state from which the transition starts.
+     * @param event The event that triggers the transition.
+     * @return The registered {@link Transition} or {@code null} if there is none.
+     */
+    public Transition<E, S, T> get(final S state, final E event) {
+        final int ordinal = state.ordinal();
+        if (ordinal >= rows.length) {
+            return null;
+        }
+        final Transition<E, S, T>[] row = rows[ordinal];
+        return row == null ? null : row[event.ordinal()];
+    }
+
+    /**
+     * Returns {@code true} if the given {@code event} can be consumed in the given {@code state}, by testing a single
+     * bit of the event bitmask of the state. {@code false} otherwise.
+     *
+     * @param state The state in which the event is consumed.
+     * @param event The event which is being consumed.
+     * @return {@code true} if the given event can be consumed in the given state. {@code false} otherwise.
+     */
+    public boolean canConsume(final S state, final E event) {
+        final int ordinal = event.ordinal();
+        final int word = state.ordinal() * maskWords + (ordinal >>> 6);
+        return word < eventMasks.length && (eventMasks[word] & 1L << ordinal) != 0;
+    }
+
+    /**
+     * Returns the events that can be consumed in the given {@code state}. The returned set is shared and
+     * unmodifiable.
+     *
+     * @param state The state in which the events are consumed.
+     * @return The unmodifiable set of the events that can be consumed in the given state.
+     */
+    public Set<E> allowedEvents(final S state) {
+        final int ordinal = state.ordinal();
+        return ordinal < allowedEvents.size() ? allowedEvents.get(ordinal) : Collections.emptySet();
+    }
+
+    /**
+     * Returns the states that no transition from another state leads to. Such a state can only be the initial
+     * state of a state machine and is never entered again once left.
+     *
+     * @return The unmodifiable set of the unreachable states.
+     */
+    public Set<S> getUnreachableStates() {
+        return unreachableStates;
+    }
+
+    /**
+     * Returns the states that no transition leaves. A state machine that enters such a state stays in it forever,
+     * which is expected for final states but usually a mistake otherwise.
+     *
+     * @return The unmodifiable set of the dead-end states.
+     */
+    public Set<S> getDeadEndStates() {
+        return deadEndStates;
+    }
+
+    /**
+     * Returns the states that can be entered by a state machine starting in the given {@code initialState},
+     * including the initial state itself.
+     *
+     * @param initialState The initial state of the state machine.
+     * @return The set of the reachable states.
+     */
+    public Set<S> reachableStates(@NonNull final S initialState) {
+        final Set<S> reachable = EnumSet.of(initialState);
+        final Deque<S> pending = new ArrayDeque<>(reachable);
+        while (!pending.isEmpty()) {
+            final S state = pending.poll();
+            for (final E event : allowedEvents(state)) {
+                final S next = get(state, event).getToState();
+                if (reachable.add(next)) {
+                    pending.add(next);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Returns the transitions this table was compiled from.
+     *
+     * @return An unmodifiable list of the transitions this table was compiled from.
+     */
+    public List<Transition<E, S, T>> getTransitions() {
+        return transitions;
+    }
+}
@@ -0,0 +1,402 @@
+package in.at0m.fsm;
+
+import in.at0m.fsm.batch.BatchResult;
+import in.at0m.fsm.batch.ContextualEvent;
+import in.at0m.fsm.batch.InvalidEventPolicy;
+import in.at0m.fsm.exception.ConcurrentTransitionException;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AtomicStateMachineTest {
+
+    @Test
+    public void consumeTest() {
+        Counter counter = new Counter();
+        AtomicStateMachine<Event, State, Counter> machine
+                = new AtomicStateMachine<>(new StateMachineDefinition<>(buildTransitions(null)), State.OFF);
+        Assertions.assertSame(AtomicStateMachine.ConflictPolicy.RETRY, machine.getConflictPolicy());
+        Assertions.assertTrue(machine.canConsume(Event.TOGGLE));
+        Assertions.assertFalse(machine.canConsume(Event.RESET));
+        Assertions.assertEquals(Collections.singleton(Event.TOGGLE), machine.allowedEvents());
+        Assertions.assertSame(State.ON, machine.consume(Event.TOGGLE, counter));
+        Assertions.assertSame(State.ON, machine.getCurrentState());
+        Assertions.assertSame(State.OFF, machine.consume(Event.RESET, counter));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> machine.consume(Event.RESET, counter));
+        Assertions.assertEquals(2, counter.before.get());
+        Assertions.assertEquals(2, counter.after.get());
+    }
+
+    @Test
+    public void retryTest() throws InterruptedException {
+        Counter counter = new Counter();
+        AtomicStateMachine<Event, State, Counter> machine = new AtomicStateMachine<>(
+                new StateMachineDefinition<>(buildRacingTransitions()), State.OFF);
+
+        // The outer TOGGLE is overtaken by a RESET while waiting for the lock, so it is retried from ON.
+        Thread toggle = race(machine, () -> machine.consume(Event.TOGGLE, counter),
+                () -> Assertions.assertSame(State.ON, machine.consume(Event.RESET, counter)));
+        toggle.join();
+        Assertions.assertSame(State.OFF, machine.getCurrentState());
+        Assertions.assertEquals(1, counter.before.get());
+        Assertions.assertEquals(1, counter.after.get());
+    }
+
+    @Test
+    public void claimTest() throws InterruptedException {
+        Counter counter = new Counter();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StateMachineDefinition<Event, State, Counter> definition = new StateMachineDefinition<>(
+                buildTransitions(new BlockingAction(entered, release)));
+        AtomicStateMachine<Event, State, Counter> machine = definition.newAtomicStateMachine(State.OFF,
+                AtomicStateMachine.ConflictPolicy.RETRY);
+        Thread first = new Thread(() -> machine.consume(Event.TOGGLE, counter));
+        first.start();
+        entered.await();
+        Assertions.assertSame(State.OFF, machine.getCurrentState());
+
+        // The second TOGGLE waits for the first one to be done and is resolved from ON.
+        Thread second = new Thread(() -> machine.consume(Event.TOGGLE, counter));
+        second.start();
+        release.countDown();
+        first.join();
+        second.join();
+        Assertions.assertSame(State.OFF, machine.getCurrentState());
+        Assertions.assertEquals(2, counter.before.get());
+        Assertions.assertEquals(2, counter.after.get());
+    }
+
+    @Test
+    public void reuseActionContextTest() {
+        Counter counter = new Counter();
+        StateMachineDefinition<Event, State, Counter> definition
+                = StateMachineDefinition.<Event, State, Counter>builder()
+                .transitions(buildTransitions(null))
+                .reuseActionContext(true)
+                .build();
+        AtomicStateMachine<Event, State, Counter> machine
+                = definition.newAtomicStateMachine(State.OFF, AtomicStateMachine.ConflictPolicy.RETRY);
+        Assertions.assertSame(State.ON, machine.consume(Event.TOGGLE, counter));
+        Assertions.assertSame(State.OFF, machine.consume(Event.TOGGLE, counter));
+        Assertions.assertEquals(2, counter.before.get());
+        Assertions.assertEquals(2, counter.after.get());
+    }
+
+    @Test
+    public void failingBeforeTest() {
+        Counter counter = new Counter();
+        StateMachineDefinition<Event, State, Counter> definition = new StateMachineDefinition<>(
+                buildTransitions(new NestedConsumeAction()));
+        AtomicStateMachine<Event, State, Counter> machine = new AtomicStateMachine<>(definition, State.OFF);
+        NestedConsumeAction.MACHINE.set(machine);
+        try {
+            // The action consumes an event in its own machine, which is refused, so the claim is released.
+            Assertions.assertThrows(IllegalStateException.class, () -> machine.consume(Event.TOGGLE, counter));
+        } finally {
+            NestedConsumeAction.MACHINE.remove();
+        }
+        Assertions.assertSame(State.OFF, machine.getCurrentState());
+        Assertions.assertEquals(0, counter.after.get());
+        Assertions.assertSame(State.ON, machine.tryConsume(Event.TOGGLE, counter));
+    }
+
+    @Test
+    public void noActionsTest() {
+        List<Transition<Event, State, Counter>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.TOGGLE, State.OFF, State.ON));
+        transitions.add(new Transition<>(Event.TOGGLE, State.ON, State.OFF));
+        AtomicStateMachine<Event, State, Counter> machine
+                = new AtomicStateMachine<>(new StateMachineDefinition<>(transitions), State.OFF);
+        Assertions.assertSame(State.ON, machine.consume(Event.TOGGLE, new Counter()));
+        Assertions.assertSame(State.OFF, machine.tryConsume(Event.TOGGLE, new Counter()));
+    }
+
+    @Test
+    public void rejectTest() throws InterruptedException {
+        Counter counter = new Counter();
+        AtomicStateMachine<Event, State, Counter> machine = new AtomicStateMachine<>(
+                new StateMachineDefinition<>(buildRacingTransitions()), State.OFF,
+                AtomicStateMachine.ConflictPolicy.REJECT);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread toggle = race(machine, () -> {
+            try {
+                machine.consume(Event.TOGGLE, counter);
+            } catch (RuntimeException e) {
+                failures.add(e);
+            }
+        }, () -> Assertions.assertSame(State.ON, machine.consume(Event.RESET, counter)));
+        toggle.join();
+        Assertions.assertEquals(1, failures.size());
+        Assertions.assertTrue(failures.get(0) instanceof ConcurrentTransitionException);
+        Assertions.assertSame(State.ON, machine.getCurrentState());
+        Assertions.assertEquals(0, counter.before.get());
+    }
+
+    @Test
+    public void rejectClaimedTest() throws InterruptedException {
+        Counter counter = new Counter();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StateMachineDefinition<Event, State, Counter> definition = new StateMachineDefinition<>(
+                buildTransitions(new BlockingAction(entered, release)));
+        AtomicStateMachine<Event, State, Counter> machine = definition.newAtomicStateMachine(State.OFF,
+                AtomicStateMachine.ConflictPolicy.REJECT);
+        Thread first = new Thread(() -> machine.consume(Event.TOGGLE, counter));
+        first.start();
+        entered.await();
+        try {
+            Assertions.assertNull(machine.tryConsume(Event.TOGGLE, counter));
+            Assertions.assertThrows(ConcurrentTransitionException.class, () -> machine.consume(Event.TOGGLE,
+                    counter));
+        } finally {
+            release.countDown();
+            first.join();
+        }
+        Assertions.assertSame(State.ON, machine.getCurrentState());
+        Assertions.assertEquals(1, counter.before.get());
+    }
+
+    @Test
+    public void tryConsumeTest() throws InterruptedException {
+        Counter counter = new Counter();
+        AtomicStateMachine<Event, State, Counter> machine
+                = new AtomicStateMachine<>(new StateMachineDefinition<>(buildTransitions(null)), State.OFF);
+        Assertions.assertNull(machine.tryConsume(Event.RESET, counter));
+        Assertions.assertSame(State.ON, machine.tryConsume(Event.TOGGLE, counter));
+
+        AtomicStateMachine<Event, State, Counter> rejecting = new AtomicStateMachine<>(
+                new StateMachineDefinition<>(buildRacingTransitions()), State.OFF,
+                AtomicStateMachine.ConflictPolicy.REJECT);
+        List<State> results = Collections.synchronizedList(new ArrayList<>());
+        Thread toggle = race(rejecting, () -> results.add(rejecting.tryConsume(Event.TOGGLE, counter)),
+                () -> Assertions.assertSame(State.ON, rejecting.tryConsume(Event.RESET, counter)));
+        toggle.join();
+        Assertions.assertEquals(Collections.singletonList(null), results);
+        Assertions.assertSame(State.ON, rejecting.getCurrentState());
+    }
+
+    @Test
+    public void contentionTest() throws InterruptedException {
+        Counter counter = new Counter();
+        AtomicStateMachine<Event, State, Counter> machine
+                = new AtomicStateMachine<>(new StateMachineDefinition<>(buildTransitions(null)), State.OFF);
+        int threads = 8;
+        int iterations = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int j = 0; j < iterations; j++) {
+                    machine.consume(Event.TOGGLE, counter);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        Assertions.assertEquals(threads * iterations, counter.after.get());
+        Assertions.assertSame(State.OFF, machine.getCurrentState());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void consumeAllTest() {
+        Counter counter = new Counter();
+        AtomicStateMachine<Event, State, Counter> machine
+                = new AtomicStateMachine<>(new StateMachineDefinition<>(buildTransitions(null)), State.OFF);
+        BatchResult<State> result = machine.consumeAll(
+                Arrays.asList(Event.TOGGLE, Event.RESET, Event.RESET, Event.TOGGLE), counter);
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(State.OFF, result.getFinalState());
+
+        result = machine.consumeAll(Arrays.asList(Event.RESET, Event.TOGGLE, Event.RESET), counter,
+                InvalidEventPolicy.SKIP_INVALID);
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(State.OFF, result.getFinalState());
+
+        ContextualEvent<Event, Counter>[] events = new ContextualEvent[]{
+                new ContextualEvent<>(Event.RESET, counter),
+                new ContextualEvent<>(Event.TOGGLE, counter)
+        };
+        result = machine.consumeAll(events, InvalidEventPolicy.SKIP_INVALID);
+        Assertions.assertEquals(1, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(State.ON, result.getFinalState());
+
+        events = new ContextualEvent[]{
+                new ContextualEvent<>(Event.TOGGLE, counter),
+                new ContextualEvent<>(Event.RESET, counter),
+                new ContextualEvent<>(Event.TOGGLE, counter)
+        };
+        result = machine.consumeAll(events, InvalidEventPolicy.STOP_ON_FIRST_INVALID);
+        Assertions.assertEquals(1, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(State.OFF, result.getFinalState());
+    }
+
+    @Test
+    public void nullParamTest() {
+        StateMachineDefinition<Event, State, Counter> definition = new StateMachineDefinition<>(buildTransitions(null));
+        Assertions.assertThrows(NullPointerException.class, () -> new AtomicStateMachine<>(null, State.OFF));
+        Assertions.assertThrows(NullPointerException.class, () -> new AtomicStateMachine<>(definition, null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new AtomicStateMachine<>(definition, State.OFF, null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> definition.newAtomicStateMachine(null, AtomicStateMachine.ConflictPolicy.RETRY));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.newAtomicStateMachine(State.OFF, null));
+
+        AtomicStateMachine<Event, State, Counter> machine = new AtomicStateMachine<>(definition, State.OFF);
+        Assertions.assertThrows(NullPointerException.class, () -> machine.canConsume(null));
+        Assertions.assertThrows(NullPointerException.class, () -> machine.consume(null, new Counter()));
+        Assertions.assertThrows(NullPointerException.class, () -> machine.consume(Event.TOGGLE, null));
+        Assertions.assertThrows(NullPointerException.class, () -> machine.tryConsume(null, new Counter()));
+        Assertions.assertThrows(NullPointerException.class, () -> machine.tryConsume(Event.TOGGLE, null));
+    }
+
+    private static List<Transition<Event, State, Counter>> buildTransitions(final Action<Event, State, Counter> extra) {
+        List<Action<Event, State, Counter>> actions = new ArrayList<>();
+        actions.add(new CountingAction());
+        if (extra != null) {
+            actions.add(extra);
+        }
+        List<Transition<Event, State, Counter>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.TOGGLE, State.OFF, State.ON, actions));
+        transitions.add(new Transition<>(Event.TOGGLE, State.ON, State.OFF, Collections.singletonList(
+                new CountingAction())));
+        transitions.add(new Transition<>(Event.RESET, State.ON, State.OFF, Collections.singletonList(
+                new CountingAction())));
+        return transitions;
+    }
+
+    private static List<Transition<Event, State, Counter>> buildRacingTransitions() {
+        List<Transition<Event, State, Counter>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.TOGGLE, State.OFF, State.ON, Collections.singletonList(
+                new CountingAction())));
+        transitions.add(new Transition<>(Event.TOGGLE, State.ON, State.OFF, Collections.singletonList(
+                new CountingAction())));
+        transitions.add(new Transition<>(Event.RESET, State.OFF, State.ON));
+        return transitions;
+    }
+
+    private enum Event {
+        TOGGLE, RESET
+    }
+
+    private enum State {
+        OFF, ON
+    }
+
+    private static class Counter {
+
+        private final AtomicInteger before = new AtomicInteger();
+
+        private final AtomicInteger after = new AtomicInteger();
+    }
+
+    private static class CountingAction implements Action<Event, State, Counter> {
+
+        @Override
+        public void before(ActionContext<Event, State, Counter> actionContext) {
+            actionContext.getData().before.incrementAndGet();
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, Counter> actionContext) {
+            actionContext.getData().after.incrementAndGet();
+        }
+    }
+
+    /**
+     * Starts a thread performing a transition with actions, and runs the overtaking transition once the thread is
+     * blocked on the lock of the machine, before the thread can claim the state.
+     */
+    private static Thread race(final AtomicStateMachine<Event, State, Counter> machine, final Runnable consumer,
+                               final Runnable overtaking) {
+        Thread thread = new Thread(consumer);
+        synchronized (machine) {
+            thread.start();
+            awaitBlocked(thread);
+            overtaking.run();
+        }
+        return thread;
+    }
+
+    private static void awaitBlocked(final Thread thread) {
+        while (thread.getState() != Thread.State.BLOCKED) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Blocks the first transition it runs for until released.
+     */
+    private static class BlockingAction implements Action<Event, State, Counter> {
+
+        private final CountDownLatch entered;
+
+        private final CountDownLatch release;
+
+        private BlockingAction(final CountDownLatch entered, final CountDownLatch release) {
+            this.entered = entered;
+            this.release = release;
+        }
+
+        @Override
+        public void before(ActionContext<Event, State, Counter> actionContext) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, Counter> actionContext) {
+
+        }
+    }
+
+    /**
+     * Consumes an event in its own machine the first time it runs.
+     */
+    private static class NestedConsumeAction implements Action<Event, State, Counter> {
+
+        private static final ThreadLocal<AtomicStateMachine<Event, State, Counter>> MACHINE = new ThreadLocal<>();
+
+        @Override
+        public void before(ActionContext<Event, State, Counter> actionContext) {
+            AtomicStateMachine<Event, State, Counter> machine = MACHINE.get();
+            if (machine != null) {
+                MACHINE.remove();
+                machine.consume(Event.TOGGLE, new Counter());
+            }
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, Counter> actionContext) {
+
+        }
+    }
+}
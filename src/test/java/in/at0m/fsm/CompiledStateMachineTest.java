@@ -0,0 +1,202 @@
+package in.at0m.fsm;
+
+import in.at0m.fsm.dispatch.AfterActionDispatcher;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+public class CompiledStateMachineTest {
+
+    @Test
+    public void consumeTest() {
+        StateMachineDefinition<Event, State, List<String>> definition
+                = new StateMachineDefinition<>(buildTransitions());
+        CompiledStateMachine<Event, State, List<String>> machine = definition.newCompiledStateMachine(State.LOCKED);
+        Assertions.assertSame(definition, machine.getDefinition());
+        Assertions.assertSame(State.LOCKED, machine.getCurrentState());
+        Assertions.assertSame(machine.actions, definition.newCompiledStateMachine(State.BROKEN).actions);
+        Assertions.assertTrue(machine.canConsume(Event.COIN));
+        Assertions.assertFalse(machine.canConsume(Event.ALARM));
+        Assertions.assertEquals(EnumSet.of(Event.COIN, Event.KICK), machine.allowedEvents());
+
+        List<String> calls = new ArrayList<>();
+        Assertions.assertSame(State.UNLOCKED, machine.consume(Event.COIN, calls));
+        Assertions.assertEquals(Arrays.asList("first before LOCKED COIN", "second before LOCKED COIN",
+                "first after UNLOCKED", "second after UNLOCKED"), calls);
+        calls.clear();
+        Assertions.assertSame(State.UNLOCKED, machine.consume(Event.COIN, calls));
+        Assertions.assertTrue(calls.isEmpty());
+        Assertions.assertSame(State.LOCKED, machine.consume(Event.PUSH, calls));
+        Assertions.assertEquals(Arrays.asList("third before UNLOCKED PUSH", "third after LOCKED"), calls);
+        Assertions.assertSame(State.LOCKED, machine.getCurrentState());
+        Assertions.assertSame(State.BROKEN, machine.consume(Event.KICK, calls));
+        Assertions.assertFalse(machine.canConsume(Event.COIN));
+
+        InvalidTransitionException exception = Assertions.assertThrows(InvalidTransitionException.class,
+                () -> machine.consume(Event.COIN, calls));
+        Assertions.assertEquals("Transition from state BROKEN not valid for event COIN", exception.getMessage());
+        Assertions.assertNull(machine.tryConsume(Event.COIN, calls));
+        Assertions.assertSame(State.BROKEN, machine.getCurrentState());
+
+        // The class is generated once per definition.
+        Assertions.assertSame(machine.getClass(), definition.newCompiledStateMachine(State.UNLOCKED).getClass());
+        Assertions.assertSame(State.LOCKED,
+                definition.newCompiledStateMachine(State.UNLOCKED).tryConsume(Event.PUSH, calls));
+    }
+
+    @Test
+    public void vetoTest() {
+        List<Transition<Event, State, List<String>>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.COIN, State.LOCKED, State.UNLOCKED, Collections.singletonList(
+                new Action<Event, State, List<String>>() {
+                    @Override
+                    public void before(ActionContext<Event, State, List<String>> actionContext) {
+                        throw new IllegalStateException("Vetoed");
+                    }
+
+                    @Override
+                    public void after(ActionContext<Event, State, List<String>> actionContext) {
+                        Assertions.fail();
+                    }
+                })));
+        CompiledStateMachine<Event, State, List<String>> machine = new StateMachineDefinition<>(transitions)
+                .newCompiledStateMachine(State.LOCKED);
+        Assertions.assertThrows(IllegalStateException.class, () -> machine.consume(Event.COIN, new ArrayList<>()));
+        Assertions.assertSame(State.LOCKED, machine.getCurrentState());
+    }
+
+    @Test
+    public void afterActionDispatcherTest() {
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        try (AfterActionDispatcher dispatcher = new AfterActionDispatcher(16, 4,
+                AfterActionDispatcher.OverflowPolicy.BLOCK)) {
+            StateMachineDefinition<Event, State, List<String>> definition
+                    = StateMachineDefinition.<Event, State, List<String>>builder()
+                    .transitions(buildTransitions())
+                    .reuseActionContext(true)
+                    .afterActionDispatcher(dispatcher)
+                    .build();
+            CompiledStateMachine<Event, State, List<String>> machine
+                    = definition.newCompiledStateMachine(State.LOCKED);
+            Assertions.assertSame(State.UNLOCKED, machine.consume(Event.COIN, calls));
+        }
+        Assertions.assertEquals(Arrays.asList("first before LOCKED COIN", "second before LOCKED COIN",
+                "first after UNLOCKED", "second after UNLOCKED"), calls);
+    }
+
+    @Test
+    public void emptyDefinitionTest() {
+        CompiledStateMachine<Event, State, List<String>> machine
+                = new StateMachineDefinition<Event, State, List<String>>(new ArrayList<>())
+                .newCompiledStateMachine(State.LOCKED);
+        Assertions.assertFalse(machine.canConsume(Event.COIN));
+        Assertions.assertNull(machine.tryConsume(Event.COIN, new ArrayList<>()));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> machine.consume(Event.COIN,
+                new ArrayList<>()));
+    }
+
+    @Test
+    public void manyStatesTest() {
+        ManyStates[] states = ManyStates.values();
+        List<Transition<Event, ManyStates, List<String>>> transitions = new ArrayList<>();
+        for (ManyStates state : states) {
+            transitions.add(new Transition<>(Event.COIN, state, states[(state.ordinal() + 1) % states.length],
+                    state.ordinal() % 2 == 0 ? Collections.singletonList(new Recorder<>("even")) : null));
+            transitions.add(new Transition<>(Event.PUSH, state, state));
+        }
+        CompiledStateMachine<Event, ManyStates, List<String>> machine = new StateMachineDefinition<>(transitions)
+                .newCompiledStateMachine(ManyStates.S000);
+        List<String> calls = new ArrayList<>();
+        for (int i = 1; i <= 2 * states.length; i++) {
+            Assertions.assertSame(states[i % states.length], machine.consume(Event.COIN, calls));
+            Assertions.assertSame(states[i % states.length], machine.consume(Event.PUSH, calls));
+        }
+        Assertions.assertEquals(2 * states.length, calls.size());
+        Assertions.assertEquals("even before S298 COIN", calls.get(calls.size() - 2));
+        Assertions.assertFalse(machine.canConsume(Event.KICK));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        StateMachineDefinition<Event, State, List<String>> definition
+                = new StateMachineDefinition<>(buildTransitions());
+        Assertions.assertThrows(NullPointerException.class, () -> definition.newCompiledStateMachine(null));
+        CompiledStateMachine<Event, State, List<String>> machine = definition.newCompiledStateMachine(State.LOCKED);
+        Assertions.assertThrows(NullPointerException.class, () -> machine.canConsume(null));
+        Assertions.assertThrows(NullPointerException.class, () -> machine.consume(null, new ArrayList<>()));
+        Assertions.assertThrows(NullPointerException.class, () -> machine.consume(Event.COIN, null));
+        Assertions.assertThrows(NullPointerException.class, () -> machine.tryConsume(null, new ArrayList<>()));
+        Assertions.assertThrows(NullPointerException.class, () -> machine.tryConsume(Event.COIN, null));
+    }
+
+    private static List<Transition<Event, State, List<String>>> buildTransitions() {
+        List<Transition<Event, State, List<String>>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.COIN, State.LOCKED, State.UNLOCKED,
+                Arrays.asList(new Recorder<>("first"), new Recorder<>("second"))));
+        transitions.add(new Transition<>(Event.COIN, State.UNLOCKED, State.UNLOCKED));
+        transitions.add(new Transition<>(Event.PUSH, State.UNLOCKED, State.LOCKED,
+                Collections.singletonList(new Recorder<>("third"))));
+        transitions.add(new Transition<>(Event.KICK, State.LOCKED, State.BROKEN));
+        return transitions;
+    }
+
+    private enum Event {
+        COIN, PUSH, KICK, ALARM
+    }
+
+    private enum State {
+        LOCKED, UNLOCKED, BROKEN
+    }
+
+    private enum ManyStates {
+            S000, S001, S002, S003, S004, S005, S006, S007, S008, S009, S010, S011, S012, S013, S014,
+            S015, S016, S017, S018, S019, S020, S021, S022, S023, S024, S025, S026, S027, S028, S029,
+            S030, S031, S032, S033, S034, S035, S036, S037, S038, S039, S040, S041, S042, S043, S044,
+            S045, S046, S047, S048, S049, S050, S051, S052, S053, S054, S055, S056, S057, S058, S059,
+            S060, S061, S062, S063, S064, S065, S066, S067, S068, S069, S070, S071, S072, S073, S074,
+            S075, S076, S077, S078, S079, S080, S081, S082, S083, S084, S085, S086, S087, S088, S089,
+            S090, S091, S092, S093, S094, S095, S096, S097, S098, S099, S100, S101, S102, S103, S104,
+            S105, S106, S107, S108, S109, S110, S111, S112, S113, S114, S115, S116, S117, S118, S119,
+            S120, S121, S122, S123, S124, S125, S126, S127, S128, S129, S130, S131, S132, S133, S134,
+            S135, S136, S137, S138, S139, S140, S141, S142, S143, S144, S145, S146, S147, S148, S149,
+            S150, S151, S152, S153, S154, S155, S156, S157, S158, S159, S160, S161, S162, S163, S164,
+            S165, S166, S167, S168, S169, S170, S171, S172, S173, S174, S175, S176, S177, S178, S179,
+            S180, S181, S182, S183, S184, S185, S186, S187, S188, S189, S190, S191, S192, S193, S194,
+            S195, S196, S197, S198, S199, S200, S201, S202, S203, S204, S205, S206, S207, S208, S209,
+            S210, S211, S212, S213, S214, S215, S216, S217, S218, S219, S220, S221, S222, S223, S224,
+            S225, S226, S227, S228, S229, S230, S231, S232, S233, S234, S235, S236, S237, S238, S239,
+            S240, S241, S242, S243, S244, S245, S246, S247, S248, S249, S250, S251, S252, S253, S254,
+            S255, S256, S257, S258, S259, S260, S261, S262, S263, S264, S265, S266, S267, S268, S269,
+            S270, S271, S272, S273, S274, S275, S276, S277, S278, S279, S280, S281, S282, S283, S284,
+            S285, S286, S287, S288, S289, S290, S291, S292, S293, S294, S295, S296, S297, S298, S299
+    }
+
+    private static class Recorder<E extends Enum<E>, S extends Enum<S>> implements Action<E, S, List<String>> {
+
+        private final String name;
+
+        private Recorder(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void before(ActionContext<E, S, List<String>> actionContext) {
+            actionContext.getData().add(String.format("%s before %s %s", name, actionContext.getCurrentState(),
+                    actionContext.getEvent()));
+        }
+
+        @Override
+        public void after(ActionContext<E, S, List<String>> actionContext) {
+            actionContext.getData().add(String.format("%s after %s", name, actionContext.getNextState()));
+        }
+    }
+}
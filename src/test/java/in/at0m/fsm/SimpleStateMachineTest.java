@@ -1,5 +1,8 @@
 package in.at0m.fsm;
 
+import in.at0m.fsm.batch.BatchResult;
+import in.at0m.fsm.batch.ContextualEvent;
+import in.at0m.fsm.batch.InvalidEventPolicy;
 import in.at0m.fsm.exception.InvalidTransitionException;
 import in.at0m.fsm.transition.Action;
 import in.at0m.fsm.transition.ActionContext;
@@ -9,6 +12,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -28,6 +32,7 @@ public class SimpleStateMachineTest {
         Assertions.assertFalse(trafficLight.canConsume(TrafficLight.Event.GO));
         Assertions.assertFalse(trafficLight.canConsume(TrafficLight.Event.STOP_WARNING));
         Assertions.assertFalse(trafficLight.canConsume(TrafficLight.Event.STOP));
+        Assertions.assertEquals(Collections.singleton(TrafficLight.Event.GO_WARNING), trafficLight.allowedEvents());
 
         trafficLight.consume(TrafficLight.Event.GO_WARNING);
 
@@ -49,6 +54,60 @@ public class SimpleStateMachineTest {
         Assertions.assertEquals(4, trafficLight.getCount());
     }
 
+    @Test
+    public void tryConsumeTest() {
+        TrafficLight trafficLight = new TrafficLight();
+        Assertions.assertSame(TrafficLight.Color.RED_YELLOW,
+                trafficLight.tryConsume(TrafficLight.Event.GO_WARNING, trafficLight));
+        Assertions.assertNull(trafficLight.tryConsume(TrafficLight.Event.STOP, trafficLight));
+        Assertions.assertSame(TrafficLight.Color.RED_YELLOW, trafficLight.getCurrentState());
+        Assertions.assertEquals(1, trafficLight.getCount());
+    }
+
+    @Test
+    public void consumeAllTest() {
+        TrafficLight trafficLight = new TrafficLight();
+        BatchResult<TrafficLight.Color> result = trafficLight.consumeAll(Arrays.asList(
+                TrafficLight.Event.GO_WARNING, TrafficLight.Event.GO, TrafficLight.Event.GO,
+                TrafficLight.Event.STOP_WARNING), trafficLight);
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(TrafficLight.Color.GREEN, result.getFinalState());
+        Assertions.assertSame(TrafficLight.Color.GREEN, trafficLight.getCurrentState());
+
+        result = trafficLight.consumeAll(Arrays.asList(
+                TrafficLight.Event.GO, TrafficLight.Event.STOP_WARNING, TrafficLight.Event.GO_WARNING,
+                TrafficLight.Event.STOP), trafficLight, InvalidEventPolicy.SKIP_INVALID);
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(2, result.getRejected());
+        Assertions.assertSame(TrafficLight.Color.RED, result.getFinalState());
+        Assertions.assertEquals(4, trafficLight.getCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void consumeAllContextualTest() {
+        TrafficLight trafficLight = new TrafficLight();
+        TrafficLight other = new TrafficLight();
+        ContextualEvent<TrafficLight.Event, TrafficLight>[] events = new ContextualEvent[]{
+                new ContextualEvent<>(TrafficLight.Event.GO_WARNING, trafficLight),
+                new ContextualEvent<>(TrafficLight.Event.STOP, trafficLight),
+                new ContextualEvent<>(TrafficLight.Event.GO, other),
+                new ContextualEvent<>(TrafficLight.Event.GO, other)
+        };
+        BatchResult<TrafficLight.Color> result = trafficLight.consumeAll(events, InvalidEventPolicy.SKIP_INVALID);
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(2, result.getRejected());
+        Assertions.assertSame(TrafficLight.Color.GREEN, result.getFinalState());
+        Assertions.assertEquals(1, trafficLight.getCount());
+        Assertions.assertEquals(1, other.getCount());
+
+        result = trafficLight.consumeAll(events, InvalidEventPolicy.STOP_ON_FIRST_INVALID);
+        Assertions.assertEquals(0, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(TrafficLight.Color.GREEN, result.getFinalState());
+    }
+
     @Test
     public void builderTest() {
         List<Transition<TrafficLight.Event, TrafficLight.Color, TrafficLight>> transitions
@@ -65,6 +124,21 @@ public class SimpleStateMachineTest {
         Assertions.assertEquals(TrafficLight.buildTransitions().size(), trafficLight.getTransitions().size());
     }
 
+    @Test
+    public void sharedDefinitionTest() {
+        StateMachineDefinition<TrafficLight.Event, TrafficLight.Color, TrafficLight> definition
+                = new StateMachineDefinition<>(TrafficLight.buildTransitions());
+        SimpleStateMachine<TrafficLight.Event, TrafficLight.Color, TrafficLight> trafficLight1
+                = new SimpleStateMachine<>(definition, TrafficLight.Color.RED);
+        SimpleStateMachine<TrafficLight.Event, TrafficLight.Color, TrafficLight> trafficLight2
+                = new SimpleStateMachine<>(TrafficLight.Color.RED, definition.getTransitions());
+
+        Assertions.assertSame(trafficLight1.getTransitions(), trafficLight2.getTransitions());
+        trafficLight1.consume(TrafficLight.Event.GO_WARNING, new TrafficLight());
+        Assertions.assertSame(TrafficLight.Color.RED_YELLOW, trafficLight1.getCurrentState());
+        Assertions.assertSame(TrafficLight.Color.RED, trafficLight2.getCurrentState());
+    }
+
     @Test
     public void nullParamTest() {
         Assertions.assertThrows(NullPointerException.class,
@@ -80,6 +154,27 @@ public class SimpleStateMachineTest {
         Assertions.assertThrows(NullPointerException.class, () -> trafficLight.canConsume(null));
         Assertions.assertThrows(NullPointerException.class, () -> trafficLight.consume(null, new TrafficLight()));
         Assertions.assertThrows(NullPointerException.class, () -> trafficLight.consume(TrafficLight.Event.GO, null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> trafficLight.tryConsume(null, new TrafficLight()));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> trafficLight.tryConsume(TrafficLight.Event.GO, null));
+
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new SimpleStateMachine<TrafficLight.Event, TrafficLight.Color, TrafficLight>(
+                        null, TrafficLight.Color.RED));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new SimpleStateMachine<>(new StateMachineDefinition<>(TrafficLight.buildTransitions()), null));
+
+        Assertions.assertThrows(NullPointerException.class,
+                () -> trafficLight.consumeAll(null, new TrafficLight(), InvalidEventPolicy.SKIP_INVALID));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> trafficLight.consumeAll(Collections.emptyList(), null, InvalidEventPolicy.SKIP_INVALID));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> trafficLight.consumeAll(Collections.emptyList(), new TrafficLight(), null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> trafficLight.consumeAll(null, InvalidEventPolicy.SKIP_INVALID));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> trafficLight.consumeAll(new ContextualEvent[0], null));
 
         Assertions.assertThrows(NullPointerException.class, () -> SimpleStateMachine
                 .<TrafficLight.Event, TrafficLight.Color, TrafficLight>builder().transitions(null));
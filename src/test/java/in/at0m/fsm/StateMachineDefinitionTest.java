@@ -0,0 +1,231 @@
+package in.at0m.fsm;
+
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class StateMachineDefinitionTest {
+
+    @Test
+    public void getTransitionTest() {
+        StateMachineDefinition<Event, State, String> definition = new StateMachineDefinition<>(buildTransitions());
+        Assertions.assertSame(State.OPENED, definition.getTransition(State.CLOSED, Event.OPEN).getToState());
+        Assertions.assertNull(definition.getTransition(State.CLOSED, Event.CLOSE));
+        Assertions.assertTrue(definition.canConsume(State.OPENED, Event.CLOSE));
+        Assertions.assertFalse(definition.canConsume(State.OPENED, Event.OPEN));
+        Assertions.assertEquals(2, definition.getTransitions().size());
+    }
+
+    @Test
+    public void analysisTest() {
+        StateMachineDefinition<Event, State, String> definition = new StateMachineDefinition<>(buildTransitions());
+        Assertions.assertEquals(Collections.singleton(Event.CLOSE), definition.allowedEvents(State.OPENED));
+        Assertions.assertTrue(definition.getUnreachableStates().isEmpty());
+        Assertions.assertTrue(definition.getDeadEndStates().isEmpty());
+        Assertions.assertEquals(2, definition.reachableStates(State.OPENED).size());
+        Assertions.assertThrows(NullPointerException.class, () -> definition.allowedEvents(null));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.reachableStates(null));
+    }
+
+    @Test
+    public void internTest() {
+        StateMachineDefinition<Event, State, String> definition1 = new StateMachineDefinition<>(buildTransitions());
+        List<Transition<Event, State, String>> reversed = buildTransitions();
+        Collections.reverse(reversed);
+        StateMachineDefinition<Event, State, String> definition2 = new StateMachineDefinition<>(reversed);
+        Assertions.assertSame(definition1.getTransitions(), definition2.getTransitions());
+
+        List<Transition<Event, State, String>> withAction = new ArrayList<>();
+        withAction.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED,
+                Collections.singletonList(new NoOpAction())));
+        withAction.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        StateMachineDefinition<Event, State, String> definition3 = new StateMachineDefinition<>(withAction);
+        Assertions.assertNotSame(definition1.getTransitions(), definition3.getTransitions());
+    }
+
+    @Test
+    public void internMutatedActionsTest() {
+        NoOpAction action = new NoOpAction();
+        List<Action<Event, State, String>> actions = new ArrayList<>(Collections.singletonList(action));
+        StateMachineDefinition<Event, State, String> definition1 = new StateMachineDefinition<>(
+                Collections.singletonList(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED, actions)));
+        actions.add(new NoOpAction());
+
+        StateMachineDefinition<Event, State, String> definition2 = new StateMachineDefinition<>(
+                Collections.singletonList(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED,
+                        Collections.singletonList(action))));
+        Assertions.assertSame(definition1.getTransitions(), definition2.getTransitions());
+        Assertions.assertEquals(1, definition2.getTransitions().get(0).getActions().size());
+    }
+
+    @Test
+    public void duplicateTest() {
+        List<Transition<Event, State, String>> transitions = buildTransitions();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED));
+        Assertions.assertThrows(IllegalStateException.class, () -> new StateMachineDefinition<>(transitions));
+
+        List<Transition<Event, State, String>> conflicting = buildTransitions();
+        conflicting.add(new Transition<>(Event.OPEN, State.CLOSED, State.CLOSED));
+        Assertions.assertThrows(IllegalStateException.class, () -> new StateMachineDefinition<>(conflicting));
+    }
+
+    @Test
+    public void newStateMachineTest() {
+        StateMachineDefinition<Event, State, String> definition = new StateMachineDefinition<>(buildTransitions());
+        SimpleStateMachine<Event, State, String> machine1 = definition.newStateMachine(State.CLOSED);
+        SimpleStateMachine<Event, State, String> machine2 = definition.newStateMachine(State.CLOSED);
+        Assertions.assertSame(definition, machine1.getDefinition());
+        Assertions.assertSame(State.OPENED, machine1.consume(Event.OPEN, "door"));
+        Assertions.assertSame(State.CLOSED, machine2.getCurrentState());
+    }
+
+    @Test
+    public void builderTest() {
+        List<Transition<Event, State, String>> transitions = buildTransitions();
+        Transition<Event, State, String> transition = transitions.remove(0);
+        StateMachineDefinition<Event, State, String> definition = StateMachineDefinition.<Event, State, String>builder()
+                .transitions(transitions)
+                .addTransition(transition)
+                .build();
+        Assertions.assertEquals(2, definition.getTransitions().size());
+    }
+
+    @Test
+    public void rejectionTest() {
+        StateMachineDefinition<Event, State, String> definition = new StateMachineDefinition<>(buildTransitions());
+        Assertions.assertFalse(definition.isStacklessExceptions());
+        InvalidTransitionException rejection = definition.rejection(State.CLOSED, Event.CLOSE);
+        Assertions.assertEquals("Transition from state CLOSED not valid for event CLOSE", rejection.getMessage());
+        Assertions.assertNotEquals(0, rejection.getStackTrace().length);
+        Assertions.assertNotSame(rejection, definition.rejection(State.CLOSED, Event.CLOSE));
+
+        StateMachineDefinition<Event, State, String> stackless = StateMachineDefinition.<Event, State, String>builder()
+                .transitions(buildTransitions())
+                .stacklessExceptions(true)
+                .build();
+        Assertions.assertTrue(stackless.isStacklessExceptions());
+        rejection = stackless.rejection(State.CLOSED, Event.CLOSE);
+        Assertions.assertEquals("Transition from state CLOSED not valid for event CLOSE", rejection.getMessage());
+        Assertions.assertEquals(0, rejection.getStackTrace().length);
+        Assertions.assertSame(rejection, stackless.rejection(State.CLOSED, Event.CLOSE));
+        Assertions.assertSame(rejection, Assertions.assertThrows(InvalidTransitionException.class,
+                () -> stackless.newStateMachine(State.CLOSED).consume(Event.CLOSE, "door")));
+
+        StateMachineDefinition<Event, State, String> empty
+                = new StateMachineDefinition<>(Collections.emptyList(), true);
+        Assertions.assertEquals(0, empty.rejection(State.CLOSED, Event.OPEN).getStackTrace().length);
+    }
+
+    @Test
+    public void reuseActionContextTest() {
+        List<ActionContext<Event, State, String>> contexts = new ArrayList<>();
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED,
+                Collections.singletonList(new RecordingAction(contexts))));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED,
+                Collections.singletonList(new RecordingAction(contexts))));
+
+        StateMachineDefinition<Event, State, String> definition = new StateMachineDefinition<>(transitions);
+        Assertions.assertFalse(definition.isReuseActionContext());
+        SimpleStateMachine<Event, State, String> machine = definition.newStateMachine(State.CLOSED);
+        machine.consume(Event.OPEN, "door");
+        machine.consume(Event.CLOSE, "door");
+        Assertions.assertNotSame(contexts.get(0), contexts.get(1));
+        Assertions.assertSame(State.OPENED, contexts.get(1).getCurrentState());
+
+        contexts.clear();
+        StateMachineDefinition<Event, State, String> reusing = StateMachineDefinition.<Event, State, String>builder()
+                .transitions(transitions)
+                .reuseActionContext(true)
+                .build();
+        Assertions.assertTrue(reusing.isReuseActionContext());
+        machine = reusing.newStateMachine(State.CLOSED);
+        machine.consume(Event.OPEN, "door");
+        machine.consume(Event.CLOSE, "door");
+        Assertions.assertSame(contexts.get(0), contexts.get(1));
+        // The reusable context is released once the actions are done.
+        Assertions.assertNull(contexts.get(0).getData());
+
+        SimpleStateMachine<Event, State, String> failing = reusing.newStateMachine(State.CLOSED);
+        Assertions.assertThrows(IllegalStateException.class, () -> failing.consume(Event.OPEN, "fail"));
+        Assertions.assertSame(State.CLOSED, failing.getCurrentState());
+        contexts.clear();
+        failing.consume(Event.OPEN, "door");
+        Assertions.assertNull(contexts.get(0).getData());
+    }
+
+    @Test
+    public void nullParamTest() {
+        StateMachineDefinition<Event, State, String> definition = new StateMachineDefinition<>(buildTransitions());
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new StateMachineDefinition<Event, State, String>(null));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.getTransition(null, Event.OPEN));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.getTransition(State.CLOSED, null));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.canConsume(null, Event.OPEN));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.canConsume(State.CLOSED, null));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.newStateMachine(null));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.rejection(null, Event.OPEN));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.rejection(State.CLOSED, null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> StateMachineDefinition.<Event, State, String>builder().transitions(null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> StateMachineDefinition.<Event, State, String>builder().addTransition(null));
+    }
+
+    private static List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        return transitions;
+    }
+
+    private enum Event {
+        OPEN, CLOSE
+    }
+
+    private enum State {
+        CLOSED, OPENED
+    }
+
+    private static class RecordingAction implements Action<Event, State, String> {
+
+        private final List<ActionContext<Event, State, String>> contexts;
+
+        private RecordingAction(List<ActionContext<Event, State, String>> contexts) {
+            this.contexts = contexts;
+        }
+
+        @Override
+        public void before(ActionContext<Event, State, String> actionContext) {
+            if ("fail".equals(actionContext.getData())) {
+                throw new IllegalStateException("Action failed");
+            }
+            contexts.add(actionContext);
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, String> actionContext) {
+            Assertions.assertEquals("door", actionContext.getData());
+        }
+    }
+
+    private static class NoOpAction implements Action<Event, State, String> {
+
+        @Override
+        public void before(ActionContext<Event, State, String> actionContext) {
+
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, String> actionContext) {
+
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package in.at0m.fsm;
+
+import in.at0m.fsm.batch.BatchResult;
+import in.at0m.fsm.batch.ContextualEvent;
+import in.at0m.fsm.batch.InvalidEventPolicy;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class StateMachineTest {
+
+    @Test
+    public void tryConsumeTest() {
+        StateMachine<Event, State, String> machine = new Door();
+        Assertions.assertSame(State.OPENED, machine.tryConsume(Event.OPEN, "door"));
+        Assertions.assertNull(machine.tryConsume(Event.OPEN, "door"));
+        Assertions.assertSame(State.OPENED, machine.getCurrentState());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void consumeAllTest() {
+        StateMachine<Event, State, String> machine = new Door();
+        BatchResult<State> result = machine.consumeAll(Arrays.asList(Event.OPEN, Event.OPEN, Event.CLOSE), "door");
+        Assertions.assertEquals(1, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(State.OPENED, result.getFinalState());
+
+        ContextualEvent<Event, String>[] events = new ContextualEvent[]{
+                new ContextualEvent<>(Event.OPEN, "door"),
+                new ContextualEvent<>(Event.CLOSE, "door"),
+                new ContextualEvent<>(Event.CLOSE, "door")
+        };
+        result = machine.consumeAll(events, InvalidEventPolicy.SKIP_INVALID);
+        Assertions.assertEquals(1, result.getApplied());
+        Assertions.assertEquals(2, result.getRejected());
+        Assertions.assertSame(State.CLOSED, result.getFinalState());
+        result = machine.consumeAll(events, InvalidEventPolicy.STOP_ON_FIRST_INVALID);
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(State.CLOSED, result.getFinalState());
+    }
+
+    private enum Event {
+        OPEN, CLOSE
+    }
+
+    private enum State {
+        CLOSED, OPENED
+    }
+
+    /**
+     * A state machine relying on the default methods of {@link StateMachine}.
+     */
+    private static class Door implements StateMachine<Event, State, String> {
+
+        private final SimpleStateMachine<Event, State, String> delegate;
+
+        private Door() {
+            List<Transition<Event, State, String>> transitions = new ArrayList<>();
+            transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED));
+            transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+            delegate = new StateMachineDefinition<>(transitions).newStateMachine(State.CLOSED);
+        }
+
+        @Override
+        public State getCurrentState() {
+            return delegate.getCurrentState();
+        }
+
+        @Override
+        public boolean canConsume(Event event) {
+            return delegate.canConsume(event);
+        }
+
+        @Override
+        public State consume(Event event, String context) {
+            return delegate.consume(event, context);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package in.at0m.fsm.async;
+
+import in.at0m.fsm.SimpleStateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MailboxExecutorTest {
+
+    private static final StateMachineDefinition<Event, State, String> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    @Test
+    public void submitTest() throws Exception {
+        Map<Integer, SimpleStateMachine<Event, State, String>> machines = new ConcurrentHashMap<>();
+        MailboxExecutor<Integer, Event, State, String> executor = new MailboxExecutor<>(
+                key -> machines.computeIfAbsent(key, k -> DEFINITION.newStateMachine(State.CLOSED)), 1000);
+        List<CompletableFuture<State>> futures = new ArrayList<>();
+        for (int i = 0; i < 999; i++) {
+            for (int key = 0; key < 8; key++) {
+                futures.add(executor.submit(key, Event.TOGGLE, "context"));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(1, TimeUnit.MINUTES);
+        for (int key = 0; key < 8; key++) {
+            Assertions.assertSame(State.OPENED, machines.get(key).getCurrentState());
+            Assertions.assertEquals(0, executor.pending(key));
+        }
+        // Events of a machine are consumed in order, so the futures of a key alternate between the two states.
+        Assertions.assertSame(State.OPENED, futures.get(0).get());
+        Assertions.assertSame(State.CLOSED, futures.get(8).get());
+        Assertions.assertEquals(0, executor.pending(100));
+    }
+
+    @Test
+    public void backpressureTest() throws Exception {
+        List<Runnable> scheduled = new ArrayList<>();
+        MailboxExecutor<String, Event, State, String> executor = new MailboxExecutor<>(
+                key -> DEFINITION.newStateMachine(State.CLOSED), scheduled::add, 2);
+        CompletableFuture<State> first = executor.submit("key", Event.TOGGLE, "context");
+        CompletableFuture<State> second = executor.submit("key", Event.CLOSE, "context");
+        CompletableFuture<State> third = executor.submit("key", Event.TOGGLE, "context");
+        Assertions.assertEquals(1, scheduled.size());
+        Assertions.assertEquals(2, executor.pending("key"));
+        ExecutionException rejected = Assertions.assertThrows(ExecutionException.class, third::get);
+        Assertions.assertTrue(rejected.getCause() instanceof RejectedExecutionException);
+
+        scheduled.remove(0).run();
+        Assertions.assertSame(State.OPENED, first.get());
+        Assertions.assertSame(State.CLOSED, second.get());
+        Assertions.assertTrue(scheduled.isEmpty());
+    }
+
+    @Test
+    public void throughputTest() {
+        List<Runnable> scheduled = new ArrayList<>();
+        MailboxExecutor<String, Event, State, String> executor = new MailboxExecutor<>(
+                key -> DEFINITION.newStateMachine(State.CLOSED), scheduled::add, 100);
+        List<CompletableFuture<State>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(executor.submit("key", Event.TOGGLE, "context"));
+        }
+        scheduled.remove(0).run();
+        // The mailbox yields after a bounded number of events and reschedules itself for the rest.
+        Assertions.assertEquals(1, scheduled.size());
+        Assertions.assertFalse(futures.get(99).isDone());
+        scheduled.remove(0).run();
+        Assertions.assertTrue(futures.get(99).isDone());
+        Assertions.assertTrue(scheduled.isEmpty());
+    }
+
+    @Test
+    public void consumeFailureTest() {
+        MailboxExecutor<String, Event, State, String> executor = new MailboxExecutor<>(
+                key -> DEFINITION.newStateMachine(State.CLOSED), Runnable::run, 1);
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class,
+                () -> executor.submit("key", Event.CLOSE, "context").get());
+        Assertions.assertTrue(failure.getCause() instanceof InvalidTransitionException);
+    }
+
+    @Test
+    public void errorTest() throws Exception {
+        List<Runnable> scheduled = new ArrayList<>();
+        List<Transition<Event, State, String>> transitions = new ArrayList<>(buildTransitions());
+        transitions.add(new Transition<>(Event.CLOSE, State.CLOSED, State.CLOSED, Collections.singletonList(
+                new Action<Event, State, String>() {
+                    @Override
+                    public void before(ActionContext<Event, State, String> actionContext) {
+                        throw new AssertionError("failure");
+                    }
+
+                    @Override
+                    public void after(ActionContext<Event, State, String> actionContext) {
+
+                    }
+                })));
+        StateMachineDefinition<Event, State, String> definition = new StateMachineDefinition<>(transitions);
+        MailboxExecutor<String, Event, State, String> executor = new MailboxExecutor<>(
+                key -> definition.newStateMachine(State.CLOSED), scheduled::add, 2);
+        CompletableFuture<State> failing = executor.submit("key", Event.CLOSE, "context");
+        CompletableFuture<State> next = executor.submit("key", Event.TOGGLE, "context");
+        Assertions.assertThrows(AssertionError.class, () -> scheduled.remove(0).run());
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class, failing::get);
+        Assertions.assertTrue(failure.getCause() instanceof AssertionError);
+
+        // The mailbox is not stuck: it was rescheduled for the remaining event.
+        Assertions.assertEquals(1, scheduled.size());
+        scheduled.remove(0).run();
+        Assertions.assertSame(State.OPENED, next.get());
+        Assertions.assertEquals(0, executor.pending("key"));
+    }
+
+    @Test
+    public void evictTest() throws Exception {
+        List<Runnable> scheduled = new ArrayList<>();
+        AtomicInteger created = new AtomicInteger();
+        MailboxExecutor<String, Event, State, String> executor = new MailboxExecutor<>(key -> {
+            created.incrementAndGet();
+            return DEFINITION.newStateMachine(State.CLOSED);
+        }, scheduled::add, 2);
+        Assertions.assertTrue(executor.evict("key"));
+        CompletableFuture<State> first = executor.submit("key", Event.TOGGLE, "context");
+        Assertions.assertFalse(executor.evict("key"));
+        scheduled.remove(0).run();
+        Assertions.assertSame(State.OPENED, first.get());
+        Assertions.assertTrue(executor.evict("key"));
+        Assertions.assertEquals(0, executor.pending("key"));
+
+        // A new machine is provided once the key is used again.
+        CompletableFuture<State> second = executor.submit("key", Event.TOGGLE, "context");
+        scheduled.remove(0).run();
+        Assertions.assertSame(State.OPENED, second.get());
+        Assertions.assertEquals(2, created.get());
+    }
+
+    @Test
+    public void rejectedExecutionTest() {
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        service.shutdown();
+        MailboxExecutor<String, Event, State, String> executor = new MailboxExecutor<>(
+                key -> DEFINITION.newStateMachine(State.CLOSED), service, 1);
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class,
+                () -> executor.submit("key", Event.TOGGLE, "context").get());
+        Assertions.assertTrue(failure.getCause() instanceof RejectedExecutionException);
+        Assertions.assertEquals(0, executor.pending("key"));
+    }
+
+    @Test
+    public void defaultExecutorTest() {
+        Assertions.assertNotNull(MailboxExecutor.defaultExecutor());
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MailboxExecutor<String, Event, State, String>(
+                key -> DEFINITION.newStateMachine(State.CLOSED), 0));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new MailboxExecutor<String, Event, State, String>(null, 1));
+        Assertions.assertThrows(NullPointerException.class, () -> new MailboxExecutor<String, Event, State, String>(
+                key -> DEFINITION.newStateMachine(State.CLOSED), null, 1));
+
+        MailboxExecutor<String, Event, State, String> executor = new MailboxExecutor<>(
+                key -> DEFINITION.newStateMachine(State.CLOSED), Runnable::run, 1);
+        Assertions.assertThrows(NullPointerException.class, () -> executor.submit(null, Event.TOGGLE, "context"));
+        Assertions.assertThrows(NullPointerException.class, () -> executor.submit("key", null, "context"));
+        Assertions.assertThrows(NullPointerException.class, () -> executor.submit("key", Event.TOGGLE, null));
+        Assertions.assertThrows(NullPointerException.class, () -> executor.pending(null));
+        Assertions.assertThrows(NullPointerException.class, () -> executor.evict(null));
+    }
+
+    private static List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.TOGGLE, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.TOGGLE, State.OPENED, State.CLOSED));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        return transitions;
+    }
+
+    private enum Event {
+        TOGGLE, CLOSE
+    }
+
+    private enum State {
+        CLOSED, OPENED
+    }
+}
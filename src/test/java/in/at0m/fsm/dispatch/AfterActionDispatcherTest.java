@@ -0,0 +1,267 @@
+package in.at0m.fsm.dispatch;
+
+import in.at0m.fsm.SimpleStateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AfterActionDispatcherTest {
+
+    @Test
+    public void orderTest() {
+        List<Integer> calls = Collections.synchronizedList(new ArrayList<>());
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(16, 4, AfterActionDispatcher.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 1000; i++) {
+            int call = i;
+            dispatcher.dispatch(() -> calls.add(call));
+        }
+        dispatcher.close();
+        Assertions.assertEquals(1000, calls.size());
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i, calls.get(i));
+        }
+        Assertions.assertEquals(0, dispatcher.pending());
+        Assertions.assertEquals(0, dispatcher.getDropped());
+        dispatcher.close();
+    }
+
+    @Test
+    public void closedTest() {
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(
+                1, 1, AfterActionDispatcher.OverflowPolicy.BLOCK, Thread::new, errors::add);
+        dispatcher.close();
+        dispatcher.close();
+        List<String> calls = new ArrayList<>();
+        dispatcher.dispatch(() -> calls.add("rejected"));
+        Assertions.assertTrue(calls.isEmpty());
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertInstanceOf(RejectedExecutionException.class, errors.get(0));
+    }
+
+    @Test
+    public void dropTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(1, 1, AfterActionDispatcher.OverflowPolicy.DROP);
+        occupy(dispatcher, release);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        dispatcher.dispatch(() -> calls.add("queued"));
+        dispatcher.dispatch(() -> calls.add("dropped"));
+        Assertions.assertEquals(1, dispatcher.pending());
+        Assertions.assertEquals(1, dispatcher.getDropped());
+        release.countDown();
+        dispatcher.close();
+        Assertions.assertEquals(Collections.singletonList("queued"), calls);
+    }
+
+    @Test
+    public void callerRunsTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(
+                1, 1, AfterActionDispatcher.OverflowPolicy.CALLER_RUNS);
+        occupy(dispatcher, release);
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        dispatcher.dispatch(() -> threads.add(Thread.currentThread().getName()));
+        dispatcher.dispatch(() -> threads.add(Thread.currentThread().getName()));
+        Assertions.assertEquals(Collections.singletonList(Thread.currentThread().getName()), threads);
+        release.countDown();
+        dispatcher.close();
+        Assertions.assertEquals("fsm-after-actions", threads.get(1));
+    }
+
+    @Test
+    public void blockTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(
+                1, 1, AfterActionDispatcher.OverflowPolicy.BLOCK, Thread::new, errors::add);
+        occupy(dispatcher, release);
+        dispatcher.dispatch(() -> {
+        });
+        Thread.currentThread().interrupt();
+        dispatcher.dispatch(() -> {
+        });
+        Assertions.assertTrue(Thread.interrupted());
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertInstanceOf(RejectedExecutionException.class, errors.get(0));
+        Assertions.assertInstanceOf(InterruptedException.class, errors.get(0).getCause());
+        release.countDown();
+        dispatcher.close();
+    }
+
+    @Test
+    public void stoppedWorkerTest() {
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(1, 1, AfterActionDispatcher.OverflowPolicy.BLOCK,
+                runnable -> new Thread(() -> {
+                }), errors::add);
+        dispatcher.dispatch(() -> {
+        });
+        dispatcher.dispatch(() -> {
+        });
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertInstanceOf(RejectedExecutionException.class, errors.get(0));
+        dispatcher.close();
+        Assertions.assertEquals(1, dispatcher.pending());
+    }
+
+    @Test
+    public void interruptedCloseTest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(1, 1, AfterActionDispatcher.OverflowPolicy.BLOCK);
+        occupy(dispatcher, release);
+        Thread.currentThread().interrupt();
+        dispatcher.close();
+        Assertions.assertTrue(Thread.interrupted());
+        release.countDown();
+    }
+
+    @Test
+    public void interruptedWorkerTest() throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(1, 1, AfterActionDispatcher.OverflowPolicy.BLOCK,
+                runnable -> {
+                    Thread worker = new Thread(runnable);
+                    workers.add(worker);
+                    return worker;
+                }, errors::add);
+        workers.get(0).interrupt();
+        workers.get(0).join(TimeUnit.MINUTES.toMillis(1));
+        Assertions.assertFalse(workers.get(0).isAlive());
+        dispatcher.dispatch(() -> {
+        });
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertInstanceOf(RejectedExecutionException.class, errors.get(0));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new AfterActionDispatcher(0, 1, AfterActionDispatcher.OverflowPolicy.BLOCK));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new AfterActionDispatcher(1, 0, AfterActionDispatcher.OverflowPolicy.BLOCK));
+        Assertions.assertThrows(NullPointerException.class, () -> new AfterActionDispatcher(1, 1, null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new AfterActionDispatcher(1, 1, AfterActionDispatcher.OverflowPolicy.BLOCK, null, null));
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(1, 1, AfterActionDispatcher.OverflowPolicy.BLOCK);
+        Assertions.assertThrows(NullPointerException.class, () -> dispatcher.dispatch(null));
+        dispatcher.close();
+    }
+
+    @Test
+    public void errorHandlerTest() throws InterruptedException {
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(
+                4, 4, AfterActionDispatcher.OverflowPolicy.BLOCK, Thread::new, errors::add);
+        dispatcher.dispatch(() -> {
+            throw new IllegalStateException("first");
+        });
+        dispatcher.dispatch(() -> {
+            throw new AssertionError("error");
+        });
+        dispatcher.dispatch(() -> calls.add("last"));
+        dispatcher.close();
+        Assertions.assertEquals("first", errors.get(0).getMessage());
+        Assertions.assertEquals("error", errors.get(1).getMessage());
+        Assertions.assertEquals(Collections.singletonList("last"), calls);
+
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        CountDownLatch uncaught = new CountDownLatch(1);
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> uncaught.countDown());
+        try {
+            AfterActionDispatcher defaultDispatcher = new AfterActionDispatcher(
+                    4, 4, AfterActionDispatcher.OverflowPolicy.BLOCK);
+            defaultDispatcher.dispatch(() -> {
+                throw new IllegalStateException("second");
+            });
+            Assertions.assertTrue(uncaught.await(1, TimeUnit.MINUTES));
+            defaultDispatcher.close();
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    public void definitionTest() {
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED,
+                Collections.singletonList(new RecordingAction(calls))));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED,
+                Collections.singletonList(new RecordingAction(calls))));
+
+        for (boolean reuseActionContext : new boolean[]{false, true}) {
+            calls.clear();
+            AfterActionDispatcher dispatcher = new AfterActionDispatcher(
+                    16, 4, AfterActionDispatcher.OverflowPolicy.BLOCK);
+            StateMachineDefinition<Event, State, String> definition
+                    = StateMachineDefinition.<Event, State, String>builder()
+                    .transitions(transitions)
+                    .reuseActionContext(reuseActionContext)
+                    .afterActionDispatcher(dispatcher)
+                    .build();
+            Assertions.assertSame(dispatcher, definition.getAfterActionDispatcher());
+            SimpleStateMachine<Event, State, String> machine = definition.newStateMachine(State.CLOSED);
+            machine.consume(Event.OPEN, "first");
+            machine.consume(Event.CLOSE, "second");
+            dispatcher.close();
+            Assertions.assertEquals(4, calls.size());
+            Assertions.assertTrue(calls.contains("after OPEN first fsm-after-actions"));
+            Assertions.assertEquals("after CLOSE second fsm-after-actions",
+                    calls.stream().filter(call -> call.startsWith("after")).skip(1).findFirst().orElse(null));
+        }
+    }
+
+    private static void occupy(AfterActionDispatcher dispatcher, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assertions.assertTrue(started.await(1, TimeUnit.MINUTES));
+    }
+
+    private enum Event {
+        OPEN, CLOSE
+    }
+
+    private enum State {
+        CLOSED, OPENED
+    }
+
+    private static class RecordingAction implements Action<Event, State, String> {
+
+        private final List<String> calls;
+
+        private RecordingAction(List<String> calls) {
+            this.calls = calls;
+        }
+
+        @Override
+        public void before(ActionContext<Event, State, String> actionContext) {
+            calls.add("before " + actionContext.getEvent() + " " + actionContext.getData());
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, String> actionContext) {
+            calls.add("after " + actionContext.getEvent() + " " + actionContext.getData() + " "
+                    + Thread.currentThread().getName());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package in.at0m.fsm.dynamic;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefinitionFileTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<String> calls = new ArrayList<>();
+
+    private final Map<String, DynamicAction<String>> registry = Map.of(
+            "audit", new RecordingAction("audit"), "notify", new RecordingAction("notify"));
+
+    private final List<String> bound = new ArrayList<>();
+
+    @Test
+    public void roundTripTest() throws IOException {
+        Path path = directory.resolve("order.fsm");
+        DefinitionFile<String> file = newFile(path, 7);
+        Assertions.assertSame(path, file.getPath());
+        Assertions.assertEquals(7, file.getSourceVersion());
+        file.write(buildDefinition());
+
+        DynamicStateMachineDefinition<String> definition = file.load();
+        Assertions.assertNotNull(definition);
+        Assertions.assertEquals(List.of("AWAITING_PAYMENT", "PAID", "SHIPPED", "CANCELLED"),
+                definition.getStates().getNames());
+        Assertions.assertEquals(List.of("PAY", "SHIP", "CANCEL"), definition.getEvents().getNames());
+        Assertions.assertEquals(2, definition.next(1, 1));
+        Assertions.assertEquals(-1, definition.next(2, 0));
+        Assertions.assertTrue(bound.isEmpty());
+
+        DynamicStateMachine<String> stateMachine = definition.newStateMachine("AWAITING_PAYMENT");
+        Assertions.assertEquals(1, stateMachine.consume(0, "order"));
+        Assertions.assertEquals(List.of("audit"), bound);
+        Assertions.assertEquals(2, stateMachine.consume(1, "order"));
+        Assertions.assertEquals(List.of("audit", "notify"), bound);
+        Assertions.assertEquals(List.of("audit before PAY", "audit after PAY", "audit before SHIP",
+                "notify before SHIP", "audit after SHIP", "notify after SHIP"), calls);
+        definition.newStateMachine(0).consume(0, "order");
+        Assertions.assertEquals(List.of("audit", "notify"), bound);
+
+        file.write(definition);
+        DynamicStateMachineDefinition<String> reloaded = file.load();
+        Assertions.assertEquals(definition.getStates().getNames(), reloaded.getStates().getNames());
+        Assertions.assertEquals(3, reloaded.next(0, 2));
+        Assertions.assertFalse(Files.exists(directory.resolve("order.fsm.tmp")));
+    }
+
+    @Test
+    public void loadOrBuildTest() throws IOException {
+        Path path = directory.resolve("order.fsm");
+        AtomicInteger builds = new AtomicInteger();
+        Assertions.assertNull(newFile(path, 1).load());
+        Assertions.assertNotNull(newFile(path, 1).loadOrBuild(() -> {
+            builds.incrementAndGet();
+            return buildDefinition();
+        }));
+        Assertions.assertNotNull(newFile(path, 1).loadOrBuild(() -> {
+            builds.incrementAndGet();
+            return buildDefinition();
+        }));
+        Assertions.assertEquals(1, builds.get());
+        Assertions.assertNull(newFile(path, 2).load());
+        Assertions.assertEquals(4, newFile(path, 2).loadOrBuild(this::buildDefinition).getStates().size());
+        Assertions.assertNotNull(newFile(path, 2).load());
+    }
+
+    @Test
+    public void staleTest() throws IOException {
+        Path path = directory.resolve("order.fsm");
+        newFile(path, 1).write(buildDefinition());
+        byte[] content = Files.readAllBytes(path);
+        Assertions.assertNotNull(newFile(path, 1).load());
+
+        Files.write(path, Arrays.copyOf(content, 10));
+        Assertions.assertNull(newFile(path, 1).load());
+        Files.write(path, Arrays.copyOf(content, content.length + 1));
+        Assertions.assertNull(newFile(path, 1).load());
+        assertStale(path, content, 0);
+        assertStale(path, content, 7);
+        assertStale(path, content, 15);
+        assertStale(path, content, content.length - 1);
+    }
+
+    @Test
+    public void unboundActionTest() throws IOException {
+        Path path = directory.resolve("order.fsm");
+        newFile(path, 1).write(buildDefinition());
+        DynamicStateMachineDefinition<String> definition = new DefinitionFile<String>(
+                path, 1, binding -> null, action -> null).load();
+        DynamicStateMachine<String> stateMachine = definition.newStateMachine(0);
+        Assertions.assertThrows(IllegalStateException.class, () -> stateMachine.consume(0, "order"));
+        Assertions.assertEquals(0, stateMachine.getCurrentState());
+
+        DefinitionFile<String> file = new DefinitionFile<>(path, 1, registry::get, action -> null);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> file.write(buildDefinition()));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Path path = directory.resolve("order.fsm");
+        Assertions.assertThrows(NullPointerException.class, () -> new DefinitionFile<String>(
+                null, 1, registry::get, action -> "audit"));
+        Assertions.assertThrows(NullPointerException.class, () -> new DefinitionFile<String>(
+                path, 1, null, action -> "audit"));
+        Assertions.assertThrows(NullPointerException.class, () -> new DefinitionFile<String>(
+                path, 1, registry::get, null));
+        DefinitionFile<String> file = newFile(path, 1);
+        Assertions.assertThrows(NullPointerException.class, () -> file.write(null));
+        Assertions.assertThrows(NullPointerException.class, () -> file.loadOrBuild(null));
+    }
+
+    private void assertStale(final Path path, final byte[] content, final int position) throws IOException {
+        byte[] corrupt = content.clone();
+        corrupt[position] ^= 1;
+        Files.write(path, corrupt);
+        Assertions.assertNull(newFile(path, 1).load());
+    }
+
+    private DefinitionFile<String> newFile(final Path path, final long sourceVersion) {
+        return new DefinitionFile<>(path, sourceVersion, binding -> {
+            bound.add(binding);
+            return registry.get(binding);
+        }, action -> ((RecordingAction) action).name);
+    }
+
+    private DynamicStateMachineDefinition<String> buildDefinition() {
+        DynamicAction<String> audit = registry.get("audit");
+        DynamicAction<String> notify = registry.get("notify");
+        return DynamicStateMachineDefinition.<String>builder()
+                .addTransition("PAY", "AWAITING_PAYMENT", "PAID", List.of(audit))
+                .addTransition("SHIP", "PAID", "SHIPPED", List.of(audit, notify))
+                .addTransition("CANCEL", "AWAITING_PAYMENT", "CANCELLED")
+                .build();
+    }
+
+    private final class RecordingAction implements DynamicAction<String> {
+
+        private final String name;
+
+        private RecordingAction(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void before(final DynamicActionContext<String> actionContext) {
+            calls.add(name + " before " + actionContext.getEventName());
+        }
+
+        @Override
+        public void after(final DynamicActionContext<String> actionContext) {
+            calls.add(name + " after " + actionContext.getEventName());
+        }
+    }
+}
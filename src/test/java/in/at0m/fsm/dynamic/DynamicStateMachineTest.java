@@ -0,0 +1,96 @@
+package in.at0m.fsm.dynamic;
+
+import in.at0m.fsm.exception.InvalidTransitionException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DynamicStateMachineTest {
+
+    @Test
+    public void consumeTest() {
+        List<String> calls = new ArrayList<>();
+        DynamicAction<String> action = new DynamicAction<>() {
+            @Override
+            public void before(final DynamicActionContext<String> actionContext) {
+                calls.add("before " + actionContext.getEventName() + " " + actionContext.getCurrentStateName()
+                        + " " + actionContext.getNextStateName() + " " + actionContext.getData());
+            }
+
+            @Override
+            public void after(final DynamicActionContext<String> actionContext) {
+                calls.add("after " + actionContext.getEvent() + " " + actionContext.getCurrentState() + " "
+                        + actionContext.getNextState());
+            }
+        };
+        DynamicStateMachineDefinition<String> definition = DynamicStateMachineDefinition.<String>builder()
+                .addState("BROKEN")
+                .addEvent("KICK")
+                .addTransition("OPEN", "CLOSED", "OPENED", List.of(action))
+                .addTransition("CLOSE", "OPENED", "CLOSED")
+                .build();
+        NameTable states = definition.getStates();
+        NameTable events = definition.getEvents();
+        Assertions.assertEquals(List.of("BROKEN", "CLOSED", "OPENED"), states.getNames());
+        Assertions.assertEquals(List.of("KICK", "OPEN", "CLOSE"), events.getNames());
+        int open = events.id("OPEN");
+        int close = events.id("CLOSE");
+
+        DynamicStateMachine<String> stateMachine = definition.newStateMachine("CLOSED");
+        Assertions.assertSame(definition, stateMachine.getDefinition());
+        Assertions.assertEquals(states.id("CLOSED"), stateMachine.getCurrentState());
+        Assertions.assertTrue(stateMachine.canConsume(open));
+        Assertions.assertFalse(stateMachine.canConsume(close));
+        Assertions.assertEquals(states.id("OPENED"), stateMachine.consume(open, "door"));
+        Assertions.assertEquals("OPENED", stateMachine.getCurrentStateName());
+        Assertions.assertEquals(List.of("before OPEN CLOSED OPENED door", "after 1 1 2"), calls);
+
+        Assertions.assertEquals(-1, stateMachine.tryConsume(open, "door"));
+        InvalidTransitionException exception = Assertions.assertThrows(InvalidTransitionException.class,
+                () -> stateMachine.consume(open, "door"));
+        Assertions.assertEquals("Transition from state OPENED not valid for event OPEN", exception.getMessage());
+        Assertions.assertEquals(states.id("CLOSED"), stateMachine.tryConsume(close, "door"));
+        Assertions.assertEquals(states.id("CLOSED"), definition.next(states.id("OPENED"), close));
+        Assertions.assertEquals(-1, definition.next(states.id("BROKEN"), events.id("KICK")));
+        Assertions.assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void duplicateTransitionTest() {
+        DynamicStateMachineDefinition.Builder<String> builder = DynamicStateMachineDefinition.<String>builder()
+                .addTransition("OPEN", "CLOSED", "OPENED")
+                .addTransition("OPEN", "CLOSED", "CLOSED");
+        Assertions.assertThrows(IllegalStateException.class, builder::build);
+    }
+
+    @Test
+    public void invalidParamTest() {
+        DynamicStateMachineDefinition<String> definition = DynamicStateMachineDefinition.<String>builder()
+                .addTransition("OPEN", "CLOSED", "OPENED")
+                .build();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> definition.newStateMachine(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> definition.newStateMachine(2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> definition.newStateMachine("BROKEN"));
+        Assertions.assertThrows(NullPointerException.class, () -> definition.newStateMachine(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> definition.next(-1, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> definition.next(2, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> definition.next(0, -1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> definition.next(0, 1));
+        DynamicStateMachine<String> stateMachine = definition.newStateMachine(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> stateMachine.canConsume(1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> stateMachine.consume(1, "door"));
+        Assertions.assertThrows(NullPointerException.class, () -> stateMachine.consume(0, null));
+        Assertions.assertThrows(NullPointerException.class, () -> stateMachine.tryConsume(0, null));
+
+        DynamicStateMachineDefinition.Builder<String> builder = DynamicStateMachineDefinition.builder();
+        Assertions.assertThrows(NullPointerException.class, () -> builder.addState(null));
+        Assertions.assertThrows(NullPointerException.class, () -> builder.addEvent(null));
+        Assertions.assertThrows(NullPointerException.class, () -> builder.addTransition(null, "CLOSED", "OPENED"));
+        Assertions.assertThrows(NullPointerException.class, () -> builder.addTransition("OPEN", null, "OPENED"));
+        Assertions.assertThrows(NullPointerException.class, () -> builder.addTransition("OPEN", "CLOSED", null));
+        Assertions.assertThrows(NullPointerException.class, () -> builder.addTransition(
+                "OPEN", "CLOSED", "OPENED", null));
+    }
+}
@@ -0,0 +1,31 @@
+package in.at0m.fsm.dynamic;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class NameTableTest {
+
+    @Test
+    public void lookupTest() {
+        NameTable table = new NameTable(List.of("CLOSED", "OPENED", "LOCKED"));
+        Assertions.assertEquals(3, table.size());
+        Assertions.assertEquals(0, table.id("CLOSED"));
+        Assertions.assertEquals(2, table.id("LOCKED"));
+        Assertions.assertEquals(-1, table.id("BROKEN"));
+        Assertions.assertEquals("OPENED", table.name(1));
+        Assertions.assertEquals(List.of("CLOSED", "OPENED", "LOCKED"), table.getNames());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> table.name(3));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> table.getNames().add("BROKEN"));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(NullPointerException.class, () -> new NameTable(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NameTable(List.of("CLOSED", "CLOSED")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NameTable(Arrays.asList("CLOSED", null)));
+        Assertions.assertThrows(NullPointerException.class, () -> new NameTable(List.of()).id(null));
+    }
+}
@@ -0,0 +1,191 @@
+package in.at0m.fsm.flow;
+
+import in.at0m.fsm.StateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.batch.BatchResult;
+import in.at0m.fsm.batch.ContextualEvent;
+import in.at0m.fsm.batch.InvalidEventPolicy;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class StateMachineSubscriberTest {
+
+    private static final StateMachineDefinition<Event, State, String> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    @Test
+    public void skipInvalidTest() throws ExecutionException, InterruptedException {
+        StateMachineSubscriber<Event, State, String> subscriber = new StateMachineSubscriber<>(
+                DEFINITION.newStateMachine(State.CLOSED), 2, InvalidEventPolicy.SKIP_INVALID);
+        RecordingSubscription subscription = new RecordingSubscription();
+        subscriber.onSubscribe(subscription);
+        Assertions.assertEquals(List.of(2L), subscription.requests);
+        subscriber.onNext(new ContextualEvent<>(Event.OPEN, "door"));
+        subscriber.onNext(new ContextualEvent<>(Event.OPEN, "door"));
+        Assertions.assertEquals(List.of(2L, 2L), subscription.requests);
+        subscriber.onNext(new ContextualEvent<>(Event.CLOSE, "door"));
+        Assertions.assertFalse(subscriber.getResult().isDone());
+        subscriber.onComplete();
+
+        BatchResult<State> result = subscriber.getResult().get();
+        Assertions.assertEquals(2, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(State.CLOSED, result.getFinalState());
+        Assertions.assertFalse(subscription.cancelled);
+    }
+
+    @Test
+    public void stopOnFirstInvalidTest() throws ExecutionException, InterruptedException {
+        StateMachine<Event, State, String> stateMachine = DEFINITION.newStateMachine(State.CLOSED);
+        StateMachineSubscriber<Event, State, String> subscriber = new StateMachineSubscriber<>(
+                stateMachine, 4, InvalidEventPolicy.STOP_ON_FIRST_INVALID);
+        RecordingSubscription subscription = new RecordingSubscription();
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(new ContextualEvent<>(Event.OPEN, "door"));
+        subscriber.onNext(new ContextualEvent<>(Event.OPEN, "door"));
+        Assertions.assertTrue(subscription.cancelled);
+        subscriber.onNext(new ContextualEvent<>(Event.CLOSE, "door"));
+        subscriber.onComplete();
+
+        BatchResult<State> result = subscriber.getResult().get();
+        Assertions.assertEquals(1, result.getApplied());
+        Assertions.assertEquals(1, result.getRejected());
+        Assertions.assertSame(State.OPENED, result.getFinalState());
+        Assertions.assertSame(State.OPENED, stateMachine.getCurrentState());
+    }
+
+    @Test
+    public void duplicateSubscriptionTest() {
+        StateMachineSubscriber<Event, State, String> subscriber = new StateMachineSubscriber<>(
+                DEFINITION.newStateMachine(State.CLOSED), 1, InvalidEventPolicy.SKIP_INVALID);
+        RecordingSubscription first = new RecordingSubscription();
+        RecordingSubscription second = new RecordingSubscription();
+        subscriber.onSubscribe(first);
+        subscriber.onSubscribe(second);
+        Assertions.assertFalse(first.cancelled);
+        Assertions.assertTrue(second.cancelled);
+        Assertions.assertTrue(second.requests.isEmpty());
+    }
+
+    @Test
+    public void errorTest() {
+        StateMachineSubscriber<Event, State, String> subscriber = new StateMachineSubscriber<>(
+                DEFINITION.newStateMachine(State.CLOSED), 1, InvalidEventPolicy.SKIP_INVALID);
+        subscriber.onSubscribe(new RecordingSubscription());
+        IllegalStateException failure = new IllegalStateException("upstream");
+        subscriber.onError(failure);
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class,
+                () -> subscriber.getResult().get());
+        Assertions.assertSame(failure, exception.getCause());
+    }
+
+    @Test
+    public void failingActionTest() {
+        IllegalStateException failure = new IllegalStateException("action");
+        StateMachine<Event, State, String> stateMachine = new StateMachine<>() {
+            @Override
+            public State getCurrentState() {
+                return State.CLOSED;
+            }
+
+            @Override
+            public boolean canConsume(final Event event) {
+                return true;
+            }
+
+            @Override
+            public State consume(final Event event, final String context) {
+                throw failure;
+            }
+        };
+        StateMachineSubscriber<Event, State, String> subscriber = new StateMachineSubscriber<>(
+                stateMachine, 1, InvalidEventPolicy.SKIP_INVALID);
+        RecordingSubscription subscription = new RecordingSubscription();
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(new ContextualEvent<>(Event.OPEN, "door"));
+        Assertions.assertTrue(subscription.cancelled);
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class,
+                () -> subscriber.getResult().get());
+        Assertions.assertSame(failure, exception.getCause());
+    }
+
+    @Test
+    public void submissionPublisherTest() throws ExecutionException, InterruptedException, TimeoutException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (SubmissionPublisher<ContextualEvent<Event, String>> publisher
+                     = new SubmissionPublisher<>(executor, 4)) {
+            StateMachineSubscriber<Event, State, String> subscriber = new StateMachineSubscriber<>(
+                    DEFINITION.newStateMachine(State.CLOSED), 3, InvalidEventPolicy.SKIP_INVALID);
+            publisher.subscribe(subscriber);
+            for (int i = 0; i < 1000; i++) {
+                publisher.submit(new ContextualEvent<>(i % 2 == 0 ? Event.OPEN : Event.CLOSE, "door"));
+            }
+            publisher.close();
+            BatchResult<State> result = subscriber.getResult().get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(1000, result.getApplied());
+            Assertions.assertEquals(0, result.getRejected());
+            Assertions.assertSame(State.CLOSED, result.getFinalState());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void invalidParamTest() {
+        StateMachine<Event, State, String> stateMachine = DEFINITION.newStateMachine(State.CLOSED);
+        Assertions.assertThrows(NullPointerException.class, () -> new StateMachineSubscriber<>(
+                null, 1, InvalidEventPolicy.SKIP_INVALID));
+        Assertions.assertThrows(NullPointerException.class, () -> new StateMachineSubscriber<>(
+                stateMachine, 1, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new StateMachineSubscriber<>(
+                stateMachine, 0, InvalidEventPolicy.SKIP_INVALID));
+        StateMachineSubscriber<Event, State, String> subscriber = new StateMachineSubscriber<>(
+                stateMachine, 1, InvalidEventPolicy.SKIP_INVALID);
+        Assertions.assertThrows(NullPointerException.class, () -> subscriber.onSubscribe(null));
+        Assertions.assertThrows(NullPointerException.class, () -> subscriber.onNext(null));
+        Assertions.assertThrows(NullPointerException.class, () -> subscriber.onError(null));
+    }
+
+    static List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        return transitions;
+    }
+
+    static class RecordingSubscription implements Flow.Subscription {
+
+        final List<Long> requests = new ArrayList<>();
+
+        boolean cancelled;
+
+        @Override
+        public void request(final long n) {
+            requests.add(n);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    enum Event {
+        OPEN, CLOSE
+    }
+
+    enum State {
+        CLOSED, OPENED
+    }
+}
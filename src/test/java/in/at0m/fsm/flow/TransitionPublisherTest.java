@@ -0,0 +1,418 @@
+package in.at0m.fsm.flow;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TransitionPublisherTest {
+
+    private static final StateMachineDefinition<Event, State, String> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private final Executor executor = tasks::add;
+
+    @Test
+    public void backpressureTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(executor, 2);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        Assertions.assertEquals(1, publisher.getSubscriberCount());
+        publisher.publish(transition("first"));
+        publisher.publish(transition("second"));
+        publisher.publish(transition("third"));
+        Assertions.assertEquals(1, publisher.getDropped());
+        runTasks();
+        Assertions.assertTrue(subscriber.items.isEmpty());
+
+        subscriber.subscription.request(1);
+        runTasks();
+        Assertions.assertEquals(List.of("first"), subscriber.data());
+        subscriber.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        runTasks();
+        Assertions.assertEquals(List.of("first", "second"), subscriber.data());
+        Assertions.assertFalse(subscriber.completed);
+
+        publisher.close();
+        runTasks();
+        Assertions.assertTrue(subscriber.completed);
+        Assertions.assertNull(subscriber.error);
+        Assertions.assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void throughputTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(executor, 100);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        runTasks();
+        for (int i = 0; i < 100; i++) {
+            publisher.publish(transition(String.valueOf(i)));
+        }
+        Assertions.assertEquals(1, tasks.size());
+        tasks.poll().run();
+        Assertions.assertEquals(64, subscriber.items.size());
+        Assertions.assertEquals(1, tasks.size());
+        runTasks();
+        Assertions.assertEquals(100, subscriber.items.size());
+        Assertions.assertEquals("99", subscriber.items.get(99).getData());
+        Assertions.assertEquals(0, publisher.getDropped());
+    }
+
+    @Test
+    public void closeTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(executor, 4);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        publisher.publish(transition("first"));
+        publisher.close();
+        runTasks();
+        Assertions.assertFalse(subscriber.completed);
+        subscriber.subscription.request(1);
+        runTasks();
+        Assertions.assertEquals(List.of("first"), subscriber.data());
+        Assertions.assertTrue(subscriber.completed);
+
+        publisher.publish(transition("second"));
+        RecordingSubscriber late = new RecordingSubscriber(1);
+        publisher.subscribe(late);
+        runTasks();
+        Assertions.assertNotNull(late.subscription);
+        Assertions.assertTrue(late.items.isEmpty());
+        Assertions.assertTrue(late.completed);
+    }
+
+    @Test
+    public void signalsDuringSubscribeTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(Runnable::run, 4);
+        List<String> signals = new ArrayList<>();
+        RecordingSubscriber subscriber = new RecordingSubscriber(0) {
+            @Override
+            public void onSubscribe(final Flow.Subscription subscription) {
+                signals.add("onSubscribe start");
+                super.onSubscribe(subscription);
+                subscription.request(1);
+                publisher.publish(transition("missed"));
+                publisher.close();
+                signals.add("onSubscribe end");
+            }
+
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                signals.add("onComplete");
+            }
+        };
+        publisher.subscribe(subscriber);
+        Assertions.assertEquals(List.of("onSubscribe start", "onSubscribe end", "onComplete"), signals);
+        Assertions.assertTrue(subscriber.items.isEmpty());
+
+        TransitionPublisher<Event, State, String> open = new TransitionPublisher<>(Runnable::run, 4);
+        RecordingSubscriber cancelling = new RecordingSubscriber(0) {
+            @Override
+            public void onSubscribe(final Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.cancel();
+            }
+        };
+        open.subscribe(cancelling);
+        Assertions.assertEquals(0, open.getSubscriberCount());
+        open.publish(transition("first"));
+        open.close();
+        Assertions.assertFalse(cancelling.completed);
+    }
+
+    @Test
+    public void closeRacingSubscribeTest() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 200; i++) {
+                TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(pool, 4);
+                AtomicBoolean subscribing = new AtomicBoolean();
+                AtomicBoolean overlapped = new AtomicBoolean();
+                CountDownLatch done = new CountDownLatch(1);
+                Flow.Subscriber<ActionContext<Event, State, String>> subscriber = new RecordingSubscriber(1) {
+                    @Override
+                    public void onSubscribe(final Flow.Subscription subscription) {
+                        subscribing.set(true);
+                        super.onSubscribe(subscription);
+                        Thread.yield();
+                        subscribing.set(false);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        overlapped.compareAndSet(false, subscribing.get());
+                        done.countDown();
+                    }
+                };
+                Thread closer = new Thread(publisher::close);
+                closer.start();
+                publisher.subscribe(subscriber);
+                closer.join();
+                publisher.close();
+                Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+                Assertions.assertFalse(overlapped.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void invalidRequestTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(executor, 4);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        Assertions.assertNull(subscriber.error);
+        runTasks();
+        Assertions.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assertions.assertEquals(0, publisher.getSubscriberCount());
+        subscriber.error = null;
+        subscriber.subscription.request(-1);
+        Assertions.assertNull(subscriber.error);
+        subscriber.subscription.request(1);
+        publisher.publish(transition("first"));
+        Assertions.assertTrue(tasks.isEmpty());
+        runTasks();
+        Assertions.assertTrue(subscriber.items.isEmpty());
+    }
+
+    @Test
+    public void serialSignalTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(Runnable::run, 4);
+        List<String> signals = new ArrayList<>();
+        RecordingSubscriber subscriber = new RecordingSubscriber(1) {
+            @Override
+            public void onNext(final ActionContext<Event, State, String> item) {
+                signals.add("onNext start");
+                subscription.request(0);
+                signals.add("onNext end");
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                super.onError(throwable);
+                signals.add("onError");
+            }
+        };
+        publisher.subscribe(subscriber);
+        publisher.publish(transition("first"));
+        Assertions.assertEquals(List.of("onNext start", "onNext end", "onError"), signals);
+        Assertions.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assertions.assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void cancelWhileDrainingTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(executor, 4);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE) {
+            @Override
+            public void onNext(final ActionContext<Event, State, String> item) {
+                super.onNext(item);
+                subscription.cancel();
+            }
+        };
+        publisher.subscribe(subscriber);
+        publisher.publish(transition("first"));
+        publisher.publish(transition("second"));
+        publisher.close();
+        runTasks();
+        Assertions.assertEquals(List.of("first"), subscriber.data());
+        Assertions.assertFalse(subscriber.completed);
+        Assertions.assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void failingSubscriberTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(executor, 4);
+        IllegalStateException failure = new IllegalStateException("listener");
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE) {
+            @Override
+            public void onNext(final ActionContext<Event, State, String> item) {
+                super.onNext(item);
+                throw failure;
+            }
+        };
+        RecordingSubscriber healthy = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        publisher.subscribe(healthy);
+        publisher.publish(transition("first"));
+        publisher.publish(transition("second"));
+        runTasks();
+        Assertions.assertEquals(List.of("first"), subscriber.data());
+        Assertions.assertSame(failure, subscriber.error);
+        Assertions.assertEquals(List.of("first", "second"), healthy.data());
+        Assertions.assertEquals(1, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void rejectedExecutionTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(command -> {
+            throw new RejectedExecutionException("shutdown");
+        }, 4);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber);
+        Assertions.assertNull(subscriber.error);
+        publisher.publish(transition("first"));
+        Assertions.assertTrue(subscriber.items.isEmpty());
+        Assertions.assertTrue(subscriber.error instanceof RejectedExecutionException);
+        Assertions.assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void publishingStateMachineTest() throws InterruptedException {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(16);
+        CountDownLatch received = new CountDownLatch(2);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1) {
+            @Override
+            public void onNext(final ActionContext<Event, State, String> item) {
+                super.onNext(item);
+                subscription.request(1);
+                received.countDown();
+            }
+        };
+        publisher.subscribe(subscriber);
+        PublishingStateMachine<Event, State, String> stateMachine = new PublishingStateMachine<>(
+                DEFINITION.newStateMachine(State.CLOSED), publisher);
+        Assertions.assertSame(publisher, stateMachine.getPublisher());
+        Assertions.assertTrue(stateMachine.canConsume(Event.OPEN));
+        Assertions.assertSame(State.OPENED, stateMachine.consume(Event.OPEN, "first"));
+        Assertions.assertNull(stateMachine.tryConsume(Event.OPEN, "rejected"));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> stateMachine.consume(Event.OPEN, "invalid"));
+        Assertions.assertSame(State.CLOSED, stateMachine.tryConsume(Event.CLOSE, "second"));
+        Assertions.assertSame(State.CLOSED, stateMachine.getCurrentState());
+
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("first", "second"), subscriber.data());
+        ActionContext<Event, State, String> first = subscriber.items.get(0);
+        Assertions.assertSame(Event.OPEN, first.getEvent());
+        Assertions.assertSame(State.CLOSED, first.getCurrentState());
+        Assertions.assertSame(State.OPENED, first.getNextState());
+        Assertions.assertSame(Event.CLOSE, subscriber.items.get(1).getEvent());
+        publisher.close();
+    }
+
+    @Test
+    public void reentrantRequestTest() {
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(Runnable::run, 4);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1) {
+            @Override
+            public void onNext(final ActionContext<Event, State, String> item) {
+                super.onNext(item);
+                subscription.request(1);
+            }
+        };
+        publisher.subscribe(subscriber);
+        publisher.publish(transition("first"));
+        publisher.publish(transition("second"));
+        Assertions.assertEquals(List.of("first", "second"), subscriber.data());
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TransitionPublisher<>(executor, 0));
+        Assertions.assertThrows(NullPointerException.class, () -> new TransitionPublisher<>(null, 1));
+        TransitionPublisher<Event, State, String> publisher = new TransitionPublisher<>(executor, 1);
+        Assertions.assertThrows(NullPointerException.class, () -> publisher.subscribe(null));
+        Assertions.assertThrows(NullPointerException.class, () -> publisher.publish(null));
+        Assertions.assertThrows(NullPointerException.class, () -> new PublishingStateMachine<>(null, publisher));
+        Assertions.assertThrows(NullPointerException.class, () -> new PublishingStateMachine<>(
+                DEFINITION.newStateMachine(State.CLOSED), null));
+        PublishingStateMachine<Event, State, String> stateMachine = new PublishingStateMachine<>(
+                DEFINITION.newStateMachine(State.CLOSED), publisher);
+        Assertions.assertThrows(NullPointerException.class, () -> stateMachine.consume(null, "door"));
+        Assertions.assertThrows(NullPointerException.class, () -> stateMachine.tryConsume(null, "door"));
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static ActionContext<Event, State, String> transition(final String data) {
+        return new ActionContext<>(Event.OPEN, State.CLOSED, State.OPENED, data);
+    }
+
+    static List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        return transitions;
+    }
+
+    static class RecordingSubscriber implements Flow.Subscriber<ActionContext<Event, State, String>> {
+
+        final List<ActionContext<Event, State, String>> items = new ArrayList<>();
+
+        final long initialDemand;
+
+        Flow.Subscription subscription;
+
+        Throwable error;
+
+        boolean completed;
+
+        RecordingSubscriber(final long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(final ActionContext<Event, State, String> item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        List<String> data() {
+            List<String> data = new ArrayList<>();
+            items.forEach(item -> data.add(item.getData()));
+            return data;
+        }
+    }
+
+    enum Event {
+        OPEN, CLOSE
+    }
+
+    enum State {
+        CLOSED, OPENED
+    }
+}
@@ -0,0 +1,195 @@
+package in.at0m.fsm.hierarchy;
+
+import in.at0m.fsm.SimpleStateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class OrthogonalRegionsTest {
+
+    @Test
+    public void buildTest() {
+        List<Transition<Event, Caps, List<String>>> caps = new ArrayList<>();
+        caps.add(new Transition<>(Event.CAPS_LOCK, Caps.LOWER, Caps.UPPER,
+                Collections.singletonList(new LogAction<>())));
+        caps.add(new Transition<>(Event.CAPS_LOCK, Caps.UPPER, Caps.LOWER));
+        caps.add(new Transition<>(Event.RESET, Caps.UPPER, Caps.LOWER));
+        List<Transition<Event, Num, List<String>>> num = new ArrayList<>();
+        num.add(new Transition<>(Event.NUM_LOCK, Num.DIGITS, Num.ARROWS));
+        num.add(new Transition<>(Event.NUM_LOCK, Num.ARROWS, Num.DIGITS));
+        num.add(new Transition<>(Event.RESET, Num.ARROWS, Num.DIGITS,
+                Collections.singletonList(new LogAction<>())));
+        num.add(new Transition<>(Event.RESET, Num.DIGITS, Num.DIGITS));
+        List<Transition<Event, Keyboard, List<String>>> transitions
+                = new OrthogonalRegions<Event, Keyboard, List<String>>(Keyboard.class)
+                .addRegion(Keyboard::getCaps, caps)
+                .addRegion(Keyboard::getNum, num)
+                .build();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> transitions.remove(0));
+        // Every keyboard state consumes every event, through at least one region.
+        Assertions.assertEquals(Keyboard.values().length * 3, transitions.size());
+
+        StateMachineDefinition<Event, Keyboard, List<String>> definition = new StateMachineDefinition<>(transitions);
+        SimpleStateMachine<Event, Keyboard, List<String>> stateMachine
+                = definition.newStateMachine(Keyboard.LOWER_DIGITS);
+        List<String> log = new ArrayList<>();
+        Assertions.assertSame(Keyboard.LOWER_DIGITS, stateMachine.consume(Event.RESET, log));
+        Assertions.assertSame(Keyboard.UPPER_DIGITS, stateMachine.consume(Event.CAPS_LOCK, log));
+        Assertions.assertSame(Keyboard.UPPER_ARROWS, stateMachine.consume(Event.NUM_LOCK, log));
+        Assertions.assertSame(Keyboard.LOWER_DIGITS, stateMachine.consume(Event.RESET, log));
+        Assertions.assertEquals(Arrays.asList("before CAPS_LOCK LOWER->UPPER", "after CAPS_LOCK LOWER->UPPER",
+                "before RESET ARROWS->DIGITS", "after RESET ARROWS->DIGITS"), log);
+    }
+
+    @Test
+    public void retainedContextTest() {
+        List<ActionContext<Event, Caps, Object>> retained = new ArrayList<>();
+        Action<Event, Caps, Object> retaining = new Action<>() {
+            @Override
+            public void before(final ActionContext<Event, Caps, Object> actionContext) {
+                retained.add(actionContext);
+            }
+
+            @Override
+            public void after(final ActionContext<Event, Caps, Object> actionContext) {
+                Assertions.assertSame(Caps.UPPER, retained.get(retained.size() - 1).getNextState());
+            }
+        };
+        List<Transition<Event, Caps, Object>> caps = new ArrayList<>();
+        caps.add(new Transition<>(Event.CAPS_LOCK, Caps.LOWER, Caps.UPPER, Collections.singletonList(retaining)));
+        List<Transition<Event, Keyboard, Object>> transitions
+                = new OrthogonalRegions<Event, Keyboard, Object>(Keyboard.class)
+                .addRegion(Keyboard::getCaps, caps)
+                .addRegion(Keyboard::getNum, new ArrayList<>())
+                .build();
+        Object data = new Object();
+
+        new StateMachineDefinition<>(transitions).newStateMachine(Keyboard.LOWER_DIGITS).consume(Event.CAPS_LOCK, data);
+        ActionContext<Event, Caps, Object> context = retained.get(0);
+        Assertions.assertSame(Event.CAPS_LOCK, context.getEvent());
+        Assertions.assertSame(Caps.LOWER, context.getCurrentState());
+        Assertions.assertSame(Caps.UPPER, context.getNextState());
+        Assertions.assertSame(data, context.getData());
+
+        StateMachineDefinition.<Event, Keyboard, Object>builder().transitions(transitions).reuseActionContext(true)
+                .build().newStateMachine(Keyboard.LOWER_DIGITS).consume(Event.CAPS_LOCK, data);
+        Assertions.assertNull(retained.get(1).getEvent());
+        Assertions.assertSame(Caps.UPPER, context.getNextState());
+    }
+
+    @Test
+    public void rejectionTest() {
+        List<Transition<Event, Caps, Object>> caps = new ArrayList<>();
+        caps.add(new Transition<>(Event.CAPS_LOCK, Caps.LOWER, Caps.UPPER));
+        List<Transition<Event, Keyboard, Object>> transitions
+                = new OrthogonalRegions<Event, Keyboard, Object>(Keyboard.class)
+                .addRegion(Keyboard::getCaps, caps)
+                .addRegion(Keyboard::getNum, new ArrayList<>())
+                .build();
+        Assertions.assertEquals(2, transitions.size());
+        StateMachineDefinition<Event, Keyboard, Object> definition = new StateMachineDefinition<>(transitions);
+        Assertions.assertTrue(definition.canConsume(Keyboard.LOWER_ARROWS, Event.CAPS_LOCK));
+        Assertions.assertFalse(definition.canConsume(Keyboard.UPPER_ARROWS, Event.CAPS_LOCK));
+        Assertions.assertFalse(definition.canConsume(Keyboard.LOWER_ARROWS, Event.NUM_LOCK));
+
+        Assertions.assertTrue(new OrthogonalRegions<Event, Keyboard, Object>(Keyboard.class).build().isEmpty());
+    }
+
+    @Test
+    public void invalidProductTest() {
+        List<Transition<Event, Caps, Object>> caps = new ArrayList<>();
+        caps.add(new Transition<>(Event.CAPS_LOCK, Caps.LOWER, Caps.UPPER));
+        OrthogonalRegions<Event, Keyboard, Object> ambiguous
+                = new OrthogonalRegions<Event, Keyboard, Object>(Keyboard.class)
+                .addRegion(Keyboard::getCaps, caps);
+        Assertions.assertThrows(IllegalStateException.class, ambiguous::build);
+
+        List<Transition<Event, Level, Object>> levels = new ArrayList<>();
+        levels.add(new Transition<>(Event.CAPS_LOCK, Level.LOW, Level.MEDIUM));
+        // LOWER_DIGITS moves to (MEDIUM, DIGITS), which no keyboard state stands for.
+        OrthogonalRegions<Event, Keyboard, Object> incomplete
+                = new OrthogonalRegions<Event, Keyboard, Object>(Keyboard.class)
+                .addRegion(keyboard -> Level.values()[keyboard.ordinal() % 3], levels)
+                .addRegion(Keyboard::getNum, new ArrayList<>());
+        Assertions.assertThrows(IllegalStateException.class, incomplete::build);
+
+        caps.add(new Transition<>(Event.CAPS_LOCK, Caps.LOWER, Caps.LOWER));
+        OrthogonalRegions<Event, Keyboard, Object> regions = new OrthogonalRegions<>(Keyboard.class);
+        Assertions.assertThrows(IllegalStateException.class, () -> regions.addRegion(Keyboard::getCaps, caps));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        OrthogonalRegions<Event, Keyboard, Object> regions = new OrthogonalRegions<>(Keyboard.class);
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new OrthogonalRegions<Event, Keyboard, Object>(null));
+        Assertions.assertThrows(NullPointerException.class, () -> regions.addRegion(null, new ArrayList<>()));
+        Assertions.assertThrows(NullPointerException.class, () -> regions.addRegion(Keyboard::getCaps, null));
+    }
+
+    private static final class LogAction<S extends Enum<S>> implements Action<Event, S, List<String>> {
+
+        @Override
+        public void before(ActionContext<Event, S, List<String>> actionContext) {
+            log("before", actionContext);
+        }
+
+        @Override
+        public void after(ActionContext<Event, S, List<String>> actionContext) {
+            log("after", actionContext);
+        }
+
+        private void log(String phase, ActionContext<Event, S, List<String>> actionContext) {
+            actionContext.getData().add(phase + " " + actionContext.getEvent() + " " + actionContext.getCurrentState()
+                    + "->" + actionContext.getNextState());
+        }
+    }
+
+    private enum Event {
+        CAPS_LOCK, NUM_LOCK, RESET
+    }
+
+    private enum Caps {
+        LOWER, UPPER
+    }
+
+    private enum Num {
+        DIGITS, ARROWS
+    }
+
+    private enum Level {
+        LOW, MEDIUM, HIGH
+    }
+
+    private enum Keyboard {
+        LOWER_DIGITS(Caps.LOWER, Num.DIGITS),
+        LOWER_ARROWS(Caps.LOWER, Num.ARROWS),
+        UPPER_DIGITS(Caps.UPPER, Num.DIGITS),
+        UPPER_ARROWS(Caps.UPPER, Num.ARROWS);
+
+        private final Caps caps;
+
+        private final Num num;
+
+        Keyboard(Caps caps, Num num) {
+            this.caps = caps;
+            this.num = num;
+        }
+
+        public Caps getCaps() {
+            return caps;
+        }
+
+        public Num getNum() {
+            return num;
+        }
+    }
+}
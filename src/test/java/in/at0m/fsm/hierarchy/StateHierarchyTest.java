@@ -0,0 +1,132 @@
+package in.at0m.fsm.hierarchy;
+
+import in.at0m.fsm.SimpleStateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class StateHierarchyTest {
+
+    @Test
+    public void flattenTest() {
+        List<String> log = new ArrayList<>();
+        Action<Event, State, List<String>> action = new Action<Event, State, List<String>>() {
+            @Override
+            public void before(ActionContext<Event, State, List<String>> actionContext) {
+                actionContext.getData().add(actionContext.getCurrentState() + "->" + actionContext.getNextState());
+            }
+
+            @Override
+            public void after(ActionContext<Event, State, List<String>> actionContext) {
+            }
+        };
+        Transition<Event, State, List<String>> stop = new Transition<>(Event.STOP, State.PLAYING, State.STOPPED);
+        StateHierarchy<Event, State, List<String>> hierarchy = new StateHierarchy<Event, State, List<String>>(
+                State.class)
+                .addInitialChild(State.ON, State.PLAYING)
+                .addChild(State.ON, State.PAUSED)
+                .addInitialChild(State.PLAYING, State.NORMAL)
+                .addChild(State.PLAYING, State.FAST)
+                .addChild(State.ON, State.STOPPED)
+                .addTransition(new Transition<>(Event.POWER, State.ON, State.OFF, Collections.singletonList(action)))
+                .addTransition(new Transition<>(Event.POWER, State.OFF, State.ON))
+                .addTransition(new Transition<>(Event.PAUSE, State.PLAYING, State.PAUSED))
+                .addTransition(new Transition<>(Event.PLAY, State.PAUSED, State.PLAYING))
+                .addTransition(new Transition<>(Event.PLAY, State.STOPPED, State.PLAYING))
+                .addTransition(new Transition<>(Event.FAST, State.NORMAL, State.FAST))
+                .addTransition(new Transition<>(Event.PLAY, State.FAST, State.NORMAL))
+                .addTransition(stop)
+                // Overrides the transition inherited from PLAYING.
+                .addTransition(new Transition<>(Event.PAUSE, State.FAST, State.NORMAL));
+        List<Transition<Event, State, List<String>>> flattened = hierarchy.flatten();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> flattened.remove(0));
+        for (Transition<Event, State, List<String>> transition : flattened) {
+            Assertions.assertNotSame(State.ON, transition.getFromState());
+            Assertions.assertNotSame(State.PLAYING, transition.getFromState());
+            Assertions.assertNotSame(State.ON, transition.getToState());
+            Assertions.assertNotSame(State.PLAYING, transition.getToState());
+        }
+        Assertions.assertSame(State.NORMAL, hierarchy.enter(State.ON));
+        Assertions.assertSame(State.PAUSED, hierarchy.enter(State.PAUSED));
+
+        StateMachineDefinition<Event, State, List<String>> definition = new StateMachineDefinition<>(flattened);
+        Assertions.assertNotSame(stop, definition.getTransition(State.NORMAL, Event.STOP));
+        SimpleStateMachine<Event, State, List<String>> stateMachine = definition.newStateMachine(State.OFF);
+        Assertions.assertSame(State.NORMAL, stateMachine.consume(Event.POWER, log));
+        Assertions.assertSame(State.FAST, stateMachine.consume(Event.FAST, log));
+        Assertions.assertSame(State.NORMAL, stateMachine.consume(Event.PAUSE, log));
+        Assertions.assertSame(State.PAUSED, stateMachine.consume(Event.PAUSE, log));
+        Assertions.assertFalse(stateMachine.canConsume(Event.FAST));
+        Assertions.assertNull(stateMachine.tryConsume(Event.STOP, log));
+        Assertions.assertSame(State.NORMAL, stateMachine.consume(Event.PLAY, log));
+        Assertions.assertSame(State.STOPPED, stateMachine.consume(Event.STOP, log));
+        Assertions.assertSame(State.OFF, stateMachine.consume(Event.POWER, log));
+        Assertions.assertEquals(Collections.singletonList("STOPPED->OFF"), log);
+    }
+
+    @Test
+    public void emptyTest() {
+        StateHierarchy<Event, State, Object> hierarchy = new StateHierarchy<>(State.class);
+        Assertions.assertTrue(hierarchy.flatten().isEmpty());
+        Assertions.assertSame(State.ON, hierarchy.enter(State.ON));
+    }
+
+    @Test
+    public void leafTest() {
+        Transition<Event, State, Object> power = new Transition<>(Event.POWER, State.OFF, State.ON);
+        List<Transition<Event, State, Object>> flattened = new StateHierarchy<Event, State, Object>(State.class)
+                .addTransition(power)
+                .flatten();
+        Assertions.assertEquals(1, flattened.size());
+        Assertions.assertSame(power, flattened.get(0));
+    }
+
+    @Test
+    public void invalidHierarchyTest() {
+        StateHierarchy<Event, State, Object> hierarchy = new StateHierarchy<Event, State, Object>(State.class)
+                .addInitialChild(State.ON, State.PLAYING)
+                .addChild(State.PLAYING, State.FAST)
+                .addChild(State.ON, State.PLAYING);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> hierarchy.addChild(State.OFF, State.PLAYING));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> hierarchy.addChild(State.FAST, State.ON));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> hierarchy.addChild(State.ON, State.ON));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> hierarchy.addInitialChild(State.ON, State.PAUSED));
+        hierarchy.addInitialChild(State.ON, State.PLAYING);
+        Assertions.assertThrows(IllegalStateException.class, () -> hierarchy.enter(State.ON));
+
+        hierarchy.addTransition(new Transition<>(Event.POWER, State.OFF, State.PLAYING));
+        Assertions.assertThrows(IllegalStateException.class, hierarchy::flatten);
+        hierarchy.addInitialChild(State.PLAYING, State.FAST);
+        Assertions.assertEquals(1, hierarchy.flatten().size());
+        hierarchy.addTransition(new Transition<>(Event.POWER, State.OFF, State.ON));
+        Assertions.assertThrows(IllegalStateException.class, hierarchy::flatten);
+    }
+
+    @Test
+    public void invalidParamTest() {
+        StateHierarchy<Event, State, Object> hierarchy = new StateHierarchy<>(State.class);
+        Assertions.assertThrows(NullPointerException.class, () -> new StateHierarchy<Event, State, Object>(null));
+        Assertions.assertThrows(NullPointerException.class, () -> hierarchy.addChild(null, State.ON));
+        Assertions.assertThrows(NullPointerException.class, () -> hierarchy.addChild(State.ON, null));
+        Assertions.assertThrows(NullPointerException.class, () -> hierarchy.addInitialChild(null, State.ON));
+        Assertions.assertThrows(NullPointerException.class, () -> hierarchy.addInitialChild(State.ON, null));
+        Assertions.assertThrows(NullPointerException.class, () -> hierarchy.addTransition(null));
+        Assertions.assertThrows(NullPointerException.class, () -> hierarchy.enter(null));
+    }
+
+    private enum Event {
+        POWER, PLAY, PAUSE, FAST, STOP
+    }
+
+    private enum State {
+        OFF, ON, PLAYING, NORMAL, FAST, PAUSED, STOPPED
+    }
+}
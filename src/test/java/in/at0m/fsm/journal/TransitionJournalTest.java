@@ -0,0 +1,318 @@
+package in.at0m.fsm.journal;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TransitionJournalTest {
+
+    private static final StateMachineDefinition<Event, State, String> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void recoverTest() throws IOException {
+        try (TransitionJournal journal = TransitionJournal.builder()
+                .directory(directory)
+                .groupCommitRecords(4)
+                .segmentSize(TransitionJournal.DEFAULT_SEGMENT_SIZE)
+                .build()) {
+            JournaledStateMachine<Event, State, String> first = newMachine(1, journal);
+            JournaledStateMachine<Event, State, String> second = newMachine(2, journal);
+            Assertions.assertEquals(1, first.getId());
+            Assertions.assertSame(journal, first.getJournal());
+            Assertions.assertTrue(first.canConsume(Event.TOGGLE));
+            Assertions.assertSame(State.OPENED, first.consume(Event.TOGGLE, "first"));
+            Assertions.assertSame(State.OPENED, second.tryConsume(Event.TOGGLE, "second"));
+            Assertions.assertNull(first.tryConsume(Event.OPEN, "first"));
+            Assertions.assertSame(State.CLOSED, first.consume(Event.TOGGLE, "first"));
+            Assertions.assertEquals(0, journal.getDurableSequence());
+            Assertions.assertSame(State.OPENED, first.consume(Event.TOGGLE, "first"));
+            Assertions.assertEquals(4, journal.getDurableSequence());
+            Assertions.assertSame(State.CLOSED, second.consume(Event.CLOSE, "second"));
+
+            Map<Long, State> states = journal.recover(State.class);
+            Assertions.assertEquals(5, journal.getDurableSequence());
+            Assertions.assertEquals(2, states.size());
+            Assertions.assertSame(State.OPENED, states.get(1L));
+            Assertions.assertSame(State.CLOSED, states.get(2L));
+        }
+
+        try (TransitionJournal journal = new TransitionJournal(directory)) {
+            Assertions.assertEquals(5, journal.getDurableSequence());
+            Assertions.assertEquals(6, journal.append(3, Event.OPEN.ordinal(), 0, 1));
+            journal.sync();
+            Assertions.assertEquals(6, journal.getDurableSequence());
+            Assertions.assertSame(State.OPENED, journal.recover(State.class).get(3L));
+        }
+    }
+
+    @Test
+    public void tornRecordTest() throws IOException {
+        try (TransitionJournal journal = newJournal(1024, null, TransitionJournal.DEFAULT_SEGMENT_SIZE)) {
+            journal.append(1, Event.TOGGLE.ordinal(), State.CLOSED.ordinal(), State.OPENED.ordinal());
+            journal.append(1, Event.TOGGLE.ordinal(), State.OPENED.ordinal(), State.CLOSED.ordinal());
+        }
+        Path segment = files(".log").get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Corrupt the checksum of the second record and leave a partial third record.
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 2L * TransitionJournal.RECORD_SIZE - 1);
+        }
+        try (TransitionJournal journal = newJournal(1024, null, TransitionJournal.DEFAULT_SEGMENT_SIZE)) {
+            Assertions.assertEquals(TransitionJournal.RECORD_SIZE, Files.size(segment));
+            Assertions.assertEquals(1, journal.getDurableSequence());
+            Assertions.assertSame(State.OPENED, journal.recover(State.class).get(1L));
+        }
+    }
+
+    @Test
+    public void sequenceGapTest() throws IOException {
+        try (TransitionJournal journal = newJournal(1024, null, TransitionJournal.DEFAULT_SEGMENT_SIZE)) {
+            journal.append(1, Event.TOGGLE.ordinal(), State.CLOSED.ordinal(), State.OPENED.ordinal());
+        }
+        Path segment = files(".log").get(0);
+        byte[] record = Files.readAllBytes(segment);
+        // A segment whose intact records do not start at the sequence in its name is ignored.
+        Files.write(directory.resolve(String.format("%020d.log", 5)), record);
+        try (TransitionJournal journal = newJournal(1024, null, TransitionJournal.DEFAULT_SEGMENT_SIZE)) {
+            Assertions.assertEquals(4, journal.getDurableSequence());
+            Assertions.assertSame(State.OPENED, journal.recover(State.class).get(1L));
+        }
+    }
+
+    @Test
+    public void compactTest() throws IOException {
+        try (TransitionJournal journal = newJournal(2, null, 2 * TransitionJournal.RECORD_SIZE)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(i % 3, Event.TOGGLE.ordinal(), i % 2, (i + 1) % 2);
+            }
+            Assertions.assertEquals(6, files(".log").size());
+            journal.compact();
+            Assertions.assertEquals(1, files(".log").size());
+            Assertions.assertEquals(1, files(".snapshot").size());
+            journal.append(3, Event.OPEN.ordinal(), State.CLOSED.ordinal(), State.OPENED.ordinal());
+            journal.compact();
+            journal.compact();
+            Assertions.assertEquals(1, files(".snapshot").size());
+            Map<Long, State> states = journal.recover(State.class);
+            Assertions.assertEquals(4, states.size());
+            Assertions.assertSame(State.CLOSED, states.get(0L));
+            Assertions.assertSame(State.CLOSED, states.get(1L));
+            Assertions.assertSame(State.OPENED, states.get(2L));
+            Assertions.assertSame(State.OPENED, states.get(3L));
+        }
+        try (TransitionJournal journal = newJournal(2, null, 2 * TransitionJournal.RECORD_SIZE)) {
+            Assertions.assertEquals(11, journal.getDurableSequence());
+            Assertions.assertEquals(4, journal.recover(State.class).size());
+
+            Path snapshot = files(".snapshot").get(0);
+            byte[] data = Files.readAllBytes(snapshot);
+            data[data.length - 5] ^= 1;
+            Files.write(snapshot, data);
+            Assertions.assertThrows(IOException.class, () -> journal.recover(State.class));
+            Files.write(snapshot, new byte[12]);
+            Assertions.assertThrows(IOException.class, () -> journal.recover(State.class));
+        }
+    }
+
+    @Test
+    public void groupCommitIntervalTest() throws Exception {
+        try (TransitionJournal journal = newJournal(
+                1024, Duration.ofMillis(1), TransitionJournal.DEFAULT_SEGMENT_SIZE)) {
+            journal.append(1, Event.TOGGLE.ordinal(), State.CLOSED.ordinal(), State.OPENED.ordinal());
+            long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+            while (journal.getDurableSequence() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Assertions.assertEquals(1, journal.getDurableSequence());
+        }
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        try (TransitionJournal journal = newJournal(1, null, 1)) {
+            // A directory in place of the next segment makes rolling the segment fail.
+            Files.createDirectories(directory.resolve(String.format("%020d.log", 2)));
+            List<Exception> errors = new ArrayList<>();
+            JournaledStateMachine<Event, State, String> machine = new JournaledStateMachine<>(
+                    1, DEFINITION.newStateMachine(State.CLOSED), journal, errors::add);
+            Assertions.assertNull(journal.getFailure());
+            Assertions.assertSame(State.OPENED, machine.consume(Event.TOGGLE, "context"));
+            Assertions.assertEquals(1, errors.size());
+            Assertions.assertInstanceOf(IOException.class, errors.get(0));
+            Assertions.assertNotNull(journal.getFailure());
+            IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                    () -> machine.consume(Event.TOGGLE, "context"));
+            Assertions.assertSame(journal.getFailure(), e.getCause());
+            Assertions.assertThrows(IllegalStateException.class, () -> machine.tryConsume(Event.TOGGLE, "context"));
+            Assertions.assertSame(State.OPENED, machine.getCurrentState());
+            Assertions.assertEquals(1, errors.size());
+            Assertions.assertEquals(1, journal.getDurableSequence());
+            Assertions.assertThrows(IOException.class, journal::sync);
+            Assertions.assertThrows(IOException.class, journal::close);
+        }
+
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        List<Throwable> uncaught = new ArrayList<>();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> uncaught.add(e));
+        try {
+            TransitionJournal journal = new TransitionJournal(directory.resolve("closed"));
+            journal.close();
+            JournaledStateMachine<Event, State, String> machine = newMachine(1, journal);
+            Assertions.assertSame(State.OPENED, machine.consume(Event.TOGGLE, "context"));
+            Assertions.assertEquals(1, uncaught.size());
+            Assertions.assertInstanceOf(IllegalStateException.class, uncaught.get(0));
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+
+        Path other = directory.resolve("other");
+        TransitionJournal journal = TransitionJournal.builder()
+                .directory(other)
+                .groupCommitRecords(2)
+                .groupCommitInterval(Duration.ofMillis(1))
+                .segmentSize(1)
+                .build();
+        Files.createDirectories(other.resolve(String.format("%020d.log", 2)));
+        journal.append(1, Event.TOGGLE.ordinal(), State.CLOSED.ordinal(), State.OPENED.ordinal());
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        while (journal.getDurableSequence() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(10);
+        Assertions.assertThrows(IOException.class, () -> journal.append(1, 0, 1, 0));
+        Assertions.assertThrows(IOException.class, journal::close);
+        journal.close();
+        Assertions.assertThrows(IllegalStateException.class, () -> journal.append(1, 0, 1, 0));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> newJournal(0, null, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> newJournal(1, null, 0));
+        Assertions.assertThrows(NullPointerException.class, () -> new TransitionJournal(null));
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            try (TransitionJournal journal = new TransitionJournal(directory)) {
+                journal.recover(null);
+            }
+        });
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            try (TransitionJournal journal = new TransitionJournal(directory)) {
+                new JournaledStateMachine<Event, State, String>(1, null, journal);
+            }
+        });
+        Assertions.assertThrows(NullPointerException.class, () -> new JournaledStateMachine<Event, State, String>(
+                1, DEFINITION.newStateMachine(State.CLOSED), null));
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            try (TransitionJournal journal = new TransitionJournal(directory)) {
+                newMachine(1, journal).consume(null, "context");
+            }
+        });
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            try (TransitionJournal journal = new TransitionJournal(directory)) {
+                newMachine(1, journal).tryConsume(null, "context");
+            }
+        });
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            try (TransitionJournal journal = new TransitionJournal(directory)) {
+                newMachine(1, journal).consume(Event.TOGGLE, null);
+            }
+        });
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            try (TransitionJournal journal = new TransitionJournal(directory)) {
+                newMachine(1, journal).tryConsume(Event.TOGGLE, null);
+            }
+        });
+    }
+
+    @Test
+    public void ordinalRangeTest() throws IOException {
+        try (TransitionJournal journal = newJournal(1024, null, TransitionJournal.DEFAULT_SEGMENT_SIZE)) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> journal.append(1, 0x10000, 0, 1));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> journal.append(1, 0, -1, 1));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> journal.append(1, 0, 0, 0x10000));
+            Assertions.assertEquals(1, journal.append(1, 0xFFFF, 0, 0xFFFF));
+            journal.sync();
+            Assertions.assertEquals(1, journal.getDurableSequence());
+        }
+    }
+
+    @Test
+    public void concurrentAppendTest() throws Exception {
+        try (TransitionJournal journal = newJournal(4, null, 64 * TransitionJournal.RECORD_SIZE)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long machineId = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        try {
+                            journal.append(machineId, Event.TOGGLE.ordinal(), i % 2, (i + 1) % 2);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            journal.sync();
+            Assertions.assertEquals(4000, journal.getDurableSequence());
+            Map<Long, State> states = journal.recover(State.class);
+            Assertions.assertEquals(4, states.size());
+            Assertions.assertTrue(states.values().stream().allMatch(State.CLOSED::equals));
+        }
+    }
+
+    private TransitionJournal newJournal(int groupCommitRecords, Duration groupCommitInterval, long segmentSize)
+            throws IOException {
+        return new TransitionJournal(directory, groupCommitRecords, groupCommitInterval, segmentSize);
+    }
+
+    private static JournaledStateMachine<Event, State, String> newMachine(long id, TransitionJournal journal) {
+        return new JournaledStateMachine<>(id, DEFINITION.newStateMachine(State.CLOSED), journal);
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.TOGGLE, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.TOGGLE, State.OPENED, State.CLOSED));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        return transitions;
+    }
+
+    private enum Event {
+        TOGGLE, OPEN, CLOSE
+    }
+
+    private enum State {
+        CLOSED, OPENED
+    }
+}
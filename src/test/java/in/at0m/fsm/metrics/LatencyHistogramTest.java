@@ -0,0 +1,50 @@
+package in.at0m.fsm.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketTest() {
+        for (int bucket = 0; bucket < 488; bucket++) {
+            long lowest = LatencyHistogram.lowestValue(bucket);
+            Assertions.assertEquals(bucket, LatencyHistogram.bucket(lowest));
+        }
+        Assertions.assertEquals(487, LatencyHistogram.bucket(Long.MAX_VALUE));
+        for (long value = 1; value < 1_000_000_000L; value = value * 3 + 1) {
+            long lowest = LatencyHistogram.lowestValue(LatencyHistogram.bucket(value));
+            Assertions.assertTrue(lowest <= value);
+            Assertions.assertTrue(value - lowest <= value / LatencyHistogram.SUB_BUCKETS);
+        }
+    }
+
+    @Test
+    public void snapshotTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram.Snapshot empty = histogram.snapshot();
+        Assertions.assertEquals(0, empty.getCount());
+        Assertions.assertEquals(0, empty.getMean());
+        Assertions.assertEquals(0, empty.getValueAtPercentile(99));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assertions.assertEquals(101, snapshot.getCount());
+        Assertions.assertEquals(5_050_000, snapshot.getTotal());
+        Assertions.assertEquals(100_000, snapshot.getMax());
+        Assertions.assertEquals(5_050_000 / 101.0, snapshot.getMean());
+        Assertions.assertEquals(0, snapshot.getValueAtPercentile(0));
+        long median = snapshot.getValueAtPercentile(50);
+        Assertions.assertTrue(median <= 50_000 && median > 50_000 * 7 / 8, String.valueOf(median));
+        long p100 = snapshot.getValueAtPercentile(100);
+        Assertions.assertTrue(p100 <= 100_000 && p100 > 100_000 * 7 / 8, String.valueOf(p100));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(101));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(Double.NaN));
+        histogram.record(10);
+        Assertions.assertEquals(101, snapshot.getCount());
+        Assertions.assertEquals(100_000, histogram.snapshot().getMax());
+    }
+}
@@ -0,0 +1,212 @@
+package in.at0m.fsm.metrics;
+
+import in.at0m.fsm.AtomicStateMachine;
+import in.at0m.fsm.CompiledStateMachine;
+import in.at0m.fsm.SimpleStateMachine;
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.batch.ContextualEvent;
+import in.at0m.fsm.batch.InvalidEventPolicy;
+import in.at0m.fsm.dispatch.AfterActionDispatcher;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.pool.StateMachinePool;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TransitionMetricsTest {
+
+    private final Action<Event, State, String> slowAction = new Action<Event, State, String>() {
+        @Override
+        public void before(ActionContext<Event, State, String> actionContext) {
+            spin(1_000_000);
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, String> actionContext) {
+        }
+    };
+
+    @Test
+    public void countTest() {
+        TransitionMetrics<Event, State> metrics = new TransitionMetrics<>(Event.class, State.class);
+        SimpleStateMachine<Event, State, String> stateMachine = newDefinition(metrics, null)
+                .newStateMachine(State.CLOSED);
+        Assertions.assertSame(State.OPENED, stateMachine.consume(Event.OPEN, "door"));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> stateMachine.consume(Event.OPEN, "door"));
+        Assertions.assertNull(stateMachine.tryConsume(Event.OPEN, "door"));
+        Assertions.assertSame(State.CLOSED, stateMachine.tryConsume(Event.CLOSE, "door"));
+        stateMachine.consumeAll(Arrays.asList(Event.OPEN, Event.CLOSE, Event.CLOSE), "door",
+                InvalidEventPolicy.SKIP_INVALID);
+        @SuppressWarnings("unchecked")
+        ContextualEvent<Event, String>[] events = new ContextualEvent[]{
+                new ContextualEvent<>(Event.OPEN, "door"), new ContextualEvent<>(Event.OPEN, "door")};
+        stateMachine.consumeAll(events, InvalidEventPolicy.SKIP_INVALID);
+
+        Assertions.assertEquals(3, metrics.getTransitionCount(State.CLOSED, Event.OPEN));
+        Assertions.assertEquals(2, metrics.getTransitionCount(State.OPENED, Event.CLOSE));
+        Assertions.assertEquals(3, metrics.getRejectionCount(State.OPENED, Event.OPEN));
+        Assertions.assertEquals(1, metrics.getRejectionCount(State.CLOSED, Event.CLOSE));
+        Assertions.assertEquals(0, metrics.getRejectionCount(State.CLOSED, Event.OPEN));
+        Map<State, Map<Event, Long>> transitions = metrics.getTransitionCounts();
+        Assertions.assertEquals(2, transitions.size());
+        Assertions.assertEquals(Collections.singletonMap(Event.OPEN, 3L), transitions.get(State.CLOSED));
+        Assertions.assertEquals(Collections.singletonMap(Event.CLOSE, 2L), transitions.get(State.OPENED));
+        Assertions.assertEquals(Collections.singletonMap(Event.OPEN, 3L), metrics.getRejectionCounts()
+                .get(State.OPENED));
+        Assertions.assertEquals(6, metrics.getLockWait().getCount());
+        Assertions.assertEquals(6, metrics.getLockHold().getCount());
+        Assertions.assertTrue(metrics.getBeforeLatencies().isEmpty());
+    }
+
+    @Test
+    public void actionLatencyTest() {
+        TransitionMetrics<Event, State> metrics = new TransitionMetrics<>(Event.class, State.class);
+        SimpleStateMachine<Event, State, String> stateMachine = newDefinition(metrics, null)
+                .newStateMachine(State.OPENED);
+        stateMachine.consume(Event.LOCK, "door");
+        stateMachine.consume(Event.UNLOCK, "door");
+        stateMachine.consume(Event.LOCK, "door");
+
+        LatencyHistogram.Snapshot before = metrics.getBeforeLatencies().get(slowAction);
+        Assertions.assertEquals(2, before.getCount());
+        Assertions.assertTrue(before.getValueAtPercentile(50) >= 1_000_000 * 7 / 8);
+        Assertions.assertEquals(2, metrics.getAfterLatencies().get(slowAction).getCount());
+        Assertions.assertEquals(1, metrics.getBeforeLatencies().size());
+        Assertions.assertTrue(metrics.getLockHold().getMax() >= 1_000_000);
+    }
+
+    @Test
+    public void dispatchedLatencyTest() {
+        TransitionMetrics<Event, State> metrics = new TransitionMetrics<>(Event.class, State.class);
+        AfterActionDispatcher dispatcher = new AfterActionDispatcher(16, 1, AfterActionDispatcher.OverflowPolicy.BLOCK);
+        SimpleStateMachine<Event, State, String> stateMachine = newDefinition(metrics, dispatcher)
+                .newStateMachine(State.OPENED);
+        stateMachine.consume(Event.LOCK, "door");
+        dispatcher.close();
+        Assertions.assertEquals(1, metrics.getAfterLatencies().get(slowAction).getCount());
+    }
+
+    @Test
+    public void failingActionTest() {
+        TransitionMetrics<Event, State> metrics = new TransitionMetrics<>(Event.class, State.class);
+        Action<Event, State, String> failing = new Action<Event, State, String>() {
+            @Override
+            public void before(ActionContext<Event, State, String> actionContext) {
+                throw new IllegalStateException("before");
+            }
+
+            @Override
+            public void after(ActionContext<Event, State, String> actionContext) {
+                throw new IllegalStateException("after");
+            }
+        };
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED, Collections.singletonList(failing)));
+        SimpleStateMachine<Event, State, String> stateMachine = StateMachineDefinition.<Event, State, String>builder()
+                .transitions(transitions)
+                .metrics(metrics)
+                .build()
+                .newStateMachine(State.CLOSED);
+        Assertions.assertThrows(IllegalStateException.class, () -> stateMachine.consume(Event.OPEN, "door"));
+        Assertions.assertSame(State.CLOSED, stateMachine.getCurrentState());
+        Assertions.assertEquals(1, metrics.getBeforeLatencies().get(failing).getCount());
+        Assertions.assertEquals(1, metrics.getLockHold().getCount());
+        Assertions.assertEquals(0, metrics.getTransitionCount(State.CLOSED, Event.OPEN));
+    }
+
+    @Test
+    public void otherMachinesTest() {
+        TransitionMetrics<Event, State> metrics = new TransitionMetrics<>(Event.class, State.class);
+        StateMachineDefinition<Event, State, String> definition = newDefinition(metrics, null);
+
+        AtomicStateMachine<Event, State, String> atomic = definition.newAtomicStateMachine(
+                State.CLOSED, AtomicStateMachine.ConflictPolicy.RETRY);
+        Assertions.assertSame(State.OPENED, atomic.consume(Event.OPEN, "door"));
+        Assertions.assertSame(State.LOCKED, atomic.consume(Event.LOCK, "door"));
+        Assertions.assertNull(atomic.tryConsume(Event.OPEN, "door"));
+
+        CompiledStateMachine<Event, State, String> compiled = definition.newCompiledStateMachine(State.CLOSED);
+        Assertions.assertSame(State.OPENED, compiled.consume(Event.OPEN, "door"));
+        Assertions.assertSame(State.LOCKED, compiled.consume(Event.LOCK, "door"));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> compiled.consume(Event.OPEN, "door"));
+        Assertions.assertNull(compiled.tryConsume(Event.OPEN, "door"));
+
+        StateMachinePool<Event, State, String> pool = new StateMachinePool<>(definition, 2, State.CLOSED);
+        Assertions.assertSame(State.OPENED, pool.consume(0, Event.OPEN, "door"));
+        Assertions.assertSame(State.LOCKED, pool.consume(0, Event.LOCK, "door"));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> pool.consume(1, Event.CLOSE, "door"));
+
+        Assertions.assertEquals(3, metrics.getTransitionCount(State.CLOSED, Event.OPEN));
+        Assertions.assertEquals(3, metrics.getTransitionCount(State.OPENED, Event.LOCK));
+        Assertions.assertEquals(3, metrics.getRejectionCount(State.LOCKED, Event.OPEN));
+        Assertions.assertEquals(1, metrics.getRejectionCount(State.CLOSED, Event.CLOSE));
+        Assertions.assertEquals(3, metrics.getBeforeLatencies().get(slowAction).getCount());
+        Assertions.assertEquals(3, metrics.getAfterLatencies().get(slowAction).getCount());
+    }
+
+    @Test
+    public void noopTest() {
+        StateMachineMetrics<Event, State> metrics = StateMachineMetrics.noop();
+        Assertions.assertFalse(metrics.isEnabled());
+        Assertions.assertSame(metrics, new StateMachineDefinition<>(buildTransitions()).getMetrics());
+        metrics.transition(State.CLOSED, Event.OPEN, State.OPENED);
+        metrics.rejection(State.CLOSED, Event.CLOSE);
+        metrics.lock(1, 1);
+        metrics.before(slowAction, 1);
+        metrics.after(slowAction, 1);
+        Assertions.assertTrue(new TransitionMetrics<>(Event.class, State.class).isEnabled());
+    }
+
+    @Test
+    public void invalidParamTest() {
+        TransitionMetrics<Event, State> metrics = new TransitionMetrics<>(Event.class, State.class);
+        Assertions.assertThrows(NullPointerException.class, () -> new TransitionMetrics<>(null, State.class));
+        Assertions.assertThrows(NullPointerException.class, () -> new TransitionMetrics<>(Event.class, null));
+        Assertions.assertThrows(NullPointerException.class, () -> metrics.getTransitionCount(null, Event.OPEN));
+        Assertions.assertThrows(NullPointerException.class, () -> metrics.getTransitionCount(State.CLOSED, null));
+        Assertions.assertThrows(NullPointerException.class, () -> metrics.getRejectionCount(null, Event.OPEN));
+        Assertions.assertThrows(NullPointerException.class, () -> metrics.getRejectionCount(State.CLOSED, null));
+    }
+
+    private StateMachineDefinition<Event, State, String> newDefinition(StateMachineMetrics<Event, State> metrics,
+                                                                       AfterActionDispatcher dispatcher) {
+        return StateMachineDefinition.<Event, State, String>builder()
+                .transitions(buildTransitions())
+                .afterActionDispatcher(dispatcher)
+                .metrics(metrics)
+                .build();
+    }
+
+    private List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        transitions.add(new Transition<>(Event.LOCK, State.OPENED, State.LOCKED,
+                Collections.singletonList(slowAction)));
+        transitions.add(new Transition<>(Event.UNLOCK, State.LOCKED, State.OPENED));
+        return transitions;
+    }
+
+    private static void spin(long nanos) {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < nanos) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private enum Event {
+        OPEN, CLOSE, LOCK, UNLOCK
+    }
+
+    private enum State {
+        CLOSED, OPENED, LOCKED
+    }
+}
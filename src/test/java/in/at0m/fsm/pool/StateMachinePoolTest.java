@@ -0,0 +1,287 @@
+package in.at0m.fsm.pool;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StateMachinePoolTest {
+
+    private static final StateMachineDefinition<Event, State, AtomicInteger> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    @Test
+    public void consumeTest() {
+        StateMachinePool<Event, State, AtomicInteger> pool = new StateMachinePool<>(DEFINITION, 4, State.IDLE);
+        AtomicInteger counter = new AtomicInteger();
+        Assertions.assertEquals(4, pool.getCapacity());
+        Assertions.assertSame(DEFINITION, pool.getDefinition());
+        Assertions.assertTrue(pool.canConsume(1, Event.START));
+        Assertions.assertFalse(pool.canConsume(1, Event.TIMEOUT));
+        Assertions.assertSame(State.RUNNING, pool.consume(1, Event.START, counter));
+        Assertions.assertSame(State.RUNNING, pool.getState(1));
+        Assertions.assertSame(State.IDLE, pool.getState(0));
+        Assertions.assertEquals(2, counter.get());
+        Assertions.assertThrows(InvalidTransitionException.class, () -> pool.consume(1, Event.START, counter));
+
+        pool.setState(3, State.EXPIRED);
+        Assertions.assertSame(State.EXPIRED, pool.getState(3));
+    }
+
+    @Test
+    public void stacklessTest() {
+        StateMachineDefinition<Event, State, AtomicInteger> definition
+                = new StateMachineDefinition<>(DEFINITION.getTransitions(), true);
+        StateMachinePool<Event, State, AtomicInteger> pool = new StateMachinePool<>(definition, 2, State.IDLE);
+        InvalidTransitionException rejection = Assertions.assertThrows(InvalidTransitionException.class,
+                () -> pool.consume(0, Event.TIMEOUT, new AtomicInteger()));
+        Assertions.assertSame(definition.rejection(State.IDLE, Event.TIMEOUT), rejection);
+    }
+
+    @Test
+    public void broadcastTest() {
+        StateMachinePool<Event, State, AtomicInteger> pool = new StateMachinePool<>(DEFINITION, 6, State.IDLE);
+        AtomicInteger counter = new AtomicInteger();
+        pool.consume(0, Event.START, counter);
+        pool.consume(2, Event.START, counter);
+        pool.consume(4, Event.START, counter);
+        counter.set(0);
+
+        Assertions.assertEquals(3, pool.broadcast(Event.TIMEOUT, counter));
+        Assertions.assertSame(State.EXPIRED, pool.getState(0));
+        Assertions.assertSame(State.IDLE, pool.getState(1));
+        Assertions.assertEquals(0, counter.get());
+
+        Assertions.assertEquals(2, pool.broadcast(Event.START, 1, 4, counter));
+        Assertions.assertSame(State.RUNNING, pool.getState(1));
+        Assertions.assertSame(State.RUNNING, pool.getState(3));
+        Assertions.assertSame(State.IDLE, pool.getState(5));
+        Assertions.assertEquals(4, counter.get());
+
+        Assertions.assertEquals(0, pool.broadcast(Event.START, 2, 2, counter));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> pool.broadcast(Event.START, -1, 2, counter));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> pool.broadcast(Event.START, 0, 7, counter));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> pool.broadcast(Event.START, 3, 2, counter));
+    }
+
+    @Test
+    public void shortSlotsTest() {
+        List<Transition<Event, ManyStates, AtomicInteger>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.START, ManyStates.S000, ManyStates.S299));
+        StateMachinePool<Event, ManyStates, AtomicInteger> pool = new StateMachinePool<>(
+                new StateMachineDefinition<>(transitions), 3, ManyStates.S000);
+        Assertions.assertEquals(3, pool.broadcast(Event.START, new AtomicInteger()));
+        Assertions.assertSame(ManyStates.S299, pool.getState(2));
+        Assertions.assertTrue(pool.allowedEvents(2).isEmpty());
+        pool.setState(1, ManyStates.S000);
+        Assertions.assertEquals(Collections.singleton(Event.START), pool.allowedEvents(1));
+        Assertions.assertSame(ManyStates.S299, pool.consume(1, Event.START, new AtomicInteger()));
+    }
+
+    @Test
+    public void mappedTest(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("pool.bin");
+        StateMachinePool<Event, State, AtomicInteger> pool = StateMachinePool.mapped(DEFINITION, file, 4, State.IDLE);
+        Assertions.assertEquals(StateMachinePool.HEADER_SIZE + 4, Files.size(file));
+        AtomicInteger counter = new AtomicInteger();
+        Assertions.assertSame(State.RUNNING, pool.consume(1, Event.START, counter));
+        Assertions.assertEquals(2, counter.get());
+        pool.setState(3, State.EXPIRED);
+        pool.force();
+
+        StateMachinePool<Event, State, AtomicInteger> restored = StateMachinePool.mapped(DEFINITION, file, 4,
+                State.IDLE);
+        Assertions.assertSame(State.IDLE, restored.getState(0));
+        Assertions.assertSame(State.RUNNING, restored.getState(1));
+        Assertions.assertSame(State.IDLE, restored.getState(2));
+        Assertions.assertSame(State.EXPIRED, restored.getState(3));
+        Assertions.assertEquals(2, restored.broadcast(Event.START, counter));
+        // Both mappings share the pages of the file.
+        Assertions.assertSame(State.RUNNING, pool.getState(0));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> restored.getState(4));
+    }
+
+    @Test
+    public void mappedShortSlotsTest(@TempDir Path directory) throws IOException {
+        List<Transition<Event, ManyStates, AtomicInteger>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.START, ManyStates.S000, ManyStates.S299));
+        StateMachineDefinition<Event, ManyStates, AtomicInteger> definition
+                = new StateMachineDefinition<>(transitions);
+        Path file = directory.resolve("pool.bin");
+        StateMachinePool<Event, ManyStates, AtomicInteger> pool = StateMachinePool.mapped(definition, file, 3,
+                ManyStates.S000);
+        Assertions.assertEquals(StateMachinePool.HEADER_SIZE + 6, Files.size(file));
+        pool.consume(2, Event.START, new AtomicInteger());
+        StateMachinePool<Event, ManyStates, AtomicInteger> restored = StateMachinePool.mapped(definition, file, 3,
+                ManyStates.S000);
+        Assertions.assertSame(ManyStates.S000, restored.getState(1));
+        Assertions.assertSame(ManyStates.S299, restored.getState(2));
+    }
+
+    @Test
+    public void mappedMismatchTest(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("pool.bin");
+        StateMachinePool.mapped(DEFINITION, file, 4, State.IDLE);
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> StateMachinePool.mapped(DEFINITION, file, 5, State.IDLE));
+        for (int offset = 0; offset < StateMachinePool.HEADER_SIZE; offset += 4) {
+            Path corrupt = directory.resolve("corrupt" + offset + ".bin");
+            Files.copy(file, corrupt);
+            try (FileChannel channel = FileChannel.open(corrupt, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{0x7F}), offset);
+            }
+            Assertions.assertThrows(IllegalStateException.class,
+                    () -> StateMachinePool.mapped(DEFINITION, corrupt, 4, State.IDLE));
+        }
+    }
+
+    @Test
+    public void mappedInterruptedInitializationTest(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("pool.bin");
+        Files.write(file, new byte[StateMachinePool.HEADER_SIZE + 2]);
+        StateMachinePool<Event, State, AtomicInteger> pool = StateMachinePool.mapped(DEFINITION, file, 2,
+                State.EXPIRED);
+        Assertions.assertSame(State.EXPIRED, pool.getState(1));
+        new StateMachinePool<>(DEFINITION, 1, State.IDLE).force();
+    }
+
+    @Test
+    public void populationTest() {
+        Assertions.assertNull(new StateMachinePool<>(DEFINITION, 2, State.IDLE).getPopulation());
+
+        StateMachinePool<Event, State, AtomicInteger> pool = new StateMachinePool<>(DEFINITION, 70, State.IDLE,
+                true);
+        StatePopulation<State> population = pool.getPopulation();
+        Assertions.assertEquals(70, population.getCount(State.IDLE));
+        Assertions.assertEquals(0, population.getCount(State.RUNNING));
+
+        AtomicInteger counter = new AtomicInteger();
+        pool.consume(3, Event.START, counter);
+        pool.consume(66, Event.START, counter);
+        pool.setState(5, State.EXPIRED);
+        pool.setState(6, State.IDLE);
+        Assertions.assertEquals(67, population.getCount(State.IDLE));
+        Assertions.assertEquals(2, population.getCount(State.RUNNING));
+        Assertions.assertEquals(1, population.getCount(State.EXPIRED));
+        Assertions.assertTrue(population.contains(State.RUNNING, 66));
+        Assertions.assertFalse(population.contains(State.IDLE, 66));
+        List<Integer> running = new ArrayList<>();
+        population.forEachMember(State.RUNNING, running::add);
+        Assertions.assertEquals(List.of(3, 66), running);
+
+        Assertions.assertEquals(2, pool.broadcast(Event.TIMEOUT, counter));
+        Assertions.assertEquals(0, population.getCount(State.RUNNING));
+        Assertions.assertEquals(3, population.getCount(State.EXPIRED));
+        Assertions.assertArrayEquals(new int[]{3, 5, 66}, population.snapshot().members(State.EXPIRED));
+    }
+
+    @Test
+    public void mappedPopulationTest(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("pool.bin");
+        StateMachinePool<Event, State, AtomicInteger> pool = StateMachinePool.mapped(DEFINITION, file, 4, State.IDLE,
+                true);
+        Assertions.assertEquals(4, pool.getPopulation().getCount(State.IDLE));
+        pool.consume(2, Event.START, new AtomicInteger());
+        Assertions.assertNull(StateMachinePool.mapped(DEFINITION, file, 4, State.IDLE).getPopulation());
+
+        StatePopulation<State> restored = StateMachinePool.mapped(DEFINITION, file, 4, State.IDLE, true)
+                .getPopulation();
+        Assertions.assertEquals(3, restored.getCount(State.IDLE));
+        Assertions.assertTrue(restored.contains(State.RUNNING, 2));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new StateMachinePool<>(DEFINITION, -1, State.IDLE));
+        Assertions.assertThrows(NullPointerException.class, () -> new StateMachinePool<>(null, 1, State.IDLE));
+        Assertions.assertThrows(NullPointerException.class, () -> new StateMachinePool<>(DEFINITION, 1, null));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new StateMachinePool<>(DEFINITION, Integer.MAX_VALUE, State.IDLE));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new StateMachinePool<>(
+                new StateMachineDefinition<Event, ManyStates, AtomicInteger>(Collections.singletonList(
+                        new Transition<>(Event.START, ManyStates.S000, ManyStates.S001))),
+                Integer.MAX_VALUE / 2, ManyStates.S000));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> StateMachinePool.mapped(DEFINITION, null, 1, State.IDLE));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> StateMachinePool.mapped(null, Path.of("pool.bin"), 1, State.IDLE));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> StateMachinePool.mapped(DEFINITION, Path.of("pool.bin"), 1, null));
+
+        StateMachinePool<Event, State, AtomicInteger> pool = new StateMachinePool<>(DEFINITION, 1, State.IDLE);
+        Assertions.assertThrows(NullPointerException.class, () -> pool.setState(0, null));
+        Assertions.assertThrows(NullPointerException.class, () -> pool.canConsume(0, null));
+        Assertions.assertThrows(NullPointerException.class, () -> pool.consume(0, null, new AtomicInteger()));
+        Assertions.assertThrows(NullPointerException.class, () -> pool.consume(0, Event.START, null));
+        Assertions.assertThrows(NullPointerException.class, () -> pool.broadcast(null, new AtomicInteger()));
+        Assertions.assertThrows(NullPointerException.class, () -> pool.broadcast(Event.START, null));
+    }
+
+    private static List<Transition<Event, State, AtomicInteger>> buildTransitions() {
+        List<Action<Event, State, AtomicInteger>> actions = Collections.singletonList(new CountingAction());
+        List<Transition<Event, State, AtomicInteger>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.START, State.IDLE, State.RUNNING, actions));
+        transitions.add(new Transition<>(Event.TIMEOUT, State.RUNNING, State.EXPIRED));
+        return transitions;
+    }
+
+    private enum Event {
+        START, TIMEOUT
+    }
+
+    private enum State {
+        IDLE, RUNNING, EXPIRED
+    }
+
+    private enum ManyStates {
+            S000, S001, S002, S003, S004, S005, S006, S007, S008, S009, S010, S011, S012, S013, S014,
+            S015, S016, S017, S018, S019, S020, S021, S022, S023, S024, S025, S026, S027, S028, S029,
+            S030, S031, S032, S033, S034, S035, S036, S037, S038, S039, S040, S041, S042, S043, S044,
+            S045, S046, S047, S048, S049, S050, S051, S052, S053, S054, S055, S056, S057, S058, S059,
+            S060, S061, S062, S063, S064, S065, S066, S067, S068, S069, S070, S071, S072, S073, S074,
+            S075, S076, S077, S078, S079, S080, S081, S082, S083, S084, S085, S086, S087, S088, S089,
+            S090, S091, S092, S093, S094, S095, S096, S097, S098, S099, S100, S101, S102, S103, S104,
+            S105, S106, S107, S108, S109, S110, S111, S112, S113, S114, S115, S116, S117, S118, S119,
+            S120, S121, S122, S123, S124, S125, S126, S127, S128, S129, S130, S131, S132, S133, S134,
+            S135, S136, S137, S138, S139, S140, S141, S142, S143, S144, S145, S146, S147, S148, S149,
+            S150, S151, S152, S153, S154, S155, S156, S157, S158, S159, S160, S161, S162, S163, S164,
+            S165, S166, S167, S168, S169, S170, S171, S172, S173, S174, S175, S176, S177, S178, S179,
+            S180, S181, S182, S183, S184, S185, S186, S187, S188, S189, S190, S191, S192, S193, S194,
+            S195, S196, S197, S198, S199, S200, S201, S202, S203, S204, S205, S206, S207, S208, S209,
+            S210, S211, S212, S213, S214, S215, S216, S217, S218, S219, S220, S221, S222, S223, S224,
+            S225, S226, S227, S228, S229, S230, S231, S232, S233, S234, S235, S236, S237, S238, S239,
+            S240, S241, S242, S243, S244, S245, S246, S247, S248, S249, S250, S251, S252, S253, S254,
+            S255, S256, S257, S258, S259, S260, S261, S262, S263, S264, S265, S266, S267, S268, S269,
+            S270, S271, S272, S273, S274, S275, S276, S277, S278, S279, S280, S281, S282, S283, S284,
+            S285, S286, S287, S288, S289, S290, S291, S292, S293, S294, S295, S296, S297, S298, S299
+    }
+
+    private static class CountingAction implements Action<Event, State, AtomicInteger> {
+
+        @Override
+        public void before(ActionContext<Event, State, AtomicInteger> actionContext) {
+            actionContext.getData().incrementAndGet();
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, AtomicInteger> actionContext) {
+            actionContext.getData().incrementAndGet();
+        }
+    }
+}
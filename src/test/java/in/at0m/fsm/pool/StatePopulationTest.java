@@ -0,0 +1,112 @@
+package in.at0m.fsm.pool;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StatePopulationTest {
+
+    @Test
+    public void snapshotTest() {
+        StatePopulation<State> population = new StatePopulation<>(State.values(), 130, slot -> State.IDLE.ordinal());
+        for (int slot = 0; slot < 130; slot++) {
+            population.add(slot, State.IDLE.ordinal());
+        }
+        population.move(1, State.IDLE.ordinal(), State.RUNNING.ordinal());
+        population.move(129, State.IDLE.ordinal(), State.RUNNING.ordinal());
+        population.move(64, State.IDLE.ordinal(), State.EXPIRED.ordinal());
+        population.move(64, State.EXPIRED.ordinal(), State.EXPIRED.ordinal());
+
+        StatePopulation.Snapshot<State> snapshot = population.snapshot();
+        Assertions.assertEquals(127, snapshot.getCount(State.IDLE));
+        Assertions.assertEquals(2, snapshot.getCount(State.RUNNING));
+        Assertions.assertEquals(1, snapshot.getCount(State.EXPIRED));
+        Assertions.assertArrayEquals(new int[]{1, 129}, snapshot.members(State.RUNNING));
+        Assertions.assertArrayEquals(new int[]{64}, snapshot.members(State.EXPIRED));
+        Assertions.assertSame(State.IDLE, snapshot.getState(0));
+        Assertions.assertSame(State.RUNNING, snapshot.getState(129));
+        Assertions.assertSame(State.EXPIRED, snapshot.getState(64));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getState(130));
+
+        // The snapshot does not see later moves.
+        population.move(0, State.IDLE.ordinal(), State.EXPIRED.ordinal());
+        Assertions.assertSame(State.IDLE, snapshot.getState(0));
+        Assertions.assertEquals(2, population.getCount(State.EXPIRED));
+    }
+
+    @Test
+    public void fallbackTest() {
+        // Slot 1 is stuck in two states, so the snapshot falls back to the states stored by the pool.
+        StatePopulation<State> population = new StatePopulation<>(State.values(), 3, slot -> slot);
+        population.add(0, State.IDLE.ordinal());
+        population.add(1, State.IDLE.ordinal());
+        population.add(1, State.RUNNING.ordinal());
+        population.add(2, State.EXPIRED.ordinal());
+        StatePopulation.Snapshot<State> snapshot = population.snapshot();
+        Assertions.assertSame(State.IDLE, snapshot.getState(0));
+        Assertions.assertSame(State.RUNNING, snapshot.getState(1));
+        Assertions.assertSame(State.EXPIRED, snapshot.getState(2));
+        Assertions.assertArrayEquals(new int[]{0}, snapshot.members(State.IDLE));
+        Assertions.assertEquals(2, population.getCount(State.IDLE));
+    }
+
+    @Test
+    public void emptyTest() {
+        StatePopulation<State> population = new StatePopulation<>(State.values(), 0, slot -> State.IDLE.ordinal());
+        Assertions.assertEquals(0, population.getCount(State.IDLE));
+        population.forEachMember(State.IDLE, slot -> Assertions.fail());
+        Assertions.assertEquals(0, population.snapshot().members(State.IDLE).length);
+    }
+
+    @Test
+    public void concurrentSnapshotTest() throws InterruptedException {
+        StatePopulation<State> population = new StatePopulation<>(State.values(), 64, slot -> State.IDLE.ordinal());
+        for (int slot = 0; slot < 64; slot++) {
+            population.add(slot, State.IDLE.ordinal());
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread mover = new Thread(() -> {
+            int from = State.IDLE.ordinal();
+            while (running.get()) {
+                int to = (from + 1) % State.values().length;
+                for (int slot = 0; slot < 64; slot++) {
+                    population.move(slot, from, to);
+                }
+                from = to;
+            }
+        });
+        mover.start();
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                StatePopulation.Snapshot<State> snapshot = population.snapshot();
+                int total = 0;
+                for (State state : State.values()) {
+                    total += snapshot.getCount(state);
+                }
+                Assertions.assertEquals(64, total);
+            }
+        } finally {
+            running.set(false);
+            mover.join();
+        }
+    }
+
+    @Test
+    public void invalidParamTest() {
+        StatePopulation<State> population = new StatePopulation<>(State.values(), 1, slot -> State.IDLE.ordinal());
+        population.add(0, State.IDLE.ordinal());
+        Assertions.assertThrows(NullPointerException.class, () -> population.getCount(null));
+        Assertions.assertThrows(NullPointerException.class, () -> population.contains(null, 0));
+        Assertions.assertThrows(NullPointerException.class, () -> population.forEachMember(null, slot -> { }));
+        Assertions.assertThrows(NullPointerException.class, () -> population.forEachMember(State.IDLE, null));
+
+        StatePopulation.Snapshot<State> snapshot = population.snapshot();
+        Assertions.assertThrows(NullPointerException.class, () -> snapshot.getCount(null));
+        Assertions.assertThrows(NullPointerException.class, () -> snapshot.members(null));
+    }
+
+    private enum State {
+        IDLE, RUNNING, EXPIRED
+    }
+}
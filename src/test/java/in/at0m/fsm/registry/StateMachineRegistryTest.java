@@ -0,0 +1,249 @@
+package in.at0m.fsm.registry;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StateMachineRegistryTest {
+
+    private static final StateMachineDefinition<Event, State, String> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    private final MapStore store = new MapStore();
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void hydrateTest() {
+        store.states.put(2L, State.OPENED);
+        StateMachineRegistry<Long, Event, State, String> registry = new StateMachineRegistry<>(
+                DEFINITION, store, State.CLOSED, 100, null);
+        Assertions.assertSame(State.CLOSED, registry.getCurrentState(1L));
+        Assertions.assertSame(State.OPENED, registry.getCurrentState(2L));
+        Assertions.assertTrue(registry.canConsume(1L, Event.OPEN));
+        Assertions.assertSame(State.OPENED, registry.consume(1L, Event.OPEN, "door"));
+        Assertions.assertNull(registry.tryConsume(2L, Event.OPEN, "door"));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> registry.consume(2L, Event.OPEN, "door"));
+        Assertions.assertSame(State.CLOSED, registry.tryConsume(2L, Event.CLOSE, "door"));
+        Assertions.assertEquals(2, registry.size());
+        Assertions.assertEquals(2, registry.getMisses());
+        Assertions.assertEquals(5, registry.getHits());
+        Assertions.assertEquals(0, registry.getEvictions());
+        Assertions.assertEquals(2, store.loads.get());
+        Assertions.assertEquals(0, store.saves.get());
+    }
+
+    @Test
+    public void lruTest() {
+        StateMachineRegistry<Long, Event, State, String> registry = newRegistry(2, null);
+        registry.consume(1L, Event.OPEN, "door");
+        registry.getCurrentState(2L);
+        registry.getCurrentState(1L);
+        registry.getCurrentState(3L);
+        Assertions.assertEquals(2, registry.size());
+        Assertions.assertEquals(1, registry.getEvictions());
+        Assertions.assertEquals(0, store.saves.get());
+        registry.getCurrentState(4L);
+        Assertions.assertEquals(2, registry.getEvictions());
+        Assertions.assertEquals(1, store.saves.get());
+        Assertions.assertSame(State.OPENED, store.states.get(1L));
+        Assertions.assertSame(State.OPENED, registry.getCurrentState(1L));
+        Assertions.assertEquals(5, store.loads.get());
+    }
+
+    @Test
+    public void idleTest() {
+        StateMachineRegistry<Long, Event, State, String> registry = newRegistry(100, Duration.ofSeconds(10));
+        registry.consume(1L, Event.OPEN, "door");
+        now.set(5_000);
+        registry.getCurrentState(2L);
+        now.set(9_999);
+        Assertions.assertEquals(0, registry.evictIdle());
+        now.set(10_000);
+        Assertions.assertEquals(1, registry.evictIdle());
+        Assertions.assertSame(State.OPENED, store.states.get(1L));
+        now.set(15_000);
+        registry.getCurrentState(3L);
+        Assertions.assertEquals(1, registry.size());
+        Assertions.assertEquals(2, registry.getEvictions());
+        Assertions.assertEquals(1, store.saves.get());
+    }
+
+    @Test
+    public void evictTest() {
+        StateMachineRegistry<Long, Event, State, String> registry = newRegistry(100, null);
+        Assertions.assertFalse(registry.evict(1L));
+        registry.consume(1L, Event.OPEN, "door");
+        registry.getCurrentState(2L);
+        Assertions.assertEquals(1, registry.flush());
+        Assertions.assertEquals(0, registry.flush());
+        Assertions.assertSame(State.OPENED, store.states.get(1L));
+        registry.consume(1L, Event.CLOSE, "door");
+        Assertions.assertTrue(registry.evict(1L));
+        Assertions.assertTrue(registry.evict(2L));
+        Assertions.assertEquals(0, registry.size());
+        Assertions.assertEquals(2, registry.getEvictions());
+        Assertions.assertEquals(2, store.saves.get());
+        Assertions.assertSame(State.CLOSED, store.states.get(1L));
+    }
+
+    @Test
+    public void concurrencyTest() throws Exception {
+        StateMachineRegistry<Long, Event, State, String> registry = StateMachineRegistry
+                .<Long, Event, State, String>builder()
+                .definition(DEFINITION)
+                .store(store)
+                .initialState(State.CLOSED)
+                .maximumSize(64)
+                .stripes(8)
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        registry.consume((long) (i % 256), Event.TOGGLE, "door");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        registry.flush();
+        long opened = 0;
+        for (long key = 0; key < 256; key++) {
+            if (store.states.getOrDefault(key, State.CLOSED) == State.OPENED) {
+                opened++;
+            }
+        }
+        // Every key is toggled 8 times as often as by a single thread, hence ends up closed.
+        Assertions.assertEquals(0, opened);
+        Assertions.assertEquals(80_000, registry.getHits() + registry.getMisses());
+    }
+
+    @Test
+    public void defaultStripesTest() {
+        StateMachineRegistry<Long, Event, State, String> registry = StateMachineRegistry
+                .<Long, Event, State, String>builder()
+                .definition(DEFINITION)
+                .store(store)
+                .initialState(State.CLOSED)
+                .maximumSize(StateMachineRegistry.DEFAULT_STRIPES)
+                .build();
+        for (long key = 0; key < 4 * StateMachineRegistry.DEFAULT_STRIPES; key++) {
+            registry.consume(key, Event.OPEN, "door");
+        }
+        Assertions.assertTrue(registry.size() <= StateMachineRegistry.DEFAULT_STRIPES);
+        Assertions.assertTrue(registry.getEvictions() >= 3 * StateMachineRegistry.DEFAULT_STRIPES);
+    }
+
+    @Test
+    public void failingAfterActionTest() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>(buildTransitions());
+        transitions.set(0, new Transition<>(Event.OPEN, State.CLOSED, State.OPENED,
+                Collections.singletonList(new Action<Event, State, String>() {
+                    @Override
+                    public void before(ActionContext<Event, State, String> actionContext) {
+                    }
+
+                    @Override
+                    public void after(ActionContext<Event, State, String> actionContext) {
+                        throw new IllegalStateException("after");
+                    }
+                })));
+        StateMachineRegistry<Long, Event, State, String> registry = new StateMachineRegistry<>(
+                new StateMachineDefinition<>(transitions), store, State.CLOSED, 100, null);
+        Assertions.assertThrows(IllegalStateException.class, () -> registry.consume(1L, Event.OPEN, "door"));
+        Assertions.assertThrows(IllegalStateException.class, () -> registry.tryConsume(2L, Event.OPEN, "door"));
+        Assertions.assertNull(registry.tryConsume(3L, Event.CLOSE, "door"));
+        Assertions.assertEquals(2, registry.flush());
+        Assertions.assertSame(State.OPENED, store.states.get(1L));
+        Assertions.assertSame(State.OPENED, store.states.get(2L));
+        Assertions.assertNull(store.states.get(3L));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> newRegistry(0, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> newRegistry(1, Duration.ZERO));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> newRegistry(1, Duration.ofMillis(-1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new StateMachineRegistry<Long, Event, State,
+                String>(DEFINITION, store, State.CLOSED, 1, null, -1, null));
+        Assertions.assertThrows(NullPointerException.class, () -> new StateMachineRegistry<Long, Event, State,
+                String>(null, store, State.CLOSED, 1, null));
+        Assertions.assertThrows(NullPointerException.class, () -> new StateMachineRegistry<Long, Event, State,
+                String>(DEFINITION, null, State.CLOSED, 1, null));
+        Assertions.assertThrows(NullPointerException.class, () -> new StateMachineRegistry<Long, Event, State,
+                String>(DEFINITION, store, null, 1, null));
+        StateMachineRegistry<Long, Event, State, String> registry = newRegistry(1, null);
+        Assertions.assertThrows(NullPointerException.class, () -> registry.getCurrentState(null));
+        Assertions.assertThrows(NullPointerException.class, () -> registry.canConsume(null, Event.OPEN));
+        Assertions.assertThrows(NullPointerException.class, () -> registry.canConsume(1L, null));
+        Assertions.assertThrows(NullPointerException.class, () -> registry.consume(null, Event.OPEN, "door"));
+        Assertions.assertThrows(NullPointerException.class, () -> registry.consume(1L, null, "door"));
+        Assertions.assertThrows(NullPointerException.class, () -> registry.tryConsume(null, Event.OPEN, "door"));
+        Assertions.assertThrows(NullPointerException.class, () -> registry.tryConsume(1L, null, "door"));
+        Assertions.assertThrows(NullPointerException.class, () -> registry.evict(null));
+    }
+
+    private StateMachineRegistry<Long, Event, State, String> newRegistry(long maximumSize, Duration idleTimeout) {
+        return new StateMachineRegistry<>(DEFINITION, store, State.CLOSED, maximumSize, idleTimeout, 1, now::get);
+    }
+
+    private static List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        transitions.add(new Transition<>(Event.TOGGLE, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.TOGGLE, State.OPENED, State.CLOSED));
+        return transitions;
+    }
+
+    private static final class MapStore implements StateStore<Long, State> {
+
+        private final Map<Long, State> states = new ConcurrentHashMap<>();
+
+        private final AtomicLong loads = new AtomicLong();
+
+        private final AtomicLong saves = new AtomicLong();
+
+        @Override
+        public State load(Long key) {
+            loads.incrementAndGet();
+            return states.get(key);
+        }
+
+        @Override
+        public void save(Long key, State state) {
+            saves.incrementAndGet();
+            states.put(key, state);
+        }
+    }
+
+    private enum Event {
+        OPEN, CLOSE, TOGGLE
+    }
+
+    private enum State {
+        CLOSED, OPENED
+    }
+}
@@ -0,0 +1,125 @@
+package in.at0m.fsm.replay;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class FastForwarderTest {
+
+    private static final StateMachineDefinition<Event, State, Object> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Test
+    public void fastForwardTest() {
+        Random random = new Random(42);
+        for (int chunkSize : new int[]{1, 3, 16, 1000}) {
+            FastForwarder<Event, State> forwarder = new FastForwarder<>(DEFINITION, State.class, Event.class, POOL,
+                    chunkSize);
+            for (int round = 0; round < 50; round++) {
+                Event[] events = new Event[random.nextInt(500)];
+                for (int i = 0; i < events.length; i++) {
+                    // Mostly valid sequences, so that some of them are consumed entirely.
+                    events[i] = random.nextInt(200) == 0 ? Event.FAIL : Event.values()[random.nextInt(3)];
+                }
+                for (State initialState : State.values()) {
+                    State expectedState = initialState;
+                    int expectedIndex = -1;
+                    for (int i = 0; i < events.length && expectedState != null; i++) {
+                        Transition<Event, State, Object> transition = DEFINITION.getTransition(expectedState,
+                                events[i]);
+                        expectedState = transition == null ? null : transition.getToState();
+                        expectedIndex = transition == null ? i : -1;
+                    }
+                    Assertions.assertSame(expectedState, forwarder.fastForward(initialState, events));
+                    Assertions.assertEquals(expectedIndex, forwarder.dryRun(initialState, events));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void longSequenceTest() {
+        Event[] events = new Event[1 << 20];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = i % 2 == 0 ? Event.NEXT : Event.RESET;
+        }
+        for (ForkJoinPool pool : new ForkJoinPool[]{POOL, new ForkJoinPool(1)}) {
+            Event[] history = events.clone();
+            FastForwarder<Event, State> forwarder = new FastForwarder<>(DEFINITION, State.class, Event.class, pool,
+                    FastForwarder.DEFAULT_CHUNK_SIZE);
+            Assertions.assertSame(State.A, forwarder.fastForward(State.A, history));
+            Assertions.assertEquals(-1, forwarder.dryRun(State.B, history));
+            history[history.length - 3] = Event.FAIL;
+            Assertions.assertNull(forwarder.fastForward(State.A, history));
+            Assertions.assertEquals(history.length - 3, forwarder.dryRun(State.C, history));
+        }
+    }
+
+    @Test
+    public void definitionTest() {
+        Event[] events = {Event.NEXT, Event.NEXT, Event.SKIP};
+        Assertions.assertSame(State.A, DEFINITION.fastForward(State.A, new Event[0]));
+        Assertions.assertEquals(-1, DEFINITION.dryRun(State.A, new Event[0]));
+        Assertions.assertSame(State.D, DEFINITION.fastForward(State.A, events));
+        Assertions.assertEquals(-1, DEFINITION.dryRun(State.A, events));
+        Assertions.assertNull(DEFINITION.fastForward(State.C, events));
+        Assertions.assertEquals(2, DEFINITION.dryRun(State.B, events));
+
+        StateMachineDefinition<Event, State, Object> empty = new StateMachineDefinition<>(new ArrayList<>());
+        Assertions.assertEquals(0, empty.dryRun(State.A, events));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FastForwarder<>(DEFINITION, State.class,
+                Event.class, ForkJoinPool.commonPool(), 0));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new FastForwarder<>(null, State.class, Event.class));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new FastForwarder<>(DEFINITION, null, Event.class));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new FastForwarder<>(DEFINITION, State.class, null));
+        Assertions.assertThrows(NullPointerException.class, () -> new FastForwarder<>(DEFINITION, State.class,
+                Event.class, null, 1));
+
+        FastForwarder<Event, State> forwarder = new FastForwarder<>(DEFINITION, State.class, Event.class);
+        Assertions.assertThrows(NullPointerException.class, () -> forwarder.fastForward(null, new Event[0]));
+        Assertions.assertThrows(NullPointerException.class, () -> forwarder.fastForward(State.A, null));
+        Assertions.assertThrows(NullPointerException.class, () -> forwarder.dryRun(null, new Event[0]));
+        Assertions.assertThrows(NullPointerException.class, () -> forwarder.dryRun(State.A, null));
+        Assertions.assertThrows(NullPointerException.class, () -> DEFINITION.fastForward(null, new Event[0]));
+        Assertions.assertThrows(NullPointerException.class, () -> DEFINITION.fastForward(State.A, null));
+        Assertions.assertThrows(NullPointerException.class, () -> DEFINITION.dryRun(null, new Event[0]));
+        Assertions.assertThrows(NullPointerException.class, () -> DEFINITION.dryRun(State.A, null));
+    }
+
+    private static List<Transition<Event, State, Object>> buildTransitions() {
+        List<Transition<Event, State, Object>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.NEXT, State.A, State.B));
+        transitions.add(new Transition<>(Event.NEXT, State.B, State.C));
+        transitions.add(new Transition<>(Event.NEXT, State.C, State.D));
+        transitions.add(new Transition<>(Event.NEXT, State.D, State.D));
+        transitions.add(new Transition<>(Event.SKIP, State.A, State.C));
+        transitions.add(new Transition<>(Event.SKIP, State.C, State.D));
+        for (State state : State.values()) {
+            transitions.add(new Transition<>(Event.RESET, state, State.A));
+        }
+        return transitions;
+    }
+
+    private enum Event {
+        NEXT, SKIP, RESET, FAIL
+    }
+
+    private enum State {
+        A, B, C, D
+    }
+}
@@ -0,0 +1,125 @@
+package in.at0m.fsm.replay;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelReplayerTest {
+
+    private static final StateMachineDefinition<Event, State, AtomicInteger> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    @Test
+    public void replayTest() {
+        AtomicInteger counter = new AtomicInteger();
+        List<KeyedEvent<Integer, Event, AtomicInteger>> events = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int key = 0; key < 100; key++) {
+                events.add(new KeyedEvent<>(key, key % 10 == 0 ? Event.CLOSE : Event.TOGGLE, counter));
+            }
+        }
+
+        ParallelReplayer<Integer, Event, State, AtomicInteger> replayer = new ParallelReplayer<>(
+                DEFINITION, key -> State.CLOSED, ForkJoinPool.commonPool(), 4, 7);
+        ReplayResult<Integer, Event, State> result = replayer.replay(events);
+
+        Assertions.assertEquals(100, result.getFinalStates().size());
+        Assertions.assertSame(State.OPENED, result.getFinalStates().get(1));
+        Assertions.assertSame(State.CLOSED, result.getFinalStates().get(10));
+        Assertions.assertEquals(30, result.getRejectedEvents().size());
+        Assertions.assertEquals(270, counter.get());
+
+        RejectedEvent<Integer, Event, State> first = result.getRejectedEvents().get(0);
+        Assertions.assertEquals(0, first.getIndex());
+        Assertions.assertEquals(0, first.getKey());
+        Assertions.assertSame(Event.CLOSE, first.getEvent());
+        Assertions.assertSame(State.CLOSED, first.getState());
+        Assertions.assertEquals(290, result.getRejectedEvents().get(29).getIndex());
+    }
+
+    @Test
+    public void orderTest() {
+        List<KeyedEvent<String, Event, AtomicInteger>> events = new ArrayList<>();
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 1001; i++) {
+            events.add(new KeyedEvent<>("key-" + (i % 3), Event.TOGGLE, counter));
+        }
+        events.add(new KeyedEvent<>("key-0", Event.CLOSE, counter));
+
+        ReplayResult<String, Event, State> result = new ParallelReplayer<String, Event, State, AtomicInteger>(
+                DEFINITION, key -> State.CLOSED).replay(events);
+        Assertions.assertSame(State.CLOSED, result.getFinalStates().get("key-0"));
+        Assertions.assertSame(State.CLOSED, result.getFinalStates().get("key-1"));
+        Assertions.assertSame(State.OPENED, result.getFinalStates().get("key-2"));
+        Assertions.assertEquals(1, result.getRejectedEvents().size());
+        Assertions.assertEquals(1001, result.getRejectedEvents().get(0).getIndex());
+    }
+
+    @Test
+    public void emptyTest() {
+        ReplayResult<String, Event, State> result = new ParallelReplayer<String, Event, State, AtomicInteger>(
+                DEFINITION, key -> State.CLOSED).replay(Collections.emptyList());
+        Assertions.assertTrue(result.getFinalStates().isEmpty());
+        Assertions.assertTrue(result.getRejectedEvents().isEmpty());
+    }
+
+    @Test
+    public void invalidParamTest() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ParallelReplayer<String, Event, State, AtomicInteger>(
+                        DEFINITION, key -> State.CLOSED, pool, 0, 1));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ParallelReplayer<String, Event, State, AtomicInteger>(
+                        DEFINITION, key -> State.CLOSED, pool, 1, 0));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new ParallelReplayer<String, Event, State, AtomicInteger>(null, key -> State.CLOSED));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new ParallelReplayer<String, Event, State, AtomicInteger>(DEFINITION, null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new ParallelReplayer<String, Event, State, AtomicInteger>(
+                        DEFINITION, key -> State.CLOSED, null, 1, 1));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new ParallelReplayer<String, Event, State, AtomicInteger>(
+                        DEFINITION, key -> State.CLOSED).replay(null));
+    }
+
+    private static List<Transition<Event, State, AtomicInteger>> buildTransitions() {
+        List<Action<Event, State, AtomicInteger>> actions = Collections.singletonList(new CountingAction());
+        List<Transition<Event, State, AtomicInteger>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.TOGGLE, State.CLOSED, State.OPENED, actions));
+        transitions.add(new Transition<>(Event.TOGGLE, State.OPENED, State.CLOSED, actions));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED, actions));
+        return transitions;
+    }
+
+    private enum Event {
+        TOGGLE, CLOSE
+    }
+
+    private enum State {
+        CLOSED, OPENED
+    }
+
+    private static class CountingAction implements Action<Event, State, AtomicInteger> {
+
+        @Override
+        public void before(ActionContext<Event, State, AtomicInteger> actionContext) {
+
+        }
+
+        @Override
+        public void after(ActionContext<Event, State, AtomicInteger> actionContext) {
+            actionContext.getData().incrementAndGet();
+        }
+    }
+}
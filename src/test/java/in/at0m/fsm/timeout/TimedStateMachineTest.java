@@ -0,0 +1,199 @@
+package in.at0m.fsm.timeout;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.Action;
+import in.at0m.fsm.transition.ActionContext;
+import in.at0m.fsm.transition.Transition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TimedStateMachineTest {
+
+    private static final Transition<Event, State, String> RETRY
+            = new Transition<>(Event.RETRY, State.EXPIRED, State.PENDING);
+
+    private static final StateMachineDefinition<Event, State, String> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final TimingWheel wheel = new TimingWheel(Duration.ofMillis(10), now::get, null);
+
+    @Test
+    public void timeoutTest() {
+        TimedStateMachine<Event, State, String> stateMachine = newMachine(State.NEW);
+        Assertions.assertSame(wheel, stateMachine.getWheel());
+        Assertions.assertTrue(stateMachine.canConsume(Event.SUBMIT));
+        Assertions.assertSame(State.PENDING, stateMachine.consume(Event.SUBMIT, "order"));
+        now.set(29_999);
+        Assertions.assertEquals(0, wheel.advance());
+        Assertions.assertSame(State.PENDING, stateMachine.getCurrentState());
+        now.set(30_000);
+        Assertions.assertEquals(1, wheel.advance());
+        Assertions.assertSame(State.EXPIRED, stateMachine.getCurrentState());
+    }
+
+    @Test
+    public void cancelTest() {
+        TimedStateMachine<Event, State, String> stateMachine = newMachine(State.NEW);
+        stateMachine.consume(Event.SUBMIT, "order");
+        now.set(10_000);
+        Assertions.assertEquals(0, wheel.advance());
+        Assertions.assertSame(State.APPROVED, stateMachine.tryConsume(Event.APPROVE, "order"));
+        now.set(60_000);
+        Assertions.assertEquals(0, wheel.advance());
+        Assertions.assertSame(State.APPROVED, stateMachine.getCurrentState());
+    }
+
+    @Test
+    public void reenterTest() {
+        TimedStateMachine<Event, State, String> stateMachine = newMachine(State.NEW);
+        stateMachine.consume(Event.SUBMIT, "order");
+        now.set(20_000);
+        Assertions.assertSame(State.PENDING, stateMachine.consume(Event.REMIND, "order"));
+        now.set(30_000);
+        Assertions.assertEquals(0, wheel.advance());
+        Assertions.assertSame(State.PENDING, stateMachine.getCurrentState());
+        now.set(50_000);
+        Assertions.assertEquals(1, wheel.advance());
+        Assertions.assertSame(State.EXPIRED, stateMachine.getCurrentState());
+    }
+
+    @Test
+    public void transitionTimeoutTest() {
+        TimedStateMachine<Event, State, String> stateMachine = newMachine(State.PENDING);
+        now.set(30_000);
+        Assertions.assertEquals(1, wheel.advance());
+        Assertions.assertSame(State.PENDING, stateMachine.consume(Event.RETRY, "order"));
+        now.set(35_000);
+        Assertions.assertEquals(1, wheel.advance());
+        Assertions.assertSame(State.EXPIRED, stateMachine.getCurrentState());
+    }
+
+    @Test
+    public void rejectedTest() {
+        StateTimeouts<Event, State> timeouts = newTimeouts().onState(State.APPROVED, Duration.ofSeconds(1),
+                Event.SUBMIT);
+        TimedStateMachine<Event, State, String> stateMachine = new TimedStateMachine<>(
+                DEFINITION.newStateMachine(State.APPROVED), timeouts, wheel, "timeout");
+        Assertions.assertNull(stateMachine.tryConsume(Event.SUBMIT, "order"));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> stateMachine.consume(Event.RETRY, "order"));
+        now.set(1_000);
+        Assertions.assertEquals(0, wheel.advance());
+        Assertions.assertSame(State.APPROVED, stateMachine.getCurrentState());
+    }
+
+    @Test
+    public void contextTest() {
+        List<String> contexts = new ArrayList<>();
+        Action<Event, State, String> action = new Action<Event, State, String>() {
+            @Override
+            public void before(ActionContext<Event, State, String> actionContext) {
+                contexts.add(actionContext.getData());
+            }
+
+            @Override
+            public void after(ActionContext<Event, State, String> actionContext) {
+            }
+        };
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.TIMEOUT, State.PENDING, State.EXPIRED,
+                Collections.singletonList(action)));
+        TimedStateMachine<Event, State, String> stateMachine = new TimedStateMachine<>(
+                new StateMachineDefinition<>(transitions).newStateMachine(State.PENDING), newTimeouts(), wheel,
+                "timeout");
+        now.set(30_000);
+        Assertions.assertEquals(1, wheel.advance());
+        Assertions.assertSame(State.EXPIRED, stateMachine.getCurrentState());
+        Assertions.assertEquals(Collections.singletonList("timeout"), contexts);
+    }
+
+    @Test
+    public void batchTest() {
+        List<TimedStateMachine<Event, State, String>> stateMachines = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            stateMachines.add(newMachine(State.NEW));
+            now.set(i);
+            stateMachines.get(i).consume(Event.SUBMIT, "order");
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            stateMachines.get(i).consume(Event.APPROVE, "order");
+        }
+        now.set(40_000);
+        Assertions.assertEquals(5_000, wheel.advance());
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertSame(i % 2 == 0 ? State.APPROVED : State.EXPIRED,
+                    stateMachines.get(i).getCurrentState());
+        }
+    }
+
+    @Test
+    public void negativeDelayTest() {
+        StateTimeouts<Event, State> timeouts = new StateTimeouts<>(State.class);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> timeouts.onState(State.PENDING, Duration.ofMillis(-1), Event.TIMEOUT));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> timeouts.onTransition(RETRY, Duration.ofMillis(-1), Event.TIMEOUT));
+        Assertions.assertNull(timeouts.get(State.PENDING));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        StateTimeouts<Event, State> timeouts = newTimeouts();
+        Assertions.assertThrows(NullPointerException.class, () -> new StateTimeouts<Event, State>(null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> timeouts.onState(null, Duration.ZERO, Event.TIMEOUT));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> timeouts.onState(State.PENDING, null, Event.TIMEOUT));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> timeouts.onState(State.PENDING, Duration.ZERO, null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> timeouts.onTransition(null, Duration.ZERO, Event.TIMEOUT));
+        Assertions.assertThrows(NullPointerException.class, () -> timeouts.onTransition(RETRY, null, Event.TIMEOUT));
+        Assertions.assertThrows(NullPointerException.class, () -> timeouts.onTransition(RETRY, Duration.ZERO, null));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new TimedStateMachine<>(null, timeouts, wheel, "timeout"));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new TimedStateMachine<>(DEFINITION.newStateMachine(State.NEW), null, wheel, "timeout"));
+        Assertions.assertThrows(NullPointerException.class,
+                () -> new TimedStateMachine<>(DEFINITION.newStateMachine(State.NEW), timeouts, null, "timeout"));
+        TimedStateMachine<Event, State, String> stateMachine = newMachine(State.NEW);
+        Assertions.assertThrows(NullPointerException.class, () -> stateMachine.consume(null, "order"));
+        Assertions.assertThrows(NullPointerException.class, () -> stateMachine.tryConsume(null, "order"));
+    }
+
+    private TimedStateMachine<Event, State, String> newMachine(State initialState) {
+        return new TimedStateMachine<>(DEFINITION.newStateMachine(initialState), newTimeouts(), wheel, "timeout");
+    }
+
+    private static StateTimeouts<Event, State> newTimeouts() {
+        return new StateTimeouts<Event, State>(State.class)
+                .onState(State.PENDING, Duration.ofSeconds(30), Event.TIMEOUT)
+                .onTransition(RETRY, Duration.ofSeconds(5), Event.TIMEOUT);
+    }
+
+    private static List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.SUBMIT, State.NEW, State.PENDING));
+        transitions.add(new Transition<>(Event.APPROVE, State.PENDING, State.APPROVED));
+        transitions.add(new Transition<>(Event.REMIND, State.PENDING, State.PENDING));
+        transitions.add(new Transition<>(Event.TIMEOUT, State.PENDING, State.EXPIRED));
+        transitions.add(RETRY);
+        return transitions;
+    }
+
+    private enum Event {
+        SUBMIT, APPROVE, REMIND, TIMEOUT, RETRY
+    }
+
+    private enum State {
+        NEW, PENDING, APPROVED, EXPIRED
+    }
+}
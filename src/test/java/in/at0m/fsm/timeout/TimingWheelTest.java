@@ -0,0 +1,121 @@
+package in.at0m.fsm.timeout;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TimingWheelTest {
+
+    private final AtomicLong now = new AtomicLong(5);
+
+    private final List<Long> fired = new ArrayList<>();
+
+    @Test
+    public void levelsTest() {
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(1), now::get, null);
+        Assertions.assertEquals(1, wheel.getTickMillis());
+        long[] delays = {1, 63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 300_000, 16_777_215, 16_777_216,
+                16_777_300, 40_000_000};
+        for (int i = delays.length - 1; i >= 0; i--) {
+            wheel.schedule(new RecordingTimer(delays[i]), delays[i]);
+        }
+        for (long delay : delays) {
+            now.set(5 + delay - 1);
+            Assertions.assertEquals(0, wheel.advance());
+            now.set(5 + delay);
+            Assertions.assertEquals(1, wheel.advance());
+            Assertions.assertEquals(delay, fired.get(fired.size() - 1));
+        }
+        Assertions.assertEquals(delays.length, fired.size());
+    }
+
+    @Test
+    public void orderTest() {
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(10), now::get, null);
+        long[] delays = {5000, 15, 700, 0, 90_000, 310};
+        for (long delay : delays) {
+            wheel.schedule(new RecordingTimer(delay), delay);
+        }
+        now.set(100_000);
+        Assertions.assertEquals(delays.length, wheel.advance());
+        Assertions.assertEquals(Arrays.asList(0L, 15L, 310L, 700L, 5000L, 90_000L), fired);
+    }
+
+    @Test
+    public void resolutionTest() {
+        now.set(0);
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(10), now::get, null);
+        now.set(3);
+        wheel.schedule(new RecordingTimer(12), 12);
+        now.set(19);
+        Assertions.assertEquals(0, wheel.advance());
+        now.set(20);
+        Assertions.assertEquals(1, wheel.advance());
+    }
+
+    @Test
+    public void errorTest() {
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(1), now::get, null);
+        wheel.schedule(new FailingTimer("first"), 1);
+        wheel.schedule(new RecordingTimer(2), 2);
+        wheel.schedule(new FailingTimer("second"), 3);
+        now.addAndGet(3);
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, wheel::advance);
+        Assertions.assertEquals("first", exception.getMessage());
+        Assertions.assertEquals("second", exception.getSuppressed()[0].getMessage());
+        Assertions.assertEquals(Collections.singletonList(2L), fired);
+
+        List<RuntimeException> errors = new ArrayList<>();
+        TimingWheel handled = new TimingWheel(Duration.ofMillis(1), now::get, errors::add);
+        handled.schedule(new FailingTimer("third"), 1);
+        handled.schedule(new RecordingTimer(1), 1);
+        now.addAndGet(1);
+        Assertions.assertEquals(1, handled.advance());
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertEquals("third", errors.get(0).getMessage());
+    }
+
+    @Test
+    public void tickTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimingWheel(Duration.ofNanos(999_999)));
+        TimingWheel wheel = new TimingWheel(Duration.ofMillis(1));
+        Assertions.assertEquals(0, wheel.advance());
+        Assertions.assertThrows(NullPointerException.class, () -> new TimingWheel(null, now::get, null));
+        Assertions.assertThrows(NullPointerException.class, () -> new TimingWheel(Duration.ofMillis(1), null, null));
+    }
+
+    private final class RecordingTimer extends TimingWheel.Timer {
+
+        private final long delay;
+
+        private RecordingTimer(long delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        boolean fire() {
+            fired.add(delay);
+            return true;
+        }
+    }
+
+    private static final class FailingTimer extends TimingWheel.Timer {
+
+        private final String message;
+
+        private FailingTimer(String message) {
+            this.message = message;
+        }
+
+        @Override
+        boolean fire() {
+            throw new IllegalStateException(message);
+        }
+    }
+}
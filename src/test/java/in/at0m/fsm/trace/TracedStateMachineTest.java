@@ -0,0 +1,110 @@
+package in.at0m.fsm.trace;
+
+import in.at0m.fsm.StateMachineDefinition;
+import in.at0m.fsm.exception.InvalidTransitionException;
+import in.at0m.fsm.transition.Transition;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TracedStateMachineTest {
+
+    private static final StateMachineDefinition<Event, State, String> DEFINITION
+            = new StateMachineDefinition<>(buildTransitions());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void traceTest() {
+        TransitionTrace<Event, State> trace = new TransitionTrace<>(Event.class, State.class, 4);
+        TracedStateMachine<Event, State, String> first = new TracedStateMachine<>(
+                1, DEFINITION.newStateMachine(State.CLOSED), trace);
+        TracedStateMachine<Event, State, String> second = new TracedStateMachine<>(
+                2, DEFINITION.newStateMachine(State.OPENED), trace);
+        Assertions.assertEquals(1, first.getId());
+        Assertions.assertSame(trace, first.getTrace());
+        Assertions.assertTrue(first.canConsume(Event.OPEN));
+        Assertions.assertSame(State.OPENED, first.consume(Event.OPEN, "first"));
+        Assertions.assertNull(first.tryConsume(Event.OPEN, "first"));
+        Assertions.assertThrows(InvalidTransitionException.class, () -> first.consume(Event.OPEN, "first"));
+        Assertions.assertSame(State.CLOSED, second.tryConsume(Event.CLOSE, "second"));
+        Assertions.assertSame(State.OPENED, first.getCurrentState());
+
+        List<TraceRecord<Event, State>> records = trace.dump();
+        Assertions.assertEquals(2, records.size());
+        TraceRecord<Event, State> record = records.get(0);
+        Assertions.assertEquals(0, record.getSequence());
+        Assertions.assertEquals(1, record.getMachineId());
+        Assertions.assertSame(Event.OPEN, record.getEvent());
+        Assertions.assertSame(State.CLOSED, record.getFromState());
+        Assertions.assertSame(State.OPENED, record.getToState());
+        Assertions.assertEquals(Thread.currentThread().getId(), record.getThreadId());
+        Assertions.assertTrue(record.getDurationNanos() >= 0);
+        Assertions.assertTrue(record.getTimestamp() <= System.currentTimeMillis());
+        Assertions.assertEquals(2, records.get(1).getMachineId());
+        Assertions.assertSame(State.CLOSED, records.get(1).getToState());
+    }
+
+    @Test
+    public void flightRecorderTest() throws IOException {
+        TracedStateMachine<Event, State, String> stateMachine = new TracedStateMachine<>(
+                7, DEFINITION.newStateMachine(State.CLOSED), null);
+        Assertions.assertSame(State.OPENED, stateMachine.consume(Event.OPEN, "door"));
+        Path file = directory.resolve("transitions.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(TransitionEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            stateMachine.consume(Event.CLOSE, "door");
+            stateMachine.tryConsume(Event.OPEN, "door");
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("in.at0m.fsm.Transition"))
+                .collect(Collectors.toList());
+        Assertions.assertEquals(2, events.size());
+        RecordedEvent event = events.get(0);
+        Assertions.assertEquals(7, event.getLong("machineId"));
+        Assertions.assertEquals("CLOSE", event.getString("event"));
+        Assertions.assertEquals("OPENED", event.getString("fromState"));
+        Assertions.assertEquals("CLOSED", event.getString("toState"));
+        Assertions.assertEquals(Thread.currentThread().getName(), event.getThread().getJavaName());
+        Assertions.assertEquals("OPEN", events.get(1).getString("event"));
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(NullPointerException.class, () -> new TracedStateMachine<Event, State, String>(
+                1, null, null));
+        TracedStateMachine<Event, State, String> stateMachine = new TracedStateMachine<>(
+                1, DEFINITION.newStateMachine(State.CLOSED), null);
+        Assertions.assertThrows(NullPointerException.class, () -> stateMachine.consume(null, "door"));
+        Assertions.assertThrows(NullPointerException.class, () -> stateMachine.tryConsume(null, "door"));
+    }
+
+    static List<Transition<Event, State, String>> buildTransitions() {
+        List<Transition<Event, State, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(Event.OPEN, State.CLOSED, State.OPENED));
+        transitions.add(new Transition<>(Event.CLOSE, State.OPENED, State.CLOSED));
+        return transitions;
+    }
+
+    enum Event {
+        OPEN, CLOSE
+    }
+
+    enum State {
+        CLOSED, OPENED
+    }
+}
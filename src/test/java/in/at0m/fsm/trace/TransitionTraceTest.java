@@ -0,0 +1,94 @@
+package in.at0m.fsm.trace;
+
+import in.at0m.fsm.trace.TracedStateMachineTest.Event;
+import in.at0m.fsm.trace.TracedStateMachineTest.State;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TransitionTraceTest {
+
+    @Test
+    public void wrapTest() {
+        TransitionTrace<Event, State> trace = new TransitionTrace<>(Event.class, State.class, 3);
+        Assertions.assertEquals(4, trace.getCapacity());
+        Assertions.assertTrue(trace.dump().isEmpty());
+        for (int i = 0; i < 10; i++) {
+            trace.record(i, i % 2 == 0 ? Event.OPEN : Event.CLOSE, State.CLOSED, State.OPENED, i * 10L);
+        }
+        Assertions.assertEquals(10, trace.getRecorded());
+        List<TraceRecord<Event, State>> records = trace.dump();
+        Assertions.assertEquals(4, records.size());
+        for (int i = 0; i < 4; i++) {
+            TraceRecord<Event, State> record = records.get(i);
+            Assertions.assertEquals(6 + i, record.getSequence());
+            Assertions.assertEquals(6 + i, record.getMachineId());
+            Assertions.assertEquals((6 + i) * 10L, record.getDurationNanos());
+            Assertions.assertSame(i % 2 == 0 ? Event.OPEN : Event.CLOSE, record.getEvent());
+        }
+        Assertions.assertEquals(1, new TransitionTrace<>(Event.class, State.class, 1).getCapacity());
+    }
+
+    @Test
+    public void concurrentDumpTest() {
+        TransitionTrace<Event, State> trace = new TransitionTrace<>(Event.class, State.class, 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (long i = 0; running.get(); i++) {
+                trace.record(i, Event.OPEN, State.CLOSED, State.OPENED, i);
+            }
+        });
+        writer.start();
+        try {
+            Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                int skipped = 0;
+                while (skipped < 1000) {
+                    List<TraceRecord<Event, State>> records = trace.dump();
+                    if (records.isEmpty()) {
+                        skipped++;
+                    } else {
+                        // A record is never torn: every field was written by the same call.
+                        TraceRecord<Event, State> record = records.get(0);
+                        Assertions.assertEquals(record.getMachineId(), record.getDurationNanos());
+                    }
+                }
+            });
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Test
+    public void lappedWriterTest() {
+        TransitionTrace<Event, State> trace = new TransitionTrace<>(Event.class, State.class, 1);
+        trace.record(0, Event.OPEN, State.CLOSED, State.OPENED, 0);
+        // The writer of record 1 claims the slot and is preempted, so the writer of record 2 laps it.
+        Assertions.assertTrue(trace.claim(0, 1));
+        trace.record(1, Event.CLOSE, State.OPENED, State.CLOSED, 1);
+        trace.record(2, Event.CLOSE, State.OPENED, State.CLOSED, 2);
+        Assertions.assertEquals(2, trace.getDropped());
+        Assertions.assertTrue(trace.dump().isEmpty());
+
+        TransitionTrace<Event, State> newer = new TransitionTrace<>(Event.class, State.class, 1);
+        for (int i = 0; i < 3; i++) {
+            newer.record(i, Event.OPEN, State.CLOSED, State.OPENED, i);
+        }
+        // A slow writer of record 1 finds the slot already holding record 2.
+        Assertions.assertFalse(newer.claim(0, 1));
+        Assertions.assertEquals(2, newer.dump().get(0).getSequence());
+        Assertions.assertEquals(0, newer.getDropped());
+    }
+
+    @Test
+    public void invalidParamTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TransitionTrace<>(Event.class,
+                State.class, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TransitionTrace<>(Event.class,
+                State.class, (1 << 30) + 1));
+        Assertions.assertThrows(NullPointerException.class, () -> new TransitionTrace<>(null, State.class, 1));
+        Assertions.assertThrows(NullPointerException.class, () -> new TransitionTrace<>(Event.class, null, 1));
+    }
+}
@@ -0,0 +1,80 @@
+package in.at0m.fsm.transition;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ActionContextTest {
+
+    @Test
+    public void flyweightTest() {
+        ActionContext<TestEvent, TestState, String> first
+                = ActionContext.flyweight(TestEvent.TRANSITION, TestState.FROM, TestState.TO, "first");
+        Assertions.assertSame(TestEvent.TRANSITION, first.getEvent());
+        Assertions.assertSame(TestState.FROM, first.getCurrentState());
+        Assertions.assertSame(TestState.TO, first.getNextState());
+        Assertions.assertEquals("first", first.getData());
+
+        // The reusable context is in use, so a nested transition gets a reusable context of its own.
+        ActionContext<TestEvent, TestState, String> nested
+                = ActionContext.flyweight(TestEvent.TRANSITION, TestState.TO, TestState.FROM, "nested");
+        Assertions.assertNotSame(first, nested);
+        Assertions.assertEquals("first", first.getData());
+        nested.release();
+        Assertions.assertNull(nested.getData());
+        Assertions.assertSame(nested,
+                ActionContext.flyweight(TestEvent.TRANSITION, TestState.TO, TestState.FROM, "nested"));
+
+        // Once every nesting level is in use, a new context is returned.
+        List<ActionContext<TestEvent, TestState, String>> levels = new ArrayList<>();
+        for (int depth = 2; depth < ReusableActionContext.MAX_DEPTH; depth++) {
+            levels.add(ActionContext.flyweight(TestEvent.TRANSITION, TestState.TO, TestState.FROM, "level"));
+        }
+        ActionContext<TestEvent, TestState, String> deepest
+                = ActionContext.flyweight(TestEvent.TRANSITION, TestState.TO, TestState.FROM, "deepest");
+        Assertions.assertSame(ActionContext.class, deepest.getClass());
+        deepest.release();
+        Assertions.assertEquals("deepest", deepest.getData());
+        levels.forEach(ActionContext::release);
+        nested.release();
+
+        ActionContext<TestEvent, TestState, String> copy = first.toBuilder().build();
+        first.release();
+        Assertions.assertNull(first.getData());
+        Assertions.assertEquals("first", copy.getData());
+        Assertions.assertSame(ActionContext.class, copy.getClass());
+
+        ActionContext<TestEvent, TestState, String> second
+                = ActionContext.flyweight(TestEvent.TRANSITION, TestState.TO, TestState.FROM, "second");
+        Assertions.assertSame(first, second);
+        Assertions.assertSame(TestState.TO, second.getCurrentState());
+        Assertions.assertEquals("second", second.getData());
+        second.release();
+    }
+
+    @Test
+    public void builderTest() {
+        ActionContext<TestEvent, TestState, String> actionContext
+                = ActionContext.<TestEvent, TestState, String>builder()
+                .event(TestEvent.TRANSITION)
+                .currentState(TestState.FROM)
+                .nextState(TestState.TO)
+                .data("data")
+                .build();
+        actionContext.release();
+        Assertions.assertSame(TestEvent.TRANSITION, actionContext.getEvent());
+        Assertions.assertSame(TestState.FROM, actionContext.getCurrentState());
+        Assertions.assertSame(TestState.TO, actionContext.getNextState());
+        Assertions.assertEquals("data", actionContext.getData());
+    }
+
+    private enum TestEvent {
+        TRANSITION
+    }
+
+    private enum TestState {
+        FROM, TO
+    }
+}
@@ -0,0 +1,122 @@
+package in.at0m.fsm.transition;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public class TransitionTableTest {
+
+    @Test
+    public void getTest() {
+        Transition<TestEvent, TestState, String> open
+                = new Transition<>(TestEvent.OPEN, TestState.CLOSED, TestState.OPENED);
+        Transition<TestEvent, TestState, String> close
+                = new Transition<>(TestEvent.CLOSE, TestState.OPENED, TestState.CLOSED);
+        List<Transition<TestEvent, TestState, String>> transitions = new ArrayList<>();
+        transitions.add(open);
+        transitions.add(close);
+
+        TransitionTable<TestEvent, TestState, String> table = TransitionTable.compile(transitions);
+        Assertions.assertSame(open, table.get(TestState.CLOSED, TestEvent.OPEN));
+        Assertions.assertSame(close, table.get(TestState.OPENED, TestEvent.CLOSE));
+        Assertions.assertNull(table.get(TestState.CLOSED, TestEvent.CLOSE));
+        Assertions.assertNull(table.get(TestState.BROKEN, TestEvent.OPEN));
+        Assertions.assertEquals(transitions, table.getTransitions());
+    }
+
+    @Test
+    public void emptyTest() {
+        TransitionTable<TestEvent, TestState, String> table = TransitionTable.compile(Collections.emptyList());
+        Assertions.assertNull(table.get(TestState.CLOSED, TestEvent.OPEN));
+        Assertions.assertTrue(table.getTransitions().isEmpty());
+        Assertions.assertFalse(table.canConsume(TestState.CLOSED, TestEvent.OPEN));
+        Assertions.assertTrue(table.allowedEvents(TestState.CLOSED).isEmpty());
+        Assertions.assertTrue(table.getUnreachableStates().isEmpty());
+        Assertions.assertTrue(table.getDeadEndStates().isEmpty());
+        Assertions.assertEquals(EnumSet.of(TestState.CLOSED), table.reachableStates(TestState.CLOSED));
+    }
+
+    @Test
+    public void eventMaskTest() {
+        List<Transition<WideEvent, TestState, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(WideEvent.W00, TestState.CLOSED, TestState.OPENED));
+        transitions.add(new Transition<>(WideEvent.W63, TestState.CLOSED, TestState.CLOSED));
+        transitions.add(new Transition<>(WideEvent.W64, TestState.CLOSED, TestState.BROKEN));
+        transitions.add(new Transition<>(WideEvent.W69, TestState.OPENED, TestState.CLOSED));
+        TransitionTable<WideEvent, TestState, String> table = TransitionTable.compile(transitions);
+        for (TestState state : TestState.values()) {
+            for (WideEvent event : WideEvent.values()) {
+                Assertions.assertEquals(table.get(state, event) != null, table.canConsume(state, event));
+                Assertions.assertEquals(table.get(state, event) != null, table.allowedEvents(state).contains(event));
+            }
+        }
+        Set<WideEvent> allowed = table.allowedEvents(TestState.CLOSED);
+        Assertions.assertEquals(EnumSet.of(WideEvent.W00, WideEvent.W63, WideEvent.W64), allowed);
+        Assertions.assertSame(allowed, table.allowedEvents(TestState.CLOSED));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> allowed.add(WideEvent.W01));
+        Assertions.assertTrue(table.allowedEvents(TestState.BROKEN).isEmpty());
+    }
+
+    @Test
+    public void graphTest() {
+        List<Transition<TestEvent, TestState, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(TestEvent.OPEN, TestState.CLOSED, TestState.OPENED));
+        transitions.add(new Transition<>(TestEvent.CLOSE, TestState.OPENED, TestState.OPENED));
+        transitions.add(new Transition<>(TestEvent.OPEN, TestState.BROKEN, TestState.BROKEN));
+        TransitionTable<TestEvent, TestState, String> table = TransitionTable.compile(transitions);
+        // A self loop neither reaches a state nor saves it from being unreachable.
+        Assertions.assertEquals(EnumSet.of(TestState.CLOSED, TestState.BROKEN), table.getUnreachableStates());
+        Assertions.assertTrue(table.getDeadEndStates().isEmpty());
+        Assertions.assertEquals(EnumSet.of(TestState.CLOSED, TestState.OPENED),
+                table.reachableStates(TestState.CLOSED));
+        Assertions.assertEquals(EnumSet.of(TestState.BROKEN), table.reachableStates(TestState.BROKEN));
+
+        TransitionTable<TestEvent, TestState, String> chain = TransitionTable.compile(Collections.singletonList(
+                new Transition<>(TestEvent.OPEN, TestState.CLOSED, TestState.OPENED)));
+        Assertions.assertEquals(EnumSet.of(TestState.OPENED, TestState.BROKEN), chain.getDeadEndStates());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> chain.getDeadEndStates().clear());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> chain.getUnreachableStates().clear());
+    }
+
+    @Test
+    public void duplicateTest() {
+        List<Transition<TestEvent, TestState, String>> transitions = new ArrayList<>();
+        transitions.add(new Transition<>(TestEvent.OPEN, TestState.CLOSED, TestState.OPENED));
+        transitions.add(new Transition<>(TestEvent.OPEN, TestState.CLOSED, TestState.BROKEN));
+        Assertions.assertThrows(IllegalStateException.class, () -> TransitionTable.compile(transitions));
+    }
+
+    @Test
+    public void unmodifiableTest() {
+        TransitionTable<TestEvent, TestState, String> table = TransitionTable.compile(Collections.singletonList(
+                new Transition<>(TestEvent.OPEN, TestState.CLOSED, TestState.OPENED)));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> table.getTransitions().clear());
+    }
+
+    @Test
+    public void nullParamTest() {
+        Assertions.assertThrows(NullPointerException.class, () -> TransitionTable.compile(null));
+        Assertions.assertThrows(NullPointerException.class, () -> TransitionTable.compile(Collections.emptyList())
+                .reachableStates(null));
+    }
+
+    private enum TestEvent {
+        OPEN, CLOSE
+    }
+
+    private enum WideEvent {
+        W00, W01, W02, W03, W04, W05, W06, W07, W08, W09, W10, W11, W12, W13, W14, W15, W16, W17, W18, W19,
+        W20, W21, W22, W23, W24, W25, W26, W27, W28, W29, W30, W31, W32, W33, W34, W35, W36, W37, W38, W39,
+        W40, W41, W42, W43, W44, W45, W46, W47, W48, W49, W50, W51, W52, W53, W54, W55, W56, W57, W58, W59,
+        W60, W61, W62, W63, W64, W65, W66, W67, W68, W69
+    }
+
+    private enum TestState {
+        CLOSED, OPENED, BROKEN
+    }
+}
@@ -3,6 +3,8 @@ package in.at0m.fsm.transition;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -70,6 +72,20 @@ public class TransitionTest {
         assertTransitionFullyEquals(transition1, transition2);
     }
 
+    @Test
+    public void actionsTest() {
+        List<String> calls = new ArrayList<>();
+        Transition<TestEvent, TestState, String> transition = new Transition<>(EVENT, FROM_STATE, TO_STATE,
+                Arrays.asList(new RecordingAction("first", calls), new RecordingAction("second", calls)));
+        ActionContext<TestEvent, TestState, String> actionContext
+                = new ActionContext<>(EVENT, FROM_STATE, TO_STATE, "data");
+        Assertions.assertTrue(transition.hasActions());
+        transition.before(actionContext);
+        transition.after(actionContext);
+        Assertions.assertEquals(Arrays.asList("before first", "before second", "after first", "after second"), calls);
+        Assertions.assertFalse(new Transition<TestEvent, TestState, String>(EVENT, FROM_STATE, TO_STATE).hasActions());
+    }
+
     @Test
     public void nullParamTest() {
         Assertions.assertThrows(NullPointerException.class,
@@ -101,6 +117,28 @@ public class TransitionTest {
         FROM, TO
     }
 
+    private static class RecordingAction implements Action<TestEvent, TestState, String> {
+
+        private final String name;
+
+        private final List<String> calls;
+
+        private RecordingAction(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        @Override
+        public void before(ActionContext<TestEvent, TestState, String> actionContext) {
+            calls.add("before " + name);
+        }
+
+        @Override
+        public void after(ActionContext<TestEvent, TestState, String> actionContext) {
+            calls.add("after " + name);
+        }
+    }
+
     private static class TestAction implements Action<TestEvent, TestState, String> {
 
         @Override